@@ -1,6 +1,7 @@
 plugins {
     alias(libs.plugins.androidApplication)
     id("com.google.gms.google-services")
+    alias(libs.plugins.baselineprofile)
 }
 
 android {
@@ -15,11 +16,31 @@ android {
         versionName = "1.0"
 
         testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+        // The SecureStore microbenchmark runs against the debug build, which is fine for relative numbers
+        testInstrumentationRunnerArguments["androidx.benchmark.suppressErrors"] = "DEBUGGABLE,EMULATOR"
+
+        // Build with -PfirebaseEmulatorHost=10.0.2.2 (the host machine, from the Android emulator) to run against
+        // the local Firebase emulator instead of the real project, which is what the benchmark modules expect
+        val firebaseEmulatorHost = providers.gradleProperty("firebaseEmulatorHost").getOrElse("")
+        buildConfigField("String", "FIREBASE_EMULATOR_HOST", "\"$firebaseEmulatorHost\"")
+        manifestPlaceholders["usesCleartextTraffic"] = firebaseEmulatorHost.isNotEmpty()
+    }
+
+    buildFeatures {
+        buildConfig = true
+    }
+
+    // wordlist.bin is compiled from the web app's wordlist by :core:compileWordlist, and is left uncompressed
+    // in the APK so WordlistAsset can memory map it straight out of the APK
+    sourceSets["main"].assets.srcDir(project(":core").layout.buildDirectory.dir("generated/wordlist"))
+    androidResources {
+        noCompress += "bin"
     }
 
     buildTypes {
         release {
-            isMinifyEnabled = false
+            // R8 has to run for proguard-rules.pro to strip the v, d and i logging calls, see core's Logger
+            isMinifyEnabled = true
             proguardFiles(
                 getDefaultProguardFile("proguard-android-optimize.txt"),
                 "proguard-rules.pro"
@@ -34,11 +55,22 @@ android {
 
 dependencies {
 
+    implementation(project(":core"))
+    // Installs the baseline profile (src/main/baseline-prof.txt plus whatever :macrobenchmark generates) on release builds
+    implementation(libs.profileinstaller)
+    baselineProfile(project(":macrobenchmark"))
+    // Trace sections for Tracer's spans, see AndroidTraceSections
+    implementation(libs.tracing)
     implementation(libs.appcompat)
+    // The setup wizard is one SetupActivity with a fragment per step, sharing a SetupViewModel
+    implementation(libs.fragment)
+    implementation(libs.lifecycle.viewmodel)
+    implementation(libs.lifecycle.livedata)
     implementation(libs.material)
     testImplementation(libs.junit)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
+    androidTestImplementation(libs.benchmark.junit4)
 
     implementation("androidx.biometric:biometric:1.2.0-alpha05")
     implementation("androidx.security:security-crypto:1.0.0")
@@ -51,4 +83,8 @@ dependencies {
     implementation("com.github.bumptech.glide:glide:4.12.0")
 
     implementation("com.google.android.material:material:1.4.0")
-}
\ No newline at end of file
+}
+
+tasks.named("preBuild") {
+    dependsOn(":core:compileWordlist")
+}
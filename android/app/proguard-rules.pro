@@ -12,10 +12,25 @@
 #   public *;
 #}
 
-# Uncomment this to preserve the line number information for
-# debugging stack traces.
-#-keepattributes SourceFile,LineNumberTable
+# Keep the line numbers, so the stack traces the Logger writes for WARN and ERROR can be retraced with mapping.txt,
+# while hiding the original source file names.
+-keepattributes SourceFile,LineNumberTable
+-renamesourcefileattribute SourceFile
 
-# If you keep the line number information, uncomment this to
-# hide the original source file name.
-#-renamesourcefileattribute SourceFile
\ No newline at end of file
+# Firebase, Glide and AndroidX ship their own consumer rules, and the app doesn't map Firestore documents onto classes
+# by reflection (no toObject), so nothing of ours has to be kept for them.
+# security-crypto's Tink refers to annotations that aren't on the runtime classpath, and reads the fields of its shaded
+# protobuf messages by reflection.
+-dontwarn com.google.errorprone.annotations.**
+-dontwarn javax.annotation.**
+-keepclassmembers class * extends com.google.crypto.tink.shaded.protobuf.GeneratedMessageLite {
+    <fields>;
+}
+
+# Strip VERBOSE, DEBUG and INFO logging from minified builds, along with building their messages and fields.
+# WARN and ERROR are kept, they are rare and are what we need from the field. See edu.northeastern.authenticator.core.Logger
+-assumenosideeffects class edu.northeastern.authenticator.core.Logger {
+    public void v(...);
+    public void d(...);
+    public void i(...);
+}
@@ -0,0 +1,84 @@
+package edu.northeastern.authenticator;
+
+import android.security.keystore.KeyGenParameterSpec;
+import android.security.keystore.KeyProperties;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import edu.northeastern.authenticator.core.ApprovalStatement;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.Signature;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Microbenchmark for signing an approval with a Keystore EC key, the step between the fingerprint and the Firestore write.
+ * The real key needs a fingerprint for every signature, which a benchmark can't give, so this uses a key with the same
+ * algorithm and curve but no authentication requirement, under its own alias. The user's key isn't touched.
+ * <p>
+ * keystoreSign_approval should stay under 50 ms, otherwise the user notices the gap after the prompt closes.
+ * verify_approval is what the verifier pays per attempt, on a phone rather than a server.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ApprovalSignatureBenchmark {
+
+    private static final String KEY_ALIAS = "benchmark_approval_key";
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private final ApprovalStatement statement = new ApprovalStatement("benchmarkUser", 1_712_000_000_000L,
+            Arrays.asList("benchmarkUser_1712000000000", "benchmarkUser_1712000005000"), Collections.emptyList());
+    private KeyPair keyPair;
+
+    @Before
+    public void setUp() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance(KeyProperties.KEY_ALGORITHM_EC, "AndroidKeyStore");
+        generator.initialize(new KeyGenParameterSpec.Builder(KEY_ALIAS, KeyProperties.PURPOSE_SIGN)
+                .setAlgorithmParameterSpec(new ECGenParameterSpec("secp256r1"))
+                .setDigests(KeyProperties.DIGEST_SHA256)
+                .build());
+        keyPair = generator.generateKeyPair();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("AndroidKeyStore");
+        keyStore.load(null);
+        keyStore.deleteEntry(KEY_ALIAS);
+    }
+
+    @Test
+    public void keystoreSign_approval() throws Exception {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            Signature signature = Signature.getInstance(ApprovalStatement.SIGNATURE_ALGORITHM);
+            signature.initSign(keyPair.getPrivate());
+            ApprovalSigner.sign(signature, statement);
+        }
+    }
+
+    @Test
+    public void verify_approval() throws Exception {
+        Signature signature = Signature.getInstance(ApprovalStatement.SIGNATURE_ALGORITHM);
+        signature.initSign(keyPair.getPrivate());
+        byte[] signed = ApprovalSigner.sign(signature, statement);
+
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            statement.verify(keyPair.getPublic(), signed);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package edu.northeastern.authenticator;
+
+import android.util.Log;
+
+import edu.northeastern.authenticator.core.Logger;
+
+/**
+ * The Logger sink the app installs at startup, writing to logcat through android.util.Log.
+ * The Logger levels are the same numbers as Log's, so they are passed straight through.
+ * This is the only class in the app that should be calling android.util.Log.
+ * @author James Bebarski
+ */
+final class AndroidLogSink implements Logger.Sink {
+
+    @Override
+    public void write(int level, String tag, String message, Throwable throwable) {
+        Log.println(level, tag, throwable != null ? message + '\n' + Log.getStackTraceString(throwable) : message);
+    }
+}
@@ -0,0 +1,25 @@
+package edu.northeastern.authenticator;
+
+import androidx.tracing.Trace;
+
+import edu.northeastern.authenticator.core.Tracer;
+
+/**
+ * The Tracer sections the app installs at startup, so every span shows up in a system trace through androidx.tracing.
+ * Trace checks whether tracing is on before doing anything, so this costs next to nothing when no trace is being recorded.
+ * @author James Bebarski
+ */
+final class AndroidTraceSections implements Tracer.Sections {
+
+    @Override
+    public void beginSection(String name) { Trace.beginSection(name); }
+
+    @Override
+    public void endSection() { Trace.endSection(); }
+
+    @Override
+    public void beginAsyncSection(String name, int cookie) { Trace.beginAsyncSection(name, cookie); }
+
+    @Override
+    public void endAsyncSection(String name, int cookie) { Trace.endAsyncSection(name, cookie); }
+}
@@ -0,0 +1,121 @@
+package edu.northeastern.authenticator;
+
+import android.os.Looper;
+import android.os.StrictMode;
+
+import edu.northeastern.authenticator.core.Logger;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The app's threads, so background work goes through a couple of shared pools, each with a fixed number of threads,
+ * instead of a new Thread here, a common pool CompletableFuture there, and the main thread by default in every Firebase callback.
+ * <ul>
+ *     <li>io() is for anything that waits: Firestore Task callbacks (see FirestoreLoginAttemptRepository.toFuture),
+ *     SharedPreferences, the Keystore backed EncryptedSharedPreferences, files and the login attempt sweep.</li>
+ *     <li>compute() is for anything that keeps a core busy: PIN and backup code hashing, signing, key generation.
+ *     It has a thread per core (up to COMPUTE_THREADS), so hashing 12 backup codes at once can't starve the I/O.</li>
+ * </ul>
+ * Results go back to the main thread the way they already did, with whenCompleteAsync(..., ContextCompat.getMainExecutor(context)).
+ * The pools' threads time out when idle, so an app sitting in the background isn't holding on to them.
+ * <p>
+ * Both the threads and the queues in front of them are bounded (IO_QUEUE_CAPACITY, COMPUTE_QUEUE_CAPACITY), so a flood of
+ * work can't pile up in memory without limit. Work that arrives when a queue is full is never dropped though, most of it
+ * is Firestore callbacks and the steps of a PIN check or an approval, and dropping one of those would leave a future that
+ * never completes. Instead (see runOverflow):
+ * <ul>
+ *     <li>off the main thread, the submitting thread runs it itself, which also slows that submitter down until the pool
+ *     catches up</li>
+ *     <li>on the main thread, where running it would freeze the UI, it gets a thread of its own, and a warning is logged,
+ *     since a full queue means something is submitting far more than it should</li>
+ * </ul>
+ * The queues stay short in practice, the PIN limiters stop a flood of submissions before it queues any hashing.
+ * <p>
+ * Debug builds turn on StrictMode for the main thread (see AuthenticatorApplication), which flags any disk or network access there.
+ * StrictMode doesn't know about crypto, so the crypto entry points call checkNotMainThread(), which it flags as a slow call.
+ * @author James Bebarski
+ */
+final class AppExecutors {
+
+    static final int IO_THREADS = 4;
+    static final int COMPUTE_THREADS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    static final int IO_QUEUE_CAPACITY = 64;
+    static final int COMPUTE_QUEUE_CAPACITY = 32;
+
+    private static final Logger log = Logger.get("AppExecutors");
+    private static final long KEEP_ALIVE_SECONDS = 30L;
+    private static final AtomicInteger overflowThreads = new AtomicInteger();
+
+    private static final ThreadPoolExecutor io = newPool("io", IO_THREADS, IO_QUEUE_CAPACITY, Thread.NORM_PRIORITY - 1);
+    private static final ThreadPoolExecutor compute = newPool("compute", COMPUTE_THREADS, COMPUTE_QUEUE_CAPACITY, Thread.NORM_PRIORITY);
+
+    private AppExecutors() { }
+
+    /**
+     * @return the pool for work that waits on disk, the network or the Keystore
+     */
+    static Executor io() { return io; }
+
+    /**
+     * @return the pool for CPU bound work, like hashing
+     */
+    static Executor compute() { return compute; }
+
+    /**
+     * Mark the start of work that must never run on the main thread, like hashing or a Keystore operation.
+     * On the main thread of a debug build that's a StrictMode violation (a custom slow call), everywhere else it does nothing.
+     * @param what - what the work is, for the violation's message
+     */
+    static void checkNotMainThread(String what) { StrictMode.noteSlowCall(what); }
+
+    /**
+     * Helper method to create a fixed size pool with named threads, whose threads go away when idle,
+     * and a bounded queue that overflows through runOverflow.
+     * @param name - the thread name prefix
+     * @param threads - how many threads at most
+     * @param queueCapacity - how many tasks can wait for a thread
+     * @param priority - the threads' Java priority
+     * @return the pool
+     */
+    private static ThreadPoolExecutor newPool(String name, int threads, int queueCapacity, int priority) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory factory = runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setPriority(priority);
+            return thread;
+        };
+        RejectedExecutionHandler overflow = (runnable, pool) -> runOverflow(name, runnable, pool, priority);
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), factory, overflow);
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * The pools' rejection policy, for a task that arrives when every thread is busy and the queue is full.
+     * Off the main thread it's caller runs. On the main thread the task gets a one off thread instead, named after the pool.
+     * The pools are never shut down, but if one were, its tasks would be dropped, like ThreadPoolExecutor.CallerRunsPolicy does.
+     * @param name - the pool's name
+     * @param runnable - the rejected task
+     * @param pool - the pool that rejected it
+     * @param priority - the pool's thread priority
+     */
+    private static void runOverflow(String name, Runnable runnable, ThreadPoolExecutor pool, int priority) {
+        if (pool.isShutdown()) { return; }
+        if (!Looper.getMainLooper().isCurrentThread()) {
+            runnable.run();
+            return;
+        }
+        log.w("The " + name + " queue is full, starting an overflow thread");
+        Thread thread = new Thread(runnable, name + "-overflow-" + overflowThreads.incrementAndGet());
+        thread.setPriority(priority);
+        thread.start();
+    }
+}
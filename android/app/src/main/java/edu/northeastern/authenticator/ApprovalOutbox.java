@@ -0,0 +1,337 @@
+package edu.northeastern.authenticator;
+
+import edu.northeastern.authenticator.core.ApprovalStatement;
+import edu.northeastern.authenticator.core.ApprovalTimings;
+import edu.northeastern.authenticator.core.Logger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * This class is the outbox for approvals (and denials) the user has already confirmed with their fingerprint.
+ * Before this, AuthenticationActivity wrote the statuses straight to Firestore, and if that failed it just logged it,
+ * so an approval made on a bad connection was simply lost, and with no connection at all the user never even got that far.
+ * <p>
+ * Now every decision is first saved to a Store on the device, then flushed to the LoginAttemptRepository in order:
+ * <ul>
+ *     <li>flushing only happens while we're online, and starts as soon as the ConnectivityMonitor says we're back</li>
+ *     <li>a failed flush is retried with exponential backoff (plus some jitter), from BASE_BACKOFF_MILLIS up to MAX_BACKOFF_MILLIS</li>
+ *     <li>failures the isRetriable check rejects (e.g. the attempt was deleted, or another device decided it first) are dropped,
+ *     retrying those would never succeed</li>
+ *     <li>entries are dropped without being sent once the first of their login attempts expires (LoginForm gives each one
+ *     two minutes), the web login has stopped waiting by then, and the backend would turn them down as a conflict anyway.
+ *     Entries that don't know when their attempts expire fall back to MAX_AGE_MILLIS after they were signed</li>
+ * </ul>
+ * The repository recognises a statement it has already written, so if a flush times out but actually made it,
+ * sending it again does no harm.
+ * <p>
+ * enqueue returns a future for the entry, which completes once the backend has acknowledged it, or fails with why it was
+ * dropped, so the caller can tell the user their response really got through (or didn't) rather than assume it.
+ * An entry is also dropped when its attempts expire while we're offline, so that future never waits past the expiry.
+ * Entries loaded from the Store after a restart have nobody waiting on them, and are just flushed or dropped.
+ * <p>
+ * Everything runs on the given single threaded executor, including the Store, so the outbox never has to lock anything.
+ * enqueue and setOnline only hand work to that executor and return straight away, but a flush does block the executor's
+ * thread, for up to FLUSH_TIMEOUT_MILLIS per entry while it waits for the backend to acknowledge it. So the executor has to
+ * be the outbox's own, never the main thread's or one shared with other work.
+ * getMetrics() gives the queue depth and flush latencies (from the fingerprint to the server acknowledging the write).
+ * @author James Bebarski
+ */
+public class ApprovalOutbox {
+
+    private static final Logger log = Logger.get("ApprovalOutbox");
+
+    static final long BASE_BACKOFF_MILLIS = 1_000L;
+    static final long MAX_BACKOFF_MILLIS = 5 * 60 * 1000L;
+    static final long MAX_AGE_MILLIS = 15 * 60 * 1000L;
+    private static final long FLUSH_TIMEOUT_MILLIS = 30_000L;
+
+    /**
+     * Where the outbox keeps its entries, so they survive the process being killed. Both methods are allowed to block.
+     */
+    public interface Store {
+        List<Entry> load() throws Exception;
+
+        void save(List<Entry> entries) throws Exception;
+    }
+
+    /**
+     * One decision: the signed statement of the attempts to approve and to deny, written all at once like before.
+     * The statement's signedAt is when the user gave their fingerprint, which is also when the entry was created.
+     * expiresAtMillis is when the first of the statement's attempts expires, or 0 if that isn't known.
+     * It isn't part of the signed statement, the backend checks each attempt's own expiresAt.
+     */
+    public static final class Entry {
+        public final String id;
+        public final ApprovalStatement statement;
+        public final byte[] signature;
+        public final ApprovalTimings timings;
+        public final long expiresAtMillis;
+
+        public Entry(String id, ApprovalStatement statement, byte[] signature, ApprovalTimings timings, long expiresAtMillis) {
+            this.id = id;
+            this.statement = statement;
+            this.signature = signature;
+            this.timings = timings;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    /**
+     * An entry was dropped without being sent because its login attempts expired first.
+     */
+    public static final class ExpiredException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        public ExpiredException() { super("The login attempts expired before the approval could be sent"); }
+    }
+
+    /**
+     * A snapshot of the outbox metrics, mostly for logging.
+     */
+    public static final class Metrics {
+        public final int queueDepth;
+        public final int flushed;
+        public final int dropped;
+        public final int retries;
+        public final long lastFlushLatencyMillis;
+        public final long maxFlushLatencyMillis;
+
+        Metrics(int queueDepth, int flushed, int dropped, int retries, long lastFlushLatencyMillis, long maxFlushLatencyMillis) {
+            this.queueDepth = queueDepth;
+            this.flushed = flushed;
+            this.dropped = dropped;
+            this.retries = retries;
+            this.lastFlushLatencyMillis = lastFlushLatencyMillis;
+            this.maxFlushLatencyMillis = maxFlushLatencyMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "depth=" + queueDepth + ", flushed=" + flushed + ", dropped=" + dropped + ", retries=" + retries
+                    + ", lastLatency=" + lastFlushLatencyMillis + "ms, maxLatency=" + maxFlushLatencyMillis + "ms";
+        }
+    }
+
+    private final Store store;
+    private final LoginAttemptRepository repository;
+    private final Predicate<Throwable> isRetriable;
+    private final ScheduledExecutorService executor;
+    private final LongSupplier clock;
+    private final Random random = new Random();
+
+    // Only touched on the executor
+    private List<Entry> entries;
+    private final Map<String, CompletableFuture<Void>> completions = new HashMap<>();
+    private int failedFlushes;
+    private boolean online;
+    private ScheduledFuture<?> scheduledRetry;
+
+    // Written on the executor, read from anywhere
+    private volatile Metrics metrics = new Metrics(0, 0, 0, 0, 0, 0);
+
+    /**
+     * @param store - where the entries are kept
+     * @param repository - where the entries are flushed to
+     * @param isRetriable - whether a failed flush is worth retrying
+     * @param executor - a single threaded executor, everything the outbox does runs on it
+     * @param clock - the current time, in millis
+     */
+    public ApprovalOutbox(Store store, LoginAttemptRepository repository, Predicate<Throwable> isRetriable,
+                          ScheduledExecutorService executor, LongSupplier clock) {
+        this.store = store;
+        this.repository = repository;
+        this.isRetriable = isRetriable;
+        this.executor = executor;
+        this.clock = clock;
+    }
+
+    /**
+     * Queue a decision, and flush it straight away if we're online.
+     *
+     * @param statement - the attempts to set to "authenticated" and to "denied"
+     * @param signature - the statement signed by ApprovalSigner
+     * @param timings - when the approval stages happened, written along with the statuses
+     * @param expiresAtMillis - when the first of the statement's attempts expires, or 0 if that isn't known
+     * @return a future that completes, on the outbox's executor, once the backend has the decision, or fails with why it was
+     * dropped: the repository's error if it was turned down (e.g. a ConflictException), or an ExpiredException
+     */
+    public CompletableFuture<Void> enqueue(ApprovalStatement statement, byte[] signature, ApprovalTimings timings, long expiresAtMillis) {
+        Entry entry = new Entry(UUID.randomUUID().toString(), statement, signature, timings, expiresAtMillis);
+        CompletableFuture<Void> completion = new CompletableFuture<>();
+        executor.execute(() -> {
+            completions.put(entry.id, completion);
+            entries().add(entry);
+            persist();
+            updateMetrics(0, 0, 0, -1);
+            if (expiresAtMillis > 0) {
+                // Offline nothing gets flushed, so don't leave the caller waiting past the expiry
+                executor.schedule(this::dropExpired, Math.max(0L, expiresAtMillis - clock.getAsLong()), TimeUnit.MILLISECONDS);
+            }
+            if (online) { flushAndReschedule(); }
+        });
+        return completion;
+    }
+
+    /**
+     * Tell the outbox whether we're online. Going online flushes straight away, without waiting out any backoff.
+     * @param online - true if it's worth trying to reach the backend
+     */
+    public void setOnline(boolean online) {
+        executor.execute(() -> {
+            this.online = online;
+            if (!online) { return; }
+            failedFlushes = 0;
+            flushAndReschedule();
+        });
+    }
+
+    /**
+     * @return the latest metrics, safe to call from any thread
+     */
+    public Metrics getMetrics() { return metrics; }
+
+    private void flushAndReschedule() {
+        if (scheduledRetry != null) { scheduledRetry.cancel(false); scheduledRetry = null; }
+        long retryInMillis = flush();
+        if (retryInMillis >= 0) {
+            scheduledRetry = executor.schedule(() -> { if (online) { flushAndReschedule(); } }, retryInMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Flush the entries in order, stopping at the first one that fails and is worth retrying.
+     * Only call this on the executor.
+     *
+     * @return how long to wait before retrying, or -1 if there's nothing left to retry
+     */
+    long flush() {
+        List<Entry> queue = entries();
+        while (!queue.isEmpty()) {
+            Entry entry = queue.get(0);
+            long now = clock.getAsLong();
+            if (isExpired(entry, now)) {
+                log.w("Dropping an approval that was never sent, its login attempts have expired");
+                drop(entry, new ExpiredException());
+                continue;
+            }
+
+            try {
+                repository.updateStatuses(entry.statement, entry.signature, entry.timings).get(FLUSH_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return -1;
+            } catch (ExecutionException | TimeoutException e) {
+                Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+                if (!isRetriable.test(cause)) {
+                    log.e("Dropping an approval the backend won't accept", cause);
+                    drop(entry, cause);
+                    continue;
+                }
+                failedFlushes++;
+                updateMetrics(0, 0, 1, -1);
+                long backoff = backoffMillis(failedFlushes);
+                long retryIn = backoff / 2 + (long) (random.nextDouble() * (backoff / 2));
+                log.w(() -> "Flush failed, retrying in " + retryIn + " ms (" + metrics + ")", cause);
+                return retryIn;
+            }
+
+            queue.remove(0);
+            persist();
+            failedFlushes = 0;
+            updateMetrics(1, 0, 0, clock.getAsLong() - entry.statement.getSignedAtMillis());
+            log.d("Flushed an approval", "metrics", metrics);
+            CompletableFuture<Void> completion = completions.remove(entry.id);
+            if (completion != null) { completion.complete(null); }
+        }
+        return -1;
+    }
+
+    /**
+     * @param entry - an entry in the outbox
+     * @param nowMillis - the current time, in millis
+     * @return true if the entry's attempts have expired, or for an entry that doesn't know when they expire, if it's older than MAX_AGE_MILLIS
+     */
+    static boolean isExpired(Entry entry, long nowMillis) {
+        if (entry.expiresAtMillis > 0) { return nowMillis >= entry.expiresAtMillis; }
+        return nowMillis - entry.statement.getSignedAtMillis() > MAX_AGE_MILLIS;
+    }
+
+    /**
+     * The backoff before the given retry, doubling each time from BASE_BACKOFF_MILLIS, up to MAX_BACKOFF_MILLIS.
+     * The jitter is added on top of this, see flush().
+     *
+     * @param failedFlushes - how many flushes in a row have failed, at least 1
+     * @return the backoff, in millis
+     */
+    static long backoffMillis(int failedFlushes) {
+        int doublings = Math.min(failedFlushes - 1, 20);
+        return Math.min(BASE_BACKOFF_MILLIS << doublings, MAX_BACKOFF_MILLIS);
+    }
+
+    /**
+     * Drop every entry whose attempts have expired, wherever it is in the queue. Only call this on the executor.
+     */
+    void dropExpired() {
+        long now = clock.getAsLong();
+        for (Entry entry : new ArrayList<>(entries())) {
+            if (isExpired(entry, now)) {
+                log.w("Dropping an approval that was never sent, its login attempts have expired");
+                drop(entry, new ExpiredException());
+            }
+        }
+    }
+
+    private void drop(Entry entry, Throwable cause) {
+        entries().remove(entry);
+        persist();
+        updateMetrics(0, 1, 0, -1);
+        CompletableFuture<Void> completion = completions.remove(entry.id);
+        if (completion != null) { completion.completeExceptionally(cause); }
+    }
+
+    /**
+     * Load the entries from the Store the first time they're needed. If they can't be loaded, start empty rather than
+     * never flushing anything again.
+     */
+    private List<Entry> entries() {
+        if (entries == null) {
+            try {
+                entries = new ArrayList<>(store.load());
+            } catch (Exception e) {
+                log.e("Error loading the approval outbox", e);
+                entries = new ArrayList<>();
+            }
+        }
+        return entries;
+    }
+
+    private void persist() {
+        try {
+            store.save(entries);
+        } catch (Exception e) {
+            // Still in memory, so it will be flushed unless the process dies first
+            log.e("Error saving the approval outbox", e);
+        }
+    }
+
+    private void updateMetrics(int flushed, int dropped, int retries, long flushLatencyMillis) {
+        Metrics previous = metrics;
+        metrics = new Metrics(entries().size(), previous.flushed + flushed, previous.dropped + dropped, previous.retries + retries,
+                flushLatencyMillis >= 0 ? flushLatencyMillis : previous.lastFlushLatencyMillis,
+                Math.max(previous.maxFlushLatencyMillis, flushLatencyMillis));
+    }
+}
@@ -0,0 +1,107 @@
+package edu.northeastern.authenticator;
+
+import android.security.keystore.KeyGenParameterSpec;
+import android.security.keystore.KeyProperties;
+import android.security.keystore.StrongBoxUnavailableException;
+
+import edu.northeastern.authenticator.core.ApprovalStatement;
+import edu.northeastern.authenticator.core.Logger;
+import edu.northeastern.authenticator.core.Tracer;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.ECGenParameterSpec;
+
+/**
+ * Owns the device-bound ECDSA key that approvals are signed with.
+ * The key pair is created in the Android Keystore during the setup's biometric step (BiometricSetupFragment), and the public half is registered
+ * on the user document (approvalPublicKey), so the verifier can check every approval against it.
+ * <p>
+ * The private key can't leave the device, and it can only be used right after a strong biometric authentication,
+ * once per authentication. So the only way to get a valid signature is a BiometricPrompt with the CryptoObject from newSignature().
+ * The key is invalidated if a new fingerprint is enrolled, in which case the user has to go through the biometric setup again.
+ * Like the PIN key, it's StrongBox backed where the device has StrongBox.
+ * Each Keystore call here is a CRYPTO span (see Tracer).
+ * @author James Bebarski
+ */
+public final class ApprovalSigner {
+
+    private static final Logger log = Logger.get("ApprovalSigner");
+
+    private static final String KEYSTORE = "AndroidKeyStore";
+    static final String KEY_ALIAS = "approval_signing_key";
+
+    private ApprovalSigner() { }
+
+    /**
+     * Create a new signing key, replacing any old one. This is slow (especially with StrongBox), keep it off the main thread.
+     * @return the public key, encoded to be stored on the user document
+     */
+    public static String createKey() throws GeneralSecurityException {
+        AppExecutors.checkNotMainThread("Keystore.createApprovalKey");
+        PublicKey publicKey;
+        try (Tracer.Span ignored = Tracer.section(Tracer.Category.CRYPTO, "Keystore.createApprovalKey")) {
+            try {
+                publicKey = generateKey(true);
+            } catch (StrongBoxUnavailableException e) {
+                log.d("StrongBox unavailable, using the regular Keystore");
+                publicKey = generateKey(false);
+            }
+        }
+        return ApprovalStatement.encodePublicKey(publicKey);
+    }
+
+    private static PublicKey generateKey(boolean strongBox) throws GeneralSecurityException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance(KeyProperties.KEY_ALGORITHM_EC, KEYSTORE);
+        generator.initialize(new KeyGenParameterSpec.Builder(KEY_ALIAS, KeyProperties.PURPOSE_SIGN)
+                .setAlgorithmParameterSpec(new ECGenParameterSpec("secp256r1"))
+                .setDigests(KeyProperties.DIGEST_SHA256)
+                .setUserAuthenticationRequired(true)
+                .setUserAuthenticationParameters(0, KeyProperties.AUTH_BIOMETRIC_STRONG)
+                .setInvalidatedByBiometricEnrollment(true)
+                .setIsStrongBoxBacked(strongBox)
+                .build());
+        return generator.generateKeyPair().getPublic();
+    }
+
+    /**
+     * Get a Signature ready to sign with the key, to wrap in a BiometricPrompt.CryptoObject.
+     * It can only sign once the prompt has succeeded.
+     *
+     * @return the initialized Signature
+     * @throws android.security.keystore.KeyPermanentlyInvalidatedException - if the fingerprints changed since the key was made
+     * @throws GeneralSecurityException - if there is no key, or the Keystore fails
+     */
+    public static Signature newSignature() throws GeneralSecurityException, IOException {
+        AppExecutors.checkNotMainThread("Keystore.newApprovalSignature");
+        try (Tracer.Span ignored = Tracer.section(Tracer.Category.CRYPTO, "Keystore.newApprovalSignature")) {
+            KeyStore keyStore = KeyStore.getInstance(KEYSTORE);
+            keyStore.load(null);
+            PrivateKey privateKey = (PrivateKey) keyStore.getKey(KEY_ALIAS, null);
+            if (privateKey == null) { throw new GeneralSecurityException("No approval signing key, biometric setup was not completed"); }
+            Signature signature = Signature.getInstance(ApprovalStatement.SIGNATURE_ALGORITHM);
+            signature.initSign(privateKey);
+            return signature;
+        }
+    }
+
+    /**
+     * Sign a statement with a Signature the BiometricPrompt has unlocked.
+     *
+     * @param unlocked - the Signature from the prompt's CryptoObject
+     * @param statement - what the user decided
+     * @return the DER encoded ECDSA signature
+     */
+    public static byte[] sign(Signature unlocked, ApprovalStatement statement) throws GeneralSecurityException {
+        AppExecutors.checkNotMainThread("Keystore.signApproval");
+        try (Tracer.Span ignored = Tracer.section(Tracer.Category.CRYPTO, "Keystore.signApproval")) {
+            unlocked.update(statement.toBytes());
+            return unlocked.sign();
+        }
+    }
+}
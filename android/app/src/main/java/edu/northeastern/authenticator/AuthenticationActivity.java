@@ -1,40 +1,96 @@
 package edu.northeastern.authenticator;
 
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.os.Bundle;
-import android.util.Log;
+import android.security.keystore.KeyPermanentlyInvalidatedException;
+import android.text.format.DateFormat;
+import android.widget.Button;
 import android.widget.EditText;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.biometric.BiometricManager;
 import androidx.biometric.BiometricPrompt;
 import androidx.core.content.ContextCompat;
-import androidx.security.crypto.EncryptedSharedPreferences;
-import androidx.security.crypto.MasterKeys;
 
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.firestore.FirebaseFirestore;
+
+import edu.northeastern.authenticator.core.ApprovalStatement;
+import edu.northeastern.authenticator.core.ApprovalTimings;
+import edu.northeastern.authenticator.core.Logger;
+import edu.northeastern.authenticator.core.PinVerifier;
+import edu.northeastern.authenticator.core.Tracer;
 
 import java.io.IOException;
 import java.security.GeneralSecurityException;
+import java.security.Signature;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * This activity represents the actual authenticator applications main functionality.
  * When a request is made in the web application to login, the user will then need to authenticate themselves using this app.
  * First they will need to give their PIN, then they will need to authenticate themselves using their biometric information.
  * If both of these are successful, the user will then be able to login to the web application.
+ * When several login requests are pending at once, they are all shown oldest first and can be approved or denied together.
  * @author James Bebarski
  */
 public class AuthenticationActivity extends AppCompatActivity {
 
+    private static final Logger log = Logger.get("PinEntryActivity");
+    // The pending count changes with every snapshot, which can be a lot of them while several logins are coming in
+    private static final Logger pendingCountLog = log.sampled(10);
+
+    // Expired login attempts are kept for a day after they expire, then deleted
+    private static final long LOGIN_ATTEMPT_RETENTION_MILLIS = 24 * 60 * 60 * 1000L;
+    private static final AtomicBoolean expirySweepStarted = new AtomicBoolean(false);
+
+    // The device PIN limiter only ever counts this device, so it only needs the one key
+    private static final String DEVICE_PIN_LIMIT_KEY = "pin";
+
+    private LoginAttemptRepository loginAttemptRepository;
+    private PendingLoginAttemptsMonitor pendingLoginAttemptsMonitor;
+    private String userId;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) { super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_pin_entry);
         initializeViewComponents();
+
+        userId = Objects.requireNonNull(FirebaseAuth.getInstance().getCurrentUser()).getUid();
+        loginAttemptRepository = ((AuthenticatorApplication) getApplication()).getLoginAttemptRepository();
+        pendingLoginAttemptsMonitor = new PendingLoginAttemptsMonitor(loginAttemptRepository, userId,
+                pendingCount -> pendingCountLog.d("Pending login attempts changed", "count", pendingCount));
+        sweepExpiredLoginAttempts();
+    }
+
+    /**
+     * Method to clean up the user's expired login attempts in the background, at most once per process.
+     * Pending attempts past their expiresAt are set to "expired", and anything that expired over a day ago is deleted,
+     * so the pending attempts query doesn't keep slowing down as old attempts pile up.
+     * The sweep blocks on Firestore page by page, so it runs on AppExecutors.io() rather than a thread of its own.
+     */
+    private void sweepExpiredLoginAttempts() {
+        if (!expirySweepStarted.compareAndSet(false, true)) { return; }
+        LoginAttemptSweeper sweeper = new LoginAttemptSweeper(loginAttemptRepository, userId, 100, LOGIN_ATTEMPT_RETENTION_MILLIS);
+        AppExecutors.io().execute(() -> {
+            try {
+                LoginAttemptSweeper.Result result = sweeper.sweep(System.currentTimeMillis());
+                log.d("Login attempt sweep finished", "result", result);
+            } catch (Exception e) {
+                log.e("Error sweeping expired login attempts", e);
+            }
+        });
     }
 
     /**
@@ -50,80 +106,263 @@ public class AuthenticationActivity extends AppCompatActivity {
 
     /**
      * Method to assist in validating the user's PIN.
-     * This method retrieves the stored PIN from the EncryptedSharedPreferences and compares it to the entered PIN.
-     * If the PIN matches, return true. Otherwise, return false.
+     * The PIN used to be stored in plaintext and compared with equals, now it is checked by the shared PinVerifier,
+     * which only keeps a salted, Keystore keyed hash, and locks the PIN for longer and longer after repeated wrong guesses.
+     * The check is slow on purpose, so it runs on AppExecutors.compute().
      *
      * @param pin - the PIN entered by the user
-     * @throws GeneralSecurityException - if an error occurs while creating the master key
-     * @throws IOException - if an error occurs with EncryptedSharedPreferences
+     * @return a future that completes with the PinVerifier's result, on a compute thread
      */
-    private boolean validatePin(String pin) throws GeneralSecurityException, IOException {
-        String masterKeyAlias = MasterKeys.getOrCreate(MasterKeys.AES256_GCM_SPEC);
-        SharedPreferences sharedPreferences = EncryptedSharedPreferences.create(
-                "secure_preferences",
-                masterKeyAlias,
-                this,
-                EncryptedSharedPreferences.PrefKeyEncryptionScheme.AES256_SIV,
-                EncryptedSharedPreferences.PrefValueEncryptionScheme.AES256_GCM);
+    private CompletableFuture<PinVerifier.Result> validatePin(String pin) {
+        SecureStore secureStore = SecureStore.getInstance(this);
+        return CompletableFuture.supplyAsync(() -> {
+            // Trace sections are picked up by the :macrobenchmark approval journey
+            try (Tracer.Span ignored = Tracer.section(Tracer.Category.CRYPTO, "AuthenticationActivity.validatePin")) {
+                return secureStore.getPinVerifier().verify(pin);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, AppExecutors.compute());
+    }
 
-        // Compare the entered PIN to the stored PIN, and return the result
-        return pin.equals(sharedPreferences.getString("pin", ""));
+    /**
+     * Method to count a PIN try against the user's limit, across all of their devices (see AuthenticatorApplication.getUserPinLimiter).
+     * The check goes to Firestore, so it runs on AppExecutors.io(), before the PIN is hashed.
+     * If the limit can't be checked, e.g. we're offline and have nothing cached, the try is allowed,
+     * the device limit and the PinVerifier's own lockout still apply.
+     *
+     * @return a future that completes with the limiter's decision, it never fails
+     */
+    private CompletableFuture<RateLimiter.Decision> acquireUserPinAttempt() {
+        RateLimiter limiter = ((AuthenticatorApplication) getApplication()).getUserPinLimiter();
+        String key = "pin:" + userId;
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return limiter.tryAcquire(key);
+            } catch (Exception e) {
+                log.w("Could not check the PIN rate limit, allowing the attempt", e);
+                return RateLimiter.Decision.ALLOWED;
+            }
+        }, AppExecutors.io());
     }
 
     /**
-     * Method to check for any pending login attempts in Firestore.
+     * Method to check for any pending login attempts.
+     * If the PendingLoginAttemptsMonitor has already received its first snapshot, this is answered from memory,
+     * without going to the network at all. Otherwise, we fall back to a one-off fetch from the repository.
      * If there are any pending login attempts, validate the entered PIN.
      * If the PIN is correct, authenticate the user using biometrics.
      * Otherwise, give a generic error message.
+     * <p>
+     * Before any of that, the try is counted against this device's PIN limit, which is in memory and only costs a
+     * compare-and-set, so a flood of submissions is turned away before it can queue up any hashing.
      *
      * @param enteredPin - the PIN entered by the user
      */
     private void checkForPendingLoginAttempts(String enteredPin) {
-        FirebaseFirestore firestore = FirebaseFirestore.getInstance();
-        String userId = Objects.requireNonNull(FirebaseAuth.getInstance().getCurrentUser()).getUid();
-
-        firestore.collection("login_attempts")
-                .whereEqualTo("userId", userId)
-                .whereEqualTo("status", "pending")
-                .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> {
-                    if (!queryDocumentSnapshots.isEmpty()) {
-                        try {
-                            if (validatePin(enteredPin)) {
-                                String sessionId = queryDocumentSnapshots.getDocuments().get(0).getId();
-                                authenticateUserWithBiometrics(sessionId);
-                            } else {
-                                // If the PIN doesn't match, give a generic error message.
-                                Toast.makeText(this, "Authentication failed", Toast.LENGTH_SHORT).show();
-                            }
-                        } catch (GeneralSecurityException | IOException e) {
-                            // If an error occurs while validating the PIN, log the error.
-                            Log.e("PinEntryActivity", "Error validating PIN", e);
-                        }
-                    } else {
-                        // No pending login attempts, give a generic message.
-                        Toast.makeText(this, "Authentication failed", Toast.LENGTH_SHORT).show();
+        RateLimiter.Decision deviceLimit = ((AuthenticatorApplication) getApplication()).getDevicePinLimiter().tryAcquire(DEVICE_PIN_LIMIT_KEY);
+        if (!deviceLimit.allowed) {
+            Toast.makeText(this, "Too many attempts. Try again in " + secondsUntil(deviceLimit.retryAfterMillis) + " seconds", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        if (pendingLoginAttemptsMonitor.isReady()) {
+            resolvePendingLoginAttempts(pendingLoginAttemptsMonitor.getPendingLoginAttempts(), pendingLoginAttemptsMonitor.getReceivedAtMillis(), enteredPin);
+            return;
+        }
+        queryPendingLoginAttempts(enteredPin);
+    }
+
+    /**
+     * Method to validate the PIN against the pending login attempts, which are ordered oldest first.
+     * If there is only one pending attempt it goes straight to the biometric prompt, like before.
+     * If there are several, the user gets to pick which ones to approve, and everything else is denied.
+     *
+     * When the attempts arrived and when the PIN was verified are carried along to the approval, see ApprovalTimings.
+     * The try is counted against the user's PIN limit first, and the PIN is only handed to the PinVerifier once that allows it.
+     * A try over the limit is never hashed, so it doesn't cost a slow hash or count as a wrong guess towards the
+     * PinVerifier's lockout. The price is the limit's round trip (at most FirestoreRateLimiter.READ_TIMEOUT_MILLIS)
+     * before the hashing starts, rather than alongside it.
+     *
+     * @param pendingAttempts - the pending login attempts, oldest first
+     * @param receivedAtMillis - when each attempt showed up on the phone, by session ID
+     * @param enteredPin - the PIN entered by the user
+     */
+    private void resolvePendingLoginAttempts(List<LoginAttempt> pendingAttempts, Map<String, Long> receivedAtMillis, String enteredPin) {
+        if (pendingAttempts.isEmpty()) {
+            // No pending login attempts, give a generic message.
+            Toast.makeText(this, "Authentication failed", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        CompletableFuture<RateLimiter.Decision> userLimit = acquireUserPinAttempt();
+        userLimit.thenCompose(limit -> limit.allowed
+                ? validatePin(enteredPin)
+                : CompletableFuture.<PinVerifier.Result>completedFuture(null)).whenCompleteAsync((result, e) -> {
+            if (e != null) {
+                // If an error occurs while validating the PIN, log the error.
+                log.e("Error validating PIN", e);
+                return;
+            }
+            // The limit never fails, see acquireUserPinAttempt, and the PIN was only checked if it allowed the try
+            RateLimiter.Decision limit = userLimit.join();
+            if (!limit.allowed) {
+                Toast.makeText(this, "Too many attempts. Try again in " + secondsUntil(limit.retryAfterMillis) + " seconds", Toast.LENGTH_SHORT).show();
+            } else if (result.status == PinVerifier.Status.LOCKED_OUT) {
+                Toast.makeText(this, "Too many attempts. Try again in " + secondsUntil(result.retryAfterMillis) + " seconds", Toast.LENGTH_SHORT).show();
+            } else if (!result.isMatch()) {
+                // If the PIN doesn't match, give a generic error message.
+                Toast.makeText(this, "Authentication failed", Toast.LENGTH_SHORT).show();
+            } else if (pendingAttempts.size() == 1) {
+                authenticateUserWithBiometrics(sessionIdsOf(pendingAttempts), new ArrayList<>(),
+                        new ApprovalTimings(receivedAtMillis, System.currentTimeMillis(), 0L), earliestExpiryOf(pendingAttempts));
+            } else {
+                showApprovalQueue(pendingAttempts, new ApprovalTimings(receivedAtMillis, System.currentTimeMillis(), 0L));
+            }
+        }, ContextCompat.getMainExecutor(this));
+    }
+
+    private static long secondsUntil(long millis) { return (millis + 999) / 1000; }
+
+    /**
+     * Method to fetch the pending login attempts once from the repository.
+     * This is only used until the PendingLoginAttemptsMonitor has received its first update.
+     *
+     * @param enteredPin - the PIN entered by the user
+     */
+    private void queryPendingLoginAttempts(String enteredPin) {
+        loginAttemptRepository.findPending(userId).whenCompleteAsync((pendingAttempts, e) -> {
+            if (e != null) {
+                log.e("Failed to fetch login attempts", e);
+                return;
+            }
+            long now = System.currentTimeMillis();
+            LoginAttemptQueue queue = new LoginAttemptQueue();
+            Map<String, Long> receivedAtMillis = new HashMap<>();
+            for (LoginAttempt attempt : pendingAttempts) {
+                queue.put(attempt);
+                receivedAtMillis.put(attempt.getSessionId(), now);
+            }
+            queue.removeExpired(now);
+            resolvePendingLoginAttempts(queue.snapshot(), receivedAtMillis, enteredPin);
+        }, ContextCompat.getMainExecutor(this));
+    }
+
+    /**
+     * Method to show every pending login attempt, oldest first, so the user can clear them all with one biometric prompt.
+     * All of the attempts start out checked, anything the user unchecks will be denied.
+     *
+     * @param pendingAttempts - the pending login attempts, oldest first
+     * @param timings - the approval's timings so far
+     */
+    private void showApprovalQueue(List<LoginAttempt> pendingAttempts, ApprovalTimings timings) {
+        // Every attempt is either approved or denied, so the decision expires with the first of them
+        long expiresAtMillis = earliestExpiryOf(pendingAttempts);
+        String[] labels = new String[pendingAttempts.size()];
+        boolean[] checked = new boolean[pendingAttempts.size()];
+        java.text.DateFormat timeFormat = DateFormat.getTimeFormat(this);
+        for (int i = 0; i < labels.length; i++) {
+            long timestamp = pendingAttempts.get(i).getTimestampMillis();
+            labels[i] = "Login request at " + (timestamp > 0 ? timeFormat.format(new Date(timestamp)) : "unknown time");
+            checked[i] = true;
+        }
+
+        new AlertDialog.Builder(this)
+                .setTitle(pendingAttempts.size() + " pending login requests")
+                .setMultiChoiceItems(labels, checked, (dialog, which, isChecked) -> checked[which] = isChecked)
+                .setPositiveButton("Approve selected", (dialog, which) -> {
+                    List<String> approved = new ArrayList<>();
+                    List<String> denied = new ArrayList<>();
+                    for (int i = 0; i < checked.length; i++) {
+                        if (checked[i]) { approved.add(pendingAttempts.get(i).getSessionId()); }
+                        else { denied.add(pendingAttempts.get(i).getSessionId()); }
                     }
+                    authenticateUserWithBiometrics(approved, denied, timings, expiresAtMillis);
                 })
-                .addOnFailureListener(e -> Log.e("PinEntryActivity", "Failed to fetch login attempts", e));
+                .setNegativeButton("Deny all", (dialog, which) ->
+                        authenticateUserWithBiometrics(new ArrayList<>(), sessionIdsOf(pendingAttempts), timings, expiresAtMillis))
+                .show();
     }
 
     /**
      * Method to handle authenticating the user using biometrics.
-     * If the user successfully authenticates themselves, update the status of the login attempt to "authenticated".
+     * If the user successfully authenticates themselves, every approved login attempt is set to "authenticated"
+     * and every denied one to "denied", all in one write.
      * Otherwise, handle any errors or failures that occur during the biometric authentication process.
+     * <p>
+     * The prompt used to be shown without a CryptoObject, so a successful prompt was just a callback, and the write that followed
+     * could have come from anywhere. Now the prompt unlocks the approval signing key (see ApprovalSigner),
+     * and the decision is signed with it before it's written, so the verifier can tell it really came from this device.
+     * The prompt is a UI span (see Tracer), from showing it until it succeeds or is dismissed, which is mostly the user.
+     * <p>
+     * Loading the key and initializing the Signature are Keystore calls, and signing is too, so both happen on
+     * AppExecutors.compute(), and only showing the prompt and what follows the signing come back to the main thread.
      *
-     * @param sessionId - the ID of the login attempt document in Firestore
+     * @param approvedSessionIds - the IDs of the login attempt documents to approve
+     * @param deniedSessionIds - the IDs of the login attempt documents to deny
+     * @param timings - the approval's timings so far, the biometric stage is added once the prompt succeeds
+     * @param expiresAtMillis - when the first of the attempts expires, or 0 if that isn't known
      */
-    private void authenticateUserWithBiometrics(String sessionId) {
+    private void authenticateUserWithBiometrics(List<String> approvedSessionIds, List<String> deniedSessionIds, ApprovalTimings timings,
+                                                long expiresAtMillis) {
+        CompletableFuture.supplyAsync(() -> {
+            try {
+                return ApprovalSigner.newSignature();
+            } catch (GeneralSecurityException | IOException e) {
+                throw new CompletionException(e);
+            }
+        }, AppExecutors.compute()).whenCompleteAsync((signature, e) -> {
+            if (isFinishing() || isDestroyed()) { return; }
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof KeyPermanentlyInvalidatedException) {
+                // A fingerprint was added or removed since setup, the key is gone for good
+                log.e("Approval signing key was invalidated", cause);
+                Toast.makeText(this, "Your fingerprints changed, please set up the authenticator again", Toast.LENGTH_LONG).show();
+            } else if (cause != null) {
+                log.e("Error loading the approval signing key", cause);
+                Toast.makeText(this, "Authentication failed", Toast.LENGTH_SHORT).show();
+            } else {
+                showBiometricPrompt(approvedSessionIds, deniedSessionIds, timings, expiresAtMillis, signature);
+            }
+        }, ContextCompat.getMainExecutor(this));
+    }
+
+    /**
+     * Method to show the biometric prompt, once the Signature it unlocks is ready.
+     *
+     * @param approvedSessionIds - the IDs of the login attempt documents to approve
+     * @param deniedSessionIds - the IDs of the login attempt documents to deny
+     * @param timings - the approval's timings so far
+     * @param expiresAtMillis - when the first of the attempts expires, or 0 if that isn't known
+     * @param signature - the Signature for the approval signing key, from ApprovalSigner.newSignature()
+     */
+    private void showBiometricPrompt(List<String> approvedSessionIds, List<String> deniedSessionIds, ApprovalTimings timings,
+                                     long expiresAtMillis, Signature signature) {
         Executor executor = ContextCompat.getMainExecutor(this);
+        Tracer.Span prompt = Tracer.begin(Tracer.Category.UI, "BiometricPrompt.approve");
         BiometricPrompt biometricPrompt = new BiometricPrompt(this, executor, new BiometricPrompt.AuthenticationCallback() {
 
-            // If the user successfully authenticates themselves using biometrics, update the login attempt status to "authenticated".
+            // If the user successfully authenticates themselves using biometrics, sign the decision with the key
+            // the prompt just unlocked, and update the login attempt statuses.
             @Override
             public void onAuthenticationSucceeded(@NonNull BiometricPrompt.AuthenticationResult result) {
                 super.onAuthenticationSucceeded(result);
-                updateLoginAttemptStatus(sessionId, "authenticated");
+                prompt.end();
+                long now = System.currentTimeMillis();
+                ApprovalStatement statement = new ApprovalStatement(userId, now, approvedSessionIds, deniedSessionIds);
+                Signature unlocked = Objects.requireNonNull(Objects.requireNonNull(result.getCryptoObject()).getSignature());
+                CompletableFuture.supplyAsync(() -> {
+                    try (Tracer.Span ignored = Tracer.section(Tracer.Category.CRYPTO, "AuthenticationActivity.signApproval")) {
+                        return ApprovalSigner.sign(unlocked, statement);
+                    } catch (GeneralSecurityException e) {
+                        throw new CompletionException(e);
+                    }
+                }, AppExecutors.compute()).whenCompleteAsync((signed, e) -> {
+                    if (e != null) {
+                        log.e("Error signing the approval", e);
+                        Toast.makeText(getApplicationContext(), "Authentication failed", Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+                    updateLoginAttemptStatuses(statement, signed, timings.withBiometricDoneAt(now), expiresAtMillis);
+                }, executor);
             }
 
             // Handle any errors that occur during the biometric authentication process.
@@ -132,6 +371,7 @@ public class AuthenticationActivity extends AppCompatActivity {
             @Override
             public void onAuthenticationError(int errorCode, @NonNull CharSequence errString) {
                 super.onAuthenticationError(errorCode, errString);
+                prompt.end();
                 Toast.makeText(getApplicationContext(), "Authentication error: " + errString, Toast.LENGTH_SHORT).show();
             }
 
@@ -148,65 +388,130 @@ public class AuthenticationActivity extends AppCompatActivity {
         //The biometric data is stored in the device.
         BiometricPrompt.PromptInfo promptInfo = new BiometricPrompt.PromptInfo.Builder()
                 .setTitle("Biometric Authentication")
-                .setSubtitle("Confirm your identity")
+                .setSubtitle(approvedSessionIds.size() + deniedSessionIds.size() > 1
+                        ? "Confirm your identity for " + (approvedSessionIds.size() + deniedSessionIds.size()) + " login requests"
+                        : "Confirm your identity")
+                .setAllowedAuthenticators(BiometricManager.Authenticators.BIOMETRIC_STRONG)
                 .setNegativeButtonText("Cancel")
                 .build();
 
-        biometricPrompt.authenticate(promptInfo);
+        try (Tracer.Span ignored = Tracer.section(Tracer.Category.UI, "AuthenticationActivity.showBiometricPrompt")) {
+            biometricPrompt.authenticate(promptInfo, new BiometricPrompt.CryptoObject(signature));
+        }
+        // Decode the completion screen's gif while the user has their finger on the sensor, rather than after
+        if (!approvedSessionIds.isEmpty()) { AuthenticationCompleteActivity.preloadAnimation(this); }
     }
 
     /**
-     * Method to handle updating the status of a login attempt in Firestore.
-     * If the status is updated to "authenticated", proceed to the next activity.
-     * Otherwise, do nothing.
-     * @param sessionId - the ID of the login attempt document in Firestore
-     * @param status - the new status to update the login attempt to ("authenticated").
+     * Method to handle updating the status of the login attempts.
+     * All of the updates go into a single transaction, so clearing a backlog of requests is one commit instead of N round trips,
+     * either every status changes or none of them do, and an attempt another device already decided isn't overwritten.
+     * The batch goes through the ApprovalOutbox, which keeps it on the device until the backend has it, retrying as needed,
+     * so a bad connection no longer loses an approval the user already gave their fingerprint for,
+     * at least until its login attempts expire, after which it's no use to the web login anyway.
+     * <p>
+     * The PIN screen shows it's sending until the outbox says the backend has the decision, and only then,
+     * if at least one attempt was approved, proceeds to the next activity. If the outbox drops the decision instead
+     * (another device or the sweeper got there first, or the attempts expired), the user is told it didn't go through.
+     *
+     * @param statement - the login attempts to set to "authenticated" and to "denied"
+     * @param signature - the statement, signed with the approval signing key
+     * @param timings - when the approval stages happened
+     * @param expiresAtMillis - when the first of the attempts expires, or 0 if that isn't known
      */
-    private void updateLoginAttemptStatus(String sessionId, String status) {
-        FirebaseFirestore firestore = FirebaseFirestore.getInstance();
-
-        // Query the Firestore database to update the status of the login attempt.
-        firestore.collection("login_attempts").document(sessionId)
-                .update("status", status)
-                .addOnSuccessListener(aVoid -> {
-                    Log.d("PinEntryActivity", "Login attempt status updated to " + status);
-                    if ("authenticated".equals(status)) {
-                        proceedToNextAuthenticationCompleteActivity();
-                    }
-                })
-                .addOnFailureListener(e -> Log.e("PinEntryActivity", "Error updating login attempt status", e));
+    private void updateLoginAttemptStatuses(ApprovalStatement statement, byte[] signature, ApprovalTimings timings, long expiresAtMillis) {
+        CompletableFuture<Void> sent = ((AuthenticatorApplication) getApplication()).getApprovalOutbox()
+                .enqueue(statement, signature, timings, expiresAtMillis);
+        List<String> approvedSessionIds = statement.getApprovedSessionIds();
+        log.d("Login attempts decided", "approved", approvedSessionIds.size(), "denied", statement.getDeniedSessionIds().size());
+        showSending(true);
+        if (!ConnectivityMonitor.getInstance(this).getState().isUsable()) {
+            Toast.makeText(this, "You're offline, your response will be sent once you're back online", Toast.LENGTH_LONG).show();
+        }
+        sent.whenCompleteAsync((ignored, e) -> {
+            if (isFinishing() || isDestroyed()) { return; }
+            showSending(false);
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof LoginAttemptRepository.ConflictException) {
+                Toast.makeText(this, "This login request was already answered or has expired", Toast.LENGTH_LONG).show();
+            } else if (cause instanceof ApprovalOutbox.ExpiredException) {
+                Toast.makeText(this, "This login request expired before your response could be sent", Toast.LENGTH_LONG).show();
+            } else if (cause != null) {
+                Toast.makeText(this, "Your response could not be sent", Toast.LENGTH_LONG).show();
+            } else if (!approvedSessionIds.isEmpty()) {
+                proceedToNextAuthenticationCompleteActivity();
+            }
+        }, ContextCompat.getMainExecutor(this));
+    }
+
+    /**
+     * Method to show the PIN screen as sending, or not, while a decision is in the outbox.
+     * The submit button is disabled meanwhile, so a second decision can't be started on top of it.
+     * @param sending - true while the decision hasn't been sent yet
+     */
+    private void showSending(boolean sending) {
+        Button submitButton = findViewById(R.id.submitPinButton);
+        submitButton.setEnabled(!sending);
+        submitButton.setText(sending ? "Sending..." : "Submit");
+    }
+
+    /**
+     * Helper method to pull the session IDs out of a list of login attempts.
+     * @param attempts - the login attempts
+     * @return their session IDs, in the same order
+     */
+    private static List<String> sessionIdsOf(List<LoginAttempt> attempts) {
+        List<String> sessionIds = new ArrayList<>(attempts.size());
+        for (LoginAttempt attempt : attempts) { sessionIds.add(attempt.getSessionId()); }
+        return sessionIds;
+    }
+
+    /**
+     * Helper method to find when the first of a list of login attempts expires.
+     * @param attempts - the login attempts
+     * @return the earliest expiresAt among them, or 0 if none of them has one
+     */
+    private static long earliestExpiryOf(List<LoginAttempt> attempts) {
+        long earliest = 0L;
+        for (LoginAttempt attempt : attempts) {
+            long expiresAt = attempt.getExpiresAtMillis();
+            if (expiresAt > 0 && (earliest == 0 || expiresAt < earliest)) { earliest = expiresAt; }
+        }
+        return earliest;
     }
 
     /**
      * Method to proceed to the AuthenticationCompleteActivity.
      * This should only be called if the user has successfully authenticated themselves.
+     * This activity stays underneath it, so the AuthenticationCompleteActivity comes back here when it's done.
      */
     private void proceedToNextAuthenticationCompleteActivity() {
-        Log.d("PinEntryActivity", "Authentication successful. Proceeding to the AuthenticationCompleteActivity.");
+        log.d("Authentication successful. Proceeding to the AuthenticationCompleteActivity.");
         startActivity(new Intent(this, AuthenticationCompleteActivity.class));
     }
 
     // Lifecycle methods
+    // The pending login attempts are only listened for while the PIN screen is visible
     @Override
-    protected void onStart() { super.onStart(); Log.d("PinEntryActivity", "onStart"); }
+    protected void onStart() { super.onStart(); log.v("onStart"); pendingLoginAttemptsMonitor.start(); }
 
     @Override
-    protected void onStop() { super.onStop(); Log.d("PinEntryActivity", "onStop"); }
+    protected void onStop() { super.onStop(); log.v("onStop"); pendingLoginAttemptsMonitor.stop(); }
 
     @Override
-    protected void onResume() { super.onResume(); Log.d("PinEntryActivity", "onResume"); }
+    protected void onResume() { super.onResume(); log.v("onResume"); }
 
     @Override
-    protected void onPause() { super.onPause(); Log.d("PinEntryActivity", "onPause"); }
+    protected void onPause() { super.onPause(); log.v("onPause"); }
 
     @Override
-    protected void onDestroy() { super.onDestroy(); Log.d("PinEntryActivity", "onDestroy"); }
+    protected void onDestroy() { super.onDestroy(); log.v("onDestroy"); }
 
     // save the current state of the application
     @Override
-    protected void onSaveInstanceState(@NonNull Bundle outState) { super.onSaveInstanceState(outState); Log.d("PinEntryActivity", "onSaveInstanceState"); }
+    protected void onSaveInstanceState(@NonNull Bundle outState) { super.onSaveInstanceState(outState); log.v("onSaveInstanceState"); }
 
     // restore the current state of the application
     @Override
-    protected void onRestoreInstanceState(@NonNull Bundle savedInstanceState) { super.onRestoreInstanceState(savedInstanceState); Log.d("PinEntryActivity", "onRestoreInstanceState"); }
+    protected void onRestoreInstanceState(@NonNull Bundle savedInstanceState) { super.onRestoreInstanceState(savedInstanceState); log.v("onRestoreInstanceState"); }
 }
@@ -1,80 +1,151 @@
 package edu.northeastern.authenticator;
 
+import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.Handler;
 import android.os.Looper;
-import android.util.Log;
 import android.widget.ImageView;
 import android.widget.TextView;
 
-import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.load.engine.GlideException;
+import com.bumptech.glide.load.resource.gif.GifDrawable;
+import com.bumptech.glide.request.RequestListener;
+import com.bumptech.glide.request.target.Target;
 
-import java.util.Objects;
+import edu.northeastern.authenticator.core.Logger;
+import edu.northeastern.authenticator.core.Tracer;
 
 /**
  * This activity will display a message to the user if they successfully completed the mobile authentication process,
  * so that they can log in to the web application.
+ * <p>
+ * It used to hold the user here for 6 seconds with a CountDownTimer, and quit the main looper on its way out.
+ * Now it only stays for the dwell time (EXTRA_DWELL_MILLIS, DEFAULT_DWELL_MILLIS unless the caller says otherwise),
+ * and tapping Done, or anywhere else, returns to the PIN screen straight away, ready for the next login attempt.
+ * The dwell only counts down while the activity is visible, so coming back to it doesn't skip straight past it.
+ * <p>
+ * The gif is loaded by Glide only, at the fixed size of its ImageView, so its frames are decoded downscaled to that size,
+ * and the decoded animation stays in Glide's memory cache. AuthenticationActivity preloads it the same way with preload(),
+ * while the biometric prompt is up, so this activity usually gets it from the cache instead of decoding the 1.3 MB gif itself.
  * @author James Bebarski
  */
 public class AuthenticationCompleteActivity extends AppCompatActivity {
 
+    private static final Logger log = Logger.get("AuthenticationComplete");
+
+    /**
+     * How long to stay on this screen before returning to the PIN screen, in millis. 0 returns as soon as the screen is shown.
+     */
+    public static final String EXTRA_DWELL_MILLIS = "dwellMillis";
+    public static final long DEFAULT_DWELL_MILLIS = 2_000L;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable returnToReady = this::returnToReady;
+    private long dwellMillis;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_authentication_complete);
 
-        ImageView gifImageView = findViewById(R.id.gifImageView);
+        dwellMillis = Math.max(0L, getIntent().getLongExtra(EXTRA_DWELL_MILLIS, DEFAULT_DWELL_MILLIS));
         TextView countdownTextView = findViewById(R.id.countdownTextView);
+        countdownTextView.setText("Returning in " + (dwellMillis + 999) / 1000 + " seconds");
 
-        // loading my stupid gif into the ImageView
-        Glide.with(this)
-                .load(R.drawable.funny_gif)
+        findViewById(R.id.doneButton).setOnClickListener(v -> returnToReady());
+        findViewById(R.id.authenticationCompleteLayout).setOnClickListener(v -> returnToReady());
+
+        loadAnimation();
+    }
+
+    /**
+     * Method to show the gif, from Glide's memory cache if AuthenticationActivity preloaded it.
+     * The span ends once the first frame is ready, so it shows whether the preload did its job.
+     * It's loaded with this activity, so Glide stops the animation along with it.
+     */
+    private void loadAnimation() {
+        ImageView gifImageView = findViewById(R.id.gifImageView);
+        Tracer.Span span = Tracer.begin(Tracer.Category.UI, "AuthenticationCompleteActivity.loadAnimation");
+        animationRequest(this)
+                .listener(new RequestListener<GifDrawable>() {
+                    @Override
+                    public boolean onLoadFailed(@Nullable GlideException e, Object model, Target<GifDrawable> target, boolean isFirstResource) {
+                        span.end();
+                        log.w("Error loading the animation", e);
+                        return false;
+                    }
+
+                    @Override
+                    public boolean onResourceReady(GifDrawable resource, Object model, Target<GifDrawable> target, DataSource dataSource, boolean isFirstResource) {
+                        span.end();
+                        log.v("Animation ready", "source", dataSource);
+                        return false;
+                    }
+                })
                 .into(gifImageView);
+    }
 
-        // Start a countdown timer from 6 seconds, updating the TextView every second
-        new android.os.CountDownTimer(6000, 1000) {
-
-            public void onTick(long millisUntilFinished) {
-                countdownTextView.setText("Redirecting in: " + millisUntilFinished / 1000 + " seconds");
-            }
-            public void onFinish() {
-                Intent intent = new Intent(AuthenticationCompleteActivity.this, MainActivity.class);
-                startActivity(intent);
-                finish();
-            }
-        }.start();
+    /**
+     * Preload the gif into Glide's memory cache, decoded at the size this activity shows it at,
+     * so it's ready by the time the activity starts. Call it when an approval looks likely, e.g. once the PIN is accepted.
+     * @param context - any context, the application context is used so the preload outlives the caller
+     */
+    static void preloadAnimation(Context context) {
+        int size = context.getResources().getDimensionPixelSize(R.dimen.authentication_complete_animation_size);
+        animationRequest(context.getApplicationContext()).preload(size, size);
     }
 
-    // Lifecycle methods
-    // Note To Self: I'm still unsure if quitting the looper is necessary here in onDestroy, onStop, onPause.
-    @Override
-    protected void onDestroy() { super.onDestroy(); Objects.requireNonNull(Looper.myLooper()).quit(); Log.d("AuthenticationComplete", "onDestroy"); }
+    /**
+     * Helper method to build the one request both the preload and the activity use.
+     * They have to match for the preload to be a cache hit, Glide's memory cache key includes the size and the options.
+     * The gif is a resource in the APK, so there's nothing worth keeping in the disk cache, only the decoded animation in memory.
+     * @param context - the context to load with
+     * @return the request, for the gif at the animation size
+     */
+    private static RequestBuilder<GifDrawable> animationRequest(Context context) {
+        int size = context.getResources().getDimensionPixelSize(R.dimen.authentication_complete_animation_size);
+        return Glide.with(context)
+                .asGif()
+                .load(R.drawable.funny_gif)
+                .override(size, size)
+                .diskCacheStrategy(DiskCacheStrategy.NONE);
+    }
 
-    @Override
-    protected void onStop() { super.onStop(); Objects.requireNonNull(Looper.myLooper()).quit(); Log.d("AuthenticationComplete", "onStop"); }
+    /**
+     * Method to go back to the PIN screen, ready for the next login attempt.
+     * Normally AuthenticationActivity is right underneath us and is already listening for login attempts again,
+     * so finishing is all it takes. If we were started on our own, e.g. by a benchmark, MainActivity routes there instead.
+     */
+    private void returnToReady() {
+        if (isFinishing()) { return; }
+        handler.removeCallbacks(returnToReady);
+        if (isTaskRoot()) { startActivity(new Intent(this, MainActivity.class)); }
+        finish();
+    }
 
+    // Lifecycle methods
+    // The dwell only runs while we're visible, Glide stops the animation itself along with the activity
     @Override
-    protected void onPause() { super.onPause(); Objects.requireNonNull(Looper.myLooper()).quit(); }
+    protected void onStart() { super.onStart(); log.v("onStart"); handler.postDelayed(returnToReady, dwellMillis); }
 
     @Override
-    protected void onResume() { super.onResume(); Log.d("AuthenticationComplete", "onResume"); }
+    protected void onStop() { super.onStop(); log.v("onStop"); handler.removeCallbacks(returnToReady); }
 
     @Override
-    protected void onStart() { super.onStart(); Log.d("AuthenticationComplete", "onStart"); }
+    protected void onResume() { super.onResume(); log.v("onResume"); }
 
     @Override
-    protected void onSaveInstanceState(@NonNull Bundle outState) {
-        super.onSaveInstanceState(outState);
-        Objects.requireNonNull(Looper.myLooper()).quit();
-    }
+    protected void onPause() { super.onPause(); log.v("onPause"); }
 
     @Override
-    protected void onRestoreInstanceState(@NonNull Bundle savedInstanceState) {
-        super.onRestoreInstanceState(savedInstanceState);
-        Objects.requireNonNull(Looper.myLooper()).quit();
-    }
+    protected void onDestroy() { super.onDestroy(); log.v("onDestroy"); }
 
 }
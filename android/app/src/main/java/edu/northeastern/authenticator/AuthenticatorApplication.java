@@ -0,0 +1,212 @@
+package edu.northeastern.authenticator;
+
+import android.app.Application;
+import android.content.Context;
+import android.os.StrictMode;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreSettings;
+import com.google.firebase.firestore.PersistentCacheSettings;
+
+import edu.northeastern.authenticator.core.Logger;
+import edu.northeastern.authenticator.core.Tracer;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+
+/**
+ * Application class for the authenticator app.
+ * It kicks off the SecureStore warm up as early as possible, so the Keystore and Tink work overlaps with the rest
+ * of the app starting up instead of blocking the PIN check. The ConnectivityMonitor is started here too,
+ * so MainActivity already knows the connectivity state when it routes.
+ * It also owns the LoginAttemptRepository, the ApprovalOutbox and the PIN rate limiters the activities use,
+ * so they can be swapped out in one place.
+ * <p>
+ * Tracer spans go to androidx.tracing from the start, and debug builds dump the Tracer's ring buffer to TRACE_DUMP_FILE
+ * every time the app goes to the background, see dumpTraces().
+ * Debug builds also run with StrictMode, so disk, network or crypto work on the main thread shows up in the log, see AppExecutors.
+ * @author James Bebarski
+ */
+public class AuthenticatorApplication extends Application {
+
+    private static final Logger log = Logger.get("AuthenticatorApplication");
+
+    // The Firestore cache only ever holds the user document and their login attempts, the 100 MB default is far more than we need
+    private static final long FIRESTORE_CACHE_SIZE_BYTES = 10L * 1024 * 1024;
+
+    static final String TRACE_DUMP_FILE = "traces.txt";
+
+    // PIN tries on this device, and for a user across all of their devices, see getDevicePinLimiter() and getUserPinLimiter()
+    private static final int DEVICE_PIN_LIMIT = 5;
+    private static final long DEVICE_PIN_WINDOW_MILLIS = 30_000L;
+    private static final int USER_PIN_LIMIT = 20;
+    private static final long USER_PIN_WINDOW_MILLIS = 10 * 60 * 1000L;
+
+    private LoginAttemptRepository loginAttemptRepository;
+    private ApprovalOutbox approvalOutbox;
+    private SlidingWindowRateLimiter devicePinLimiter;
+    private RateLimiter userPinLimiter;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // Before anything logs, debug builds keep everything, release builds only INFO and up
+        Logger.setSink(new AndroidLogSink());
+        Logger.setMinLevel(BuildConfig.DEBUG ? Logger.VERBOSE : Logger.INFO);
+        if (BuildConfig.DEBUG) { enableStrictMode(); }
+        Tracer.setSections(new AndroidTraceSections());
+        log.v("onCreate");
+        useFirebaseEmulatorIfConfigured();
+        configureFirestoreCache();
+        SecureStore.getInstance(this).warmUpAsync();
+        ConnectivityMonitor.getInstance(this).observe(state -> getApprovalOutbox().setOnline(state.isUsable()));
+    }
+
+    /**
+     * Flag disk and network access on the main thread, plus crypto (see AppExecutors.checkNotMainThread), and leaked
+     * closeables and activities anywhere. Violations are only logged, under the StrictMode tag, with the stack trace
+     * that caused them. Firebase and the framework do a little disk I/O on the main thread themselves while starting up,
+     * so expect a few of those, but none from our code.
+     */
+    private static void enableStrictMode() {
+        StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
+                .detectDiskReads()
+                .detectDiskWrites()
+                .detectNetwork()
+                .detectCustomSlowCalls()
+                .detectUnbufferedIo()
+                .penaltyLog()
+                .build());
+        StrictMode.setVmPolicy(new StrictMode.VmPolicy.Builder()
+                .detectLeakedClosableObjects()
+                .detectLeakedSqlLiteObjects()
+                .detectActivityLeaks()
+                .penaltyLog()
+                .build());
+    }
+
+    /**
+     * Debug builds dump the recent spans whenever the app's UI goes to the background, which is usually right after
+     * whatever flow we wanted to look at. It's done in the background, onTrimMemory is called on the main thread.
+     */
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (!BuildConfig.DEBUG || level != TRIM_MEMORY_UI_HIDDEN) { return; }
+        CompletableFuture.runAsync(() -> {
+            try {
+                log.d("Dumped the recent spans", "file", dumpTraces());
+            } catch (IOException e) {
+                log.w("Error dumping the recent spans", e);
+            }
+        }, AppExecutors.io());
+    }
+
+    /**
+     * Write the Tracer's ring buffer of recent spans (see TraceBuffer.dump) to TRACE_DUMP_FILE in the app's files directory,
+     * replacing the last dump. On a debug build it can be pulled with
+     * adb shell run-as edu.northeastern.authenticator cat files/traces.txt
+     * @return the file that was written
+     * @throws IOException - if the file couldn't be written
+     */
+    public File dumpTraces() throws IOException {
+        File file = new File(getFilesDir(), TRACE_DUMP_FILE);
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            Tracer.buffer().dump(writer);
+        }
+        return file;
+    }
+
+    /**
+     * Point Auth and Firestore at the local Firebase emulator, if the build was made with -PfirebaseEmulatorHost=...
+     * This is how the benchmark modules run without touching the real project. It has to happen before anything
+     * else uses FirebaseAuth or FirebaseFirestore, which is why it's the first thing in onCreate.
+     */
+    private void useFirebaseEmulatorIfConfigured() {
+        String host = BuildConfig.FIREBASE_EMULATOR_HOST;
+        if (host.isEmpty()) { return; }
+        log.d("Using the Firebase emulator", "host", host);
+        FirebaseAuth.getInstance().useEmulator(host, 9099);
+        FirebaseFirestore.getInstance().useEmulator(host, 8080);
+    }
+
+    /**
+     * Keep Firestore's offline cache on disk (the default, but now explicit) with a smaller size.
+     * With the cache on disk, the pending login attempts listener delivers what we last saw straight away,
+     * so the PIN screen has something to work with before the backend answers, or without a connection at all.
+     * Like the emulator settings, this has to happen before Firestore is used.
+     */
+    private void configureFirestoreCache() {
+        FirebaseFirestore.getInstance().setFirestoreSettings(new FirebaseFirestoreSettings.Builder()
+                .setLocalCacheSettings(PersistentCacheSettings.newBuilder().setSizeBytes(FIRESTORE_CACHE_SIZE_BYTES).build())
+                .build());
+    }
+
+    /**
+     * Get the LoginAttemptRepository, backed by Firestore unless something else was set.
+     * @return the LoginAttemptRepository
+     */
+    public synchronized LoginAttemptRepository getLoginAttemptRepository() {
+        if (loginAttemptRepository == null) {
+            loginAttemptRepository = new FirestoreLoginAttemptRepository(FirebaseFirestore.getInstance());
+        }
+        return loginAttemptRepository;
+    }
+
+    /**
+     * Replace the LoginAttemptRepository, e.g. with an InMemoryLoginAttemptRepository for instrumented tests and benchmarks.
+     * @param repository - the repository to use from now on
+     */
+    public synchronized void setLoginAttemptRepository(LoginAttemptRepository repository) { this.loginAttemptRepository = repository; }
+
+    /**
+     * Get the ApprovalOutbox, which sends approvals to the LoginAttemptRepository. Its entries are kept in their own
+     * SharedPreferences file, and it runs on its own thread rather than on AppExecutors, since it schedules its retries,
+     * and it relies on having the one thread to itself to keep its entries in order without locking.
+     * @return the ApprovalOutbox
+     */
+    public synchronized ApprovalOutbox getApprovalOutbox() {
+        if (approvalOutbox == null) {
+            approvalOutbox = new ApprovalOutbox(
+                    new PreferencesApprovalStore(getSharedPreferences("approval_outbox", Context.MODE_PRIVATE)),
+                    getLoginAttemptRepository(),
+                    FirestoreLoginAttemptRepository::isRetriable,
+                    Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(runnable, "ApprovalOutbox")),
+                    System::currentTimeMillis);
+        }
+        return approvalOutbox;
+    }
+
+    /**
+     * Get the limiter for PIN tries on this device, DEVICE_PIN_LIMIT every DEVICE_PIN_WINDOW_MILLIS.
+     * It's in memory and never blocks, so it's checked on the main thread before any hashing starts.
+     * The PinVerifier's lockout still applies on top of it, and survives a restart, which this doesn't.
+     * @return the device PIN limiter
+     */
+    public synchronized SlidingWindowRateLimiter getDevicePinLimiter() {
+        if (devicePinLimiter == null) {
+            devicePinLimiter = new SlidingWindowRateLimiter(DEVICE_PIN_LIMIT, DEVICE_PIN_WINDOW_MILLIS, System::currentTimeMillis);
+        }
+        return devicePinLimiter;
+    }
+
+    /**
+     * Get the limiter for a user's PIN tries across all of their devices, USER_PIN_LIMIT every USER_PIN_WINDOW_MILLIS,
+     * backed by sharded counters in Firestore. It blocks, so only call tryAcquire on AppExecutors.io().
+     * @return the user PIN limiter
+     */
+    public synchronized RateLimiter getUserPinLimiter() {
+        if (userPinLimiter == null) {
+            userPinLimiter = new FirestoreRateLimiter(FirebaseFirestore.getInstance(), USER_PIN_LIMIT, USER_PIN_WINDOW_MILLIS, System::currentTimeMillis);
+        }
+        return userPinLimiter;
+    }
+}
@@ -3,29 +3,44 @@ package edu.northeastern.authenticator;
 import android.content.Intent;
 import android.os.Bundle;
 import android.provider.Settings;
-import android.util.Log;
+import android.view.View;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
-import androidx.appcompat.app.AppCompatActivity;
+import androidx.annotation.Nullable;
 import androidx.biometric.BiometricManager;
 import androidx.biometric.BiometricPrompt;
 import androidx.core.content.ContextCompat;
+import androidx.fragment.app.Fragment;
+import androidx.lifecycle.ViewModelProvider;
+
+import edu.northeastern.authenticator.core.Logger;
+import edu.northeastern.authenticator.core.Tracer;
+
+import java.security.Signature;
 
 /**
- * This activity represents the third phase of this authenticator applications set up,
+ * This step represents the third phase of this authenticator applications set up,
  * the user must provide their biometric information to authenticate themselves in the future.
  * the fingerprint and the pin will be used to authenticate the user in the future by default.
+ * This is also where the approval signing key is made (see ApprovalSigner), the fingerprint prompt here unlocks it once
+ * to make sure it works, and its public key is registered on the user document (see SetupViewModel).
+ * This used to be the BiometricSetupActivity.
  * @author James Bebarski
  */
-public class BiometricSetupActivity extends AppCompatActivity {
+public class BiometricSetupFragment extends Fragment {
+
+    private static final Logger log = Logger.get("BiometricSetupFragment");
+
+    private SetupViewModel setup;
+
+    public BiometricSetupFragment() { super(R.layout.fragment_biometric_setup); }
 
     @Override
-    protected void onCreate(Bundle savedInstanceState) {
-        super.onCreate(savedInstanceState);
-        setContentView(R.layout.activity_biometric_setup);
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+        setup = new ViewModelProvider(requireActivity()).get(SetupViewModel.class);
         initializeBiometricManager();
-
     }
 
     /**
@@ -36,10 +51,10 @@ public class BiometricSetupActivity extends AppCompatActivity {
      */
     private void initializeBiometricManager() {
         // Check if the device supports biometric authentication
-        BiometricManager biometricManager = BiometricManager.from(this);
+        BiometricManager biometricManager = BiometricManager.from(requireContext());
         switch (biometricManager.canAuthenticate(BiometricManager.Authenticators.BIOMETRIC_STRONG)) {
             case BiometricManager.BIOMETRIC_SUCCESS:
-                promptForFingerprintEnrollment(); break; // will prompt the user to enroll their fingerprint, for future authentication
+                createApprovalKey(); break; // will prompt the user to enroll their fingerprint, for future authentication
             case BiometricManager.BIOMETRIC_ERROR_NO_HARDWARE:
                 showToast("No biometric features available on this device."); break;
             case BiometricManager.BIOMETRIC_ERROR_HW_UNAVAILABLE:
@@ -57,24 +72,46 @@ public class BiometricSetupActivity extends AppCompatActivity {
     }
 
     /**
-     * Helper method to just keep the biometric setup activity a bit more clean.
+     * Helper method to just keep the biometric setup step a bit more clean.
+     * Callbacks can arrive after the wizard has moved on, so there's nothing to show if this step is gone.
      * @param toastMessage - The message to display in the toast.
      */
-    private void showToast(String toastMessage) { Toast.makeText(this, toastMessage, Toast.LENGTH_SHORT).show(); }
+    private void showToast(String toastMessage) { if (isAdded()) { Toast.makeText(requireContext(), toastMessage, Toast.LENGTH_SHORT).show(); } }
+
+    /**
+     * Create the approval signing key in the background, then prompt for the fingerprint with a Signature over the new key.
+     */
+    private void createApprovalKey() {
+        setup.createApprovalKey().whenCompleteAsync((signature, e) -> {
+            if (!isAdded()) { return; }
+            if (e != null) {
+                log.e("Error creating the approval signing key", e);
+                showToast("Biometric features are currently unavailable.");
+                return;
+            }
+            promptForFingerprintEnrollment(signature);
+        }, ContextCompat.getMainExecutor(requireContext()));
+    }
 
     /**
      * Prompt the user to enroll their fingerprint.
+     * The prompt unlocks the approval signing key through a CryptoObject, which only works with a strong biometric,
+     * so there is no device credential fallback here.
+     * The prompt is a UI span (see Tracer), from showing it until it succeeds or is dismissed.
      *
+     * @param signature - a Signature over the approval signing key
      */
-    private void promptForFingerprintEnrollment() {
+    private void promptForFingerprintEnrollment(Signature signature) {
         BiometricPrompt.PromptInfo promptInfo = new BiometricPrompt.PromptInfo.Builder()
                 .setTitle("Register your fingerprint")
                 .setSubtitle("You will use this to authenticate in the future")
+                .setAllowedAuthenticators(BiometricManager.Authenticators.BIOMETRIC_STRONG)
                 .setNegativeButtonText("Cancel")
                 .build();
 
-        BiometricPrompt biometricPrompt = new BiometricPrompt(BiometricSetupActivity.this,
-                ContextCompat.getMainExecutor(this), new BiometricPrompt.AuthenticationCallback() {
+        Tracer.Span prompt = Tracer.begin(Tracer.Category.UI, "BiometricPrompt.enroll");
+        BiometricPrompt biometricPrompt = new BiometricPrompt(this,
+                ContextCompat.getMainExecutor(requireContext()), new BiometricPrompt.AuthenticationCallback() {
 
             /**
              * Part of the BiometricPrompt.AuthenticationCallback class.
@@ -86,21 +123,21 @@ public class BiometricSetupActivity extends AppCompatActivity {
             @Override
             public void onAuthenticationError(int errorCode, @NonNull CharSequence errString) {
                 super.onAuthenticationError(errorCode, errString);
+                prompt.end();
                 showToast("Authentication error: " + errString);
             }
 
             /**
              * Part of the BiometricPrompt.AuthenticationCallback class.
              * This method is called when the user had successfully authenticated.
+             * The key works with their fingerprint, so its public key is registered before moving on.
              * @param result An object containing authentication-related data.
              */
             @Override
             public void onAuthenticationSucceeded(@NonNull BiometricPrompt.AuthenticationResult result) {
                 super.onAuthenticationSucceeded(result);
-                showToast("Authentication succeeded!");
-                Log.d("BiometricSetupActivity", "Biometric setup successful. Proceeding to PinSetupActivity.");
-                Intent intent = new Intent(BiometricSetupActivity.this, PinSetupActivity.class);
-                startActivity(intent);
+                prompt.end();
+                registerApprovalPublicKey();
             }
 
             /**
@@ -113,31 +150,20 @@ public class BiometricSetupActivity extends AppCompatActivity {
                 showToast("Authentication failed");
             }
         });
-        biometricPrompt.authenticate(promptInfo);
+        biometricPrompt.authenticate(promptInfo, new BiometricPrompt.CryptoObject(signature));
     }
 
-    // Lifecycle methods
-    @Override
-    protected void onStart() { super.onStart(); Log.d("BiometricSetupActivity", "onStart"); }
-
-    @Override
-    protected void onStop() { super.onStop(); Log.d("BiometricSetupActivity", "onStop"); }
-
-    @Override
-    protected void onResume() { super.onResume(); Log.d("BiometricSetupActivity", "onResume"); }
-
-    @Override
-    protected void onPause() { super.onPause(); Log.d("BiometricSetupActivity", "onPause"); }
-
-    @Override
-    protected void onDestroy() { super.onDestroy(); Log.d("BiometricSetupActivity", "onDestroy"); }
-
-    // Save the current state of the application
-    @Override
-    protected void onSaveInstanceState(@NonNull Bundle outState) { super.onSaveInstanceState(outState); Log.d("BiometricSetupActivity", "onSaveInstanceState"); }
-
-    // Restore the current state of the application
-    @Override
-    protected void onRestoreInstanceState(@NonNull Bundle savedInstanceState) { super.onRestoreInstanceState(savedInstanceState); Log.d("BiometricSetupActivity", "onRestoreInstanceState"); }
-
-}
\ No newline at end of file
+    /**
+     * Register the approval public key, the wizard moves on to the PIN by itself once it's done.
+     */
+    private void registerApprovalPublicKey() {
+        setup.registerApprovalPublicKey().whenCompleteAsync((ignored, e) -> {
+            if (e != null) {
+                log.e("Error registering the approval public key", e);
+                showToast("Could not finish biometric setup, please try again.");
+                return;
+            }
+            showToast("Authentication succeeded!");
+        }, ContextCompat.getMainExecutor(requireContext()));
+    }
+}
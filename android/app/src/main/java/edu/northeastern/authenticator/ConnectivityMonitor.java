@@ -0,0 +1,155 @@
+package edu.northeastern.authenticator;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+
+import edu.northeastern.authenticator.core.Logger;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * This class is the single, process-wide holder of the connectivity state, built on a default NetworkCallback.
+ * Before this, MainActivity and NoConnectionActivity each polled the deprecated getActiveNetworkInfo,
+ * and NoConnectionActivity waited for the deprecated CONNECTIVITY_ACTION broadcast to find out the network was back.
+ * <p>
+ * NetworkInfo.isConnected() only said whether there was a network, not whether it actually reached the internet.
+ * The NetworkCapabilities of the default network tell us more, so the state is one of:
+ * <ul>
+ *     <li>CONNECTED - the system has validated that the network reaches the internet</li>
+ *     <li>UNVALIDATED - there is a network with internet, but it hasn't been validated (yet). Validation takes a moment
+ *     after every network switch, and flaky networks can drop in and out of it, so we let the user carry on,
+ *     Firestore copes with being offline for a bit</li>
+ *     <li>CAPTIVE_PORTAL - the network wants the user to sign in first (hotel wifi and the like), nothing gets through until they do</li>
+ *     <li>NO_CONNECTION - no network at all</li>
+ * </ul>
+ * Losing the default network is only reported after LOST_GRACE_MILLIS, because when e.g. wifi drops, mobile data
+ * usually takes over a moment later, and we don't want to bounce the user to the NoConnectionActivity for that.
+ * <p>
+ * Activities observe the state instead of polling it, listeners are called on the main thread.
+ * @author James Bebarski
+ */
+public final class ConnectivityMonitor {
+
+    private static final Logger log = Logger.get("ConnectivityMonitor");
+
+    private static final long LOST_GRACE_MILLIS = 2_000L;
+
+    /**
+     * The connectivity state of the default network, see the class comment.
+     */
+    public enum State {
+        CONNECTED, UNVALIDATED, CAPTIVE_PORTAL, NO_CONNECTION;
+
+        /**
+         * @return true if it's worth trying to reach Firebase
+         */
+        public boolean isUsable() { return this == CONNECTED || this == UNVALIDATED; }
+    }
+
+    /**
+     * Callback for anyone interested in the connectivity state changing. Always called on the main thread.
+     */
+    public interface Listener {
+        void onConnectivityChanged(State state);
+    }
+
+    /**
+     * Handle to stop observing, returned from observe().
+     */
+    public interface Subscription {
+        void remove();
+    }
+
+    private static volatile ConnectivityMonitor instance;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Runnable reportLost = () -> setState(State.NO_CONNECTION);
+    private volatile State state;
+
+    private ConnectivityMonitor(Context context) {
+        ConnectivityManager connectivityManager = (ConnectivityManager) context.getApplicationContext().getSystemService(Context.CONNECTIVITY_SERVICE);
+        // The callback only fires once something changes (or shortly after registering), so start with what the system knows right now
+        state = stateOf(connectivityManager.getNetworkCapabilities(connectivityManager.getActiveNetwork()));
+        connectivityManager.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+            @Override
+            public void onCapabilitiesChanged(@NonNull Network network, @NonNull NetworkCapabilities capabilities) {
+                mainHandler.removeCallbacks(reportLost);
+                setState(stateOf(capabilities));
+            }
+
+            @Override
+            public void onLost(@NonNull Network network) { mainHandler.postDelayed(reportLost, LOST_GRACE_MILLIS); }
+        }, mainHandler);
+    }
+
+    /**
+     * Get the shared ConnectivityMonitor instance, creating it and registering its NetworkCallback if it doesn't exist yet.
+     * The callback stays registered for the life of the process, it's one callback for the whole app.
+     *
+     * @param context - any context, only the application context is used
+     * @return the process-wide ConnectivityMonitor
+     */
+    public static ConnectivityMonitor getInstance(Context context) {
+        ConnectivityMonitor monitor = instance;
+        if (monitor == null) {
+            synchronized (ConnectivityMonitor.class) {
+                monitor = instance;
+                if (monitor == null) {
+                    monitor = new ConnectivityMonitor(context);
+                    instance = monitor;
+                }
+            }
+        }
+        return monitor;
+    }
+
+    /**
+     * Get the current connectivity state. Cheap, and safe to call from any thread.
+     * @return the current state
+     */
+    public State getState() { return state; }
+
+    /**
+     * Start observing the connectivity state. The listener is called with the current state straight away (on the main thread),
+     * and then again whenever it changes, until the returned Subscription is removed.
+     *
+     * @param listener - the listener to call
+     * @return the Subscription to remove when done, e.g. in onStop
+     */
+    public Subscription observe(Listener listener) {
+        listeners.add(listener);
+        mainHandler.post(() -> { if (listeners.contains(listener)) { listener.onConnectivityChanged(state); } });
+        return () -> listeners.remove(listener);
+    }
+
+    /**
+     * Update the state and tell the listeners, if it actually changed. Only called on the main thread.
+     * @param newState - the new state
+     */
+    private void setState(State newState) {
+        if (newState == state) { return; }
+        log.d("Connectivity changed", "from", state, "to", newState);
+        state = newState;
+        for (Listener listener : listeners) { listener.onConnectivityChanged(newState); }
+    }
+
+    /**
+     * Work out the state from the default network's capabilities.
+     * @param capabilities - the capabilities, or null if there is no default network
+     * @return the state
+     */
+    static State stateOf(NetworkCapabilities capabilities) {
+        if (capabilities == null) { return State.NO_CONNECTION; }
+        if (capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_CAPTIVE_PORTAL)) { return State.CAPTIVE_PORTAL; }
+        if (!capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)) { return State.NO_CONNECTION; }
+        return capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED) ? State.CONNECTED : State.UNVALIDATED;
+    }
+}
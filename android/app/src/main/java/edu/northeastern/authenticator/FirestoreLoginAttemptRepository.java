@@ -0,0 +1,334 @@
+package edu.northeastern.authenticator;
+
+import android.os.Build;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Transaction;
+
+import edu.northeastern.authenticator.core.ApprovalStatement;
+import edu.northeastern.authenticator.core.ApprovalTimings;
+import edu.northeastern.authenticator.core.Tracer;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * The LoginAttemptRepository the app actually uses, backed by the login_attempts collection in Firestore.
+ * Most of this used to live inline in AuthenticationActivity.
+ * <p>
+ * The expired query used by the sweeper filters on userId and expiresAt and orders by expiresAt and the document ID,
+ * which needs a composite index on login_attempts (userId ASC, expiresAt ASC, __name__ ASC).
+ * <p>
+ * Every call to Firestore is a NETWORK span (see Tracer), named after the method, e.g. "Firestore.findPending".
+ * @author James Bebarski
+ */
+public class FirestoreLoginAttemptRepository implements LoginAttemptRepository {
+
+    private final FirebaseFirestore firestore;
+
+    public FirestoreLoginAttemptRepository(FirebaseFirestore firestore) { this.firestore = firestore; }
+
+    private CollectionReference loginAttempts() { return firestore.collection("login_attempts"); }
+
+    @Override
+    public CompletableFuture<Void> create(LoginAttempt attempt) {
+        Map<String, Object> document = new HashMap<>();
+        document.put("userId", attempt.getUserId());
+        document.put("status", attempt.getStatus());
+        document.put("timestamp", new Timestamp(new Date(attempt.getTimestampMillis())));
+        if (attempt.getExpiresAtMillis() > 0) {
+            document.put("expiresAt", new Timestamp(new Date(attempt.getExpiresAtMillis())));
+        }
+        return Tracer.begin(Tracer.Category.NETWORK, "Firestore.create")
+                .endWhenDone(toFuture(loginAttempts().document(attempt.getSessionId()).set(document))).thenApply(ignored -> null);
+    }
+
+    @Override
+    public CompletableFuture<List<LoginAttempt>> findPending(String userId) {
+        CompletableFuture<QuerySnapshot> query = Tracer.begin(Tracer.Category.NETWORK, "Firestore.findPending")
+                .endWhenDone(toFuture(pendingQuery(userId).get()));
+        return query.thenApply(snapshot -> {
+            LoginAttemptQueue queue = new LoginAttemptQueue();
+            for (DocumentSnapshot document : snapshot.getDocuments()) { queue.put(toLoginAttempt(document)); }
+            return queue.snapshot();
+        });
+    }
+
+    /**
+     * Every attempt in the statement gets the same "approval" map, holding the whole signed statement,
+     * which is what the verifier needs to rebuild the signed bytes and check this attempt is actually in them.
+     * Each attempt also gets its own "timings" map (see ApprovalTimings), with writeAcked left to the server,
+     * so it's the time the decision was actually committed, however long it sat in the outbox.
+     * <p>
+     * This used to be a WriteBatch of blind updates, so a second device approving the same attempt just overwrote the first.
+     * Now it's a transaction: the attempts are read first, and the statuses are only written if every one of them is still
+     * pending. If another device commits in between, Firestore runs the transaction again, which then sees the conflict.
+     * The same commit also adds an entry to the user's approvals audit trail (see auditEntryOf) and bumps the
+     * approvedCount and deniedCount on the user document, so the statuses, the audit entry and the counters always agree.
+     * That's a read per attempt before the commit, which is usually just the one, and still a single commit.
+     * A pending attempt past its expiresAt is a conflict too. That's checked against this device's clock, a transaction
+     * can't read the server's, so the security rules should also require request.time < expiresAt for the update.
+     * <p>
+     * Transactions need the backend, they fail straight away offline rather than queueing in the Firestore cache,
+     * which is fine since the ApprovalOutbox only flushes while we're online, and retries the rest.
+     */
+    @Override
+    public CompletableFuture<Void> updateStatuses(ApprovalStatement statement, byte[] signature, ApprovalTimings timings) {
+        String encodedSignature = Base64.getEncoder().encodeToString(signature);
+        Map<String, Object> approval = new HashMap<>();
+        approval.put("signature", encodedSignature);
+        approval.put("signedAt", statement.getSignedAtMillis());
+        approval.put("approved", statement.getApprovedSessionIds());
+        approval.put("denied", statement.getDeniedSessionIds());
+
+        CompletableFuture<List<String>> decided = Tracer.begin(Tracer.Category.NETWORK, "Firestore.updateStatuses")
+                .endWhenDone(toFuture(firestore.runTransaction(transaction -> decide(transaction, statement, approval, timings))));
+        return decided.thenApply(conflicts -> {
+            if (!conflicts.isEmpty()) { throw new CompletionException(new ConflictException(conflicts)); }
+            return null;
+        });
+    }
+
+    /**
+     * The body of the updateStatuses transaction, which Firestore may run more than once.
+     * All of the reads have to come before any of the writes.
+     *
+     * @param transaction - the transaction
+     * @param statement - the attempts to set to "authenticated" and to "denied"
+     * @param approval - the "approval" map to write on every attempt
+     * @param timings - when the approval stages happened
+     * @return the session IDs that were no longer pending, or had expired, nothing was written unless it's empty
+     * @throws FirebaseFirestoreException - if a read fails, Firestore fails the transaction with it
+     */
+    private List<String> decide(Transaction transaction, ApprovalStatement statement, Map<String, Object> approval,
+                                ApprovalTimings timings) throws FirebaseFirestoreException {
+        Timestamp now = Timestamp.now();
+        List<String> conflicts = new ArrayList<>();
+        boolean alreadyDecided = false;
+        for (String sessionId : sessionIdsOf(statement)) {
+            DocumentSnapshot attempt = transaction.get(loginAttempts().document(sessionId));
+            if (LoginAttempt.STATUS_PENDING.equals(attempt.getString("status"))) {
+                Timestamp expiresAt = attempt.getTimestamp("expiresAt");
+                if (expiresAt != null && expiresAt.compareTo(now) <= 0) { conflicts.add(sessionId); }
+                continue;
+            }
+            // Our own earlier commit, whose acknowledgement got lost on the way back
+            if (attempt.exists() && approval.get("signature").equals(attempt.getString("approval.signature"))) { alreadyDecided = true; }
+            else { conflicts.add(sessionId); }
+        }
+        if (!conflicts.isEmpty() || alreadyDecided) { return conflicts; }
+
+        for (String sessionId : statement.getApprovedSessionIds()) {
+            transaction.update(loginAttempts().document(sessionId), "status", LoginAttempt.STATUS_AUTHENTICATED, "approval", approval,
+                    ApprovalTimings.FIELD, timingsOf(sessionId, timings));
+        }
+        for (String sessionId : statement.getDeniedSessionIds()) {
+            transaction.update(loginAttempts().document(sessionId), "status", LoginAttempt.STATUS_DENIED, "approval", approval,
+                    ApprovalTimings.FIELD, timingsOf(sessionId, timings));
+        }
+
+        DocumentReference user = firestore.collection("users").document(statement.getUserId());
+        transaction.set(user.collection("approvals").document(), auditEntryOf(approval));
+        Map<String, Object> counters = new HashMap<>();
+        counters.put("approvedCount", FieldValue.increment(statement.getApprovedSessionIds().size()));
+        counters.put("deniedCount", FieldValue.increment(statement.getDeniedSessionIds().size()));
+        transaction.set(user, counters, SetOptions.merge());
+        return conflicts;
+    }
+
+    /**
+     * Helper method to build the audit entry for a decision: the signed statement, the device that signed it,
+     * and when the backend committed it.
+     * @param approval - the "approval" map written on every attempt
+     * @return the audit entry to write
+     */
+    private static Map<String, Object> auditEntryOf(Map<String, Object> approval) {
+        Map<String, Object> device = new HashMap<>();
+        device.put("manufacturer", Build.MANUFACTURER);
+        device.put("model", Build.MODEL);
+        device.put("sdk", Build.VERSION.SDK_INT);
+
+        Map<String, Object> entry = new HashMap<>(approval);
+        entry.put("device", device);
+        entry.put("committedAt", FieldValue.serverTimestamp());
+        return entry;
+    }
+
+    private static List<String> sessionIdsOf(ApprovalStatement statement) {
+        List<String> sessionIds = new ArrayList<>(statement.getApprovedSessionIds());
+        sessionIds.addAll(statement.getDeniedSessionIds());
+        return sessionIds;
+    }
+
+    /**
+     * Helper method to build one attempt's "timings" map, leaving out the stages that weren't recorded.
+     * @param sessionId - the login attempt's ID
+     * @param timings - the approval's timings
+     * @return the map to write
+     */
+    private static Map<String, Object> timingsOf(String sessionId, ApprovalTimings timings) {
+        Map<String, Object> map = new HashMap<>();
+        putTimestamp(map, ApprovalTimings.RECEIVED, timings.getReceivedAtMillis(sessionId));
+        putTimestamp(map, ApprovalTimings.PIN_VERIFIED, timings.getPinVerifiedAtMillis());
+        putTimestamp(map, ApprovalTimings.BIOMETRIC_DONE, timings.getBiometricDoneAtMillis());
+        map.put(ApprovalTimings.WRITE_ACKED, FieldValue.serverTimestamp());
+        return map;
+    }
+
+    private static void putTimestamp(Map<String, Object> map, String key, long millis) {
+        if (millis > 0) { map.put(key, new Timestamp(new Date(millis))); }
+    }
+
+    /**
+     * Firestore delivers snapshot events on the main thread, and only hands us the documents that changed,
+     * so this just translates those changes into LoginAttempts.
+     * Unlike toFuture(), this stays on the main thread: the translation is cheap, and the PendingLoginAttemptsMonitor
+     * it feeds is only ever touched from the main thread.
+     */
+    @Override
+    public Subscription listenForPending(String userId, PendingAttemptsListener listener) {
+        ListenerRegistration registration = pendingQuery(userId).addSnapshotListener((snapshots, e) -> {
+            if (e != null) {
+                listener.onError(e);
+                return;
+            }
+            if (snapshots == null) { return; }
+
+            List<LoginAttempt> upserted = new ArrayList<>();
+            List<String> removed = new ArrayList<>();
+            for (DocumentChange change : snapshots.getDocumentChanges()) {
+                if (change.getType() == DocumentChange.Type.REMOVED) {
+                    removed.add(change.getDocument().getId());
+                } else {
+                    upserted.add(toLoginAttempt(change.getDocument()));
+                }
+            }
+            listener.onPendingAttemptsChanged(upserted, removed, snapshots.getMetadata().isFromCache());
+        });
+        return registration::remove;
+    }
+
+    @Override
+    public List<LoginAttempt> findExpired(String userId, long beforeMillis, LoginAttempt startAfter, int limit) throws Exception {
+        Query query = loginAttempts();
+        if (userId != null) { query = query.whereEqualTo("userId", userId); }
+        query = query.whereLessThan("expiresAt", new Timestamp(new Date(beforeMillis)))
+                .orderBy("expiresAt")
+                .orderBy(FieldPath.documentId());
+        if (startAfter != null) {
+            query = query.startAfter(new Timestamp(new Date(startAfter.getExpiresAtMillis())), startAfter.getSessionId());
+        }
+
+        QuerySnapshot snapshot;
+        try (Tracer.Span ignored = Tracer.section(Tracer.Category.NETWORK, "Firestore.findExpired")) {
+            snapshot = Tasks.await(query.limit(limit).get());
+        }
+        List<LoginAttempt> attempts = new ArrayList<>(snapshot.size());
+        for (DocumentSnapshot document : snapshot.getDocuments()) { attempts.add(toLoginAttempt(document)); }
+        return attempts;
+    }
+
+    /**
+     * A page used to be a WriteBatch of blind updates, so an approval committed between findExpired and here got
+     * overwritten with "expired", after its audit entry and counters were already written.
+     * Now it's a transaction that reads the attempts to expire again and only expires the ones that are still pending,
+     * the same check updateStatuses makes, so whichever of the two commits second sees the other's status and backs off.
+     * Offline the transaction fails, and the page is left for the next sweep.
+     */
+    @Override
+    public void commit(List<String> toExpire, List<String> toDelete) throws Exception {
+        try (Tracer.Span ignored = Tracer.section(Tracer.Category.NETWORK, "Firestore.commit")) {
+            Tasks.await(firestore.runTransaction(transaction -> {
+                List<DocumentReference> stillPending = new ArrayList<>();
+                for (String sessionId : toExpire) {
+                    DocumentReference attempt = loginAttempts().document(sessionId);
+                    if (LoginAttempt.STATUS_PENDING.equals(transaction.get(attempt).getString("status"))) { stillPending.add(attempt); }
+                }
+                for (DocumentReference attempt : stillPending) { transaction.update(attempt, "status", LoginAttempt.STATUS_EXPIRED); }
+                for (String sessionId : toDelete) { transaction.delete(loginAttempts().document(sessionId)); }
+                return null;
+            }));
+        }
+    }
+
+    private Query pendingQuery(String userId) {
+        return loginAttempts()
+                .whereEqualTo("userId", userId)
+                .whereEqualTo("status", LoginAttempt.STATUS_PENDING);
+    }
+
+    /**
+     * Helper method to convert a login attempt document into a LoginAttempt.
+     * The timestamp and expiresAt are the ones LoginForm writes, or 0 if they're missing.
+     * @param document - the login attempt document
+     * @return the LoginAttempt
+     */
+    static LoginAttempt toLoginAttempt(DocumentSnapshot document) {
+        return new LoginAttempt(document.getId(), document.getString("userId"), document.getString("status"),
+                millisOf(document.getTimestamp("timestamp")), millisOf(document.getTimestamp("expiresAt")));
+    }
+
+    /**
+     * Helper method for the ApprovalOutbox, to tell failures worth retrying (the backend being unreachable or overloaded)
+     * apart from ones that will fail the same way every time (the attempt is gone or already decided, or the rules don't allow the write).
+     * @param e - why a write failed
+     * @return true if the write is worth retrying
+     */
+    static boolean isRetriable(Throwable e) {
+        if (e instanceof ConflictException) { return false; }
+        if (!(e instanceof FirebaseFirestoreException)) { return true; }
+        switch (((FirebaseFirestoreException) e).getCode()) {
+            case NOT_FOUND:
+            case PERMISSION_DENIED:
+            case INVALID_ARGUMENT:
+            case FAILED_PRECONDITION:
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    private static long millisOf(Timestamp timestamp) { return timestamp != null ? timestamp.toDate().getTime() : 0L; }
+
+    /**
+     * Helper method to turn a Firebase Task into a CompletableFuture.
+     * Task listeners run on the main thread unless they're given an executor, so the future is completed on AppExecutors.io(),
+     * and whatever the caller chains on without an executor of its own (parsing the documents, say) runs there too.
+     * Callers still go back to the main thread themselves to touch the UI.
+     * @param task - the Firebase task
+     * @return a future that completes with the task
+     */
+    static <T> CompletableFuture<T> toFuture(Task<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        task.addOnCompleteListener(AppExecutors.io(), completed -> {
+            if (completed.isSuccessful()) {
+                future.complete(completed.getResult());
+            } else if (completed.isCanceled()) {
+                future.cancel(false);
+            } else {
+                future.completeExceptionally(completed.getException());
+            }
+        });
+        return future;
+    }
+}
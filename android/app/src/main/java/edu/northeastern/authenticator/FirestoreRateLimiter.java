@@ -0,0 +1,98 @@
+package edu.northeastern.authenticator;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+
+import edu.northeastern.authenticator.core.Tracer;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * RateLimiter backed by sharded counters in Firestore, so a limit holds across every device a user has.
+ * <p>
+ * A single counter document can only take about one write a second, and every device counting against the same key
+ * would be writing to it. So each key's count for a fixed window is split over SHARDS documents,
+ * rate_limits/{key}/shards/{window}_{shard}, each holding its window and its part of the count. An event increments
+ * one shard picked at random, with FieldValue.increment, which needs no transaction and doesn't conflict with other writers.
+ * Reading the count is a single query for the current and the previous window's shards, which are then summed and
+ * put through the same sliding window estimate as the SlidingWindowRateLimiter.
+ * <p>
+ * Checking and then counting isn't atomic, so devices racing each other can go a few events over the limit.
+ * That's the price of not funnelling every device through one document, and it's fine for a rate limit.
+ * Old shards have an expiresAt, two windows after their own, for a Firestore TTL policy on the shards collection group to delete them.
+ * <p>
+ * Reading the shards blocks, for at most READ_TIMEOUT_MILLIS, so tryAcquire must be called off the main thread (see AppExecutors.io()).
+ * Offline, the read comes from the Firestore cache, which includes this device's own increments that haven't been sent yet.
+ * The increment itself isn't waited for, it's sent whenever Firestore can, so counting never holds up the caller.
+ * Both are NETWORK spans (see Tracer), "Firestore.readRateLimit" and "Firestore.countRateLimit".
+ * @author James Bebarski
+ */
+public class FirestoreRateLimiter implements RateLimiter {
+
+    static final int SHARDS = 8;
+    static final long READ_TIMEOUT_MILLIS = 2_000L;
+
+    private final FirebaseFirestore firestore;
+    private final int limit;
+    private final long windowMillis;
+    private final LongSupplier clock;
+    private final Random random = new Random();
+
+    /**
+     * @param firestore - the Firestore instance
+     * @param limit - how many events a key can have in any window, at least 1
+     * @param windowMillis - how long the window is
+     * @param clock - the current time, in millis
+     */
+    public FirestoreRateLimiter(FirebaseFirestore firestore, int limit, long windowMillis, LongSupplier clock) {
+        if (limit < 1 || windowMillis < 1) { throw new IllegalArgumentException("limit and windowMillis must be positive"); }
+        this.firestore = firestore;
+        this.limit = limit;
+        this.windowMillis = windowMillis;
+        this.clock = clock;
+    }
+
+    private CollectionReference shardsOf(String key) { return firestore.collection("rate_limits").document(key).collection("shards"); }
+
+    @Override
+    public Decision tryAcquire(String key) throws Exception {
+        long now = clock.getAsLong();
+        long index = now / windowMillis;
+
+        QuerySnapshot shards;
+        try (Tracer.Span ignored = Tracer.section(Tracer.Category.NETWORK, "Firestore.readRateLimit")) {
+            shards = Tasks.await(shardsOf(key).whereGreaterThanOrEqualTo("window", index - 1).get(), READ_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        long previous = 0;
+        long current = 0;
+        for (DocumentSnapshot shard : shards.getDocuments()) {
+            Long window = shard.getLong("window");
+            Long count = shard.getLong("count");
+            if (window == null || count == null) { continue; }
+            if (window == index) { current += count; }
+            else if (window == index - 1) { previous += count; }
+        }
+
+        long retryAfter = SlidingWindowRateLimiter.retryAfterMillis(previous, current, now - index * windowMillis, windowMillis, limit);
+        if (retryAfter > 0) { return Decision.denied(retryAfter); }
+
+        Map<String, Object> shard = new HashMap<>();
+        shard.put("window", index);
+        shard.put("count", FieldValue.increment(1));
+        shard.put("expiresAt", new Timestamp(new Date((index + 2) * windowMillis)));
+        Tracer.begin(Tracer.Category.NETWORK, "Firestore.countRateLimit").endWhenDone(FirestoreLoginAttemptRepository.toFuture(
+                shardsOf(key).document(index + "_" + random.nextInt(SHARDS)).set(shard, SetOptions.merge())));
+        return Decision.ALLOWED;
+    }
+}
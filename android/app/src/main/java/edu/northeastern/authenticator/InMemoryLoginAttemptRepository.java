@@ -0,0 +1,235 @@
+package edu.northeastern.authenticator;
+
+import edu.northeastern.authenticator.core.ApprovalStatement;
+import edu.northeastern.authenticator.core.ApprovalTimings;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongSupplier;
+
+/**
+ * Thread safe, in-memory LoginAttemptRepository.
+ * This is a stand-in for Firestore in the local unit tests and the JVM load test, so the approval path
+ * can be exercised with thousands of concurrent logins without a device or a network.
+ * <p>
+ * Attempts are kept in a ConcurrentHashMap, with a second index from userId to that user's session IDs
+ * so looking up one user's attempts doesn't mean scanning everybody's.
+ * Listeners are notified synchronously, on whichever thread made the change, and every future returned is already complete.
+ * <p>
+ * Given a RateLimiter, it also limits how many attempts each user can create, the way a real backend should,
+ * and create fails with a RateLimitedException once a user is over the limit.
+ * @author James Bebarski
+ */
+public class InMemoryLoginAttemptRepository implements LoginAttemptRepository {
+
+    private static final Comparator<LoginAttempt> BY_EXPIRY_THEN_ID = (a, b) -> {
+        int byExpiry = Long.compare(a.getExpiresAtMillis(), b.getExpiresAtMillis());
+        return byExpiry != 0 ? byExpiry : a.getSessionId().compareTo(b.getSessionId());
+    };
+
+    private final Map<String, LoginAttempt> attempts = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> sessionIdsByUser = new ConcurrentHashMap<>();
+    private final Map<String, List<PendingAttemptsListener>> listenersByUser = new ConcurrentHashMap<>();
+    // The signature of the statement that decided each attempt, and a lock per user that decisions are made under
+    private final Map<String, byte[]> signatures = new ConcurrentHashMap<>();
+    private final Map<String, Object> decisionLocks = new ConcurrentHashMap<>();
+    private final RateLimiter createLimiter;
+    private final LongSupplier clock;
+
+    public InMemoryLoginAttemptRepository() { this(null); }
+
+    /**
+     * @param createLimiter - limits how many attempts each user can create, or null for no limit
+     */
+    public InMemoryLoginAttemptRepository(RateLimiter createLimiter) { this(createLimiter, System::currentTimeMillis); }
+
+    /**
+     * @param createLimiter - limits how many attempts each user can create, or null for no limit
+     * @param clock - the current time, in millis, which updateStatuses checks each attempt's expiresAt against
+     */
+    public InMemoryLoginAttemptRepository(RateLimiter createLimiter, LongSupplier clock) {
+        this.createLimiter = createLimiter;
+        this.clock = clock;
+    }
+
+    @Override
+    public CompletableFuture<Void> create(LoginAttempt attempt) {
+        if (createLimiter != null) {
+            String key = "login_attempts:" + attempt.getUserId();
+            try {
+                RateLimiter.Decision decision = createLimiter.tryAcquire(key);
+                if (!decision.allowed) { return failed(new RateLimiter.RateLimitedException(key, decision.retryAfterMillis)); }
+            } catch (Exception e) {
+                return failed(e);
+            }
+        }
+        put(attempt);
+        if (LoginAttempt.STATUS_PENDING.equals(attempt.getStatus())) {
+            notifyListeners(attempt.getUserId(), Collections.singletonList(attempt), Collections.emptyList());
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<List<LoginAttempt>> findPending(String userId) {
+        return CompletableFuture.completedFuture(pendingAttemptsOf(userId));
+    }
+
+    /**
+     * Decisions for the same user are made under that user's lock, so checking that every attempt is still pending
+     * and setting the statuses can't interleave with another device deciding the same attempts, like a Firestore transaction.
+     * Attempts past their expiresAt, by the clock this was given, are conflicts too.
+     * The signature is kept per attempt, only to recognise the same statement being sent again, the timings aren't kept,
+     * nothing reads them in memory.
+     */
+    @Override
+    public CompletableFuture<Void> updateStatuses(ApprovalStatement statement, byte[] signature, ApprovalTimings timings) {
+        List<String> conflicts = new ArrayList<>();
+        synchronized (decisionLockOf(statement.getUserId())) {
+            long now = clock.getAsLong();
+            boolean alreadyDecided = false;
+            for (String sessionId : sessionIdsOf(statement)) {
+                LoginAttempt attempt = attempts.get(sessionId);
+                if (attempt != null && LoginAttempt.STATUS_PENDING.equals(attempt.getStatus())) {
+                    if (attempt.getExpiresAtMillis() > 0 && attempt.getExpiresAtMillis() <= now) { conflicts.add(sessionId); }
+                    continue;
+                }
+                if (attempt != null && Arrays.equals(signature, signatures.get(sessionId))) { alreadyDecided = true; }
+                else { conflicts.add(sessionId); }
+            }
+            if (conflicts.isEmpty() && !alreadyDecided) {
+                for (String sessionId : statement.getApprovedSessionIds()) { decide(sessionId, LoginAttempt.STATUS_AUTHENTICATED, signature); }
+                for (String sessionId : statement.getDeniedSessionIds()) { decide(sessionId, LoginAttempt.STATUS_DENIED, signature); }
+            }
+        }
+        return conflicts.isEmpty() ? CompletableFuture.completedFuture(null) : failed(new ConflictException(conflicts));
+    }
+
+    @Override
+    public Subscription listenForPending(String userId, PendingAttemptsListener listener) {
+        List<PendingAttemptsListener> listeners = listenersByUser.computeIfAbsent(userId, id -> new CopyOnWriteArrayList<>());
+        listeners.add(listener);
+        listener.onPendingAttemptsChanged(pendingAttemptsOf(userId), Collections.emptyList(), false);
+        return () -> listeners.remove(listener);
+    }
+
+    @Override
+    public List<LoginAttempt> findExpired(String userId, long beforeMillis, LoginAttempt startAfter, int limit) {
+        List<LoginAttempt> matching = new ArrayList<>();
+        for (LoginAttempt attempt : userId != null ? attemptsOf(userId) : attempts.values()) {
+            if (attempt.getExpiresAtMillis() > 0 && attempt.getExpiresAtMillis() < beforeMillis
+                    && (startAfter == null || BY_EXPIRY_THEN_ID.compare(attempt, startAfter) > 0)) {
+                matching.add(attempt);
+            }
+        }
+        Collections.sort(matching, BY_EXPIRY_THEN_ID);
+        return new ArrayList<>(matching.subList(0, Math.min(limit, matching.size())));
+    }
+
+    /**
+     * Expiring is a decision too, so it's made under the user's lock, and only for attempts that are still pending,
+     * otherwise a sweep could overwrite an approval that was committed after findExpired read the page.
+     */
+    @Override
+    public void commit(List<String> toExpire, List<String> toDelete) {
+        for (String sessionId : toExpire) {
+            LoginAttempt attempt = attempts.get(sessionId);
+            if (attempt == null) { continue; }
+            synchronized (decisionLockOf(attempt.getUserId())) {
+                attempt = attempts.get(sessionId);
+                if (attempt != null && LoginAttempt.STATUS_PENDING.equals(attempt.getStatus())) { setStatus(sessionId, LoginAttempt.STATUS_EXPIRED); }
+            }
+        }
+        for (String sessionId : toDelete) {
+            LoginAttempt removed = attempts.remove(sessionId);
+            signatures.remove(sessionId);
+            if (removed == null) { continue; }
+            Set<String> sessionIds = sessionIdsByUser.get(removed.getUserId());
+            if (sessionIds != null) { sessionIds.remove(sessionId); }
+            if (LoginAttempt.STATUS_PENDING.equals(removed.getStatus())) {
+                notifyListeners(removed.getUserId(), Collections.emptyList(), Collections.singletonList(sessionId));
+            }
+        }
+    }
+
+    /**
+     * @return the attempt with the given session ID, or null, mostly for tests
+     */
+    public LoginAttempt get(String sessionId) { return attempts.get(sessionId); }
+
+    public int size() { return attempts.size(); }
+
+    private void put(LoginAttempt attempt) {
+        attempts.put(attempt.getSessionId(), attempt);
+        sessionIdsByUser.computeIfAbsent(attempt.getUserId(), id -> ConcurrentHashMap.newKeySet()).add(attempt.getSessionId());
+    }
+
+    private static CompletableFuture<Void> failed(Throwable e) {
+        CompletableFuture<Void> failed = new CompletableFuture<>();
+        failed.completeExceptionally(e);
+        return failed;
+    }
+
+    private Object decisionLockOf(String userId) { return decisionLocks.computeIfAbsent(userId, id -> new Object()); }
+
+    private static List<String> sessionIdsOf(ApprovalStatement statement) {
+        List<String> sessionIds = new ArrayList<>(statement.getApprovedSessionIds());
+        sessionIds.addAll(statement.getDeniedSessionIds());
+        return sessionIds;
+    }
+
+    private void decide(String sessionId, String status, byte[] signature) {
+        signatures.put(sessionId, signature);
+        setStatus(sessionId, status);
+    }
+
+    private void setStatus(String sessionId, String status) {
+        LoginAttempt[] previous = new LoginAttempt[1];
+        LoginAttempt updated = attempts.computeIfPresent(sessionId, (id, attempt) -> {
+            previous[0] = attempt;
+            return attempt.withStatus(status);
+        });
+        if (updated == null) { return; }
+
+        boolean wasPending = LoginAttempt.STATUS_PENDING.equals(previous[0].getStatus());
+        boolean isPending = LoginAttempt.STATUS_PENDING.equals(status);
+        if (wasPending && !isPending) {
+            notifyListeners(updated.getUserId(), Collections.emptyList(), Collections.singletonList(sessionId));
+        } else if (isPending) {
+            notifyListeners(updated.getUserId(), Collections.singletonList(updated), Collections.emptyList());
+        }
+    }
+
+    private List<LoginAttempt> attemptsOf(String userId) {
+        Set<String> sessionIds = sessionIdsByUser.get(userId);
+        if (sessionIds == null) { return Collections.emptyList(); }
+        List<LoginAttempt> result = new ArrayList<>(sessionIds.size());
+        for (String sessionId : sessionIds) {
+            LoginAttempt attempt = attempts.get(sessionId);
+            if (attempt != null) { result.add(attempt); }
+        }
+        return result;
+    }
+
+    private List<LoginAttempt> pendingAttemptsOf(String userId) {
+        LoginAttemptQueue queue = new LoginAttemptQueue();
+        for (LoginAttempt attempt : attemptsOf(userId)) {
+            if (LoginAttempt.STATUS_PENDING.equals(attempt.getStatus())) { queue.put(attempt); }
+        }
+        return queue.snapshot();
+    }
+
+    private void notifyListeners(String userId, List<LoginAttempt> upserted, List<String> removed) {
+        List<PendingAttemptsListener> listeners = listenersByUser.get(userId);
+        if (listeners == null) { return; }
+        for (PendingAttemptsListener listener : listeners) { listener.onPendingAttemptsChanged(upserted, removed, false); }
+    }
+}
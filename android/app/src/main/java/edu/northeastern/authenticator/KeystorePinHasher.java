@@ -0,0 +1,82 @@
+package edu.northeastern.authenticator;
+
+import android.security.keystore.KeyGenParameterSpec;
+import android.security.keystore.KeyProperties;
+import android.security.keystore.StrongBoxUnavailableException;
+
+import edu.northeastern.authenticator.core.Logger;
+import edu.northeastern.authenticator.core.PinHasher;
+import edu.northeastern.authenticator.core.Tracer;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+
+/**
+ * PinHasher that runs the PIN through PBKDF2 and then through an HMAC whose key lives in the Android Keystore.
+ * A 6 digit PIN only has a million possibilities, so no amount of stretching alone makes guessing it offline expensive.
+ * With the Keystore key in the mix, a copy of the secure preferences is useless without this device's hardware,
+ * since the key can't be exported. The key is StrongBox backed where the device has StrongBox.
+ * The PBKDF2 and the Keystore HMAC are separate CRYPTO spans (see Tracer), since only the second one depends on the Keystore.
+ * @author James Bebarski
+ */
+public class KeystorePinHasher implements PinHasher {
+
+    private static final Logger log = Logger.get("KeystorePinHasher");
+
+    private static final String KEYSTORE = "AndroidKeyStore";
+    private static final String KEY_ALIAS = "pin_hmac_key";
+
+    private volatile SecretKey key;
+
+    @Override
+    public byte[] hash(CharSequence pin, byte[] salt, int iterations) {
+        AppExecutors.checkNotMainThread("PinHasher.hash");
+        byte[] stretched;
+        try (Tracer.Span ignored = Tracer.section(Tracer.Category.CRYPTO, "PinHasher.pbkdf2")) {
+            stretched = PinHasher.PBKDF2.hash(pin, salt, iterations);
+        }
+        try (Tracer.Span ignored = Tracer.section(Tracer.Category.CRYPTO, "Keystore.pinHmac")) {
+            Mac mac = Mac.getInstance(KeyProperties.KEY_ALGORITHM_HMAC_SHA256);
+            mac.init(getOrCreateKey());
+            return mac.doFinal(stretched);
+        } catch (GeneralSecurityException | IOException e) {
+            throw new IllegalStateException("Error hashing the PIN with the Keystore key", e);
+        }
+    }
+
+    /**
+     * Method to get the HMAC key from the Keystore, generating it the first time.
+     * @return the HMAC key
+     */
+    private synchronized SecretKey getOrCreateKey() throws GeneralSecurityException, IOException {
+        if (key != null) { return key; }
+
+        KeyStore keyStore = KeyStore.getInstance(KEYSTORE);
+        keyStore.load(null);
+        if (keyStore.containsAlias(KEY_ALIAS)) {
+            key = (SecretKey) keyStore.getKey(KEY_ALIAS, null);
+            return key;
+        }
+
+        try {
+            key = generateKey(true);
+        } catch (StrongBoxUnavailableException e) {
+            log.d("StrongBox unavailable, using the regular Keystore");
+            key = generateKey(false);
+        }
+        return key;
+    }
+
+    private static SecretKey generateKey(boolean strongBox) throws GeneralSecurityException {
+        KeyGenerator keyGenerator = KeyGenerator.getInstance(KeyProperties.KEY_ALGORITHM_HMAC_SHA256, KEYSTORE);
+        keyGenerator.init(new KeyGenParameterSpec.Builder(KEY_ALIAS, KeyProperties.PURPOSE_SIGN)
+                .setIsStrongBoxBacked(strongBox)
+                .build());
+        return keyGenerator.generateKey();
+    }
+}
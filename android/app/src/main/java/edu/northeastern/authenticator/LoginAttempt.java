@@ -0,0 +1,63 @@
+package edu.northeastern.authenticator;
+
+/**
+ * Plain representation of a document in the login_attempts collection.
+ * LoginForm on the web side creates these with a userId, a status (starts as "pending"), a timestamp
+ * and an expiresAt time, after which a pending attempt can no longer be approved and is swept to "expired".
+ * Keeping this free of any Firestore classes means the ordering and queueing logic can be unit tested on the JVM.
+ * @author James Bebarski
+ */
+public final class LoginAttempt {
+
+    public static final String STATUS_PENDING = "pending";
+    public static final String STATUS_AUTHENTICATED = "authenticated";
+    public static final String STATUS_DENIED = "denied";
+    public static final String STATUS_EXPIRED = "expired";
+
+    private final String sessionId;
+    private final String userId;
+    private final String status;
+    private final long timestampMillis;
+    private final long expiresAtMillis;
+
+    public LoginAttempt(String sessionId, String userId, String status, long timestampMillis, long expiresAtMillis) {
+        this.sessionId = sessionId;
+        this.userId = userId;
+        this.status = status;
+        this.timestampMillis = timestampMillis;
+        this.expiresAtMillis = expiresAtMillis;
+    }
+
+    public String getSessionId() { return sessionId; }
+
+    public String getUserId() { return userId; }
+
+    public String getStatus() { return status; }
+
+    /**
+     * @return the time the web application created the attempt, in millis, or 0 if it was missing
+     */
+    public long getTimestampMillis() { return timestampMillis; }
+
+    /**
+     * @return the time the attempt stops being approvable, in millis, or 0 for older attempts written without one
+     */
+    public long getExpiresAtMillis() { return expiresAtMillis; }
+
+    /**
+     * Check if the attempt has expired. Attempts without an expiresAt never expire on their own.
+     * @param nowMillis - the current time in millis
+     * @return true if the attempt expired at or before nowMillis
+     */
+    public boolean isExpired(long nowMillis) { return expiresAtMillis > 0 && expiresAtMillis <= nowMillis; }
+
+    /**
+     * @return a copy of this attempt with a different status
+     */
+    public LoginAttempt withStatus(String newStatus) {
+        return new LoginAttempt(sessionId, userId, newStatus, timestampMillis, expiresAtMillis);
+    }
+
+    @Override
+    public String toString() { return "LoginAttempt{" + sessionId + ", " + status + ", " + timestampMillis + ", " + expiresAtMillis + "}"; }
+}
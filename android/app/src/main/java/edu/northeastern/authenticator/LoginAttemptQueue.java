@@ -0,0 +1,88 @@
+package edu.northeastern.authenticator;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Queue of pending login attempts, ordered by the timestamp field LoginForm writes (oldest first).
+ * Firestore doesn't give any ordering guarantee for an unordered query, so grabbing the first document
+ * meant approving an arbitrary session when several were pending (multiple tabs, retries, etc.).
+ * With this queue the selection is deterministic, and all pending sessions can be shown to the user at once.
+ * <p>
+ * Ties on the timestamp are broken by the session ID, so two attempts never compare as equal.
+ * This class is not thread safe, it is only touched from the main thread where the snapshot events arrive.
+ * @author James Bebarski
+ */
+public class LoginAttemptQueue {
+
+    private static final Comparator<LoginAttempt> OLDEST_FIRST = (a, b) -> {
+        int byTimestamp = Long.compare(a.getTimestampMillis(), b.getTimestampMillis());
+        return byTimestamp != 0 ? byTimestamp : a.getSessionId().compareTo(b.getSessionId());
+    };
+
+    private final TreeSet<LoginAttempt> ordered = new TreeSet<>(OLDEST_FIRST);
+    private final Map<String, LoginAttempt> bySessionId = new HashMap<>();
+
+    /**
+     * Add a login attempt, or replace it if an attempt with the same session ID is already queued.
+     * @param attempt - the login attempt
+     */
+    public void put(LoginAttempt attempt) {
+        LoginAttempt previous = bySessionId.put(attempt.getSessionId(), attempt);
+        if (previous != null) { ordered.remove(previous); }
+        ordered.add(attempt);
+    }
+
+    /**
+     * Remove a login attempt from the queue.
+     * @param sessionId - the ID of the login attempt
+     * @return true if the attempt was queued
+     */
+    public boolean remove(String sessionId) {
+        LoginAttempt previous = bySessionId.remove(sessionId);
+        return previous != null && ordered.remove(previous);
+    }
+
+    /**
+     * @return the oldest pending login attempt, or null if the queue is empty
+     */
+    public LoginAttempt oldest() { return ordered.isEmpty() ? null : ordered.first(); }
+
+    /**
+     * @return a copy of the queued login attempts, oldest first
+     */
+    public List<LoginAttempt> snapshot() { return new ArrayList<>(ordered); }
+
+    /**
+     * Drop every queued attempt that has expired, so it can't be offered to the user for approval anymore.
+     * @param nowMillis - the current time in millis
+     * @return the number of attempts dropped
+     */
+    public int removeExpired(long nowMillis) {
+        int removed = 0;
+        Iterator<LoginAttempt> iterator = ordered.iterator();
+        while (iterator.hasNext()) {
+            LoginAttempt attempt = iterator.next();
+            if (attempt.isExpired(nowMillis)) {
+                iterator.remove();
+                bySessionId.remove(attempt.getSessionId());
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    public int size() { return ordered.size(); }
+
+    public boolean isEmpty() { return ordered.isEmpty(); }
+
+    public void clear() {
+        ordered.clear();
+        bySessionId.clear();
+    }
+}
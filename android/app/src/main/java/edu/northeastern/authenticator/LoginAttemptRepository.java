@@ -0,0 +1,113 @@
+package edu.northeastern.authenticator;
+
+import edu.northeastern.authenticator.core.ApprovalStatement;
+import edu.northeastern.authenticator.core.ApprovalTimings;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Everything the app needs to do with the login_attempts collection, behind one interface.
+ * Before this, the Firestore calls were written inline in AuthenticationActivity, which meant the approval path
+ * could only ever be exercised on a real device against the real database.
+ * <p>
+ * There are two implementations:
+ * <ul>
+ *     <li>FirestoreLoginAttemptRepository, which is what the app actually uses</li>
+ *     <li>InMemoryLoginAttemptRepository, a thread safe stand-in for unit tests and the JVM load test</li>
+ * </ul>
+ * The asynchronous methods return CompletableFutures, which are not tied to Android or Firebase,
+ * so the same calling code works on the JVM. Callers that need to touch views should complete on the main executor.
+ * The sweeper methods inherited from LoginAttemptSweeper.Store block, and must be called from a background thread.
+ * @author James Bebarski
+ */
+public interface LoginAttemptRepository extends LoginAttemptSweeper.Store {
+
+    /**
+     * Receives changes to a user's pending login attempts.
+     */
+    interface PendingAttemptsListener {
+
+        /**
+         * Called once with every pending attempt when the listener is registered, then again whenever something changes.
+         *
+         * @param upserted - attempts that became pending, or changed while pending
+         * @param removedSessionIds - attempts that are no longer pending
+         * @param fromCache - true if the change came from a local cache rather than the backend
+         */
+        void onPendingAttemptsChanged(List<LoginAttempt> upserted, List<String> removedSessionIds, boolean fromCache);
+
+        void onError(Exception e);
+    }
+
+    /**
+     * Handle for a registered listener.
+     */
+    interface Subscription {
+        void remove();
+    }
+
+    /**
+     * Some of the attempts in a statement were no longer pending, because another device (or the sweeper) got to them first,
+     * or they were past their expiresAt.
+     * Nothing in the statement was written. Trying the same statement again will fail the same way.
+     */
+    final class ConflictException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<String> sessionIds;
+
+        public ConflictException(List<String> sessionIds) {
+            super("Login attempts already decided: " + sessionIds);
+            this.sessionIds = Collections.unmodifiableList(new ArrayList<>(sessionIds));
+        }
+
+        /**
+         * @return the session IDs that were no longer pending, or had expired
+         */
+        public List<String> getSessionIds() { return sessionIds; }
+    }
+
+    /**
+     * Create a new login attempt, this is what LoginForm does on the web side.
+     * @param attempt - the login attempt to create
+     */
+    CompletableFuture<Void> create(LoginAttempt attempt);
+
+    /**
+     * Fetch a user's pending login attempts once.
+     * @param userId - the user's ID
+     * @return the pending attempts, oldest first
+     */
+    CompletableFuture<List<LoginAttempt>> findPending(String userId);
+
+    /**
+     * Approve and deny login attempts in one go, either every status changes or none of them do.
+     * Every attempt gets the signed statement along with its new status, so the verifier can check it,
+     * and the timings of the approval stages, so the latency exporter can break down where the time went.
+     * <p>
+     * The only transition allowed is from "pending", so two devices can't both decide the same attempt.
+     * If any attempt in the statement is no longer pending, nothing is written and the future fails with a ConflictException.
+     * An attempt past its expiresAt counts as no longer pending, even if the sweeper hasn't got to it yet,
+     * the web login stopped waiting for it when it expired.
+     * The exception is an attempt this very statement already decided (same signature), e.g. the write made it but the
+     * acknowledgement didn't, so sending a statement again is harmless and completes normally.
+     *
+     * @param statement - the attempts to set to "authenticated" and to "denied", and who decided when
+     * @param signature - the statement signed with the user's approval key, see ApprovalSigner
+     * @param timings - when the approval stages happened on the phone
+     */
+    CompletableFuture<Void> updateStatuses(ApprovalStatement statement, byte[] signature, ApprovalTimings timings);
+
+    /**
+     * Start listening for changes to a user's pending login attempts.
+     *
+     * @param userId - the user's ID
+     * @param listener - the listener to notify
+     * @return a Subscription to stop listening with
+     */
+    Subscription listenForPending(String userId, PendingAttemptsListener listener);
+}
@@ -0,0 +1,135 @@
+package edu.northeastern.authenticator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class sweeps old login attempts out of the login_attempts collection.
+ * LoginForm writes a new document on every web login and nothing ever cleaned them up,
+ * so the pending attempts query kept getting slower and kept returning stale sessions.
+ * <p>
+ * The sweeper pages through every attempt whose expiresAt has passed, oldest first, a fixed number of documents at a time:
+ * <ul>
+ *     <li>attempts that are still "pending" are moved to "expired", so the web side can stop waiting on them</li>
+ *     <li>attempts that expired more than the retention period ago are deleted outright, whatever their status</li>
+ * </ul>
+ * Each page is committed atomically before the next page is fetched, and paging uses a cursor on (expiresAt, sessionId)
+ * rather than an offset, so the cost of each query stays the same no matter how many attempts have piled up.
+ * <p>
+ * The sweeper only talks to a Store, so it can run against Firestore on the device, the emulator,
+ * or a plain in-memory stand-in in the unit tests. Store calls block, so never call sweep() on the main thread.
+ * As a server-side backstop, a Firestore TTL policy can also be enabled on the expiresAt field.
+ * @author James Bebarski
+ */
+public class LoginAttemptSweeper {
+
+    /**
+     * Minimal storage the sweeper needs. Both methods are allowed to block.
+     */
+    public interface Store {
+
+        /**
+         * Find attempts whose expiresAt is before the given time, ordered by (expiresAt, sessionId).
+         *
+         * @param userId - only this user's attempts, or null for every user's
+         * @param beforeMillis - only attempts that expired strictly before this time
+         * @param startAfter - the last attempt of the previous page, or null for the first page
+         * @param limit - the maximum number of attempts to return
+         * @return up to limit expired attempts
+         */
+        List<LoginAttempt> findExpired(String userId, long beforeMillis, LoginAttempt startAfter, int limit) throws Exception;
+
+        /**
+         * Mark the given attempts as "expired" and delete the others, all in one commit.
+         * An attempt in toExpire may have been decided since findExpired returned it, so it's only expired if it's still
+         * "pending" at commit time, checked atomically with the write, never overwriting an approval or a denial.
+         *
+         * @param toExpire - session IDs to move from "pending" to "expired", if they still are pending
+         * @param toDelete - session IDs to delete
+         */
+        void commit(List<String> toExpire, List<String> toDelete) throws Exception;
+    }
+
+    /**
+     * What a sweep did, mostly for logging.
+     */
+    public static final class Result {
+        public final int pages;
+        public final int expired;
+        public final int deleted;
+
+        Result(int pages, int expired, int deleted) {
+            this.pages = pages;
+            this.expired = expired;
+            this.deleted = deleted;
+        }
+
+        @Override
+        public String toString() { return "pages=" + pages + ", expired=" + expired + ", deleted=" + deleted; }
+    }
+
+    // Firestore caps a transaction at 500 writes, so a page can never be bigger than that
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private final Store store;
+    private final String userId;
+    private final int pageSize;
+    private final long retentionMillis;
+
+    /**
+     * @param store - where the login attempts live
+     * @param userId - only sweep this user's attempts, or null to sweep everyone's (the security rules only allow this server-side)
+     * @param pageSize - how many attempts to read and commit at once, at most MAX_PAGE_SIZE
+     * @param retentionMillis - how long an attempt is kept after it expires before it gets deleted
+     */
+    public LoginAttemptSweeper(Store store, String userId, int pageSize, long retentionMillis) {
+        if (pageSize <= 0 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("pageSize must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        this.store = store;
+        this.userId = userId;
+        this.pageSize = pageSize;
+        this.retentionMillis = retentionMillis;
+    }
+
+    /**
+     * Sweep every attempt that expired before nowMillis.
+     *
+     * @param nowMillis - the current time in millis
+     * @return how many pages were read and how many attempts were expired and deleted
+     * @throws Exception - whatever the Store throws, the pages committed before that stay committed
+     */
+    public Result sweep(long nowMillis) throws Exception {
+        long deleteBefore = nowMillis - retentionMillis;
+        int pages = 0;
+        int expired = 0;
+        int deleted = 0;
+        LoginAttempt cursor = null;
+
+        while (true) {
+            List<LoginAttempt> page = store.findExpired(userId, nowMillis, cursor, pageSize);
+            if (page.isEmpty()) { break; }
+            pages++;
+
+            List<String> toExpire = new ArrayList<>();
+            List<String> toDelete = new ArrayList<>();
+            for (LoginAttempt attempt : page) {
+                if (attempt.getExpiresAtMillis() < deleteBefore) {
+                    toDelete.add(attempt.getSessionId());
+                } else if (LoginAttempt.STATUS_PENDING.equals(attempt.getStatus())) {
+                    toExpire.add(attempt.getSessionId());
+                }
+            }
+            if (!toExpire.isEmpty() || !toDelete.isEmpty()) {
+                store.commit(toExpire, toDelete);
+                expired += toExpire.size();
+                deleted += toDelete.size();
+            }
+
+            // A short page means there is nothing left after it
+            if (page.size() < pageSize) { break; }
+            cursor = page.get(page.size() - 1);
+        }
+        return new Result(pages, expired, deleted);
+    }
+}
@@ -0,0 +1,62 @@
+package edu.northeastern.authenticator;
+
+import android.os.Bundle;
+import android.text.TextUtils;
+import android.view.View;
+import android.widget.EditText;
+import android.widget.Toast;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+import androidx.fragment.app.Fragment;
+import androidx.lifecycle.ViewModelProvider;
+
+import edu.northeastern.authenticator.core.Logger;
+
+/**
+ * This step represents the first phase of the authenticator applications set up,
+ * they must provide their standard log in information that they would enter on the web application side.
+ * Once they're signed in, the SetupViewModel moves the wizard on to the backup codes.
+ * This used to be the LoginActivity.
+ * @author James Bebarski
+ */
+public class LoginFragment extends Fragment {
+
+    private static final Logger log = Logger.get("LoginFragment");
+
+    private SetupViewModel setup;
+    private EditText emailEditText;
+    private EditText passwordEditText;
+
+    public LoginFragment() { super(R.layout.fragment_login); }
+
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+        setup = new ViewModelProvider(requireActivity()).get(SetupViewModel.class);
+        emailEditText = view.findViewById(R.id.editTextEmailAddress);
+        passwordEditText = view.findViewById(R.id.editTextPassword);
+        view.findViewById(R.id.setupButton).setOnClickListener(v -> attemptSetup());
+    }
+
+    /**
+     * Method to attempt to log in the user with the provided email and password.
+     * If the user is successfully authenticated, the wizard moves on to the backup codes by itself.
+     * If the user is not authenticated, a toast message will be displayed.
+     */
+    private void attemptSetup() {
+        String email = emailEditText.getText().toString().trim();
+        String password = passwordEditText.getText().toString().trim();
+
+        if (TextUtils.isEmpty(email) || TextUtils.isEmpty(password)) {
+            Toast.makeText(requireContext(), "Please enter both email and password.", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        setup.signIn(email, password).whenCompleteAsync((ignored, e) -> {
+            if (e == null) { return; }
+            log.w("signInWithEmail:failure", e);
+            if (isAdded()) { Toast.makeText(requireContext(), "Authentication failed.", Toast.LENGTH_SHORT).show(); }
+        }, ContextCompat.getMainExecutor(requireContext()));
+    }
+}
@@ -1,41 +1,78 @@
 package edu.northeastern.authenticator;
 
+import android.app.Activity;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
-import android.net.ConnectivityManager;
-import android.net.NetworkInfo;
 import android.os.Bundle;
-import android.util.Log;
+import android.view.View;
+import android.view.ViewTreeObserver;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
-import androidx.security.crypto.EncryptedSharedPreferences;
-import androidx.security.crypto.MasterKeys;
+import androidx.core.content.ContextCompat;
 
 import com.google.firebase.auth.FirebaseAuth;
 
+import edu.northeastern.authenticator.core.Logger;
+
+import java.util.concurrent.CompletableFuture;
+
 /**
  * This is the main point of entry for the application.
  * It should check if the user has already completed the application setup, and if so, it will
  * redirect the user to the PinEntryActivity, where the user can initiate the authentication process for their web application login attempt.
- * If the user has not completed the mobile authentication apps setup, it will redirect the user to the LoginActivity,
- * where they can enter their standard login information, and subsequently be redirected to provide their backup codes,
+ * If the user has not completed the mobile authentication apps setup, it will redirect the user to the SetupActivity,
+ * where they can enter their standard login information, and subsequently be asked to provide their backup codes,
  * then their biometric information, and finally their PIN.
  * @author James Bebarski
  */
 public class MainActivity extends AppCompatActivity {
 
+    private static final Logger log = Logger.get("MainActivity");
+
+    // Key for the cached, non-secret copy of whether the setup is complete, in this activity's own preferences
+    private static final String KEY_SETUP_COMPLETE = "isSetupComplete";
+
+    // The last known answer to isSetupComplete(), null until we have one
+    private volatile Boolean setupComplete;
+    private boolean routed;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
+        holdFirstFrameUntilRouted();
         handleAppFlow();
     }
 
     /**
-     * This is a helper method to help the application determine if you need to be redirected to the PinEntryActivity or the LoginActivity.
+     * MainActivity has nothing to show, it only decides where to go. So rather than drawing an empty frame
+     * (or several) while the checks run, the first frame is held back until we have routed somewhere.
+     */
+    private void holdFirstFrameUntilRouted() {
+        View content = findViewById(android.R.id.content);
+        content.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                if (!routed) { return false; }
+                content.getViewTreeObserver().removeOnPreDrawListener(this);
+                return true;
+            }
+        });
+    }
+
+    /**
+     * This is a helper method to help the application determine if you need to be redirected to the PinEntryActivity or the SetupActivity.
      * It will also check to see if a user is actually connected to the internet or if they are connected to a cellular network first.
+     * The connectivity state comes from the ConnectivityMonitor, which has been tracking it since the application started,
+     * so that check is just a field read now.
+     * <p>
+     * All three checks used to run one after the other on the main thread before anything was routed, including building
+     * the EncryptedSharedPreferences for isSetupComplete(). Now they run at the same time in the background, and we
+     * only come back to the main thread to route. The setup check is answered from a cached, non-secret flag when we have one,
+     * and the real check still runs in the background to keep that flag up to date for the next launch.
+     * Reading that flag is a disk read the first time too, so it's read on AppExecutors.io() as well.
      * <p>
      * Note: It was funny, during the recent outages when I had no internet I stumbled into the connectivity check issue.
      *       I was certain that I was entering the correct PIN, and that I have attempted a login on the web application.
@@ -43,41 +80,77 @@ public class MainActivity extends AppCompatActivity {
      *       Simply enough, I was just not connected to the internet, and I didn't think to check that first.
      */
     private void handleAppFlow() {
-        // Check if the user is connected to the internet or cellular network. If not, redirect them to the NoConnectionActivity
-        if (checkForConnectivity()) { Log.e("MainActivity", "No network connection"); goToNoConnectionActivity(); return; }
+        SharedPreferences startupPreferences = getPreferences(Context.MODE_PRIVATE);
+        CompletableFuture<Boolean> cachedSetupComplete = CompletableFuture.supplyAsync(
+                () -> startupPreferences.getBoolean(KEY_SETUP_COMPLETE, false), AppExecutors.io());
+
+        CompletableFuture<Boolean> connected = CompletableFuture.completedFuture(isConnected());
+        CompletableFuture<Boolean> authenticated = CompletableFuture.supplyAsync(() -> FirebaseAuth.getInstance().getCurrentUser() != null, AppExecutors.io());
+        CompletableFuture<Boolean> setupChecked = CompletableFuture.supplyAsync(this::isSetupComplete, AppExecutors.io())
+                .thenCombine(cachedSetupComplete, (complete, cached) -> {
+                    setupComplete = complete;
+                    if (complete.booleanValue() != cached.booleanValue()) { startupPreferences.edit().putBoolean(KEY_SETUP_COMPLETE, complete).apply(); }
+                    return complete;
+                });
+        CompletableFuture<Boolean> setupCompleteForRouting = cachedSetupComplete.thenCompose(
+                cached -> cached ? CompletableFuture.completedFuture(true) : setupChecked);
+
+        CompletableFuture.allOf(connected, authenticated, setupCompleteForRouting)
+                .thenApply(ignored -> chooseDestination(connected.join(), authenticated.join(), setupCompleteForRouting.join()))
+                .whenCompleteAsync((destination, e) -> {
+                    if (e != null) { log.e("Error checking where to go", e); destination = SetupActivity.class; }
+                    route(destination);
+                }, ContextCompat.getMainExecutor(this));
+    }
 
-        // Check if the current user is authenticated
-        if (FirebaseAuth.getInstance().getCurrentUser() != null) { Log.d("MainActivity", "User found and authenticated");
+    /**
+     * Decide where to go, once all of the startup checks are in.
+     * @param connected - whether the user is connected to the internet or cellular network
+     * @param authenticated - whether there is a signed in Firebase user
+     * @param setupComplete - whether the authenticator setup has been completed
+     * @return the activity to go to
+     */
+    private static Class<? extends Activity> chooseDestination(boolean connected, boolean authenticated, boolean setupComplete) {
+        // A user who is signed in and set up goes to the PinEntryActivity even when offline, the pending login attempts
+        // come from the Firestore cache and approvals wait in the ApprovalOutbox until we're back online
+        if (authenticated && setupComplete) {
+            log.d("User found and authenticated");
+            if (!connected) { log.d("No network connection, continuing offline"); }
+            return AuthenticationActivity.class;
+        }
 
-            // if the user has already completed the setup, redirect them to the PinEntryActivity
-            if (isSetupComplete()) { goToPinEntryActivity(); }
+        // Signing in and setting up needs the network. If we don't have it, redirect them to the NoConnectionActivity
+        if (!connected) { log.e("No network connection"); return NoConnectionActivity.class; }
 
-            // if the user has not completed the authenticator setup, redirect them to the LoginActivity
-            else { goToLoginActivity(); }
+        // Otherwise the user either isn't authenticated or hasn't completed the setup, redirect them to the SetupActivity
+        if (!authenticated) { log.e("User was not found or not authenticated"); }
+        return SetupActivity.class;
+    }
 
-        } else { goToLoginActivity(); Log.e("MainActivity", "User was not found or not authenticated"); }
+    /**
+     * Go to the given activity and release the first frame, see holdFirstFrameUntilRouted().
+     * @param destination - the activity to go to
+     */
+    private void route(Class<? extends Activity> destination) {
+        if (isFinishing() || isDestroyed()) { return; }
+        routed = true;
+        if (destination == AuthenticationActivity.class) { goToPinEntryActivity(); }
+        else if (destination == NoConnectionActivity.class) { goToNoConnectionActivity(); }
+        else { goToSetupActivity(); }
     }
 
     /**
      * Check if the user has already completed the application setup.
      * This is done by checking if the user has already set up their PIN.
+     * The SecureStore is shared across the whole app, so after the first call this no longer rebuilds the EncryptedSharedPreferences.
+     * It can still be slow the first time, so only call it off the main thread.
      *
      * @return - true if the user has already completed the setup, false otherwise
      */
     private boolean isSetupComplete() {
-        try {
-            // Check if the EncryptedSharedPreferences contains the "pin" key, will return true if it does, false otherwise
-            Log.d("MainActivity", "Checking if setup is complete");
-            return EncryptedSharedPreferences.create(
-                    "secure_preferences",
-                    MasterKeys.getOrCreate(MasterKeys.AES256_GCM_SPEC),
-                    this,
-                    EncryptedSharedPreferences.PrefKeyEncryptionScheme.AES256_SIV,
-                    EncryptedSharedPreferences.PrefValueEncryptionScheme.AES256_GCM).contains("pin");
-
-        } catch (Exception e) { Log.e("MainActivity", "Error checking setup completion", e);
-            return false;
-        }
+        // Check if the secure store contains the PIN, will return true if it does, false otherwise
+        log.d("Checking if setup is complete");
+        return SecureStore.getInstance(this).isSetupComplete();
     }
 
     /**
@@ -87,92 +160,75 @@ public class MainActivity extends AppCompatActivity {
     private void goToPinEntryActivity() { Intent intent = new Intent(this, AuthenticationActivity.class); startActivity(intent); finish(); }
 
     /**
-     * Redirect the user to the LoginActivity.
-     * This is the activity where the user will enter their standard login information.
+     * Redirect the user to the SetupActivity.
+     * This is where the user will enter their standard login information, if they aren't signed in yet, and set up the authenticator.
      */
-    private void goToLoginActivity() { Intent intent = new Intent(this, LoginActivity.class); startActivity(intent); finish(); }
+    private void goToSetupActivity() { Intent intent = new Intent(this, SetupActivity.class); startActivity(intent); finish(); }
 
     /**
      * Redirect the user to the NoConnectionActivity.
      * This is the activity where the user will be informed that they are not connected to the internet or cellular network.
-     * It's a work in progress, currently I'm using deprecated methods to check for connectivity,
-     * I'm not entirely sure it functions correctly on devices lower thant API 29.
      */
     private void goToNoConnectionActivity() { Intent intent = new Intent(this, NoConnectionActivity.class); startActivity(intent); finish(); }
 
     /**
      * Check if the user is connected to the internet or cellular network.
-     * This is done by checking the network information.
-     * This method is using some deprecated methods,
-     * and I'm still unsure if it works correctly on devices lower than API 29.
+     * This used to poll the deprecated getActiveNetworkInfo, now it asks the ConnectivityMonitor.
+     * A network that hasn't been validated yet still counts, so a flaky network doesn't bounce the user to the NoConnectionActivity,
+     * but a captive portal doesn't, since nothing gets through it until the user signs in.
      *
-     * @return - true if the user is not connected, false otherwise
+     * @return - true if the user is connected, false otherwise
      */
-    private boolean checkForConnectivity() {
-        ConnectivityManager connectivityManager = (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
-        NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
-        return networkInfo == null || !networkInfo.isConnected();
-    }
+    private boolean isConnected() { return ConnectivityMonitor.getInstance(this).getState().isUsable(); }
 
     // Lifecycle methods
+    // Connectivity is already known by the ConnectivityMonitor, there's nothing to poll here
     @Override
-    protected void onStart() {
-        super.onStart();
-        Log.d("MainActivity", "onStart");
-        if (checkForConnectivity()) {
-            Log.e("MainActivity", "No network connection");
-        }
-    }
+    protected void onStart() { super.onStart(); log.v("onStart"); }
 
     @Override
-    protected void onResume() {
-        super.onResume();
-        Log.d("MainActivity", "onResume");
-        if (checkForConnectivity()) {
-            Log.e("MainActivity", "No network connection");
-        }
-    }
+    protected void onResume() { super.onResume(); log.v("onResume"); }
 
     @Override
     protected void onPause() {
         super.onPause();
-        Log.d("MainActivity", "onPause");
-
-        // Save the current state of the application
-        SharedPreferences sharedPreferences = getPreferences(Context.MODE_PRIVATE);
-        SharedPreferences.Editor editor = sharedPreferences.edit();
-        editor.putBoolean("isSetupComplete", isSetupComplete());
-        editor.apply();
+        log.v("onPause");
+        saveSetupComplete();
     }
 
     @Override
     protected void onStop() {
         super.onStop();
-        Log.d("MainActivity", "onStop");
+        log.v("onStop");
+        saveSetupComplete();
+    }
 
-        // Save the current state of the application
-        SharedPreferences sharedPreferences = getPreferences(Context.MODE_PRIVATE);
-        SharedPreferences.Editor editor = sharedPreferences.edit();
-        editor.putBoolean("isSetupComplete", isSetupComplete());
-        editor.apply();
+    /**
+     * Save the current state of the application, but only what we already know.
+     * This used to call isSetupComplete() on the main thread every time the activity was paused and stopped.
+     */
+    private void saveSetupComplete() {
+        Boolean complete = setupComplete;
+        if (complete == null) { return; }
+        getPreferences(Context.MODE_PRIVATE).edit().putBoolean(KEY_SETUP_COMPLETE, complete).apply();
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        Log.d("MainActivity", "onDestroy");
+        log.v("onDestroy");
     }
 
     // save the current state of the application
     @Override
-    protected void onSaveInstanceState(@NonNull Bundle outState) { super.onSaveInstanceState(outState); outState.putBoolean("isSetupComplete", isSetupComplete()); }
+    protected void onSaveInstanceState(@NonNull Bundle outState) { super.onSaveInstanceState(outState); if (setupComplete != null) { outState.putBoolean(KEY_SETUP_COMPLETE, setupComplete); } }
 
     // restore the current state of the application
     @Override
     protected void onRestoreInstanceState(@NonNull Bundle savedInstanceState) {
         super.onRestoreInstanceState(savedInstanceState);
-        boolean isSetupComplete = savedInstanceState.getBoolean("isSetupComplete");
-        Log.d("MainActivity", "Is setup complete? " + isSetupComplete);
+        boolean isSetupComplete = savedInstanceState.getBoolean(KEY_SETUP_COMPLETE);
+        log.d("Checked setup", "complete", isSetupComplete);
     }
 
 }
\ No newline at end of file
@@ -1,17 +1,14 @@
 package edu.northeastern.authenticator;
 
-import android.content.BroadcastReceiver;
-import android.content.Context;
 import android.content.Intent;
-import android.content.IntentFilter;
-import android.net.ConnectivityManager;
-import android.net.NetworkInfo;
 import android.os.Bundle;
-import android.util.Log;
+import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 
+import edu.northeastern.authenticator.core.Logger;
+
 /**
  * This activity is just intended to inform the user that they are not connected to the internet or cellular network.
  * If the user is connected to the internet or cellular network, they will be redirected to the MainActivity.
@@ -21,6 +18,10 @@ import androidx.appcompat.app.AppCompatActivity;
  */
 public class NoConnectionActivity extends AppCompatActivity {
 
+    private static final Logger log = Logger.get("NoConnectionActivity");
+
+    private ConnectivityMonitor.Subscription connectivitySubscription;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -28,31 +29,23 @@ public class NoConnectionActivity extends AppCompatActivity {
     }
 
     /**
-     * Broadcast receiver to listen for network changes.
+     * Called by the ConnectivityMonitor whenever the connectivity state changes, and once with the current state when we start observing.
+     * This replaces the CONNECTIVITY_ACTION broadcast receiver, that broadcast is deprecated and I was never sure it was still delivered.
      * If the user is connected to the internet or cellular network, they will be redirected to the MainActivity.
-     * I'm still using deprecated CONNECTIVITY_ACTION, and im unsure if this works on versions after API 28.
+     * Otherwise the message tells them whether there is no network at all, or a network that wants them to sign in first.
+     * @param state - the current connectivity state
      */
-    private final BroadcastReceiver networkChangeReceiver = new BroadcastReceiver() {
-        @Override
-        public void onReceive(Context context, Intent intent) {
-            if (ConnectivityManager.CONNECTIVITY_ACTION.equals(intent.getAction())) {
-                if (checkForConnectivity(context)) {
-                    Log.d("NoConnectionActivity", "Network connection reestablished");
-                    goToMainActivity();
-                }
-            }
+    private void onConnectivityChanged(ConnectivityMonitor.State state) {
+        if (isFinishing()) { return; }
+        if (state.isUsable()) {
+            log.d("Network connection reestablished");
+            goToMainActivity();
+            return;
         }
-    };
-
-    /**
-     * Helper method to check if the user is connected to the internet or cellular network
-     * @param context - the context of the application, used to get the ConnectivityManager
-     * @return true if the user is connected to the internet or cellular network, false otherwise
-     */
-    private boolean checkForConnectivity(Context context) {
-        ConnectivityManager connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
-        NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
-        return networkInfo != null && networkInfo.isConnected();
+        TextView message = findViewById(R.id.tvMessage);
+        message.setText(state == ConnectivityMonitor.State.CAPTIVE_PORTAL
+                ? "Sign in required.\nPlease sign in to your Wi-Fi network to continue."
+                : "No Connection.\nPlease check your internet connection.");
     }
 
     /**
@@ -65,47 +58,47 @@ public class NoConnectionActivity extends AppCompatActivity {
     @Override
     protected void onStart() {
         super.onStart();
-        Log.d("NoConnectionActivity", "onStart");
-        registerReceiver(networkChangeReceiver, new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
+        log.v("onStart");
+        connectivitySubscription = ConnectivityMonitor.getInstance(this).observe(this::onConnectivityChanged);
     }
 
     @Override
     protected void onStop() {
         super.onStop();
-        Log.d("NoConnectionActivity", "onStop");
-        unregisterReceiver(networkChangeReceiver);
+        log.v("onStop");
+        connectivitySubscription.remove();
     }
 
     @Override
     protected void onResume() {
         super.onResume();
-        Log.d("NoConnectionActivity", "onResume");
+        log.v("onResume");
     }
 
     @Override
     protected void onPause() {
         super.onPause();
-        Log.d("NoConnectionActivity", "onPause");
+        log.v("onPause");
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        Log.d("NoConnectionActivity", "onDestroy");
+        log.v("onDestroy");
     }
 
     // Save the current state of the application
     @Override
     protected void onSaveInstanceState(@NonNull Bundle outState) {
         super.onSaveInstanceState(outState);
-        Log.d("NoConnectionActivity", "onSaveInstanceState");
+        log.v("onSaveInstanceState");
     }
 
     // Restore the current state of the application
     @Override
     protected void onRestoreInstanceState(@NonNull Bundle savedInstanceState) {
         super.onRestoreInstanceState(savedInstanceState);
-        Log.d("NoConnectionActivity", "onRestoreInstanceState");
+        log.v("onRestoreInstanceState");
     }
 
 }
@@ -0,0 +1,112 @@
+package edu.northeastern.authenticator;
+
+import edu.northeastern.authenticator.core.Logger;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class keeps a local copy of the user's pending login attempts while the app is in the foreground.
+ * Previously, AuthenticationActivity only queried login_attempts after the user had typed in their PIN and hit submit,
+ * so every web login had to wait for a full Firestore round trip before the phone could even start the biometric prompt.
+ * <p>
+ * Instead, a listener is registered with the LoginAttemptRepository when the PIN screen becomes visible, and the set of
+ * pending sessions is updated incrementally from the changes it pushes to us. By the time the user submits their PIN,
+ * the pending session is normally already in memory. The sessions are kept in a LoginAttemptQueue, oldest first.
+ * <p>
+ * The monitor also logs how long it took from the web "Login" click (the timestamp field written by LoginForm)
+ * until the attempt showed up on the phone. Keep in mind that this compares the browser's clock to the phone's clock,
+ * so it is only as accurate as the two clocks are in sync. When each attempt arrived is also kept, for the approval's ApprovalTimings.
+ * @author James Bebarski
+ */
+public class PendingLoginAttemptsMonitor {
+
+    private static final Logger log = Logger.get("PendingLoginAttempts");
+
+    /**
+     * Callback for anyone interested in the pending attempts changing, AuthenticationActivity in our case.
+     * It is called on whatever thread the repository delivers changes on, the main thread for Firestore.
+     */
+    public interface Listener {
+        void onPendingLoginAttemptsChanged(int pendingCount);
+    }
+
+    private final LoginAttemptRepository repository;
+    private final String userId;
+    private final Listener listener;
+
+    private final LoginAttemptQueue pendingAttempts = new LoginAttemptQueue();
+    private final Map<String, Long> receivedAtMillis = new HashMap<>();
+    private LoginAttemptRepository.Subscription subscription;
+    private boolean ready;
+
+    public PendingLoginAttemptsMonitor(LoginAttemptRepository repository, String userId, Listener listener) {
+        this.repository = repository;
+        this.userId = userId;
+        this.listener = listener;
+    }
+
+    /**
+     * Start listening for pending login attempts. Calling start() more than once without stop() does nothing.
+     */
+    public void start() {
+        if (subscription != null) { return; }
+        subscription = repository.listenForPending(userId, new LoginAttemptRepository.PendingAttemptsListener() {
+            @Override
+            public void onPendingAttemptsChanged(List<LoginAttempt> upserted, List<String> removedSessionIds, boolean fromCache) {
+                // Only apply what changed, rather than rebuilding the whole set on every event
+                long now = System.currentTimeMillis();
+                for (LoginAttempt attempt : upserted) {
+                    pendingAttempts.put(attempt);
+                    if (!receivedAtMillis.containsKey(attempt.getSessionId())) { receivedAtMillis.put(attempt.getSessionId(), now); }
+                    if (!fromCache && attempt.getTimestampMillis() > 0) {
+                        log.d("Login attempt ready on phone", "millisAfterWebLogin", now - attempt.getTimestampMillis(), "sessionId", attempt.getSessionId());
+                    }
+                }
+                for (String sessionId : removedSessionIds) {
+                    pendingAttempts.remove(sessionId);
+                    receivedAtMillis.remove(sessionId);
+                }
+                ready = true;
+                listener.onPendingLoginAttemptsChanged(pendingAttempts.size());
+            }
+
+            @Override
+            public void onError(Exception e) { log.e("Pending login attempts listener failed", e); }
+        });
+    }
+
+    /**
+     * Stop listening and forget everything we knew, since it will be stale by the next start().
+     */
+    public void stop() {
+        if (subscription != null) {
+            subscription.remove();
+            subscription = null;
+        }
+        pendingAttempts.clear();
+        receivedAtMillis.clear();
+        ready = false;
+    }
+
+    /**
+     * @return true once the first change has arrived, i.e. the in-memory set can be trusted
+     */
+    public boolean isReady() { return ready; }
+
+    /**
+     * Get the pending login attempts that can still be approved. Anything past its expiresAt is dropped here,
+     * even if the sweeper hasn't gotten around to marking it "expired" yet.
+     * @return the pending login attempts, oldest first
+     */
+    public List<LoginAttempt> getPendingLoginAttempts() {
+        pendingAttempts.removeExpired(System.currentTimeMillis());
+        return pendingAttempts.snapshot();
+    }
+
+    /**
+     * @return when each pending attempt first showed up since start(), by session ID
+     */
+    public Map<String, Long> getReceivedAtMillis() { return new HashMap<>(receivedAtMillis); }
+}
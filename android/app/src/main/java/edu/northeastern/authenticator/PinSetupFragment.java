@@ -0,0 +1,85 @@
+package edu.northeastern.authenticator;
+
+import android.os.Bundle;
+import android.view.View;
+import android.widget.EditText;
+import android.widget.Toast;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+import androidx.fragment.app.Fragment;
+import androidx.lifecycle.ViewModelProvider;
+
+import edu.northeastern.authenticator.core.Logger;
+
+/**
+ * This step represents the fourth and final phase of the authenticator application's setup.
+ * After the user provides their biometric information, they must enter their PIN to authenticate themselves.
+ * Going forward, when the user attempts to login on the web application, they will need to navigate to this authenticator app,
+ * enter their PIN, and then authenticate themselves using their biometric information.
+ * This used to be the PinSetupActivity.
+ * @author James Bebarski
+ */
+public class PinSetupFragment extends Fragment {
+
+    private static final Logger log = Logger.get("PinSetupFragment");
+
+    private SetupViewModel setup;
+    private EditText editPin;
+    private EditText editPinConfirm;
+
+    public PinSetupFragment() { super(R.layout.fragment_pin_setup); }
+
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+        setup = new ViewModelProvider(requireActivity()).get(SetupViewModel.class);
+        editPin = view.findViewById(R.id.et_pin);
+        editPinConfirm = view.findViewById(R.id.et_confirmPin);
+
+        view.findViewById(R.id.btn_setPin).setOnClickListener(v -> {
+            String pin = editPin.getText().toString();
+            String pinConfirm = editPinConfirm.getText().toString();
+
+            // Validate the PIN and confirm PIN
+            if (validatePin(pin) && pin.equals(pinConfirm)) {
+                savePin(pin);
+            } else if (!pin.equals(pinConfirm)) {
+                // If the PIN and confirm PIN do not match, show a toast message
+                Toast.makeText(requireContext(), "PIN does not match. Please try again.", Toast.LENGTH_SHORT).show();
+            } else {
+                // If the PIN is invalid, show a toast message
+                Toast.makeText(requireContext(), "Invalid PIN. Please try again.", Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
+    /**
+     * Method to help validate the PIN,
+     * my only requirement is that the PIN for the app should be 6 digits long, and only contain numbers between 0-9.
+     * @param pin - the PIN to validate
+     * @return true if the PIN is valid, false otherwise
+     */
+    private boolean validatePin(String pin) {
+        return pin.length() == 6 && pin.matches("[0-9]+");
+    }
+
+    /**
+     * Method to save the PIN in the SecureStore. The PIN itself isn't stored, only a salted PBKDF2 hash keyed with
+     * an Android Keystore HMAC key (see PinVerifier), and the SecureStore was already warmed up when the wizard started.
+     * Hashing is slow on purpose, so it happens in the background, and the wizard finishes once it's saved.
+     * @param pin - the PIN to save
+     */
+    private void savePin(String pin) {
+        setup.savePin(pin).whenCompleteAsync((ignored, e) -> {
+            if (!isAdded()) { return; }
+            if (e != null) {
+                log.e("Failed to save PIN securely", e);
+                Toast.makeText(requireContext(), "Failed to save PIN securely", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            Toast.makeText(requireContext(), "PIN saved securely", Toast.LENGTH_SHORT).show();
+        }, ContextCompat.getMainExecutor(requireContext()));
+    }
+}
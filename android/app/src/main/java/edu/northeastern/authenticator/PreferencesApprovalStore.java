@@ -0,0 +1,87 @@
+package edu.northeastern.authenticator;
+
+import android.content.SharedPreferences;
+
+import edu.northeastern.authenticator.core.ApprovalStatement;
+import edu.northeastern.authenticator.core.ApprovalTimings;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ApprovalOutbox.Store backed by plain SharedPreferences, the whole outbox is one JSON array under KEY_ENTRIES.
+ * Session IDs aren't secret, and the outbox is only ever a handful of entries, so there's no need for anything fancier.
+ * The signatures aren't secret either, they're only good for the statement they were made over.
+ * Entries saved before the timings were added load with no timings, rather than failing the whole outbox.
+ * Saving uses commit() rather than apply(), the outbox runs on its own thread and should only move on once the entry is on disk.
+ * @author James Bebarski
+ */
+class PreferencesApprovalStore implements ApprovalOutbox.Store {
+
+    private static final String KEY_ENTRIES = "entries";
+
+    private final SharedPreferences preferences;
+
+    PreferencesApprovalStore(SharedPreferences preferences) { this.preferences = preferences; }
+
+    @Override
+    public List<ApprovalOutbox.Entry> load() throws JSONException {
+        JSONArray array = new JSONArray(preferences.getString(KEY_ENTRIES, "[]"));
+        List<ApprovalOutbox.Entry> entries = new ArrayList<>(array.length());
+        for (int i = 0; i < array.length(); i++) {
+            JSONObject object = array.getJSONObject(i);
+            ApprovalStatement statement = new ApprovalStatement(object.getString("userId"), object.getLong("signedAt"),
+                    toList(object.getJSONArray("approved")), toList(object.getJSONArray("denied")));
+            entries.add(new ApprovalOutbox.Entry(object.getString("id"), statement, Base64.getDecoder().decode(object.getString("signature")),
+                    toTimings(object.optJSONObject("timings")), object.optLong("expiresAt", 0L)));
+        }
+        return entries;
+    }
+
+    @Override
+    public void save(List<ApprovalOutbox.Entry> entries) throws JSONException {
+        JSONArray array = new JSONArray();
+        for (ApprovalOutbox.Entry entry : entries) {
+            array.put(new JSONObject()
+                    .put("id", entry.id)
+                    .put("userId", entry.statement.getUserId())
+                    .put("signedAt", entry.statement.getSignedAtMillis())
+                    .put("approved", new JSONArray(entry.statement.getApprovedSessionIds()))
+                    .put("denied", new JSONArray(entry.statement.getDeniedSessionIds()))
+                    .put("signature", Base64.getEncoder().encodeToString(entry.signature))
+                    .put("expiresAt", entry.expiresAtMillis)
+                    .put("timings", new JSONObject()
+                            .put("received", new JSONObject(entry.timings.getReceivedAtMillis()))
+                            .put("pinVerified", entry.timings.getPinVerifiedAtMillis())
+                            .put("biometricDone", entry.timings.getBiometricDoneAtMillis())));
+        }
+        if (!preferences.edit().putString(KEY_ENTRIES, array.toString()).commit()) {
+            throw new IllegalStateException("Could not write the approval outbox");
+        }
+    }
+
+    private static ApprovalTimings toTimings(JSONObject object) throws JSONException {
+        if (object == null) { return ApprovalTimings.none(); }
+        JSONObject receivedObject = object.getJSONObject("received");
+        Map<String, Long> received = new HashMap<>();
+        for (Iterator<String> keys = receivedObject.keys(); keys.hasNext(); ) {
+            String sessionId = keys.next();
+            received.put(sessionId, receivedObject.getLong(sessionId));
+        }
+        return new ApprovalTimings(received, object.getLong("pinVerified"), object.getLong("biometricDone"));
+    }
+
+    private static List<String> toList(JSONArray array) throws JSONException {
+        List<String> list = new ArrayList<>(array.length());
+        for (int i = 0; i < array.length(); i++) { list.add(array.getString(i)); }
+        return list;
+    }
+}
@@ -0,0 +1,65 @@
+package edu.northeastern.authenticator;
+
+/**
+ * Limits how often something can happen per key, e.g. "pin:" plus a userId, within a sliding window.
+ * Nothing used to limit how many login attempts could be created for a user, or how fast PINs could be tried,
+ * so a buggy client (or an attacker) could flood the login_attempts collection and slow down every pending attempts query.
+ * <p>
+ * There are two implementations:
+ * <ul>
+ *     <li>SlidingWindowRateLimiter, in memory and lock-free, for a single process, like the local backend or this device</li>
+ *     <li>FirestoreRateLimiter, with sharded counters in Firestore, so the limit holds across devices</li>
+ * </ul>
+ * Both count a sliding window the same way, see SlidingWindowRateLimiter.retryAfterMillis.
+ * tryAcquire is allowed to block, so never call it on the main thread unless the implementation says otherwise.
+ * @author James Bebarski
+ */
+public interface RateLimiter {
+
+    /**
+     * Whether an event was allowed, and if not, how long until one would be.
+     */
+    final class Decision {
+
+        static final Decision ALLOWED = new Decision(true, 0L);
+
+        public final boolean allowed;
+        public final long retryAfterMillis;
+
+        Decision(boolean allowed, long retryAfterMillis) {
+            this.allowed = allowed;
+            this.retryAfterMillis = retryAfterMillis;
+        }
+
+        static Decision denied(long retryAfterMillis) { return new Decision(false, retryAfterMillis); }
+
+        @Override
+        public String toString() { return allowed ? "allowed" : "denied, retry after " + retryAfterMillis + "ms"; }
+    }
+
+    /**
+     * An event was turned down by a RateLimiter.
+     */
+    final class RateLimitedException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long retryAfterMillis;
+
+        public RateLimitedException(String key, long retryAfterMillis) {
+            super("Rate limited: " + key + ", retry after " + retryAfterMillis + "ms");
+            this.retryAfterMillis = retryAfterMillis;
+        }
+
+        public long getRetryAfterMillis() { return retryAfterMillis; }
+    }
+
+    /**
+     * Count one event for the key, if the key is still under its limit. Events that are denied aren't counted.
+     *
+     * @param key - what is being limited, e.g. "pin:" plus a userId
+     * @return whether the event is allowed
+     * @throws Exception - if the counters couldn't be read or written
+     */
+    Decision tryAcquire(String key) throws Exception;
+}
@@ -0,0 +1,238 @@
+package edu.northeastern.authenticator;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.security.crypto.EncryptedSharedPreferences;
+import androidx.security.crypto.MasterKeys;
+
+import edu.northeastern.authenticator.core.BackupCodeHasher;
+import edu.northeastern.authenticator.core.BackupCodeKdf;
+import edu.northeastern.authenticator.core.Logger;
+import edu.northeastern.authenticator.core.PinVerifier;
+import edu.northeastern.authenticator.core.Tracer;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+
+/**
+ * This class is the single, process-wide owner of the "secure_preferences" EncryptedSharedPreferences file.
+ * Before this, every activity built its own copy with MasterKeys.getOrCreate and EncryptedSharedPreferences.create,
+ * which means a round trip to the Android Keystore and parsing the Tink keysets every single time we wanted to check the PIN.
+ * Now the preferences are created once, lazily, and every activity shares the same instance.
+ * <p>
+ * The store is warmed up on a background thread when the application starts (see AuthenticatorApplication),
+ * so by the time the user reaches the PIN screen the expensive part has usually already happened off the main thread.
+ * @author James Bebarski
+ */
+public final class SecureStore {
+
+    private static final Logger log = Logger.get("SecureStore");
+
+    static final String PREFERENCES_NAME = "secure_preferences";
+
+    // The plaintext PIN the app used to store, only read to migrate it to a PIN hash
+    static final String KEY_PIN = "pin";
+
+    // The PinVerifier.Record, see PinRecordStore
+    static final String KEY_PIN_HASH = "pin_hash";
+    static final String KEY_PIN_SALT = "pin_salt";
+    static final String KEY_PIN_ITERATIONS = "pin_iterations";
+    static final String KEY_PIN_FAILED_ATTEMPTS = "pin_failed_attempts";
+    static final String KEY_PIN_LOCKED_UNTIL = "pin_locked_until";
+
+    // How long a PIN check should take on this device, which decides the PBKDF2 iteration count when a PIN is set
+    private static final long PIN_HASH_TARGET_NANOS = 50_000_000L;
+
+    private static volatile SecureStore instance;
+
+    private final Context appContext;
+    private volatile SharedPreferences preferences;
+    private volatile PinVerifier pinVerifier;
+
+    private SecureStore(Context context) { this.appContext = context.getApplicationContext(); }
+
+    /**
+     * Get the shared SecureStore instance, creating it if it doesn't exist yet.
+     * Creating the SecureStore itself is cheap, the EncryptedSharedPreferences are only built on first use.
+     *
+     * @param context - any context, only the application context is held on to
+     * @return the process-wide SecureStore
+     */
+    public static SecureStore getInstance(Context context) {
+        SecureStore store = instance;
+        if (store == null) {
+            synchronized (SecureStore.class) {
+                store = instance;
+                if (store == null) {
+                    store = new SecureStore(context);
+                    instance = store;
+                }
+            }
+        }
+        return store;
+    }
+
+    /**
+     * Get the EncryptedSharedPreferences, building them on the first call.
+     * I am still using AES256_GCM_SPEC for the master key, AES256_SIV for the key encryption scheme
+     * and AES256_GCM for the value encryption scheme, same as when this lived in PinSetupActivity.
+     *
+     * @return the shared EncryptedSharedPreferences
+     * @throws GeneralSecurityException - if an error occurs while creating the master key
+     * @throws IOException - if an error occurs with EncryptedSharedPreferences
+     */
+    public SharedPreferences getPreferences() throws GeneralSecurityException, IOException {
+        SharedPreferences prefs = preferences;
+        if (prefs == null) {
+            synchronized (this) {
+                prefs = preferences;
+                if (prefs == null) {
+                    AppExecutors.checkNotMainThread("SecureStore.openPreferences");
+                    try (Tracer.Span ignored = Tracer.section(Tracer.Category.CRYPTO, "SecureStore.openPreferences")) {
+                        prefs = EncryptedSharedPreferences.create(
+                                PREFERENCES_NAME,
+                                MasterKeys.getOrCreate(MasterKeys.AES256_GCM_SPEC),
+                                appContext,
+                                EncryptedSharedPreferences.PrefKeyEncryptionScheme.AES256_SIV,
+                                EncryptedSharedPreferences.PrefValueEncryptionScheme.AES256_GCM);
+                    }
+                    preferences = prefs;
+                }
+            }
+        }
+        return prefs;
+    }
+
+    /**
+     * Get the PinVerifier for the user's PIN, which keeps its record in these preferences and hashes with a Keystore key.
+     * The first call also migrates a plaintext PIN left over from before the PinVerifier existed, and deletes it.
+     * Like getPreferences(), the first call is slow, so don't make it on the main thread.
+     *
+     * @return the shared PinVerifier
+     * @throws GeneralSecurityException - if an error occurs while creating the master key
+     * @throws IOException - if an error occurs with EncryptedSharedPreferences
+     */
+    public PinVerifier getPinVerifier() throws GeneralSecurityException, IOException {
+        PinVerifier verifier = pinVerifier;
+        if (verifier == null) {
+            synchronized (this) {
+                verifier = pinVerifier;
+                if (verifier == null) {
+                    SharedPreferences prefs = getPreferences();
+                    verifier = new PinVerifier(new PinRecordStore(prefs), new KeystorePinHasher(), System::currentTimeMillis);
+                    String legacyPin = prefs.getString(KEY_PIN, null);
+                    if (legacyPin != null) {
+                        try {
+                            enrollPin(verifier, legacyPin);
+                        } catch (Exception e) {
+                            throw new GeneralSecurityException("Error migrating the stored PIN", e);
+                        }
+                        prefs.edit().remove(KEY_PIN).commit();
+                        log.d("Migrated the stored PIN to a PIN hash");
+                    }
+                    pinVerifier = verifier;
+                }
+            }
+        }
+        return verifier;
+    }
+
+    /**
+     * Set a new PIN, hashed with however many iterations take PIN_HASH_TARGET_NANOS on this device.
+     * This is slow on purpose, so don't call it on the main thread.
+     *
+     * @param pin - the new PIN
+     * @throws Exception - if the PIN couldn't be hashed or saved
+     */
+    public void setPin(String pin) throws Exception {
+        AppExecutors.checkNotMainThread("SecureStore.setPin");
+        enrollPin(getPinVerifier(), pin);
+    }
+
+    private static void enrollPin(PinVerifier verifier, String pin) throws Exception {
+        int iterations;
+        try (Tracer.Span ignored = Tracer.section(Tracer.Category.CRYPTO, "PinHasher.calibrate")) {
+            iterations = BackupCodeKdf.calibrateIterations(PIN_HASH_TARGET_NANOS);
+        }
+        verifier.enroll(pin, iterations);
+    }
+
+    /**
+     * Check if the user has already completed the application setup, by checking if a PIN has been stored.
+     *
+     * @return true if a PIN is stored, false otherwise (including if the store could not be opened)
+     */
+    public boolean isSetupComplete() {
+        try {
+            SharedPreferences prefs = getPreferences();
+            return prefs.contains(KEY_PIN_HASH) || prefs.contains(KEY_PIN);
+        } catch (GeneralSecurityException | IOException e) {
+            log.e("Error checking setup completion", e);
+            return false;
+        }
+    }
+
+    /**
+     * Check if the secure preferences have already been built.
+     * @return true if getPreferences() will return without touching the Keystore
+     */
+    public boolean isWarm() { return preferences != null; }
+
+    /**
+     * Build the EncryptedSharedPreferences and the PinVerifier on AppExecutors.io() so that the first PIN check doesn't have to.
+     * Failures are only logged here, getPreferences() will simply try again (and throw) when it is actually needed.
+     */
+    public void warmUpAsync() {
+        if (isWarm()) { return; }
+        AppExecutors.io().execute(() -> {
+            try {
+                long start = System.nanoTime();
+                getPinVerifier();
+                log.d("Secure store warmed up", "millis", (System.nanoTime() - start) / 1_000_000);
+            } catch (GeneralSecurityException | IOException e) {
+                log.e("Error warming up the secure store", e);
+            }
+        });
+    }
+
+    /**
+     * Keeps the PinVerifier.Record in the secure preferences, with the hash and salt as hex.
+     * Saves use commit() rather than apply(), since the attempt counter has to be on disk before the PIN is checked.
+     */
+    private static final class PinRecordStore implements PinVerifier.Store {
+
+        private final SharedPreferences prefs;
+
+        PinRecordStore(SharedPreferences prefs) { this.prefs = prefs; }
+
+        @Override
+        public PinVerifier.Record load() {
+            String hash = prefs.getString(KEY_PIN_HASH, null);
+            String salt = prefs.getString(KEY_PIN_SALT, null);
+            if (hash == null || salt == null) { return null; }
+            return new PinVerifier.Record(fromHex(salt), fromHex(hash), prefs.getInt(KEY_PIN_ITERATIONS, 0),
+                    prefs.getInt(KEY_PIN_FAILED_ATTEMPTS, 0), prefs.getLong(KEY_PIN_LOCKED_UNTIL, 0L));
+        }
+
+        @Override
+        public void save(PinVerifier.Record record) throws IOException {
+            boolean saved = prefs.edit()
+                    .putString(KEY_PIN_HASH, BackupCodeHasher.bytesToHex(record.hash))
+                    .putString(KEY_PIN_SALT, BackupCodeHasher.bytesToHex(record.salt))
+                    .putInt(KEY_PIN_ITERATIONS, record.iterations)
+                    .putInt(KEY_PIN_FAILED_ATTEMPTS, record.failedAttempts)
+                    .putLong(KEY_PIN_LOCKED_UNTIL, record.lockedUntilMillis)
+                    .commit();
+            if (!saved) { throw new IOException("Error saving the PIN record"); }
+        }
+
+        private static byte[] fromHex(String hex) {
+            byte[] bytes = new byte[hex.length() / 2];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+            }
+            return bytes;
+        }
+    }
+}
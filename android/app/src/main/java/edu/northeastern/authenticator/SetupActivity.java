@@ -0,0 +1,106 @@
+package edu.northeastern.authenticator;
+
+import android.content.Intent;
+import android.os.Bundle;
+
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.fragment.app.Fragment;
+import androidx.lifecycle.ViewModelProvider;
+
+import edu.northeastern.authenticator.core.Logger;
+import edu.northeastern.authenticator.core.Tracer;
+
+/**
+ * This activity hosts the whole setup of the authenticator app, one step at a time:
+ * the user signs in with their web application login (LoginFragment), enters their backup codes (VerifyBackupCodesFragment),
+ * registers their fingerprint (BiometricSetupFragment), and finally picks their PIN (PinSetupFragment).
+ * Once the PIN is saved it hands over to the MainActivity, which will take them to the PIN entry.
+ * <p>
+ * The steps used to be four activities, each started cold, and going to the biometrics even left the backup codes
+ * screen on the back stack. Now the steps are fragments swapped in place, with nothing on the back stack,
+ * so back leaves the setup like it did from any of those screens. Everything the steps share, and the work behind them,
+ * lives in the SetupViewModel, which survives the activity being recreated. This activity only follows its step.
+ * <p>
+ * Swapping the step in is a UI span (see Tracer), SetupActivity.showStep, which is what the SetupWizardBenchmark measures.
+ * @author James Bebarski
+ */
+public class SetupActivity extends AppCompatActivity {
+
+    private static final Logger log = Logger.get("SetupActivity");
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_setup);
+
+        SetupViewModel setup = new ViewModelProvider(this).get(SetupViewModel.class);
+        setup.getStep().observe(this, this::showStep);
+    }
+
+    /**
+     * Show the fragment for a step, unless it's already showing, e.g. because the activity was recreated and the
+     * FragmentManager restored it. The finished setup goes to the MainActivity.
+     * @param step - the step the setup is on
+     */
+    private void showStep(SetupViewModel.Step step) {
+        if (step == SetupViewModel.Step.DONE) { proceedToMainActivity(); return; }
+        String tag = step.name();
+        if (getSupportFragmentManager().findFragmentByTag(tag) != null) { return; }
+
+        log.d("Showing setup step", "step", step);
+        try (Tracer.Span ignored = Tracer.section(Tracer.Category.UI, "SetupActivity.showStep")) {
+            getSupportFragmentManager().beginTransaction()
+                    .setReorderingAllowed(true)
+                    .replace(R.id.setupFragmentContainer, fragmentFor(step), tag)
+                    .commitNow();
+        }
+    }
+
+    /**
+     * Helper method to create the fragment for a step.
+     * @param step - any step but DONE
+     * @return a new fragment for it
+     */
+    private static Fragment fragmentFor(SetupViewModel.Step step) {
+        switch (step) {
+            case LOGIN: return new LoginFragment();
+            case BACKUP_CODES: return new VerifyBackupCodesFragment();
+            case BIOMETRICS: return new BiometricSetupFragment();
+            case PIN: return new PinSetupFragment();
+            default: throw new IllegalArgumentException("No fragment for " + step);
+        }
+    }
+
+    /**
+     * Method to proceed to the MainActivity.
+     * This will be called after the user has successfully set up their PIN.
+     * Essentially they will be redirected there, it will check if they are authenticated or not.
+     * Since they should be if this method is called it will redirect them to the PIN entry activity.
+     */
+    private void proceedToMainActivity() { startActivity(new Intent(this, MainActivity.class)); finish(); }
+
+    // Lifecycle methods
+    @Override
+    protected void onStart() { super.onStart(); log.v("onStart"); }
+
+    @Override
+    protected void onStop() { super.onStop(); log.v("onStop"); }
+
+    @Override
+    protected void onResume() { super.onResume(); log.v("onResume"); }
+
+    @Override
+    protected void onPause() { super.onPause(); log.v("onPause"); }
+
+    @Override
+    protected void onDestroy() { super.onDestroy(); log.v("onDestroy"); }
+
+    // Save the current state of the application
+    @Override
+    protected void onSaveInstanceState(@NonNull Bundle outState) { super.onSaveInstanceState(outState); log.v("onSaveInstanceState"); }
+
+    // Restore the current state of the application
+    @Override
+    protected void onRestoreInstanceState(@NonNull Bundle savedInstanceState) { super.onRestoreInstanceState(savedInstanceState); log.v("onRestoreInstanceState"); }
+}
@@ -0,0 +1,326 @@
+package edu.northeastern.authenticator;
+
+import android.app.Application;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import edu.northeastern.authenticator.core.BackupCodeHasher;
+import edu.northeastern.authenticator.core.BackupCodeKdf;
+import edu.northeastern.authenticator.core.Logger;
+import edu.northeastern.authenticator.core.StoredBackupCodes;
+import edu.northeastern.authenticator.core.Tracer;
+import edu.northeastern.authenticator.core.WordTrie;
+import edu.northeastern.authenticator.core.Wordlist;
+
+import java.io.IOException;
+import java.security.SecureRandom;
+import java.security.Signature;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The state shared by the steps of the setup wizard (see SetupActivity), and the work behind them.
+ * <p>
+ * The setup used to be four activities in a row, LoginActivity, VerifyBackupCodesActivity, BiometricSetupActivity
+ * and PinSetupActivity, and every one of them started from nothing: its own FirebaseAuth and FirebaseFirestore lookups,
+ * its own executors, and the backup codes were only fetched once the user pressed the button.
+ * Now the steps are fragments in one activity, and everything they have in common lives here, for as long as the wizard does:
+ * <ul>
+ *     <li>The signed in user. As soon as we have one, their user document (with the backup codes) is fetched,
+ *     so it's usually there by the time they have typed 12 codes, and it's only fetched once however often they submit.</li>
+ *     <li>The wordlist and its trie, loaded on verificationExecutor when the wizard starts.</li>
+ *     <li>The SecureStore, warmed up when the wizard starts so it's ready for the PIN at the end.</li>
+ *     <li>The executors the backup codes are verified on, shut down in onCleared().</li>
+ * </ul>
+ * Which step we're on is a LiveData the activity follows, and a step is only advanced from here, once its work is done.
+ * So the wizard still ends up on the right step if the activity is recreated (e.g. rotated) while that work is running.
+ * The fragments only read what the user entered and show the results.
+ * @author James Bebarski
+ */
+public class SetupViewModel extends AndroidViewModel {
+
+    private static final Logger log = Logger.get("SetupViewModel");
+
+    /**
+     * The steps of the setup, in order. DONE means the PIN is saved, and the setup is complete.
+     */
+    public enum Step { LOGIN, BACKUP_CODES, BIOMETRICS, PIN, DONE }
+
+    /**
+     * The user's stored backup codes can't be checked against, e.g. there are none. The message is meant for the user.
+     */
+    static final class BackupCodesUnavailableException extends Exception {
+        BackupCodesUnavailableException(String message) { super(message); }
+    }
+
+    // Verifying all 12 codes, including spreading the PBKDF2 work over AppExecutors.compute(), should take at most this long
+    private static final long VERIFY_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    // Calibrated once per process, the first time codes need rehashing
+    private static volatile int calibratedIterations;
+
+    private final MutableLiveData<Step> step = new MutableLiveData<>();
+    private final FirebaseAuth auth = FirebaseAuth.getInstance();
+    private final FirebaseFirestore firestore = FirebaseFirestore.getInstance();
+    private final SecureStore secureStore;
+
+    // verificationExecutor coordinates, and blocks while AppExecutors.compute() does the hashing
+    private final ExecutorService verificationExecutor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "SetupVerification"));
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    private volatile String userId;
+    // Fetched once we have a user, and again only if that fetch failed, guarded by this
+    private CompletableFuture<DocumentSnapshot> userDocument;
+    private volatile StoredBackupCodes storedBackupCodes;
+    private volatile Wordlist wordlist;
+    private volatile WordTrie trie;
+    // The public half of the approval signing key, registered once the fingerprint has unlocked the key
+    private volatile String approvalPublicKey;
+
+    public SetupViewModel(@NonNull Application application) {
+        super(application);
+        secureStore = SecureStore.getInstance(application);
+        secureStore.warmUpAsync();
+        verificationExecutor.execute(this::loadWordlist);
+
+        // Someone who signed in but never finished the setup picks up at their backup codes, rather than signing in again
+        FirebaseUser user = auth.getCurrentUser();
+        if (user != null) {
+            onSignedIn(user);
+            step.setValue(Step.BACKUP_CODES);
+        } else {
+            step.setValue(Step.LOGIN);
+        }
+    }
+
+    /**
+     * @return the step the wizard is on
+     */
+    public LiveData<Step> getStep() { return step; }
+
+    /**
+     * Sign in with the standard login information from the web application, then move on to the backup codes.
+     * The sign in is a NETWORK span (see Tracer).
+     * @param email - the user's email
+     * @param password - the user's password
+     * @return a future that completes once the user is signed in, or fails with why they weren't
+     */
+    CompletableFuture<Void> signIn(String email, String password) {
+        Tracer.Span signIn = Tracer.begin(Tracer.Category.NETWORK, "FirebaseAuth.signIn");
+        return signIn.endWhenDone(FirestoreLoginAttemptRepository.toFuture(auth.signInWithEmailAndPassword(email, password)))
+                .thenAccept(result -> {
+                    log.d("signInWithEmail:success, moving on to the backup codes");
+                    onSignedIn(Objects.requireNonNull(result.getUser()));
+                    step.postValue(Step.BACKUP_CODES);
+                });
+    }
+
+    /**
+     * Remember the user, and start fetching their user document straight away.
+     * @param user - the signed in user
+     */
+    private void onSignedIn(FirebaseUser user) {
+        userId = user.getUid();
+        userDocument();
+    }
+
+    /**
+     * Get the user document, with their backup codes, fetching it if it hasn't been or the last fetch failed.
+     * @return the user document
+     */
+    private synchronized CompletableFuture<DocumentSnapshot> userDocument() {
+        if (userDocument == null || userDocument.isCompletedExceptionally()) {
+            userDocument = Tracer.begin(Tracer.Category.NETWORK, "Firestore.getBackupCodes")
+                    .endWhenDone(FirestoreLoginAttemptRepository.toFuture(firestore.collection("users").document(userId).get()));
+        }
+        return userDocument;
+    }
+
+    /**
+     * Load the backup code wordlist, so codes that aren't even words can be caught before anything is hashed,
+     * and the trie over it for the suggestions.
+     * This runs on verificationExecutor. If it fails, codes just go straight to verification, without suggestions.
+     */
+    private void loadWordlist() {
+        try {
+            wordlist = WordlistAsset.get(getApplication());
+            trie = WordlistAsset.trie(getApplication());
+        } catch (IOException | IllegalArgumentException e) {
+            log.e("Error loading the backup code wordlist", e);
+        }
+    }
+
+    /**
+     * @return the wordlist, or null if it isn't loaded (yet)
+     */
+    @Nullable
+    Wordlist getWordlist() { return wordlist; }
+
+    /**
+     * @return the trie over the wordlist, or null if it isn't loaded (yet)
+     */
+    @Nullable
+    WordTrie getTrie() { return trie; }
+
+    /**
+     * Verify all 12 entered codes as one batch against the user's stored backup codes, and move on to the biometrics if they all match.
+     * The stored codes come from the user document fetched when they signed in, and are kept once parsed,
+     * so re-submitting costs no network.
+     * <p>
+     * The codes are hashed with PBKDF2, which is slow on purpose, so the 12 codes are spread over AppExecutors.compute()
+     * to stay within VERIFY_BUDGET_NANOS. The verify, calibrate and rehash are CRYPTO spans (see Tracer).
+     *
+     * @param enteredCodes - the codes the user entered, in order
+     * @return a future with a bitmap with a bit per code, see StoredBackupCodes.verify.
+     * It fails with a BackupCodesUnavailableException if the user has no backup codes to check against
+     */
+    CompletableFuture<Integer> verifyBackupCodes(String[] enteredCodes) {
+        StoredBackupCodes cached = storedBackupCodes;
+        CompletableFuture<StoredBackupCodes> backupCodes = cached != null
+                ? CompletableFuture.completedFuture(cached)
+                : userDocument().thenApplyAsync(this::parseBackupCodes, verificationExecutor);
+        return backupCodes.thenApplyAsync(codes -> verifyEnteredCodes(codes, enteredCodes), verificationExecutor);
+    }
+
+    /**
+     * Check the user document, and cache its backup codes. This runs on verificationExecutor.
+     * @param document - the user document
+     * @return the user's stored backup codes
+     */
+    private StoredBackupCodes parseBackupCodes(DocumentSnapshot document) {
+        // Check if the user exists, and if they actually have backup codes
+        if (!document.exists()) {
+            throw new CompletionException(new BackupCodesUnavailableException("User not found"));
+        }
+        if (document.get("backupCodes") == null) {
+            throw new CompletionException(new BackupCodesUnavailableException("Your backup codes were not found."));
+        }
+
+        // Make sure it is a list of 12 maps with a hash and a salt, as expected
+        try {
+            StoredBackupCodes parsed = StoredBackupCodes.parse(document.get("backupCodes"));
+            storedBackupCodes = parsed;
+            return parsed;
+        } catch (IllegalArgumentException e) {
+            log.e("Invalid format for backup codes", e);
+            throw new CompletionException(new BackupCodesUnavailableException("Your backup codes were not found."));
+        }
+    }
+
+    /**
+     * Verify the entered codes, and if they all match, upgrade the stored hashes if need be and move on.
+     * This runs on verificationExecutor.
+     * @param backupCodes - the user's stored backup codes
+     * @param enteredCodes - the codes the user entered, in order
+     * @return the bitmap from StoredBackupCodes.verify
+     */
+    private int verifyEnteredCodes(StoredBackupCodes backupCodes, String[] enteredCodes) {
+        int verified;
+        try (Tracer.Span ignored = Tracer.section(Tracer.Category.CRYPTO, "StoredBackupCodes.verify")) {
+            verified = backupCodes.verify(enteredCodes, AppExecutors.compute());
+        }
+        if (verified == StoredBackupCodes.ALL_VERIFIED) {
+            upgradeBackupCodes(backupCodes, enteredCodes);
+            log.d("Backup codes verified, moving on to the biometrics");
+            step.postValue(Step.BIOMETRICS);
+        }
+        return verified;
+    }
+
+    /**
+     * Now that we know the codes the user entered are right, rehash any that are still in the old SHA-256 format,
+     * or were hashed with fewer iterations than this device can afford, and write them back to firestore.
+     * This only happens once per account, so it is done before moving on rather than racing the next step.
+     * This runs on verificationExecutor.
+     * @param backupCodes - the user's stored backup codes
+     * @param verifiedCodes - the codes the user entered, all verified
+     */
+    private void upgradeBackupCodes(StoredBackupCodes backupCodes, String[] verifiedCodes) {
+        if (calibratedIterations == 0) {
+            long targetNanos = BackupCodeKdf.targetNanosPerCode(VERIFY_BUDGET_NANOS, BackupCodeHasher.BACKUP_CODE_COUNT, AppExecutors.COMPUTE_THREADS);
+            try (Tracer.Span ignored = Tracer.section(Tracer.Category.CRYPTO, "BackupCodeKdf.calibrate")) {
+                calibratedIterations = BackupCodeKdf.calibrateIterations(targetNanos);
+            }
+            log.d("Calibrated backup code hashing", "iterations", calibratedIterations);
+        }
+        if (!backupCodes.needsRehash(calibratedIterations)) { return; }
+
+        List<Map<String, Object>> rehashed;
+        try (Tracer.Span ignored = Tracer.section(Tracer.Category.CRYPTO, "StoredBackupCodes.rehash")) {
+            rehashed = backupCodes.rehash(verifiedCodes, calibratedIterations, secureRandom, AppExecutors.compute());
+        }
+        storedBackupCodes = StoredBackupCodes.parse(rehashed);
+        Tracer.Span upgrade = Tracer.begin(Tracer.Category.NETWORK, "Firestore.upgradeBackupCodes");
+        firestore.collection("users").document(userId).update("backupCodes", rehashed)
+                .addOnCompleteListener(AppExecutors.io(), task -> upgrade.end())
+                .addOnFailureListener(AppExecutors.io(), e -> log.e("Error upgrading backup codes", e));
+    }
+
+    /**
+     * Create the approval signing key on AppExecutors.compute(), since the Keystore (and StrongBox even more so) takes a while.
+     * @return a future with a Signature over the new key, for the fingerprint prompt to unlock
+     */
+    CompletableFuture<Signature> createApprovalKey() {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                approvalPublicKey = ApprovalSigner.createKey();
+                return ApprovalSigner.newSignature();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, AppExecutors.compute());
+    }
+
+    /**
+     * Store the approval public key on the user document, where the verifier looks for it, then move on to the PIN.
+     * Call it once the fingerprint prompt has unlocked the key, so we know it works.
+     * @return a future that completes once the key is registered
+     */
+    CompletableFuture<Void> registerApprovalPublicKey() {
+        return Tracer.begin(Tracer.Category.NETWORK, "Firestore.registerApprovalKey")
+                .endWhenDone(FirestoreLoginAttemptRepository.toFuture(
+                        firestore.collection("users").document(userId).update("approvalPublicKey", approvalPublicKey)))
+                .thenRun(() -> {
+                    log.d("Biometric setup successful, moving on to the PIN");
+                    step.postValue(Step.PIN);
+                });
+    }
+
+    /**
+     * Save the PIN (see SecureStore.setPin), which finishes the setup. Hashing is slow on purpose, so it happens on AppExecutors.compute().
+     * @param pin - the PIN, already validated
+     * @return a future that completes once the PIN is saved
+     */
+    CompletableFuture<Void> savePin(String pin) {
+        return CompletableFuture.runAsync(() -> {
+            try (Tracer.Span ignored = Tracer.section(Tracer.Category.CRYPTO, "SetupViewModel.savePin")) {
+                secureStore.setPin(pin);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, AppExecutors.compute()).thenRun(() -> {
+            log.d("PIN saved securely, setup complete");
+            step.postValue(Step.DONE);
+        });
+    }
+
+    // The compute pool is shared with the rest of the app, only the coordinating thread is ours to shut down,
+    // any verification still queued on it can finish first
+    @Override
+    protected void onCleared() { super.onCleared(); verificationExecutor.shutdown(); log.v("onCleared"); }
+}
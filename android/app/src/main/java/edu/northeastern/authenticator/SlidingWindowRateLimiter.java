@@ -0,0 +1,110 @@
+package edu.northeastern.authenticator;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory, lock-free RateLimiter, for the local backend (see InMemoryLoginAttemptRepository) and for limits that only
+ * need to hold on this device. tryAcquire never blocks, so unlike the FirestoreRateLimiter it's fine on the main thread.
+ * <p>
+ * Every key has an immutable Window, the count for the current fixed window and for the one before it, held in an
+ * AtomicReference. Acquiring reads the Window, rolls it forward if the clock has moved on to a new window,
+ * and swaps in the count plus one with compareAndSet, starting over if another thread got there first.
+ * Threads hammering the same key never wait on a lock, and threads on different keys never touch the same memory.
+ * A key's Window is kept for as long as the limiter is, which is one small object per user or device.
+ * @author James Bebarski
+ */
+public class SlidingWindowRateLimiter implements RateLimiter {
+
+    /**
+     * How many events a key had in the current fixed window, and in the one before it.
+     */
+    private static final class Window {
+
+        static final Window EMPTY = new Window(0L, 0, 0);
+
+        final long index;
+        final int previous;
+        final int current;
+
+        Window(long index, int previous, int current) {
+            this.index = index;
+            this.previous = previous;
+            this.current = current;
+        }
+
+        /**
+         * @return this window as seen from the given window, which is never earlier than this one
+         */
+        Window rollTo(long toIndex) {
+            if (toIndex == index) { return this; }
+            if (toIndex == index + 1) { return new Window(toIndex, current, 0); }
+            return new Window(toIndex, 0, 0);
+        }
+
+        Window plusOne() { return new Window(index, previous, current + 1); }
+    }
+
+    private final int limit;
+    private final long windowMillis;
+    private final LongSupplier clock;
+    private final Map<String, AtomicReference<Window>> windows = new ConcurrentHashMap<>();
+
+    /**
+     * @param limit - how many events a key can have in any window, at least 1
+     * @param windowMillis - how long the window is
+     * @param clock - the current time, in millis
+     */
+    public SlidingWindowRateLimiter(int limit, long windowMillis, LongSupplier clock) {
+        if (limit < 1 || windowMillis < 1) { throw new IllegalArgumentException("limit and windowMillis must be positive"); }
+        this.limit = limit;
+        this.windowMillis = windowMillis;
+        this.clock = clock;
+    }
+
+    @Override
+    public Decision tryAcquire(String key) {
+        AtomicReference<Window> window = windows.get(key);
+        // Only go through computeIfAbsent for a new key, it can lock the bin even when the key is already there
+        if (window == null) { window = windows.computeIfAbsent(key, k -> new AtomicReference<>(Window.EMPTY)); }
+
+        while (true) {
+            Window seen = window.get();
+            long now = clock.getAsLong();
+            // Another thread may already have rolled the window with a slightly later clock reading
+            long index = Math.max(now / windowMillis, seen.index);
+            Window rolled = seen.rollTo(index);
+            long retryAfter = retryAfterMillis(rolled.previous, rolled.current, Math.max(0L, now - index * windowMillis), windowMillis, limit);
+            if (retryAfter > 0) { return Decision.denied(retryAfter); }
+            if (window.compareAndSet(seen, rolled.plusOne())) { return Decision.ALLOWED; }
+        }
+    }
+
+    /**
+     * The sliding window count, estimated from two fixed windows: all of the current window's events, plus the previous
+     * window's events weighted by how much of the previous window the sliding window still overlaps.
+     * It assumes the previous window's events were spread evenly, which is close enough for a limit, and it only takes
+     * two counters per key, rather than a timestamp per event.
+     * One more event fits if previous * (window - elapsed) / window + current + 1 <= limit, kept in integers here.
+     *
+     * @param previousCount - events in the previous fixed window
+     * @param currentCount - events in the current fixed window so far
+     * @param elapsedMillis - how far into the current fixed window we are
+     * @param windowMillis - how long a window is
+     * @param limit - how many events fit in a window
+     * @return 0 if one more event fits, otherwise how long until it would, assuming nothing else is counted meanwhile
+     */
+    static long retryAfterMillis(long previousCount, long currentCount, long elapsedMillis, long windowMillis, int limit) {
+        if (previousCount * (windowMillis - elapsedMillis) + (currentCount + 1) * windowMillis <= limit * windowMillis) { return 0L; }
+        if (currentCount < limit) {
+            // The current window has room, wait for enough of the previous window to slide out
+            long fitsAtMillis = windowMillis - (limit - currentCount - 1) * windowMillis / previousCount;
+            return Math.max(1L, fitsAtMillis - elapsedMillis);
+        }
+        // The current window is full on its own, wait for the next one, where it becomes the previous window
+        long fitsAtMillis = windowMillis - (limit - 1) * windowMillis / currentCount;
+        return (windowMillis - elapsedMillis) + fitsAtMillis;
+    }
+}
@@ -0,0 +1,235 @@
+package edu.northeastern.authenticator;
+
+import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.view.View;
+import android.widget.Button;
+import android.widget.EditText;
+import android.widget.Toast;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+import androidx.fragment.app.Fragment;
+import androidx.lifecycle.ViewModelProvider;
+
+import edu.northeastern.authenticator.core.BackupCodeHasher;
+import edu.northeastern.authenticator.core.Logger;
+import edu.northeastern.authenticator.core.StoredBackupCodes;
+import edu.northeastern.authenticator.core.WordTrie;
+import edu.northeastern.authenticator.core.Wordlist;
+
+import java.util.concurrent.CompletionException;
+
+/**
+ * This step represents the second phase of this authenticator applications set up,
+ * the user must provide their backup codes that they were told to record when they first set up their account.
+ * This used to be the VerifyBackupCodesActivity. The fetching, hashing and the wordlist now live in the SetupViewModel,
+ * which fetched the user's backup codes as soon as they signed in, this step is just the 12 fields and the suggestions.
+ * @author James Bebarski
+ */
+public class VerifyBackupCodesFragment extends Fragment {
+
+    private static final Logger log = Logger.get("VerifyBackupCodesFragment");
+
+    private final EditText[] backupCodeEditTexts = new EditText[BackupCodeHasher.BACKUP_CODE_COUNT];
+    private SetupViewModel setup;
+
+    // Suggestions for the field being typed in, from the trie over the wordlist.
+    // There are simply no suggestions until the SetupViewModel has loaded it. suggestions is reused on every keystroke
+    private static final int SUGGESTION_COUNT = 3;
+    private final int[] suggestions = new int[SUGGESTION_COUNT];
+    private final Button[] suggestionButtons = new Button[SUGGESTION_COUNT];
+    private EditText suggestingFor;
+
+    public VerifyBackupCodesFragment() { super(R.layout.fragment_verify_backup_codes); }
+
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+        setup = new ViewModelProvider(requireActivity()).get(SetupViewModel.class);
+        initializeEditTextFields(view);
+        initializeSuggestions(view);
+        view.findViewById(R.id.proceedToBioButton).setOnClickListener(v -> verifyBackupCodes());
+    }
+
+    private void initializeEditTextFields(View view) {
+        backupCodeEditTexts[0] = view.findViewById(R.id.backupCode1);
+        backupCodeEditTexts[1] = view.findViewById(R.id.backupCode2);
+        backupCodeEditTexts[2] = view.findViewById(R.id.backupCode3);
+        backupCodeEditTexts[3] = view.findViewById(R.id.backupCode4);
+        backupCodeEditTexts[4] = view.findViewById(R.id.backupCode5);
+        backupCodeEditTexts[5] = view.findViewById(R.id.backupCode6);
+        backupCodeEditTexts[6] = view.findViewById(R.id.backupCode7);
+        backupCodeEditTexts[7] = view.findViewById(R.id.backupCode8);
+        backupCodeEditTexts[8] = view.findViewById(R.id.backupCode9);
+        backupCodeEditTexts[9] = view.findViewById(R.id.backupCode10);
+        backupCodeEditTexts[10] = view.findViewById(R.id.backupCode11);
+        backupCodeEditTexts[11] = view.findViewById(R.id.backupCode12);
+    }
+
+    /**
+     * Method to hook the suggestion buttons up to the backup code fields.
+     * Whichever field has focus gets suggestions for what's typed in it, on every keystroke,
+     * and tapping a suggestion fills the field in and moves on to the next one.
+     * The fields are password fields, so the suggestions are the only place the words show, and only for the field being typed in.
+     * @param view - this step's view
+     */
+    private void initializeSuggestions(View view) {
+        suggestionButtons[0] = view.findViewById(R.id.backupCodeSuggestion1);
+        suggestionButtons[1] = view.findViewById(R.id.backupCodeSuggestion2);
+        suggestionButtons[2] = view.findViewById(R.id.backupCodeSuggestion3);
+        for (Button button : suggestionButtons) {
+            button.setOnClickListener(v -> acceptSuggestion(((Button) v).getText()));
+        }
+
+        for (EditText field : backupCodeEditTexts) {
+            field.setOnFocusChangeListener((v, hasFocus) -> {
+                if (hasFocus) {
+                    suggestingFor = field;
+                    showSuggestions(field.getText());
+                } else if (suggestingFor == field) {
+                    suggestingFor = null;
+                    showSuggestions("");
+                }
+            });
+            field.addTextChangedListener(new SuggestionWatcher(field));
+        }
+    }
+
+    /**
+     * Show up to SUGGESTION_COUNT words starting with what's been typed. This runs on every keystroke, on the main thread,
+     * and the trie lookup neither allocates nor takes more than a fraction of a microsecond (see WordTrieBenchmark).
+     * Nothing is suggested for an empty field, or once the field holds the only word left.
+     * @param typed - what's in the field
+     */
+    private void showSuggestions(CharSequence typed) {
+        WordTrie loaded = setup.getTrie();
+        int count = 0;
+        if (loaded != null && typed.length() > 0) {
+            count = loaded.suggest(loaded.find(typed), suggestions);
+            if (count == 1 && loaded.word(suggestions[0]).contentEquals(typed)) { count = 0; }
+        }
+        for (int i = 0; i < SUGGESTION_COUNT; i++) {
+            if (i < count) {
+                suggestionButtons[i].setText(loaded.word(suggestions[i]));
+                suggestionButtons[i].setVisibility(View.VISIBLE);
+            } else {
+                suggestionButtons[i].setVisibility(View.GONE);
+            }
+        }
+    }
+
+    /**
+     * Fill the field being typed in with a suggestion, and move on to the next field.
+     * @param word - the suggested word
+     */
+    private void acceptSuggestion(CharSequence word) {
+        EditText field = suggestingFor;
+        if (field == null) { return; }
+        field.setText(word);
+        field.setSelection(word.length());
+        field.setError(null);
+        for (int i = 0; i < backupCodeEditTexts.length - 1; i++) {
+            if (backupCodeEditTexts[i] == field) {
+                backupCodeEditTexts[i + 1].requestFocus();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Updates the suggestions as the user types in one of the fields, as long as it's the one with focus.
+     */
+    private final class SuggestionWatcher implements TextWatcher {
+
+        private final EditText field;
+
+        SuggestionWatcher(EditText field) { this.field = field; }
+
+        @Override
+        public void beforeTextChanged(CharSequence s, int start, int count, int after) { }
+
+        @Override
+        public void onTextChanged(CharSequence s, int start, int before, int count) { }
+
+        @Override
+        public void afterTextChanged(Editable s) { if (field == suggestingFor) { showSuggestions(s); } }
+    }
+
+    /**
+     * Verifies each of the backup codes entered by the user, against the stored backup codes and salts stored in firestore.
+     * If the user has successfully verified all of their backup codes, the SetupViewModel moves the wizard on to the biometrics.
+     * Otherwise, every field that didn't match is marked, so they can fix them all in one go.
+     * <p>
+     * The entered codes are read on the main thread, and all 12 are verified as one batch by the SetupViewModel
+     * (see SetupViewModel.verifyBackupCodes), the result is a bitmap with a bit per field.
+     * <p>
+     * Before any of that, every code is checked against the wordlist the codes were generated from.
+     * A typo is caught right there on the main thread, which costs well under a microsecond per code,
+     * instead of after 12 rounds of PBKDF2.
+     */
+    private void verifyBackupCodes() {
+        // Read what the user typed in while we're still on the main thread
+        String[] enteredCodes = new String[backupCodeEditTexts.length];
+        for (int i = 0; i < backupCodeEditTexts.length; i++) {
+            enteredCodes[i] = backupCodeEditTexts[i].getText().toString().trim();
+        }
+
+        int words = checkWordlist(enteredCodes);
+        if (words != StoredBackupCodes.ALL_VERIFIED) {
+            for (int i = 0; i < backupCodeEditTexts.length; i++) {
+                backupCodeEditTexts[i].setError(StoredBackupCodes.isVerified(words, i) ? null : "Not a backup code word");
+            }
+            Toast.makeText(requireContext(), "Some of the codes aren't backup code words. Please fix the highlighted codes.", Toast.LENGTH_LONG).show();
+            return;
+        }
+
+        setup.verifyBackupCodes(enteredCodes).whenCompleteAsync((verified, e) -> {
+            if (!isAdded()) { return; }
+            if (e != null) {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                if (cause instanceof SetupViewModel.BackupCodesUnavailableException) {
+                    Toast.makeText(requireContext(), cause.getMessage(), Toast.LENGTH_LONG).show();
+                } else {
+                    log.e("Error fetching user backup codes", cause);
+                }
+                return;
+            }
+            showVerificationResult(verified);
+        }, ContextCompat.getMainExecutor(requireContext()));
+    }
+
+    /**
+     * Check which of the entered codes are words from the wordlist.
+     * @param enteredCodes - the codes the user entered, in order
+     * @return a bitmap with a bit per code like StoredBackupCodes.verify, all set if the wordlist isn't loaded (yet)
+     */
+    private int checkWordlist(String[] enteredCodes) {
+        Wordlist loaded = setup.getWordlist();
+        if (loaded == null) { return StoredBackupCodes.ALL_VERIFIED; }
+        int words = 0;
+        for (int i = 0; i < enteredCodes.length; i++) {
+            if (loaded.contains(enteredCodes[i])) { words |= 1 << i; }
+        }
+        return words;
+    }
+
+    /**
+     * Mark every field that didn't match, and clear the mark on the ones that did.
+     * If everything matched, the wizard is already on its way to the next step.
+     * @param verified - the bitmap from StoredBackupCodes.verify
+     */
+    private void showVerificationResult(int verified) {
+        for (int i = 0; i < backupCodeEditTexts.length; i++) {
+            backupCodeEditTexts[i].setError(StoredBackupCodes.isVerified(verified, i) ? null : "Incorrect backup code");
+        }
+
+        if (verified != StoredBackupCodes.ALL_VERIFIED) {
+            // Verification failed
+            log.d("Backup codes did not match", "count", Integer.bitCount(StoredBackupCodes.ALL_VERIFIED & ~verified));
+            Toast.makeText(requireContext(), "Verification failed. Please fix the highlighted codes.", Toast.LENGTH_LONG).show();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package edu.northeastern.authenticator;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+
+import edu.northeastern.authenticator.core.WordTrie;
+import edu.northeastern.authenticator.core.Wordlist;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Loads the backup code wordlist the app ships as an asset (compiled from the web app's wordlist.txt at build time,
+ * see WordlistCompiler in the core module).
+ * The asset is stored uncompressed, so instead of reading it into memory it's memory mapped straight out of the APK,
+ * and the pages are only read in as lookups touch them. The mapping stays valid after the file is closed.
+ * It's loaded once per process, and so is the WordTrie built over it for suggestions.
+ * @author James Bebarski
+ */
+final class WordlistAsset {
+
+    static final String ASSET_NAME = "wordlist.bin";
+
+    private static volatile Wordlist wordlist;
+    private static volatile WordTrie trie;
+
+    private WordlistAsset() { }
+
+    /**
+     * Get the wordlist, mapping it the first time. That's disk I/O, so keep the first call off the main thread.
+     * @param context - any context
+     * @return the wordlist
+     * @throws IOException - if the asset is missing or can't be mapped
+     */
+    static Wordlist get(Context context) throws IOException {
+        Wordlist loaded = wordlist;
+        if (loaded == null) {
+            synchronized (WordlistAsset.class) {
+                loaded = wordlist;
+                if (loaded == null) {
+                    loaded = map(context);
+                    wordlist = loaded;
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Get the trie over the wordlist, building it the first time, which takes about a millisecond.
+     * Like get(), keep the first call off the main thread.
+     * @param context - any context
+     * @return the trie
+     * @throws IOException - if the asset is missing or can't be mapped
+     */
+    static WordTrie trie(Context context) throws IOException {
+        WordTrie built = trie;
+        if (built == null) {
+            synchronized (WordlistAsset.class) {
+                built = trie;
+                if (built == null) {
+                    built = WordTrie.build(get(context));
+                    trie = built;
+                }
+            }
+        }
+        return built;
+    }
+
+    private static Wordlist map(Context context) throws IOException {
+        try (AssetFileDescriptor descriptor = context.getAssets().openFd(ASSET_NAME);
+             FileInputStream in = descriptor.createInputStream()) {
+            MappedByteBuffer mapped = in.getChannel().map(FileChannel.MapMode.READ_ONLY, descriptor.getStartOffset(), descriptor.getLength());
+            return Wordlist.read(mapped);
+        }
+    }
+}
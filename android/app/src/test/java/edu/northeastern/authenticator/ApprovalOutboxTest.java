@@ -0,0 +1,272 @@
+package edu.northeastern.authenticator;
+
+import edu.northeastern.authenticator.core.ApprovalStatement;
+import edu.northeastern.authenticator.core.ApprovalTimings;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the ApprovalOutbox, flushing to the InMemoryLoginAttemptRepository.
+ * The executor runs everything inline and only records retries, so the tests decide when a retry happens.
+ */
+public class ApprovalOutboxTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+    private static final byte[] SIGNATURE = {1, 2, 3};
+    private static final long EXPIRES_AT = NOW + 120_000;
+
+    private final long[] clock = {NOW};
+    private MemoryStore store;
+    private FlakyRepository repository;
+    private InlineExecutor executor;
+
+    @Before
+    public void setUp() {
+        store = new MemoryStore();
+        repository = new FlakyRepository(() -> clock[0]);
+        executor = new InlineExecutor();
+        repository.create(new LoginAttempt("a", "user", LoginAttempt.STATUS_PENDING, NOW, EXPIRES_AT));
+        repository.create(new LoginAttempt("b", "user", LoginAttempt.STATUS_PENDING, NOW, EXPIRES_AT));
+    }
+
+    @After
+    public void tearDown() { executor.shutdownNow(); }
+
+    private ApprovalStatement statement(List<String> approved, List<String> denied) { return new ApprovalStatement("user", clock[0], approved, denied); }
+
+    private ApprovalOutbox newOutbox() {
+        return new ApprovalOutbox(store, repository, e -> !(e instanceof IllegalArgumentException), executor, () -> clock[0]);
+    }
+
+    @Test
+    public void offline_entryIsSavedAndSentOnceOnline() {
+        ApprovalOutbox outbox = newOutbox();
+        outbox.enqueue(statement(Collections.singletonList("a"), Collections.singletonList("b")), SIGNATURE, ApprovalTimings.none(), EXPIRES_AT);
+
+        assertEquals(1, store.entries.size());
+        assertEquals(1, outbox.getMetrics().queueDepth);
+        assertEquals(LoginAttempt.STATUS_PENDING, repository.get("a").getStatus());
+
+        clock[0] += 5_000;
+        outbox.setOnline(true);
+
+        assertEquals(LoginAttempt.STATUS_AUTHENTICATED, repository.get("a").getStatus());
+        assertEquals(LoginAttempt.STATUS_DENIED, repository.get("b").getStatus());
+        assertTrue(store.entries.isEmpty());
+        assertEquals(0, outbox.getMetrics().queueDepth);
+        assertEquals(1, outbox.getMetrics().flushed);
+        assertEquals(5_000, outbox.getMetrics().lastFlushLatencyMillis);
+    }
+
+    @Test
+    public void retriableFailure_isRetriedWithBackoff() {
+        ApprovalOutbox outbox = newOutbox();
+        outbox.setOnline(true);
+        repository.failuresLeft = 2;
+        outbox.enqueue(statement(Collections.singletonList("a"), Collections.emptyList()), SIGNATURE, ApprovalTimings.none(), EXPIRES_AT);
+
+        assertEquals(1, outbox.getMetrics().retries);
+        assertEquals(1, store.entries.size());
+        assertBetween(ApprovalOutbox.BASE_BACKOFF_MILLIS / 2, ApprovalOutbox.BASE_BACKOFF_MILLIS, executor.lastDelayMillis);
+
+        executor.runScheduled();
+        assertEquals(2, outbox.getMetrics().retries);
+        assertBetween(ApprovalOutbox.BASE_BACKOFF_MILLIS, 2 * ApprovalOutbox.BASE_BACKOFF_MILLIS, executor.lastDelayMillis);
+
+        executor.runScheduled();
+        assertEquals(LoginAttempt.STATUS_AUTHENTICATED, repository.get("a").getStatus());
+        assertEquals(0, outbox.getMetrics().queueDepth);
+    }
+
+    @Test
+    public void failureThatWontGoAway_isDropped() {
+        ApprovalOutbox outbox = newOutbox();
+        outbox.setOnline(true);
+        repository.permanentFailure = true;
+        outbox.enqueue(statement(Collections.singletonList("a"), Collections.emptyList()), SIGNATURE, ApprovalTimings.none(), EXPIRES_AT);
+
+        assertEquals(1, outbox.getMetrics().dropped);
+        assertEquals(0, outbox.getMetrics().retries);
+        assertTrue(store.entries.isEmpty());
+    }
+
+    @Test
+    public void entryPastItsAttemptsExpiry_isDroppedWithoutBeingSent() {
+        ApprovalOutbox outbox = newOutbox();
+        outbox.enqueue(statement(Collections.singletonList("a"), Collections.emptyList()), SIGNATURE, ApprovalTimings.none(), EXPIRES_AT);
+
+        clock[0] = EXPIRES_AT;
+        outbox.setOnline(true);
+
+        assertEquals(LoginAttempt.STATUS_PENDING, repository.get("a").getStatus());
+        assertEquals(1, outbox.getMetrics().dropped);
+        assertEquals(0, repository.calls);
+    }
+
+    @Test
+    public void entryWithNoExpiry_isDroppedPastMaxAge() {
+        ApprovalOutbox outbox = newOutbox();
+        outbox.enqueue(statement(Collections.singletonList("a"), Collections.emptyList()), SIGNATURE, ApprovalTimings.none(), 0L);
+
+        clock[0] += ApprovalOutbox.MAX_AGE_MILLIS;
+        assertFalse(ApprovalOutbox.isExpired(store.entries.get(0), clock[0]));
+        clock[0] += 1;
+        outbox.setOnline(true);
+
+        assertEquals(LoginAttempt.STATUS_PENDING, repository.get("a").getStatus());
+        assertEquals(1, outbox.getMetrics().dropped);
+        assertEquals(0, repository.calls);
+    }
+
+    @Test
+    public void enqueuedFuture_completesOnlyOnceTheBackendHasIt() {
+        ApprovalOutbox outbox = newOutbox();
+        CompletableFuture<Void> sent = outbox.enqueue(statement(Collections.singletonList("a"), Collections.emptyList()), SIGNATURE,
+                ApprovalTimings.none(), EXPIRES_AT);
+        assertFalse(sent.isDone());
+
+        outbox.setOnline(true);
+
+        assertTrue(sent.isDone());
+        assertFalse(sent.isCompletedExceptionally());
+    }
+
+    @Test
+    public void enqueuedFuture_failsWithWhyItWasDropped() {
+        ApprovalOutbox outbox = newOutbox();
+        outbox.setOnline(true);
+        repository.permanentFailure = true;
+        CompletableFuture<Void> sent = outbox.enqueue(statement(Collections.singletonList("a"), Collections.emptyList()), SIGNATURE,
+                ApprovalTimings.none(), EXPIRES_AT);
+
+        assertTrue(causeOf(sent) instanceof IllegalArgumentException);
+    }
+
+    @Test
+    public void offlineEntry_isDroppedWhenItsAttemptsExpire() {
+        ApprovalOutbox outbox = newOutbox();
+        CompletableFuture<Void> sent = outbox.enqueue(statement(Collections.singletonList("a"), Collections.emptyList()), SIGNATURE,
+                ApprovalTimings.none(), EXPIRES_AT);
+        assertEquals(EXPIRES_AT - NOW, executor.lastDelayMillis);
+
+        clock[0] = EXPIRES_AT;
+        executor.runScheduled();
+
+        assertTrue(causeOf(sent) instanceof ApprovalOutbox.ExpiredException);
+        assertTrue(store.entries.isEmpty());
+        assertEquals(1, outbox.getMetrics().dropped);
+        assertEquals(0, repository.calls);
+    }
+
+    @Test
+    public void savedEntries_areSentByTheNextOutbox() {
+        newOutbox().enqueue(statement(Arrays.asList("a", "b"), Collections.emptyList()), SIGNATURE, ApprovalTimings.none(), EXPIRES_AT);
+
+        ApprovalOutbox afterRestart = newOutbox();
+        afterRestart.setOnline(true);
+
+        assertEquals(LoginAttempt.STATUS_AUTHENTICATED, repository.get("a").getStatus());
+        assertEquals(LoginAttempt.STATUS_AUTHENTICATED, repository.get("b").getStatus());
+        assertTrue(store.entries.isEmpty());
+    }
+
+    @Test
+    public void backoff_doublesUpToTheMaximum() {
+        assertEquals(ApprovalOutbox.BASE_BACKOFF_MILLIS, ApprovalOutbox.backoffMillis(1));
+        assertEquals(2 * ApprovalOutbox.BASE_BACKOFF_MILLIS, ApprovalOutbox.backoffMillis(2));
+        assertEquals(8 * ApprovalOutbox.BASE_BACKOFF_MILLIS, ApprovalOutbox.backoffMillis(4));
+        assertEquals(ApprovalOutbox.MAX_BACKOFF_MILLIS, ApprovalOutbox.backoffMillis(1_000));
+    }
+
+    private static Throwable causeOf(CompletableFuture<Void> future) {
+        assertTrue(future.isCompletedExceptionally());
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            return e.getCause();
+        }
+        throw new AssertionError("Expected the future to have failed");
+    }
+
+    private static void assertBetween(long low, long high, long actual) {
+        assertTrue(actual + " not in [" + low + ", " + high + "]", actual >= low && actual <= high);
+    }
+
+    private static final class MemoryStore implements ApprovalOutbox.Store {
+        List<ApprovalOutbox.Entry> entries = new ArrayList<>();
+
+        @Override
+        public List<ApprovalOutbox.Entry> load() { return new ArrayList<>(entries); }
+
+        @Override
+        public void save(List<ApprovalOutbox.Entry> entries) { this.entries = new ArrayList<>(entries); }
+    }
+
+    /**
+     * Fails the first failuresLeft updates with a retriable error, or every update with a permanent one.
+     */
+    private static final class FlakyRepository extends InMemoryLoginAttemptRepository {
+        int failuresLeft;
+        boolean permanentFailure;
+        int calls;
+
+        FlakyRepository(LongSupplier clock) { super(null, clock); }
+
+        @Override
+        public CompletableFuture<Void> updateStatuses(ApprovalStatement statement, byte[] signature, ApprovalTimings timings) {
+            calls++;
+            CompletableFuture<Void> failed = new CompletableFuture<>();
+            if (permanentFailure) {
+                failed.completeExceptionally(new IllegalArgumentException("no such attempt"));
+                return failed;
+            }
+            if (failuresLeft > 0) {
+                failuresLeft--;
+                failed.completeExceptionally(new IllegalStateException("unavailable"));
+                return failed;
+            }
+            return super.updateStatuses(statement, signature, timings);
+        }
+    }
+
+    /**
+     * Runs execute() inline, and holds on to the last scheduled retry until runScheduled() is called.
+     */
+    private static final class InlineExecutor extends ScheduledThreadPoolExecutor {
+        Runnable scheduled;
+        long lastDelayMillis = -1;
+
+        InlineExecutor() { super(1); }
+
+        @Override
+        public void execute(Runnable command) { command.run(); }
+
+        @Override
+        public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+            scheduled = command;
+            lastDelayMillis = unit.toMillis(delay);
+            return super.schedule(() -> { }, 1, TimeUnit.DAYS);
+        }
+
+        void runScheduled() {
+            Runnable command = scheduled;
+            scheduled = null;
+            command.run();
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package edu.northeastern.authenticator;
+
+import edu.northeastern.authenticator.core.ApprovalStatement;
+import edu.northeastern.authenticator.core.ApprovalTimings;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the InMemoryLoginAttemptRepository: the pending to decided transition,
+ * which is the same check the Firestore transaction makes, and the limit on creating attempts.
+ */
+public class InMemoryLoginAttemptRepositoryTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+    private static final byte[] PHONE = {1, 2, 3};
+    private static final byte[] OTHER_PHONE = {4, 5, 6};
+
+    private InMemoryLoginAttemptRepository repository;
+
+    @Before
+    public void setUp() {
+        repository = new InMemoryLoginAttemptRepository(null, () -> NOW);
+        repository.create(new LoginAttempt("a", "user", LoginAttempt.STATUS_PENDING, NOW, NOW + 120_000));
+        repository.create(new LoginAttempt("b", "user", LoginAttempt.STATUS_PENDING, NOW, NOW + 120_000));
+    }
+
+    private static ApprovalStatement statement(List<String> approved, List<String> denied) { return new ApprovalStatement("user", NOW, approved, denied); }
+
+    @Test
+    public void pendingAttempts_areDecided() throws Exception {
+        repository.updateStatuses(statement(Collections.singletonList("a"), Collections.singletonList("b")), PHONE, ApprovalTimings.none()).get();
+
+        assertEquals(LoginAttempt.STATUS_AUTHENTICATED, repository.get("a").getStatus());
+        assertEquals(LoginAttempt.STATUS_DENIED, repository.get("b").getStatus());
+    }
+
+    @Test
+    public void attemptAnotherDeviceDecided_failsWithoutWritingAnything() throws Exception {
+        repository.updateStatuses(statement(Collections.emptyList(), Collections.singletonList("a")), OTHER_PHONE, ApprovalTimings.none()).get();
+
+        LoginAttemptRepository.ConflictException conflict = conflictOf(
+                repository.updateStatuses(statement(Arrays.asList("a", "b"), Collections.emptyList()), PHONE, ApprovalTimings.none()));
+
+        assertEquals(Collections.singletonList("a"), conflict.getSessionIds());
+        assertEquals(LoginAttempt.STATUS_DENIED, repository.get("a").getStatus());
+        assertEquals(LoginAttempt.STATUS_PENDING, repository.get("b").getStatus());
+    }
+
+    @Test
+    public void missingAttempt_isAConflict() {
+        LoginAttemptRepository.ConflictException conflict = conflictOf(
+                repository.updateStatuses(statement(Arrays.asList("a", "gone"), Collections.emptyList()), PHONE, ApprovalTimings.none()));
+
+        assertEquals(Collections.singletonList("gone"), conflict.getSessionIds());
+        assertEquals(LoginAttempt.STATUS_PENDING, repository.get("a").getStatus());
+    }
+
+    @Test
+    public void expiredAttempt_isAConflictEvenBeforeItsSwept() {
+        repository.create(new LoginAttempt("expired", "user", LoginAttempt.STATUS_PENDING, NOW - 120_000, NOW));
+
+        LoginAttemptRepository.ConflictException conflict = conflictOf(
+                repository.updateStatuses(statement(Arrays.asList("a", "expired"), Collections.emptyList()), PHONE, ApprovalTimings.none()));
+
+        assertEquals(Collections.singletonList("expired"), conflict.getSessionIds());
+        assertEquals(LoginAttempt.STATUS_PENDING, repository.get("a").getStatus());
+        assertEquals(LoginAttempt.STATUS_PENDING, repository.get("expired").getStatus());
+    }
+
+    @Test
+    public void sameStatementSentAgain_completesNormally() throws Exception {
+        ApprovalStatement statement = statement(Collections.singletonList("a"), Collections.singletonList("b"));
+        repository.updateStatuses(statement, PHONE, ApprovalTimings.none()).get();
+        repository.updateStatuses(statement, PHONE, ApprovalTimings.none()).get();
+
+        assertEquals(LoginAttempt.STATUS_AUTHENTICATED, repository.get("a").getStatus());
+        assertEquals(LoginAttempt.STATUS_DENIED, repository.get("b").getStatus());
+    }
+
+    /**
+     * Several phones race to decide each of a batch of attempts, and exactly one of them wins every time.
+     */
+    @Test
+    public void racingDevices_exactlyOneDecidesEachAttempt() throws Exception {
+        int attempts = 500;
+        int phones = 4;
+        for (int i = 0; i < attempts; i++) {
+            repository.create(new LoginAttempt("race-" + i, "user", LoginAttempt.STATUS_PENDING, NOW, NOW + 120_000));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(phones);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Integer>> wins = new ArrayList<>();
+            for (int phone = 0; phone < phones; phone++) {
+                byte[] signature = {(byte) phone};
+                // Even phones approve and odd ones deny, so the winner shows in the status
+                boolean approve = phone % 2 == 0;
+                wins.add(executor.submit(() -> {
+                    start.await();
+                    int won = 0;
+                    for (int i = 0; i < attempts; i++) {
+                        List<String> sessionId = Collections.singletonList("race-" + i);
+                        ApprovalStatement statement = approve ? statement(sessionId, Collections.emptyList()) : statement(Collections.emptyList(), sessionId);
+                        try {
+                            repository.updateStatuses(statement, signature, ApprovalTimings.none()).get();
+                            won++;
+                        } catch (ExecutionException e) {
+                            assertTrue(e.getCause() instanceof LoginAttemptRepository.ConflictException);
+                        }
+                    }
+                    return won;
+                }));
+            }
+            start.countDown();
+
+            int total = 0;
+            for (Future<Integer> won : wins) { total += won.get(30, TimeUnit.SECONDS); }
+            assertEquals(attempts, total);
+            for (int i = 0; i < attempts; i++) {
+                assertNotEquals(LoginAttempt.STATUS_PENDING, repository.get("race-" + i).getStatus());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * A phone approves attempts that have just expired while the sweeper is expiring them. Every attempt ends up decided
+     * exactly once: an approval that went through is never overwritten with "expired", and one that lost got a conflict.
+     */
+    @Test
+    public void sweepRacingAnApproval_neverOverwritesTheApproval() throws Exception {
+        int attempts = 2_000;
+        for (int i = 0; i < attempts; i++) {
+            repository.create(new LoginAttempt("swept-" + i, "user", LoginAttempt.STATUS_PENDING, NOW, NOW + 120_000));
+        }
+        LoginAttemptSweeper sweeper = new LoginAttemptSweeper(repository, "user", 50, TimeUnit.DAYS.toMillis(1));
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            Future<List<String>> approved = executor.submit(() -> {
+                start.await();
+                List<String> won = new ArrayList<>();
+                for (int i = 0; i < attempts; i++) {
+                    List<String> sessionId = Collections.singletonList("swept-" + i);
+                    try {
+                        repository.updateStatuses(statement(sessionId, Collections.emptyList()), PHONE, ApprovalTimings.none()).get();
+                        won.add(sessionId.get(0));
+                    } catch (ExecutionException e) {
+                        assertTrue(e.getCause() instanceof LoginAttemptRepository.ConflictException);
+                    }
+                }
+                return won;
+            });
+            Future<LoginAttemptSweeper.Result> swept = executor.submit(() -> {
+                start.await();
+                return sweeper.sweep(NOW + 200_000);
+            });
+            start.countDown();
+
+            List<String> won = approved.get(30, TimeUnit.SECONDS);
+            swept.get(30, TimeUnit.SECONDS);
+            for (int i = 0; i < attempts; i++) {
+                String sessionId = "swept-" + i;
+                String expected = won.contains(sessionId) ? LoginAttempt.STATUS_AUTHENTICATED : LoginAttempt.STATUS_EXPIRED;
+                assertEquals(sessionId, expected, repository.get(sessionId).getStatus());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void createOverTheLimit_failsWithoutCreatingTheAttempt() throws Exception {
+        InMemoryLoginAttemptRepository limited = new InMemoryLoginAttemptRepository(new SlidingWindowRateLimiter(2, 60_000L, () -> NOW));
+        limited.create(new LoginAttempt("1", "user", LoginAttempt.STATUS_PENDING, NOW, NOW + 120_000)).get();
+        limited.create(new LoginAttempt("2", "user", LoginAttempt.STATUS_PENDING, NOW, NOW + 120_000)).get();
+
+        try {
+            limited.create(new LoginAttempt("3", "user", LoginAttempt.STATUS_PENDING, NOW, NOW + 120_000)).get();
+            fail("Expected a RateLimitedException");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RateLimiter.RateLimitedException);
+            assertTrue(((RateLimiter.RateLimitedException) e.getCause()).getRetryAfterMillis() > 0);
+        }
+        assertNull(limited.get("3"));
+        assertEquals(2, limited.findPending("user").get().size());
+        // Other users have their own limit
+        limited.create(new LoginAttempt("4", "other user", LoginAttempt.STATUS_PENDING, NOW, NOW + 120_000)).get();
+    }
+
+    private static LoginAttemptRepository.ConflictException conflictOf(CompletableFuture<Void> future) {
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof LoginAttemptRepository.ConflictException);
+            return (LoginAttemptRepository.ConflictException) e.getCause();
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        }
+        throw new AssertionError("Expected a ConflictException");
+    }
+}
@@ -0,0 +1,174 @@
+package edu.northeastern.authenticator;
+
+import edu.northeastern.authenticator.core.ApprovalStatement;
+import edu.northeastern.authenticator.core.ApprovalTimings;
+import edu.northeastern.authenticator.core.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * JVM load test harness for the login approval path.
+ * It simulates a number of users, each with a "phone" listening for their pending login attempts,
+ * while a pool of "web" threads fires login attempts at the repository as fast as it can.
+ * Every time a phone hears about a new attempt it approves it, and the harness records how long it took
+ * from the web creating the attempt to the approval being written.
+ * Listener errors and approvals that fail are collected in the report rather than printed, so a test can assert there were none.
+ * <p>
+ * It runs against any LoginAttemptRepository, but on the JVM that means the InMemoryLoginAttemptRepository.
+ * LoginAttemptLoadTest runs a small configuration as part of the unit tests, for bigger runs use main():
+ * <pre>
+ *     java ... edu.northeastern.authenticator.LoginAttemptLoadHarness [users] [attemptsPerUser] [threads]
+ * </pre>
+ */
+public class LoginAttemptLoadHarness {
+
+    private static final Logger log = Logger.get("LoginAttemptLoadHarness");
+
+    // The in-memory repository doesn't check signatures, the load test is about the approval path, not the crypto
+    private static final byte[] UNSIGNED = new byte[0];
+
+    /**
+     * Results of a single run.
+     */
+    public static final class Report {
+        public final int approvals;
+        public final List<Throwable> errors;
+        public final long elapsedNanos;
+        public final long p50Nanos;
+        public final long p99Nanos;
+        public final long maxNanos;
+
+        Report(int approvals, List<Throwable> errors, long elapsedNanos, long[] sortedLatencies) {
+            this.approvals = approvals;
+            this.errors = Collections.unmodifiableList(new ArrayList<>(errors));
+            this.elapsedNanos = elapsedNanos;
+            this.p50Nanos = percentile(sortedLatencies, 0.50);
+            this.p99Nanos = percentile(sortedLatencies, 0.99);
+            this.maxNanos = sortedLatencies.length == 0 ? 0 : sortedLatencies[sortedLatencies.length - 1];
+        }
+
+        public double throughputPerSecond() { return approvals / (elapsedNanos / 1e9); }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%d approvals (%d errors) in %.1f ms, %.0f approvals/s, p50 %.3f ms, p99 %.3f ms, max %.3f ms",
+                    approvals, errors.size(), elapsedNanos / 1e6, throughputPerSecond(), p50Nanos / 1e6, p99Nanos / 1e6, maxNanos / 1e6);
+        }
+
+        private static long percentile(long[] sorted, double percentile) {
+            if (sorted.length == 0) { return 0; }
+            int index = (int) Math.ceil(percentile * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+        }
+    }
+
+    private final LoginAttemptRepository repository;
+    private final int users;
+    private final int attemptsPerUser;
+    private final int threads;
+
+    public LoginAttemptLoadHarness(LoginAttemptRepository repository, int users, int attemptsPerUser, int threads) {
+        this.repository = repository;
+        this.users = users;
+        this.attemptsPerUser = attemptsPerUser;
+        this.threads = threads;
+    }
+
+    /**
+     * Run the simulation and wait for every attempt to be approved, or for its approval to fail.
+     *
+     * @param timeoutSeconds - how long to wait for every approval before giving up
+     * @return the throughput and latency report, with any errors
+     * @throws InterruptedException - if interrupted while waiting
+     * @throws IllegalStateException - if not every attempt was approved (or failed) in time
+     */
+    public Report run(long timeoutSeconds) throws InterruptedException {
+        int total = users * attemptsPerUser;
+        long[] latencies = new long[total];
+        AtomicInteger recorded = new AtomicInteger();
+        CountDownLatch approved = new CountDownLatch(total);
+        List<Throwable> errors = new CopyOnWriteArrayList<>();
+        Map<String, Long> createdAt = new ConcurrentHashMap<>();
+
+        ExecutorService web = Executors.newFixedThreadPool(threads);
+        ExecutorService phones = Executors.newFixedThreadPool(threads);
+        List<LoginAttemptRepository.Subscription> subscriptions = new ArrayList<>(users);
+
+        try {
+            // Every user's phone listens for its own pending attempts and approves each one as it arrives
+            for (int user = 0; user < users; user++) {
+                subscriptions.add(repository.listenForPending("user-" + user, new LoginAttemptRepository.PendingAttemptsListener() {
+                    @Override
+                    public void onPendingAttemptsChanged(List<LoginAttempt> upserted, List<String> removedSessionIds, boolean fromCache) {
+                        for (LoginAttempt attempt : upserted) {
+                            ApprovalStatement statement = new ApprovalStatement(attempt.getUserId(), System.currentTimeMillis(),
+                                    Collections.singletonList(attempt.getSessionId()), Collections.emptyList());
+                            phones.execute(() -> repository
+                                    .updateStatuses(statement, UNSIGNED, ApprovalTimings.none())
+                                    .whenComplete((ignored, e) -> {
+                                        Long start = createdAt.remove(attempt.getSessionId());
+                                        if (start == null) { return; }
+                                        if (e == null) { latencies[recorded.getAndIncrement()] = System.nanoTime() - start; }
+                                        else { errors.add(e); }
+                                        approved.countDown();
+                                    }));
+                        }
+                    }
+
+                    @Override
+                    public void onError(Exception e) { errors.add(e); }
+                }));
+            }
+
+            long start = System.nanoTime();
+            for (int attempt = 0; attempt < attemptsPerUser; attempt++) {
+                for (int user = 0; user < users; user++) {
+                    String userId = "user-" + user;
+                    String sessionId = userId + "_" + attempt;
+                    web.execute(() -> {
+                        long now = System.currentTimeMillis();
+                        createdAt.put(sessionId, System.nanoTime());
+                        repository.create(new LoginAttempt(sessionId, userId, LoginAttempt.STATUS_PENDING, now, now + 120_000));
+                    });
+                }
+            }
+
+            if (!approved.await(timeoutSeconds, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Only " + (total - approved.getCount()) + " of " + total + " attempts were approved");
+            }
+            long elapsed = System.nanoTime() - start;
+
+            long[] sorted = Arrays.copyOf(latencies, recorded.get());
+            Arrays.sort(sorted);
+            return new Report(sorted.length, errors, elapsed, sorted);
+        } finally {
+            for (LoginAttemptRepository.Subscription subscription : subscriptions) { subscription.remove(); }
+            web.shutdownNow();
+            phones.shutdownNow();
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int attemptsPerUser = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        // One throwaway run so the JIT has warmed up before the numbers we report
+        new LoginAttemptLoadHarness(new InMemoryLoginAttemptRepository(), users, attemptsPerUser, threads).run(60);
+        Report report = new LoginAttemptLoadHarness(new InMemoryLoginAttemptRepository(), users, attemptsPerUser, threads).run(60);
+        log.i(users + " users x " + attemptsPerUser + " attempts, " + threads + " threads: " + report);
+        for (Throwable error : report.errors) { log.e("Error during the load test", error); }
+    }
+}
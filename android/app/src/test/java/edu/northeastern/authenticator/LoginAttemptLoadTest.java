@@ -0,0 +1,35 @@
+package edu.northeastern.authenticator;
+
+import edu.northeastern.authenticator.core.Logger;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the LoginAttemptLoadHarness against the in-memory repository with a few thousand concurrent login attempts,
+ * mostly to make sure nothing gets lost, approved twice or fails under contention. The report is logged for reference.
+ */
+public class LoginAttemptLoadTest {
+
+    private static final Logger log = Logger.get("LoginAttemptLoadTest");
+
+    @Test
+    public void everyConcurrentLoginAttempt_isApproved() throws Exception {
+        InMemoryLoginAttemptRepository repository = new InMemoryLoginAttemptRepository();
+
+        LoginAttemptLoadHarness.Report report = new LoginAttemptLoadHarness(repository, 500, 6, 8).run(30);
+        log.i("Load test finished", "report", report);
+
+        assertEquals(Collections.emptyList(), report.errors);
+        assertEquals(3_000, report.approvals);
+        assertEquals(3_000, repository.size());
+        for (int user = 0; user < 500; user++) {
+            assertTrue(repository.findPending("user-" + user).get().isEmpty());
+            assertEquals(LoginAttempt.STATUS_AUTHENTICATED, repository.get("user-" + user + "_0").getStatus());
+        }
+        assertTrue(report.p50Nanos <= report.p99Nanos);
+    }
+}
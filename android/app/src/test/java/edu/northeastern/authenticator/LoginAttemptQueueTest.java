@@ -0,0 +1,98 @@
+package edu.northeastern.authenticator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the LoginAttemptQueue: the oldest first ordering, replacing an attempt that's already queued,
+ * and removing attempts.
+ */
+public class LoginAttemptQueueTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    private LoginAttemptQueue queue;
+
+    @Before
+    public void setUp() { queue = new LoginAttemptQueue(); }
+
+    private static LoginAttempt attempt(String sessionId, long timestampMillis) {
+        return new LoginAttempt(sessionId, "user", LoginAttempt.STATUS_PENDING, timestampMillis, timestampMillis + 120_000);
+    }
+
+    @Test
+    public void attempts_areOrderedOldestFirst_thenBySessionId() {
+        queue.put(attempt("c", NOW + 2_000));
+        queue.put(attempt("b", NOW));
+        queue.put(attempt("d", NOW + 1_000));
+        queue.put(attempt("a", NOW));
+
+        assertEquals(Arrays.asList("a", "b", "d", "c"), sessionIdsOf(queue.snapshot()));
+        assertEquals("a", queue.oldest().getSessionId());
+    }
+
+    @Test
+    public void puttingTheSameSessionAgain_replacesIt() {
+        queue.put(attempt("a", NOW));
+        queue.put(attempt("b", NOW + 1_000));
+
+        // A later snapshot of "a" with a new timestamp moves it, rather than adding a second entry
+        queue.put(attempt("a", NOW + 2_000));
+
+        assertEquals(2, queue.size());
+        assertEquals(Arrays.asList("b", "a"), sessionIdsOf(queue.snapshot()));
+        assertEquals(NOW + 2_000, queue.snapshot().get(1).getTimestampMillis());
+    }
+
+    @Test
+    public void remove_takesTheAttemptOutOfTheQueue() {
+        queue.put(attempt("a", NOW));
+        queue.put(attempt("b", NOW + 1_000));
+
+        assertTrue(queue.remove("a"));
+        assertFalse(queue.remove("a"));
+        assertFalse(queue.remove("never queued"));
+
+        assertEquals(Arrays.asList("b"), sessionIdsOf(queue.snapshot()));
+        assertEquals("b", queue.oldest().getSessionId());
+        // Putting it back after a removal works like it was never there
+        queue.put(attempt("a", NOW));
+        assertEquals(Arrays.asList("a", "b"), sessionIdsOf(queue.snapshot()));
+    }
+
+    @Test
+    public void removeExpired_dropsOnlyTheExpiredAttempts() {
+        queue.put(attempt("old", NOW - 200_000));
+        queue.put(attempt("new", NOW));
+        queue.put(new LoginAttempt("no expiry", "user", LoginAttempt.STATUS_PENDING, NOW - 300_000, 0L));
+
+        assertEquals(1, queue.removeExpired(NOW));
+
+        assertEquals(Arrays.asList("no expiry", "new"), sessionIdsOf(queue.snapshot()));
+        assertFalse(queue.remove("old"));
+    }
+
+    @Test
+    public void emptyQueue_hasNoOldest() {
+        assertNull(queue.oldest());
+        assertTrue(queue.isEmpty());
+
+        queue.put(attempt("a", NOW));
+        queue.clear();
+
+        assertNull(queue.oldest());
+        assertTrue(queue.snapshot().isEmpty());
+    }
+
+    private static List<String> sessionIdsOf(List<LoginAttempt> attempts) {
+        List<String> sessionIds = new ArrayList<>(attempts.size());
+        for (LoginAttempt attempt : attempts) { sessionIds.add(attempt.getSessionId()); }
+        return sessionIds;
+    }
+}
@@ -0,0 +1,120 @@
+package edu.northeastern.authenticator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the LoginAttemptSweeper, run against the InMemoryLoginAttemptRepository
+ * as a stand-in for the login_attempts collection.
+ */
+public class LoginAttemptSweeperTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+    private static final long RETENTION = 24 * 60 * 60 * 1000L;
+
+    private CountingStore store;
+
+    @Before
+    public void setUp() { store = new CountingStore(); }
+
+    @Test
+    public void pendingAttemptPastExpiry_isMarkedExpired() throws Exception {
+        store.add(new LoginAttempt("a", "user", LoginAttempt.STATUS_PENDING, NOW - 180_000, NOW - 60_000));
+
+        LoginAttemptSweeper.Result result = new LoginAttemptSweeper(store, "user", 10, RETENTION).sweep(NOW);
+
+        assertEquals(1, result.expired);
+        assertEquals(0, result.deleted);
+        assertEquals(LoginAttempt.STATUS_EXPIRED, store.get("a").getStatus());
+    }
+
+    @Test
+    public void attemptsThatHaveNotExpired_areLeftAlone() throws Exception {
+        store.add(new LoginAttempt("a", "user", LoginAttempt.STATUS_PENDING, NOW, NOW + 120_000));
+        store.add(new LoginAttempt("b", "user", LoginAttempt.STATUS_PENDING, NOW, 0));
+
+        LoginAttemptSweeper.Result result = new LoginAttemptSweeper(store, "user", 10, RETENTION).sweep(NOW);
+
+        assertEquals(0, result.expired + result.deleted);
+        assertEquals(LoginAttempt.STATUS_PENDING, store.get("a").getStatus());
+        assertEquals(LoginAttempt.STATUS_PENDING, store.get("b").getStatus());
+    }
+
+    @Test
+    public void attemptsPastRetention_areDeletedWhateverTheirStatus() throws Exception {
+        store.add(new LoginAttempt("old-pending", "user", LoginAttempt.STATUS_PENDING, 0, NOW - RETENTION - 1));
+        store.add(new LoginAttempt("old-authenticated", "user", LoginAttempt.STATUS_AUTHENTICATED, 0, NOW - RETENTION - 1));
+        store.add(new LoginAttempt("recent-authenticated", "user", LoginAttempt.STATUS_AUTHENTICATED, 0, NOW - 1));
+
+        LoginAttemptSweeper.Result result = new LoginAttemptSweeper(store, "user", 10, RETENTION).sweep(NOW);
+
+        assertEquals(2, result.deleted);
+        assertEquals(0, result.expired);
+        assertEquals(1, store.repository.size());
+        assertNotNull(store.get("recent-authenticated"));
+    }
+
+    @Test
+    public void sweep_onlyTouchesTheGivenUsersAttempts() throws Exception {
+        store.add(new LoginAttempt("mine", "user", LoginAttempt.STATUS_PENDING, 0, NOW - 1));
+        store.add(new LoginAttempt("theirs", "someone-else", LoginAttempt.STATUS_PENDING, 0, NOW - 1));
+
+        new LoginAttemptSweeper(store, "user", 10, RETENTION).sweep(NOW);
+
+        assertEquals(LoginAttempt.STATUS_EXPIRED, store.get("mine").getStatus());
+        assertEquals(LoginAttempt.STATUS_PENDING, store.get("theirs").getStatus());
+    }
+
+    @Test
+    public void sweep_pagesThroughEverythingWithBoundedQueries() throws Exception {
+        // Lots of attempts sharing the same expiresAt, to make sure the cursor breaks ties correctly
+        for (int i = 0; i < 1_000; i++) {
+            store.add(new LoginAttempt(String.format("s%04d", i), "user", LoginAttempt.STATUS_PENDING, 0, NOW - 1_000 - (i % 7)));
+        }
+
+        LoginAttemptSweeper.Result result = new LoginAttemptSweeper(store, "user", 50, RETENTION).sweep(NOW);
+
+        assertEquals(1_000, result.expired);
+        assertEquals(20, result.pages);
+        assertEquals(50, store.largestPageReturned);
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals(LoginAttempt.STATUS_EXPIRED, store.get(String.format("s%04d", i)).getStatus());
+        }
+
+        // A second sweep has nothing left to do
+        LoginAttemptSweeper.Result again = new LoginAttemptSweeper(store, "user", 50, RETENTION).sweep(NOW);
+        assertEquals(0, again.expired + again.deleted);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void pageSize_cannotExceedFirestoreBatchLimit() {
+        new LoginAttemptSweeper(store, "user", LoginAttemptSweeper.MAX_PAGE_SIZE + 1, RETENTION);
+    }
+
+    /**
+     * Wraps the in-memory repository to keep track of how big the pages it hands back are.
+     */
+    private static final class CountingStore implements LoginAttemptSweeper.Store {
+
+        final InMemoryLoginAttemptRepository repository = new InMemoryLoginAttemptRepository();
+        int largestPageReturned;
+
+        void add(LoginAttempt attempt) { repository.create(attempt); }
+
+        LoginAttempt get(String sessionId) { return repository.get(sessionId); }
+
+        @Override
+        public List<LoginAttempt> findExpired(String userId, long beforeMillis, LoginAttempt startAfter, int limit) {
+            List<LoginAttempt> page = repository.findExpired(userId, beforeMillis, startAfter, limit);
+            largestPageReturned = Math.max(largestPageReturned, page.size());
+            return page;
+        }
+
+        @Override
+        public void commit(List<String> toExpire, List<String> toDelete) { repository.commit(toExpire, toDelete); }
+    }
+}
@@ -0,0 +1,153 @@
+package edu.northeastern.authenticator;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the SlidingWindowRateLimiter, including a stress test with many threads on the same keys.
+ */
+public class SlidingWindowRateLimiterTest {
+
+    private static final long WINDOW = 10_000L;
+    private static final long START = 1_700_000_000_000L - 1_700_000_000_000L % WINDOW;
+
+    private final long[] clock = {START};
+
+    @Test
+    public void allowsUpToTheLimit_thenDenies() {
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(3, WINDOW, () -> clock[0]);
+
+        assertTrue(limiter.tryAcquire("user").allowed);
+        assertTrue(limiter.tryAcquire("user").allowed);
+        assertTrue(limiter.tryAcquire("user").allowed);
+        RateLimiter.Decision denied = limiter.tryAcquire("user");
+
+        assertFalse(denied.allowed);
+        assertTrue(denied.retryAfterMillis > 0);
+        assertTrue(limiter.tryAcquire("other user").allowed);
+    }
+
+    @Test
+    public void previousWindow_slidesOutGradually() {
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(4, WINDOW, () -> clock[0]);
+        for (int i = 0; i < 4; i++) { assertTrue(limiter.tryAcquire("user").allowed); }
+
+        // At the start of the next window all 4 still count, a quarter of the way in only 3 do
+        clock[0] = START + WINDOW;
+        RateLimiter.Decision denied = limiter.tryAcquire("user");
+        assertFalse(denied.allowed);
+        assertEquals(WINDOW / 4, denied.retryAfterMillis);
+
+        clock[0] += denied.retryAfterMillis;
+        assertTrue(limiter.tryAcquire("user").allowed);
+        assertFalse(limiter.tryAcquire("user").allowed);
+    }
+
+    @Test
+    public void deniedEvents_arentCounted() {
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(1, WINDOW, () -> clock[0]);
+        assertTrue(limiter.tryAcquire("user").allowed);
+        for (int i = 0; i < 100; i++) { assertFalse(limiter.tryAcquire("user").allowed); }
+
+        // Only the one allowed event slides out, so two windows on, the key is empty again
+        clock[0] = START + 2 * WINDOW;
+        assertTrue(limiter.tryAcquire("user").allowed);
+    }
+
+    @Test
+    public void retryAfter_isWhenTheNextEventFits() {
+        // Current window full on its own: wait for the next window, and for enough of this one to slide out
+        assertEquals(WINDOW / 2 + WINDOW / 2, SlidingWindowRateLimiter.retryAfterMillis(0, 2, WINDOW / 2, WINDOW, 2));
+        // Room in the current window, waiting on the previous one
+        assertEquals(WINDOW / 2, SlidingWindowRateLimiter.retryAfterMillis(2, 0, 0, WINDOW, 2));
+        assertEquals(0, SlidingWindowRateLimiter.retryAfterMillis(2, 0, WINDOW / 2, WINDOW, 2));
+    }
+
+    /**
+     * Many threads race for a few keys at the same instant, and exactly the limit gets through for each key,
+     * never more (a lost update) and never less (a lost event).
+     */
+    @Test
+    public void underContention_exactlyTheLimitIsAllowedPerKey() throws Exception {
+        int threads = 8;
+        int keys = 4;
+        int limit = 1_000;
+        int triesPerThread = 2_000;
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(limit, WINDOW, () -> START + WINDOW / 2);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<long[]>> results = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                results.add(executor.submit(() -> {
+                    long[] allowed = new long[keys];
+                    start.await();
+                    for (int i = 0; i < triesPerThread; i++) {
+                        int key = i % keys;
+                        if (limiter.tryAcquire("user-" + key).allowed) { allowed[key]++; }
+                    }
+                    return allowed;
+                }));
+            }
+            start.countDown();
+
+            long[] allowed = new long[keys];
+            for (Future<long[]> result : results) {
+                long[] perThread = result.get(30, TimeUnit.SECONDS);
+                for (int key = 0; key < keys; key++) { allowed[key] += perThread[key]; }
+            }
+            for (int key = 0; key < keys; key++) { assertEquals("user-" + key, limit, allowed[key]); }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Same, but with the clock moving on while the threads race, so windows roll over under contention.
+     * However the events land, no sliding window may ever have let more than the limit through.
+     */
+    @Test
+    public void underContention_acrossWindows_neverGoesOverTheLimit() throws Exception {
+        int threads = 8;
+        int limit = 50;
+        int triesPerThread = 20_000;
+        AtomicLong ticks = new AtomicLong(START);
+        // Every call moves the clock on a millisecond, so the run crosses a good number of windows
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(limit, WINDOW, ticks::getAndIncrement);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                results.add(executor.submit(() -> {
+                    int allowed = 0;
+                    start.await();
+                    for (int i = 0; i < triesPerThread; i++) {
+                        if (limiter.tryAcquire("user").allowed) { allowed++; }
+                    }
+                    return allowed;
+                }));
+            }
+            start.countDown();
+
+            long total = 0;
+            for (Future<Integer> result : results) { total += result.get(30, TimeUnit.SECONDS); }
+            long windows = (ticks.get() - START) / WINDOW + 1;
+            assertTrue(total + " allowed over " + windows + " windows", total > 0 && total <= limit * windows);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
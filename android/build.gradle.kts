@@ -1,5 +1,26 @@
 // Top-level build file where you can add configuration options common to all sub-projects/modules.
 plugins {
     alias(libs.plugins.androidApplication) apply false
+    alias(libs.plugins.androidLibrary) apply false
+    alias(libs.plugins.androidTest) apply false
+    alias(libs.plugins.benchmark) apply false
+    alias(libs.plugins.baselineprofile) apply false
     id("com.google.gms.google-services") version "4.4.1" apply false
-}
\ No newline at end of file
+    id("me.champeau.jmh") version "0.7.2" apply false
+}
+
+// Gathers the JSON every benchmark suite writes (androidx.benchmark for :microbenchmark and :macrobenchmark,
+// JMH for :core) into build/benchmark-results, so CI can archive one folder and track the numbers over time.
+// Run after the benchmarks themselves, e.g. ./gradlew :microbenchmark:connectedReleaseAndroidTest collectBenchmarkResults
+tasks.register<Copy>("collectBenchmarkResults") {
+    from(subprojects.map { it.layout.buildDirectory.dir("outputs/connected_android_test_additional_output") }) {
+        include("**/*benchmarkData.json")
+        // The file names already start with the test package, so the device/module folders can be flattened
+        eachFile { path = name }
+    }
+    from(project(":core").layout.buildDirectory.file("results/jmh/results.json")) {
+        rename { "core-jmh-results.json" }
+    }
+    into(layout.buildDirectory.dir("benchmark-results"))
+    includeEmptyDirs = false
+}
@@ -0,0 +1,68 @@
+import groovy.json.JsonSlurper
+import java.util.Properties
+
+plugins {
+    `java-library`
+    id("me.champeau.jmh")
+}
+
+// Plain JVM module for the hashing and crypto helpers, so they can be unit tested and benchmarked
+// with JMH on the desktop instead of on a device. The app module depends on this.
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+dependencies {
+    testImplementation(libs.junit)
+}
+
+// The backup code wordlist the web app hands out codes from, compiled by WordlistCompiler into the binary asset the app
+// reads with Wordlist. The app's build depends on this task and picks the output up as an asset.
+val wordlistFile = rootProject.file("../securetouch/src/wordlist.txt")
+
+val compileWordlist by tasks.registering(JavaExec::class) {
+    description = "Compiles securetouch/src/wordlist.txt into the app's wordlist.bin asset"
+    val output = layout.buildDirectory.file("generated/wordlist/wordlist.bin")
+    inputs.file(wordlistFile)
+    outputs.file(output)
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("edu.northeastern.authenticator.core.WordlistCompiler")
+    args(wordlistFile.absolutePath, output.get().asFile.absolutePath)
+}
+
+jmh {
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+    profilers.set(listOf("gc"))
+    resultFormat.set("JSON")
+    // WordlistBenchmark reads the real wordlist
+    jvmArgsAppend.add("-Dwordlist=${wordlistFile.absolutePath}")
+}
+
+// Regression gate for the JMH results: fails if any benchmark listed in jmh-baseline.properties
+// got more than 25% slower than its recorded ns/op. Run with ./gradlew :core:jmh :core:jmhCheck
+tasks.register("jmhCheck") {
+    val results = layout.buildDirectory.file("results/jmh/results.json")
+    val baseline = layout.projectDirectory.file("jmh-baseline.properties")
+    inputs.file(baseline)
+    doLast {
+        val expected = Properties().apply { baseline.asFile.inputStream().use { load(it) } }
+        @Suppress("UNCHECKED_CAST")
+        val runs = JsonSlurper().parse(results.get().asFile) as List<Map<String, Any>>
+        val failures = mutableListOf<String>()
+        for (run in runs) {
+            val name = (run["benchmark"] as String).substringAfterLast('.')
+            val limit = expected.getProperty(name)?.toDouble() ?: continue
+            @Suppress("UNCHECKED_CAST")
+            val score = ((run["primaryMetric"] as Map<String, Any>)["score"] as Number).toDouble()
+            if (score > limit * 1.25) {
+                failures += "$name: $score ns/op, baseline $limit ns/op"
+            }
+        }
+        if (failures.isNotEmpty()) {
+            throw GradleException("JMH regression:\n" + failures.joinToString("\n"))
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package edu.northeastern.authenticator.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of a signed approval, on the JVM: signing a one attempt statement with a P-256 key in software,
+ * and what the verifier pays per approval, decoding the registered public key and checking the signature.
+ * Signing on the phone goes through the Keystore instead, see ApprovalSignatureBenchmark in the app's androidTest.
+ * Both have to stay well under the 50 ms an approval is allowed to add.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ApprovalSignatureBenchmark {
+
+    private KeyPair keyPair;
+    private String encodedPublicKey;
+    private ApprovalStatement statement;
+    private byte[] signature;
+
+    @Setup
+    public void setUp() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        keyPair = generator.generateKeyPair();
+        encodedPublicKey = ApprovalStatement.encodePublicKey(keyPair.getPublic());
+        statement = new ApprovalStatement("LJ4k9bZ2xYf3QmN8pR1sT6uV7wX0", 1_700_000_000_000L,
+                Collections.singletonList("LJ4k9bZ2xYf3QmN8pR1sT6uV7wX0_1700000000000"), Collections.emptyList());
+        signature = approval_sign();
+    }
+
+    @Benchmark
+    public byte[] approval_sign() throws Exception {
+        Signature signer = Signature.getInstance(ApprovalStatement.SIGNATURE_ALGORITHM);
+        signer.initSign(keyPair.getPrivate());
+        signer.update(statement.toBytes());
+        return signer.sign();
+    }
+
+    @Benchmark
+    public boolean approval_verify() throws Exception {
+        PublicKey publicKey = ApprovalStatement.decodePublicKey(encodedPublicKey);
+        return statement.verify(publicKey, signature);
+    }
+}
@@ -0,0 +1,87 @@
+package edu.northeastern.authenticator.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks for the backup code hashing path.
+ * Run with ./gradlew :core:jmh, the gc profiler is on so allocation per operation (gc.alloc.rate.norm) is reported too.
+ * <ul>
+ *     <li>digest_newInstance / digest_reused: the cost of MessageDigest.getInstance on every word</li>
+ *     <li>hex_*: the Integer.toHexString encoder versus a plain lookup table</li>
+ *     <li>verifyTwelveCodes: the whole 12 code verification, the way the SetupViewModel does it</li>
+ * </ul>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BackupCodeHashingBenchmark {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final String[] words = new String[BackupCodeHasher.BACKUP_CODE_COUNT];
+    private final String[] salts = new String[BackupCodeHasher.BACKUP_CODE_COUNT];
+    private final String[] storedHashes = new String[BackupCodeHasher.BACKUP_CODE_COUNT];
+    private MessageDigest reusedDigest;
+    private byte[] hash;
+
+    @Setup
+    public void setUp() {
+        String[] sample = {"anchor", "bramble", "cobalt", "drizzle", "ember", "fathom",
+                "granite", "harbor", "inkwell", "juniper", "kestrel", "lantern"};
+        for (int i = 0; i < words.length; i++) {
+            words[i] = sample[i];
+            salts[i] = Long.toString(1712000000000L + i);
+            storedHashes[i] = BackupCodeHasher.hashWordWithSalt(words[i], salts[i]);
+        }
+        reusedDigest = BackupCodeHasher.newSha256();
+        hash = BackupCodeHasher.newSha256().digest("anchor1712000000000".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public byte[] digest_newInstance() {
+        return BackupCodeHasher.newSha256().digest((words[0] + salts[0]).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public byte[] digest_reused() {
+        return reusedDigest.digest((words[0] + salts[0]).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public String hex_integerToHexString() {
+        return BackupCodeHasher.bytesToHex(hash);
+    }
+
+    @Benchmark
+    public String hex_lookupTable() {
+        char[] hex = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            hex[2 * i] = HEX_DIGITS[(hash[i] >> 4) & 0xf];
+            hex[2 * i + 1] = HEX_DIGITS[hash[i] & 0xf];
+        }
+        return new String(hex);
+    }
+
+    @Benchmark
+    public void verifyTwelveCodes(Blackhole blackhole) {
+        boolean allCodesVerified = true;
+        for (int i = 0; i < words.length; i++) {
+            if (!BackupCodeHasher.hashWordWithSalt(words[i], salts[i]).equals(storedHashes[i])) {
+                allCodesVerified = false;
+                break;
+            }
+        }
+        blackhole.consume(allCodesVerified);
+    }
+}
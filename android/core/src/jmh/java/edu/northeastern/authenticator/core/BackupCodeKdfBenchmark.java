@@ -0,0 +1,62 @@
+package edu.northeastern.authenticator.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How long it takes to verify PBKDF2 backup codes, one code and all 12, on one thread and spread over every core.
+ * The 12 code numbers are the ones that matter for the verify screen's latency budget, compare them with
+ * the per code time BackupCodeKdf.calibrateIterations is aiming for.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BackupCodeKdfBenchmark {
+
+    @Param({"100000"})
+    public int iterations;
+
+    private final String[] words = {"anchor", "bramble", "cobalt", "drizzle", "ember", "fathom",
+            "granite", "harbor", "inkwell", "juniper", "kestrel", "lantern"};
+
+    private StoredBackupCodes backupCodes;
+    private BackupCodeHash singleHash;
+    private ExecutorService executor;
+
+    @Setup
+    public void setUp() {
+        SecureRandom random = new SecureRandom();
+        List<Map<String, Object>> entries = new ArrayList<>();
+        for (String word : words) { entries.add(BackupCodeHash.pbkdf2(word, iterations, random).toMap()); }
+        backupCodes = StoredBackupCodes.parse(entries);
+        singleHash = BackupCodeHash.parse(entries.get(0));
+        executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    @TearDown
+    public void tearDown() { executor.shutdown(); }
+
+    @Benchmark
+    public boolean pbkdf2_singleCode() { return singleHash.verify(words[0]); }
+
+    @Benchmark
+    public int pbkdf2_twelveCodes_sequential() { return backupCodes.verify(words); }
+
+    @Benchmark
+    public int pbkdf2_twelveCodes_parallel() { return backupCodes.verify(words, executor); }
+}
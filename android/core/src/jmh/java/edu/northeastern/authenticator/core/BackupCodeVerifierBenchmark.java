@@ -0,0 +1,64 @@
+package edu.northeastern.authenticator.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the allocation free BackupCodeVerifier against the hashWordWithSalt + bytesToHex + String.equals path
+ * it replaced, for a single code and for all 12. Look at gc.alloc.rate.norm for the allocation per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BackupCodeVerifierBenchmark {
+
+    private final String[] words = new String[BackupCodeHasher.BACKUP_CODE_COUNT];
+    private final String[] salts = new String[BackupCodeHasher.BACKUP_CODE_COUNT];
+    private final String[] storedHashes = new String[BackupCodeHasher.BACKUP_CODE_COUNT];
+
+    @Setup
+    public void setUp() {
+        String[] sample = {"anchor", "bramble", "cobalt", "drizzle", "ember", "fathom",
+                "granite", "harbor", "inkwell", "juniper", "kestrel", "lantern"};
+        for (int i = 0; i < words.length; i++) {
+            words[i] = sample[i];
+            salts[i] = Long.toString(1712000000000L + i);
+            storedHashes[i] = BackupCodeHasher.hashWordWithSalt(words[i], salts[i]);
+        }
+    }
+
+    @Benchmark
+    public boolean singleCode_hashAndCompareHex() {
+        return BackupCodeHasher.hashWordWithSalt(words[0], salts[0]).equals(storedHashes[0]);
+    }
+
+    @Benchmark
+    public boolean singleCode_verifier() {
+        return BackupCodeVerifier.verify(words[0], salts[0], storedHashes[0]);
+    }
+
+    @Benchmark
+    public boolean twelveCodes_hashAndCompareHex() {
+        boolean allCodesVerified = true;
+        for (int i = 0; i < words.length; i++) {
+            allCodesVerified &= BackupCodeHasher.hashWordWithSalt(words[i], salts[i]).equals(storedHashes[i]);
+        }
+        return allCodesVerified;
+    }
+
+    @Benchmark
+    public boolean twelveCodes_verifier() {
+        boolean allCodesVerified = true;
+        for (int i = 0; i < words.length; i++) {
+            allCodesVerified &= BackupCodeVerifier.verify(words[i], salts[i], storedHashes[i]);
+        }
+        return allCodesVerified;
+    }
+}
@@ -0,0 +1,65 @@
+package edu.northeastern.authenticator.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What a debug log call costs with DEBUG turned off, the way release builds run, compared to doing nothing at all.
+ * log_eagerConcat is the old way, Log.d("Tag", "..." + value), which builds the message before anything can drop it.
+ * log_disabledFields and log_disabledSupplier are the Logger ways, and should be within a nanosecond or two of log_baseline
+ * with no allocation (see the gc profiler's alloc rate). log_enabledFields is the cost when the message is actually written,
+ * to a sink that throws it away.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LoggerBenchmark {
+
+    private static final Logger log = Logger.get("LoggerBenchmark");
+
+    private int depth;
+    private String sessionId;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        Logger.setSink((level, tag, message, throwable) -> blackhole.consume(message));
+        Logger.setMinLevel(Logger.INFO);
+        depth = 1_234;
+        sessionId = "LJ4k9bZ2xYf3QmN8pR1sT6uV7wX0_1700000000000";
+    }
+
+    @Benchmark
+    public int log_baseline() { return depth; }
+
+    @Benchmark
+    public int log_eagerConcat() {
+        log.d("Flushed an approval, depth=" + depth + ", session=" + sessionId);
+        return depth;
+    }
+
+    @Benchmark
+    public int log_disabledFields() {
+        log.d("Flushed an approval", "depth", depth, "session", sessionId);
+        return depth;
+    }
+
+    @Benchmark
+    public int log_disabledSupplier() {
+        log.d(() -> "Flushed an approval, depth=" + depth + ", session=" + sessionId);
+        return depth;
+    }
+
+    @Benchmark
+    public int log_enabledFields() {
+        log.i("Flushed an approval", "depth", depth);
+        return depth;
+    }
+}
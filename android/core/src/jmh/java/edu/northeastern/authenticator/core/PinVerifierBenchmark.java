@@ -0,0 +1,46 @@
+package edu.northeastern.authenticator.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One PIN check through PinVerifier, hashing included, with the store kept in memory.
+ * The point is to see where the iteration count puts us against the 100 ms budget for the PIN screen,
+ * and what one offline guess costs (the same number, minus the store).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PinVerifierBenchmark {
+
+    @Param({"100000"})
+    public int iterations;
+
+    private PinVerifier verifier;
+
+    @Setup
+    public void setUp() throws Exception {
+        PinVerifier.Store store = new PinVerifier.Store() {
+            private PinVerifier.Record record;
+
+            @Override
+            public PinVerifier.Record load() { return record; }
+
+            @Override
+            public void save(PinVerifier.Record record) { this.record = record; }
+        };
+        verifier = new PinVerifier(store, PinHasher.PBKDF2, System::currentTimeMillis);
+        verifier.enroll("123456", iterations);
+    }
+
+    @Benchmark
+    public PinVerifier.Result pin_verify() throws Exception { return verifier.verify("123456"); }
+}
@@ -0,0 +1,96 @@
+package edu.northeastern.authenticator.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Suggestion latency over the full wordlist, the way VerifyBackupCodesFragment asks for it: on every keystroke,
+ * the whole typed prefix is looked up again and the first 3 suggestions are taken.
+ * The ops type a whole word, one keystroke at a time, cycling through 8 words, so divide by the average of 6.75 letters.
+ * The trie should show 0 B/op on the gc profiler. scanWithStartsWith is the obvious way without a trie, and
+ * wordlistPrefix uses the compiled Wordlist's own prefix lookup, which allocates its result.
+ * Reads the real wordlist.txt, like WordlistBenchmark.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class WordTrieBenchmark {
+
+    private static final String[] TYPED = {"anchor", "cobalt", "program", "harbor", "sunset", "zoom", "ability", "straight"};
+
+    private final int[] suggestions = new int[3];
+    // Stands in for the EditText's Editable, which grows a letter at a time without allocating
+    private final StringBuilder typed = new StringBuilder(Wordlist.MAX_LENGTH);
+    private String[] words;
+    private Wordlist wordlist;
+    private WordTrie trie;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        String text = new String(Files.readAllBytes(Paths.get(System.getProperty("wordlist", "../../securetouch/src/wordlist.txt"))), StandardCharsets.UTF_8);
+        wordlist = Wordlist.read(ByteBuffer.wrap(WordlistCompiler.compile(Arrays.asList(text.split("\n")))));
+        trie = WordTrie.build(wordlist);
+        words = new String[wordlist.size()];
+        for (int i = 0; i < words.length; i++) { words[i] = wordlist.word(i); }
+    }
+
+    private String nextWord() { return TYPED[next++ & (TYPED.length - 1)]; }
+
+    @Benchmark
+    public int typeWord_trie() {
+        String word = nextWord();
+        int total = 0;
+        typed.setLength(0);
+        for (int i = 0; i < word.length(); i++) {
+            typed.append(word.charAt(i));
+            total += trie.suggest(trie.find(typed), suggestions);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public int typeWord_scanWithStartsWith() {
+        String word = nextWord();
+        int total = 0;
+        for (int length = 1; length <= word.length(); length++) {
+            String prefix = word.substring(0, length);
+            int count = 0;
+            for (int i = 0; i < words.length && count < suggestions.length; i++) {
+                if (words[i].startsWith(prefix)) { suggestions[count++] = i; }
+            }
+            total += count;
+        }
+        return total;
+    }
+
+    @Benchmark
+    public int typeWord_wordlistPrefix() {
+        String word = nextWord();
+        int total = 0;
+        typed.setLength(0);
+        for (int i = 0; i < word.length(); i++) {
+            typed.append(word.charAt(i));
+            total += wordlist.withPrefix(typed, suggestions.length).size();
+        }
+        return total;
+    }
+
+    @Benchmark
+    public WordTrie build_trie() { return WordTrie.build(wordlist); }
+}
@@ -0,0 +1,71 @@
+package edu.northeastern.authenticator.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup throughput of the compiled Wordlist against a HashSet of the same words, which is what the app would
+ * otherwise build from the text file, plus the cost of getting either one ready in the first place.
+ * The lookups cycle through 16 words, half of them in the list and half near misses.
+ * Reads the real wordlist.txt, the jmh task passes its path in the wordlist system property.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class WordlistBenchmark {
+
+    private static final String[] PROBES = {"anchor", "ancher", "cobalt", "cobolt", "zoom", "zooom", "ability", "abilty",
+            "harbor", "harbour", "sunset", "sunsett", "program", "programs", "aaron", "aaronn"};
+
+    private String text;
+    private byte[] compiled;
+    private Wordlist wordlist;
+    private Set<String> hashSet;
+    private int probe;
+
+    @Setup
+    public void setUp() throws IOException {
+        text = new String(Files.readAllBytes(Paths.get(System.getProperty("wordlist", "../../securetouch/src/wordlist.txt"))), StandardCharsets.UTF_8);
+        List<String> words = Arrays.asList(text.split("\n"));
+        compiled = WordlistCompiler.compile(words);
+        wordlist = Wordlist.read(ByteBuffer.wrap(compiled));
+        hashSet = new HashSet<>(words);
+    }
+
+    private String nextProbe() { return PROBES[probe++ & (PROBES.length - 1)]; }
+
+    @Benchmark
+    public boolean contains_wordlist() { return wordlist.contains(nextProbe()); }
+
+    @Benchmark
+    public boolean contains_hashSet() { return hashSet.contains(nextProbe()); }
+
+    @Benchmark
+    public int countWithPrefix_wordlist() { return wordlist.countWithPrefix("con"); }
+
+    @Benchmark
+    public List<String> withPrefix_wordlist() { return wordlist.withPrefix("con", 5); }
+
+    // What the web app does on every registration, and what the app would have to do once per process
+    @Benchmark
+    public Set<String> load_splitText() { return new HashSet<>(Arrays.asList(text.split("\n"))); }
+
+    @Benchmark
+    public Wordlist load_compiled() { return Wordlist.read(ByteBuffer.wrap(compiled)); }
+}
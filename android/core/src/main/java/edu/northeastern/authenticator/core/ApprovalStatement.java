@@ -0,0 +1,123 @@
+package edu.northeastern.authenticator.core;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What the phone signs when the user approves or denies login attempts: who, when, and which attempts went which way.
+ * Setting status to "authenticated" used to be all there was to an approval, which any client with write access could do.
+ * Now the app signs one of these with a device-bound ECDSA key that only the fingerprint unlocks (see ApprovalSigner),
+ * and the verifier checks the signature against the public key the user registered during setup.
+ * <p>
+ * One biometric prompt can clear several attempts, and a Keystore key that needs the fingerprint for every use
+ * only signs once per prompt, so a statement covers the whole decision. toBytes() is the exact byte layout that gets signed,
+ * so it must never change for a given VERSION:
+ * <pre>
+ * authenticator-approval-v1
+ * userId
+ * signedAtMillis
+ * A:sessionId   (one line per approved attempt, in the order given)
+ * D:sessionId   (one line per denied attempt, in the order given)
+ * </pre>
+ * Session IDs are the user ID and a timestamp, and user IDs are Firebase UIDs, so neither ever contains a newline.
+ * @author James Bebarski
+ */
+public final class ApprovalStatement {
+
+    public static final String VERSION = "authenticator-approval-v1";
+    public static final String SIGNATURE_ALGORITHM = "SHA256withECDSA";
+
+    private final String userId;
+    private final long signedAtMillis;
+    private final List<String> approvedSessionIds;
+    private final List<String> deniedSessionIds;
+
+    public ApprovalStatement(String userId, long signedAtMillis, List<String> approvedSessionIds, List<String> deniedSessionIds) {
+        if (userId == null || userId.indexOf('\n') >= 0) { throw new IllegalArgumentException("Invalid user ID"); }
+        for (String sessionId : approvedSessionIds) { checkSessionId(sessionId); }
+        for (String sessionId : deniedSessionIds) { checkSessionId(sessionId); }
+        this.userId = userId;
+        this.signedAtMillis = signedAtMillis;
+        this.approvedSessionIds = Collections.unmodifiableList(new ArrayList<>(approvedSessionIds));
+        this.deniedSessionIds = Collections.unmodifiableList(new ArrayList<>(deniedSessionIds));
+    }
+
+    private static void checkSessionId(String sessionId) {
+        if (sessionId == null || sessionId.isEmpty() || sessionId.indexOf('\n') >= 0) { throw new IllegalArgumentException("Invalid session ID"); }
+    }
+
+    public String getUserId() { return userId; }
+
+    public long getSignedAtMillis() { return signedAtMillis; }
+
+    public List<String> getApprovedSessionIds() { return approvedSessionIds; }
+
+    public List<String> getDeniedSessionIds() { return deniedSessionIds; }
+
+    /**
+     * @return the bytes that get signed, see the class comment
+     */
+    public byte[] toBytes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+        writeLine(out, VERSION);
+        writeLine(out, userId);
+        writeLine(out, Long.toString(signedAtMillis));
+        for (String sessionId : approvedSessionIds) { writeLine(out, "A:" + sessionId); }
+        for (String sessionId : deniedSessionIds) { writeLine(out, "D:" + sessionId); }
+        return out.toByteArray();
+    }
+
+    private static void writeLine(ByteArrayOutputStream out, String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        out.write(bytes, 0, bytes.length);
+        out.write('\n');
+    }
+
+    /**
+     * Check a signature over this statement.
+     *
+     * @param publicKey - the user's registered public key
+     * @param signature - the DER encoded ECDSA signature
+     * @return true if the signature is valid, false otherwise (including if it isn't even well formed)
+     */
+    public boolean verify(PublicKey publicKey, byte[] signature) {
+        try {
+            Signature verifier = Signature.getInstance(SIGNATURE_ALGORITHM);
+            verifier.initVerify(publicKey);
+            verifier.update(toBytes());
+            return verifier.verify(signature);
+        } catch (GeneralSecurityException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Decode a public key the way the app uploads it, base64 of the X.509 SubjectPublicKeyInfo encoding.
+     *
+     * @param base64 - the encoded public key
+     * @return the EC public key
+     * @throws GeneralSecurityException - if it isn't a valid EC public key
+     */
+    public static PublicKey decodePublicKey(String base64) throws GeneralSecurityException {
+        try {
+            return KeyFactory.getInstance("EC").generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(base64)));
+        } catch (IllegalArgumentException e) {
+            throw new GeneralSecurityException("Public key is not valid base64", e);
+        }
+    }
+
+    /**
+     * @param publicKey - a public key
+     * @return the key encoded the way decodePublicKey expects it
+     */
+    public static String encodePublicKey(PublicKey publicKey) { return Base64.getEncoder().encodeToString(publicKey.getEncoded()); }
+}
@@ -0,0 +1,72 @@
+package edu.northeastern.authenticator.core;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * When each stage of an approval happened on the phone, so we can tell where the seconds go between the web "Login" click
+ * and the web page logging in. The app writes them to the "timings" map on every login attempt it decides, next to the status:
+ * <ul>
+ *     <li>RECEIVED - when the attempt showed up on the phone, this one is per attempt</li>
+ *     <li>PIN_VERIFIED - when the PinVerifier said yes</li>
+ *     <li>BIOMETRIC_DONE - when the BiometricPrompt succeeded</li>
+ *     <li>WRITE_ACKED - the server's commit time of the status write, filled in by Firestore rather than the phone</li>
+ *     <li>VERIFIED - the server's commit time of the verifier's verdict</li>
+ * </ul>
+ * The first three are the phone's clock, the last two the server's, and the attempt's timestamp is the browser's.
+ * Differences between stages on the same clock are exact, the rest are only as good as the clocks are in sync.
+ * @author James Bebarski
+ */
+public final class ApprovalTimings {
+
+    public static final String FIELD = "timings";
+    public static final String RECEIVED = "received";
+    public static final String PIN_VERIFIED = "pinVerified";
+    public static final String BIOMETRIC_DONE = "biometricDone";
+    public static final String WRITE_ACKED = "writeAcked";
+    public static final String VERIFIED = "verified";
+
+    private static final ApprovalTimings NONE = new ApprovalTimings(Collections.emptyMap(), 0L, 0L);
+
+    private final Map<String, Long> receivedAtMillis;
+    private final long pinVerifiedAtMillis;
+    private final long biometricDoneAtMillis;
+
+    /**
+     * @param receivedAtMillis - when each attempt showed up on the phone, by session ID
+     * @param pinVerifiedAtMillis - when the PIN was verified, or 0 if unknown
+     * @param biometricDoneAtMillis - when the biometric prompt succeeded, or 0 if unknown
+     */
+    public ApprovalTimings(Map<String, Long> receivedAtMillis, long pinVerifiedAtMillis, long biometricDoneAtMillis) {
+        this.receivedAtMillis = Collections.unmodifiableMap(new HashMap<>(receivedAtMillis));
+        this.pinVerifiedAtMillis = pinVerifiedAtMillis;
+        this.biometricDoneAtMillis = biometricDoneAtMillis;
+    }
+
+    /**
+     * @return timings with nothing recorded, for decisions made without going through the PIN screen (tests, the load harness)
+     */
+    public static ApprovalTimings none() { return NONE; }
+
+    /**
+     * @param sessionId - the login attempt's ID
+     * @return when that attempt showed up on the phone, or 0 if unknown
+     */
+    public long getReceivedAtMillis(String sessionId) {
+        Long received = receivedAtMillis.get(sessionId);
+        return received != null ? received : 0L;
+    }
+
+    public Map<String, Long> getReceivedAtMillis() { return receivedAtMillis; }
+
+    public long getPinVerifiedAtMillis() { return pinVerifiedAtMillis; }
+
+    public long getBiometricDoneAtMillis() { return biometricDoneAtMillis; }
+
+    /**
+     * @param millis - when the biometric prompt succeeded
+     * @return a copy of these timings with the biometric stage filled in
+     */
+    public ApprovalTimings withBiometricDoneAt(long millis) { return new ApprovalTimings(receivedAtMillis, pinVerifiedAtMillis, millis); }
+}
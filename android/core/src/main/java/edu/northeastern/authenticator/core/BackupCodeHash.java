@@ -0,0 +1,130 @@
+package edu.northeastern.authenticator.core;
+
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One stored backup code hash, in the versioned format kept in users/{uid}.backupCodes.
+ * Every entry says which algorithm it was hashed with, so old and new hashes can live side by side:
+ * <ul>
+ *     <li>"pbkdf2-sha256": { alg, iterations, salt (16 random bytes, hex), hash (hex) }</li>
+ *     <li>"sha256": { salt (millisecond timestamp), hash (hex) }, the original format, which is also what an
+ *     entry without an "alg" is. These are only verified so existing accounts keep working,
+ *     and are rehashed with PBKDF2 once the user verifies them.</li>
+ * </ul>
+ * @author James Bebarski
+ */
+public final class BackupCodeHash {
+
+    public static final String ALG_SHA256 = "sha256";
+    public static final String ALG_PBKDF2_SHA256 = "pbkdf2-sha256";
+
+    private final String algorithm;
+    private final int iterations;
+    private final String salt;
+    private final String hash;
+
+    private BackupCodeHash(String algorithm, int iterations, String salt, String hash) {
+        this.algorithm = algorithm;
+        this.iterations = iterations;
+        this.salt = salt;
+        this.hash = hash;
+    }
+
+    /**
+     * Parse one entry of the backupCodes field.
+     *
+     * @param entry - the entry, as Firestore returns it
+     * @return the parsed hash
+     * @throws IllegalArgumentException - if the entry is missing fields or uses an algorithm we don't know
+     */
+    public static BackupCodeHash parse(Map<?, ?> entry) {
+        Object alg = entry.get("alg");
+        Object salt = entry.get("salt");
+        Object hash = entry.get("hash");
+        if (!(salt instanceof String) || !(hash instanceof String)) {
+            throw new IllegalArgumentException("Backup code is missing its hash or salt");
+        }
+
+        if (alg == null || ALG_SHA256.equals(alg)) {
+            return new BackupCodeHash(ALG_SHA256, 1, (String) salt, (String) hash);
+        }
+        if (ALG_PBKDF2_SHA256.equals(alg)) {
+            Object iterations = entry.get("iterations");
+            if (!(iterations instanceof Number)) {
+                throw new IllegalArgumentException("Backup code is missing its iteration count");
+            }
+            long count = ((Number) iterations).longValue();
+            if (count < 1 || count > BackupCodeKdf.MAX_ITERATIONS) {
+                throw new IllegalArgumentException("Unsupported iteration count " + count);
+            }
+            if (((String) salt).isEmpty() || ((String) salt).length() % 2 != 0) {
+                throw new IllegalArgumentException("Backup code salt isn't hex");
+            }
+            return new BackupCodeHash(ALG_PBKDF2_SHA256, (int) count, (String) salt, (String) hash);
+        }
+        throw new IllegalArgumentException("Unsupported backup code algorithm " + alg);
+    }
+
+    /**
+     * Hash a backup code with PBKDF2 and a fresh random salt.
+     *
+     * @param word - the backup code
+     * @param iterations - the iteration count, see BackupCodeKdf.calibrateIterations
+     * @param random - where the salt comes from
+     * @return the new hash
+     */
+    public static BackupCodeHash pbkdf2(CharSequence word, int iterations, SecureRandom random) {
+        byte[] salt = new byte[BackupCodeKdf.SALT_LENGTH];
+        random.nextBytes(salt);
+        byte[] hash = BackupCodeKdf.derive(word, salt, iterations);
+        return new BackupCodeHash(ALG_PBKDF2_SHA256, iterations, BackupCodeHasher.bytesToHex(salt), BackupCodeHasher.bytesToHex(hash));
+    }
+
+    /**
+     * Check the entered code against this hash, comparing in constant time.
+     *
+     * @param word - the backup code the user entered
+     * @return true if it matches
+     */
+    public boolean verify(CharSequence word) {
+        if (ALG_SHA256.equals(algorithm)) {
+            return BackupCodeVerifier.verify(word, salt, hash);
+        }
+
+        // Decode everything before deriving, but don't return early on malformed hex,
+        // so a broken entry takes as long as a good one
+        byte[] saltBytes = new byte[salt.length() / 2];
+        byte[] expected = new byte[BackupCodeKdf.HASH_LENGTH];
+        boolean valid = BackupCodeVerifier.decodeHex(salt, saltBytes) & BackupCodeVerifier.decodeHex(hash, expected);
+        byte[] computed = BackupCodeKdf.derive(word, saltBytes, iterations);
+        return BackupCodeVerifier.constantTimeEquals(computed, expected) & valid;
+    }
+
+    /**
+     * @param targetIterations - the iteration count we would hash with today
+     * @return true if this hash should be replaced, because it's the legacy format or was hashed with fewer iterations
+     */
+    public boolean needsRehash(int targetIterations) {
+        return !ALG_PBKDF2_SHA256.equals(algorithm) || iterations < targetIterations;
+    }
+
+    /**
+     * @return this hash as a backupCodes entry, ready to be written back to Firestore
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> entry = new HashMap<>();
+        if (!ALG_SHA256.equals(algorithm)) {
+            entry.put("alg", algorithm);
+            entry.put("iterations", iterations);
+        }
+        entry.put("salt", salt);
+        entry.put("hash", hash);
+        return entry;
+    }
+
+    public String getAlgorithm() { return algorithm; }
+
+    public int getIterations() { return iterations; }
+}
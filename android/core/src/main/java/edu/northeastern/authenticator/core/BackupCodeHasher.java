@@ -0,0 +1,73 @@
+package edu.northeastern.authenticator.core;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Hashing and hex helpers for the backup codes, moved out of VerifyBackupCodesActivity so they can run on a plain JVM.
+ * The web application (RegistrationForm.hashWord) hashes each backup code as SHA-256(word + salt) and stores it as lowercase hex,
+ * so these have to produce exactly the same strings.
+ * <p>
+ * This is the straightforward version: a new MessageDigest and a concatenated String per word,
+ * and Integer.toHexString per byte. It's kept as the reference the JMH benchmarks compare against.
+ * @author James Bebarski
+ */
+public final class BackupCodeHasher {
+
+    /**
+     * The number of backup codes every user gets at registration.
+     */
+    public static final int BACKUP_CODE_COUNT = 12;
+
+    private BackupCodeHasher() { }
+
+    /**
+     * Takes the word and salt and hashes them using SHA-256
+     * I learned about message digests in Java and how they work with hashing algorithms from the following links:
+     * <a href="https://www.geeksforgeeks.org/message-digest-in-information-security/">...</a>
+     * <a href="https://docs.oracle.com/javase/8/docs/api/java/security/MessageDigest.html">...</a>
+     *
+     * @param word - the word to hash
+     * @param salt - the salt to hash the word with
+     * @return the word + salt hashed with SHA-256, as lowercase hex
+     */
+    public static String hashWordWithSalt(String word, String salt) {
+        return bytesToHex(newSha256().digest((word + salt).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Converts the byte array to a hexadecimal string
+     * The byte array is converted to a hexadecimal string for comparison, as the stored backup codes are in hexadecimal format
+     *
+     * @param hash - the byte array to convert
+     * @return the lowercase hexadecimal string
+     */
+    public static String bytesToHex(byte[] hash) {
+        StringBuilder hexString = new StringBuilder(2 * hash.length);
+        for (byte thisByte : hash) {
+            // Convert each byte to a hexadecimal string, and append it to the StringBuilder
+            String hex = Integer.toHexString(0xff & thisByte);
+            if (hex.length() == 1) {
+                // Integer.toHexString doesn't add leading 0s, so we need to add it ourselves
+                hexString.append('0');
+            }
+            hexString.append(hex);
+        }
+        return hexString.toString();
+    }
+
+    /**
+     * Get a new SHA-256 MessageDigest.
+     * Every Java platform (and Android) is required to support SHA-256, so failing here means something is very wrong.
+     *
+     * @return a new SHA-256 MessageDigest
+     */
+    public static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
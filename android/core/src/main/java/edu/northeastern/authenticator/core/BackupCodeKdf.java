@@ -0,0 +1,120 @@
+package edu.northeastern.authenticator.core;
+
+import java.security.GeneralSecurityException;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * PBKDF2-HMAC-SHA256 for the backup codes, plus a calibration routine to pick the iteration count.
+ * A single SHA-256 over word + salt can be brute forced against the whole wordlist (6,639 words) in no time,
+ * so every guess has to cost a tunable amount of work instead.
+ * <p>
+ * I went with PBKDF2 rather than scrypt, because it is the only one of the two that both WebCrypto (where the codes
+ * are hashed, see RegistrationForm.hashWord) and the JDK/Android (where they are verified) support out of the box.
+ * It isn't memory hard, which is why the iteration count is calibrated per device and stored with every hash.
+ * @author James Bebarski
+ */
+public final class BackupCodeKdf {
+
+    public static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+
+    // Length of the derived hash and of the random salt, in bytes
+    public static final int HASH_LENGTH = 32;
+    public static final int SALT_LENGTH = 16;
+
+    // Whatever calibration comes up with, never go below OWASP's old PBKDF2-SHA256 floor, or above something
+    // that would lock up the verify screen. Hashes claiming more than MAX_ITERATIONS are rejected when parsed.
+    public static final int MIN_ITERATIONS = 10_000;
+    public static final int MAX_ITERATIONS = 2_000_000;
+
+    // Iterations used for the calibration probe
+    private static final int PROBE_ITERATIONS = 5_000;
+
+    // SecretKeyFactory isn't guaranteed to be thread safe, so every thread gets its own
+    private static final ThreadLocal<SecretKeyFactory> FACTORY = new ThreadLocal<SecretKeyFactory>() {
+        @Override
+        protected SecretKeyFactory initialValue() {
+            try {
+                return SecretKeyFactory.getInstance(ALGORITHM);
+            } catch (NoSuchAlgorithmException e) {
+                // Every JDK since 8 and every Android version since API 26 ships it
+                throw new IllegalStateException(ALGORITHM + " not available", e);
+            }
+        }
+    };
+
+    private BackupCodeKdf() { }
+
+    /**
+     * Derive the hash of a backup code.
+     * The code is UTF-8 encoded by the provider, which matches TextEncoder on the web side.
+     *
+     * @param word - the backup code
+     * @param salt - the random salt stored with the hash
+     * @param iterations - the iteration count stored with the hash
+     * @return the HASH_LENGTH byte hash
+     */
+    public static byte[] derive(CharSequence word, byte[] salt, int iterations) {
+        char[] password = new char[word.length()];
+        for (int i = 0; i < password.length; i++) { password[i] = word.charAt(i); }
+        PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, HASH_LENGTH * 8);
+        try {
+            return FACTORY.get().generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            spec.clearPassword();
+            Arrays.fill(password, '\0');
+        }
+    }
+
+    /**
+     * Method to pick the iteration count that makes one derive() take about targetNanos on this device.
+     * It times a small probe a few times, keeps the fastest run (the others are mostly JIT warm up and noise),
+     * and scales up linearly, since PBKDF2's cost is linear in the iterations.
+     * The result is rounded down to a multiple of 1,000 and kept between MIN_ITERATIONS and MAX_ITERATIONS.
+     *
+     * @param targetNanos - how long a single derive() should take
+     * @return the iteration count to use
+     */
+    public static int calibrateIterations(long targetNanos) {
+        byte[] salt = new byte[SALT_LENGTH];
+        long fastest = Long.MAX_VALUE;
+        for (int run = 0; run < 5; run++) {
+            long start = System.nanoTime();
+            derive("calibration", salt, PROBE_ITERATIONS);
+            fastest = Math.min(fastest, System.nanoTime() - start);
+        }
+        return iterationsFor(targetNanos, PROBE_ITERATIONS, Math.max(1, fastest));
+    }
+
+    /**
+     * Work out how long a single code may take, so that verifying all of them stays within the latency budget.
+     * The codes are verified in parallel, so with N threads each one gets N times the budget divided by the number of codes.
+     *
+     * @param budgetNanos - how long verifying every code may take
+     * @param codes - how many codes are verified, BackupCodeHasher.BACKUP_CODE_COUNT
+     * @param parallelism - how many threads the codes are verified on
+     * @return the target time for one derive(), to pass to calibrateIterations
+     */
+    public static long targetNanosPerCode(long budgetNanos, int codes, int parallelism) {
+        return budgetNanos * Math.max(1, Math.min(parallelism, codes)) / codes;
+    }
+
+    /**
+     * Scale a measured probe up to the target time, split out from calibrateIterations so it can be tested.
+     *
+     * @param targetNanos - how long a single derive() should take
+     * @param probeIterations - the iterations the probe ran with
+     * @param probeNanos - how long the probe took
+     * @return the iteration count to use
+     */
+    static int iterationsFor(long targetNanos, int probeIterations, long probeNanos) {
+        double iterations = (double) probeIterations * targetNanos / probeNanos;
+        int rounded = (int) Math.min(MAX_ITERATIONS, iterations) / 1_000 * 1_000;
+        return Math.max(MIN_ITERATIONS, rounded);
+    }
+}
@@ -0,0 +1,164 @@
+package edu.northeastern.authenticator.core;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+/**
+ * Reusable verifier for the backup codes, meant to replace calling BackupCodeHasher.hashWordWithSalt and String.equals per code.
+ * For each of the 12 codes, that path allocated a concatenated String, its UTF-8 bytes, a new MessageDigest,
+ * the digest output and a hex String, and then compared with String.equals, which stops at the first different character.
+ * <p>
+ * This class does the same check without allocating anything per code:
+ * <ul>
+ *     <li>every thread gets its own MessageDigest and scratch buffers through a ThreadLocal</li>
+ *     <li>word + salt are UTF-8 encoded straight into the scratch buffer, without building the concatenated String</li>
+ *     <li>instead of hex encoding our hash, the stored hex hash is decoded into bytes with a lookup table</li>
+ *     <li>the bytes are compared in constant time, the same way MessageDigest.isEqual does it</li>
+ * </ul>
+ * Nothing here is ever logged, the codes and hashes are secrets.
+ * @author James Bebarski
+ */
+public final class BackupCodeVerifier {
+
+    private static final int SHA256_LENGTH = 32;
+
+    // Maps an ASCII character to its hex value, or -1 if it isn't a hex digit
+    private static final byte[] HEX_VALUES = new byte[128];
+
+    static {
+        Arrays.fill(HEX_VALUES, (byte) -1);
+        for (int i = 0; i < 10; i++) { HEX_VALUES['0' + i] = (byte) i; }
+        for (int i = 0; i < 6; i++) {
+            HEX_VALUES['a' + i] = (byte) (10 + i);
+            HEX_VALUES['A' + i] = (byte) (10 + i);
+        }
+    }
+
+    /**
+     * Per thread scratch space, so concurrent verifications never share a MessageDigest.
+     */
+    private static final class Scratch {
+        final MessageDigest digest = BackupCodeHasher.newSha256();
+        final byte[] computed = new byte[SHA256_LENGTH];
+        final byte[] expected = new byte[SHA256_LENGTH];
+        byte[] input = new byte[64];
+    }
+
+    private static final ThreadLocal<Scratch> SCRATCH = new ThreadLocal<Scratch>() {
+        @Override
+        protected Scratch initialValue() { return new Scratch(); }
+    };
+
+    private BackupCodeVerifier() { }
+
+    /**
+     * Check if SHA-256(word + salt) matches the stored hex hash.
+     *
+     * @param word - the backup code the user entered
+     * @param salt - the salt stored with the backup code
+     * @param storedHash - the stored SHA-256 hash, as hex
+     * @return true if the hashes match, false otherwise (including if the stored hash isn't valid hex)
+     */
+    public static boolean verify(CharSequence word, CharSequence salt, CharSequence storedHash) {
+        Scratch scratch = SCRATCH.get();
+
+        // Decode the stored hash first, but don't bail out early if it's malformed,
+        // so a bad hash takes the same time as a good one
+        boolean validHash = decodeHex(storedHash, scratch.expected);
+
+        int length = encodeUtf8(word, scratch, 0);
+        length = encodeUtf8(salt, scratch, length);
+        scratch.digest.update(scratch.input, 0, length);
+        try {
+            scratch.digest.digest(scratch.computed, 0, SHA256_LENGTH);
+        } catch (DigestException e) {
+            // Can't happen, the buffer is exactly the size of a SHA-256 hash
+            throw new IllegalStateException(e);
+        }
+
+        return constantTimeEquals(scratch.computed, scratch.expected) & validHash;
+    }
+
+    /**
+     * Compare two byte arrays without stopping at the first difference, like MessageDigest.isEqual.
+     *
+     * @param a - the first array
+     * @param b - the second array
+     * @return true if both arrays have the same length and contents
+     */
+    public static boolean constantTimeEquals(byte[] a, byte[] b) {
+        if (a.length != b.length) { return false; }
+        int difference = 0;
+        for (int i = 0; i < a.length; i++) { difference |= a[i] ^ b[i]; }
+        return difference == 0;
+    }
+
+    /**
+     * Decode a hex string into out, using the lookup table.
+     *
+     * @param hex - the hex string, upper or lower case
+     * @param out - where the decoded bytes go, has to be exactly half the length of hex
+     * @return true if hex was valid and the right length, out is zeroed otherwise
+     */
+    static boolean decodeHex(CharSequence hex, byte[] out) {
+        if (hex == null || hex.length() != out.length * 2) {
+            Arrays.fill(out, (byte) 0);
+            return false;
+        }
+        int invalid = 0;
+        for (int i = 0; i < out.length; i++) {
+            int high = hexValue(hex.charAt(2 * i));
+            int low = hexValue(hex.charAt(2 * i + 1));
+            invalid |= (high | low) & 0x80;
+            out[i] = (byte) ((high << 4) | (low & 0xf));
+        }
+        return invalid == 0;
+    }
+
+    private static int hexValue(char c) { return c < 128 ? HEX_VALUES[c] & 0xff : 0xff; }
+
+    /**
+     * UTF-8 encode the characters into the scratch input buffer, growing it only if a code is unusually long.
+     * Matches String.getBytes(UTF_8), including writing '?' for unpaired surrogates.
+     *
+     * @param chars - the characters to encode
+     * @param scratch - the scratch space holding the input buffer
+     * @param offset - where to start writing
+     * @return the offset after the last byte written
+     */
+    private static int encodeUtf8(CharSequence chars, Scratch scratch, int offset) {
+        if (chars == null) { return offset; }
+        int length = chars.length();
+        for (int i = 0; i < length; i++) {
+            char c = chars.charAt(i);
+            ensureCapacity(scratch, offset + 4);
+            byte[] input = scratch.input;
+            if (c < 0x80) {
+                input[offset++] = (byte) c;
+            } else if (c < 0x800) {
+                input[offset++] = (byte) (0xc0 | (c >> 6));
+                input[offset++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(chars.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, chars.charAt(++i));
+                input[offset++] = (byte) (0xf0 | (codePoint >> 18));
+                input[offset++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                input[offset++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                input[offset++] = (byte) (0x80 | (codePoint & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                input[offset++] = (byte) '?';
+            } else {
+                input[offset++] = (byte) (0xe0 | (c >> 12));
+                input[offset++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                input[offset++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        return offset;
+    }
+
+    private static void ensureCapacity(Scratch scratch, int capacity) {
+        if (scratch.input.length < capacity) {
+            scratch.input = Arrays.copyOf(scratch.input, Math.max(capacity, scratch.input.length * 2));
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package edu.northeastern.authenticator.core;
+
+import java.util.Arrays;
+
+/**
+ * Collects latency samples and answers percentile queries over them, for the approval latency exporter.
+ * The exporter looks at one window of login attempts at a time, a few thousand at most, so the samples are simply kept
+ * and sorted when asked, which gives exact percentiles rather than the bucket approximations of a streaming histogram.
+ * <p>
+ * Percentiles use the nearest rank method, so the result is always one of the recorded samples.
+ * Negative samples (from clocks that disagree) are counted but not recorded, they would only drag the low percentiles down.
+ * Not thread safe.
+ * @author James Bebarski
+ */
+public final class LatencySummary {
+
+    private long[] samples = new long[64];
+    private int count;
+    private int negative;
+    private long sum;
+    private boolean sorted = true;
+
+    /**
+     * Record one sample.
+     * @param millis - the latency, in millis
+     */
+    public void add(long millis) {
+        if (millis < 0) { negative++; return; }
+        if (count == samples.length) { samples = Arrays.copyOf(samples, count * 2); }
+        samples[count++] = millis;
+        sum += millis;
+        sorted = false;
+    }
+
+    /**
+     * @return the number of samples recorded, not counting negative ones
+     */
+    public int count() { return count; }
+
+    /**
+     * @return the number of negative samples that were left out
+     */
+    public int negativeCount() { return negative; }
+
+    public long sum() { return sum; }
+
+    /**
+     * Get a percentile of the recorded samples.
+     *
+     * @param percentile - between 0 (exclusive) and 100 (inclusive), e.g. 95 for the p95
+     * @return the smallest sample that at least that percentage of the samples are less than or equal to, or -1 if there are none
+     */
+    public long percentile(double percentile) {
+        if (percentile <= 0 || percentile > 100) { throw new IllegalArgumentException("Percentile must be in (0, 100]"); }
+        if (count == 0) { return -1; }
+        if (!sorted) {
+            Arrays.sort(samples, 0, count);
+            sorted = true;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * count);
+        return samples[Math.max(rank, 1) - 1];
+    }
+
+    @Override
+    public String toString() {
+        if (count == 0) { return "no samples"; }
+        return "n=" + count + ", p50=" + percentile(50) + "ms, p95=" + percentile(95) + "ms, p99=" + percentile(99) + "ms, max=" + percentile(100) + "ms";
+    }
+}
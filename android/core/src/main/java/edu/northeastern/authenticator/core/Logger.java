@@ -0,0 +1,199 @@
+package edu.northeastern.authenticator.core;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * The app's logging facade, in front of android.util.Log (see AndroidLogSink in the app).
+ * Calling Log.d directly meant every message was built, concatenation and all, whether anything was going to print it or not,
+ * and it was up to every call site to remember not to log a PIN or a backup code.
+ * <p>
+ * With this:
+ * <ul>
+ *     <li>Messages are only built if their level is enabled. Anything more than a constant string should either be passed as
+ *     fields (d("message", "key", value)), which costs nothing but the level check when disabled (numbers have long overloads,
+ *     so they aren't boxed before the check), or as a Supplier, which is only called when enabled
+ *     (a capturing lambda still allocates itself, so prefer fields on hot paths).</li>
+ *     <li>Levels below setMinLevel() are dropped at runtime, the app keeps VERBOSE and DEBUG for debug builds.
+ *     In a minified build the proguard rules strip the v, d and i calls, arguments included, at compile time.</li>
+ *     <li>Fields whose key looks like a secret (see isSecret, e.g. "pin", "backupCode", "signature") are always written
+ *     as REDACTED, so a secret can't end up in logcat by accident. There is deliberately no way to turn this off.
+ *     Keys are matched a word at a time, so "errorCode" or "keyAlias" are still logged.</li>
+ *     <li>sampled(n) gives a logger that only writes every nth event, for things that happen too often to log every time.</li>
+ * </ul>
+ * The levels are the same numbers as android.util.Log's, so the sink can pass them straight through.
+ * Until a sink is set, messages go to System.err, which is what the JVM tests and benchmarks see.
+ * @author James Bebarski
+ */
+public final class Logger {
+
+    public static final int VERBOSE = 2;
+    public static final int DEBUG = 3;
+    public static final int INFO = 4;
+    public static final int WARN = 5;
+    public static final int ERROR = 6;
+
+    public static final String REDACTED = "<redacted>";
+    // Words that make a field secret wherever they are in its key
+    private static final Set<String> SECRET_WORDS = new HashSet<>(Arrays.asList(
+            "pin", "password", "passphrase", "secret", "salt", "hash", "signature", "token"));
+    // Words before "code" that make it a secret one, rather than an errorCode or a statusCode
+    private static final Set<String> SECRET_CODE_KINDS = new HashSet<>(Arrays.asList(
+            "backup", "recovery", "verification", "auth", "otp", "access"));
+
+    /**
+     * Where the messages end up. Called on whichever thread logged, so it has to be thread safe.
+     */
+    public interface Sink {
+        void write(int level, String tag, String message, Throwable throwable);
+    }
+
+    private static final Sink STDERR = (level, tag, message, throwable) -> {
+        StringBuilder line = new StringBuilder().append("VVDIWE".charAt(Math.max(0, Math.min(level, ERROR) - 1))).append('/').append(tag).append(": ").append(message);
+        if (throwable != null) {
+            StringWriter stackTrace = new StringWriter();
+            throwable.printStackTrace(new PrintWriter(stackTrace));
+            line.append('\n').append(stackTrace);
+        }
+        System.err.println(line);
+    };
+
+    // Set once at startup, before anything is logged, so these are plain fields rather than volatile ones
+    private static Sink sink = STDERR;
+    private static int minLevel = DEBUG;
+
+    private final String tag;
+    private final int sampleEvery;
+    private final AtomicLong events;
+
+    private Logger(String tag, int sampleEvery) {
+        this.tag = tag;
+        this.sampleEvery = sampleEvery;
+        this.events = sampleEvery > 1 ? new AtomicLong() : null;
+    }
+
+    /**
+     * @param tag - the tag to log with, normally the class name
+     * @return a logger for that tag, keep it in a static final field
+     */
+    public static Logger get(String tag) { return new Logger(tag, 1); }
+
+    /**
+     * @param sink - where to write from now on
+     */
+    public static void setSink(Sink sink) { Logger.sink = sink; }
+
+    /**
+     * @param level - the lowest level that is written, e.g. INFO to drop VERBOSE and DEBUG
+     */
+    public static void setMinLevel(int level) { minLevel = level; }
+
+    /**
+     * @param oneIn - write one event out of this many, starting with the first
+     * @return a logger with the same tag that only writes every oneIn-th event, keep it in a static final field too
+     */
+    public Logger sampled(int oneIn) {
+        if (oneIn < 1) { throw new IllegalArgumentException("oneIn must be at least 1"); }
+        return new Logger(tag, oneIn);
+    }
+
+    /**
+     * @param level - a level
+     * @return true if messages at that level are written, to guard anything expensive that isn't just building the message
+     */
+    public boolean isEnabled(int level) { return level >= minLevel; }
+
+    public void v(String message) { if (isEnabled(VERBOSE)) { write(VERBOSE, message, null); } }
+
+    public void v(Supplier<String> message) { if (isEnabled(VERBOSE)) { write(VERBOSE, message, null); } }
+
+    public void d(String message) { if (isEnabled(DEBUG)) { write(DEBUG, message, null); } }
+
+    public void d(Supplier<String> message) { if (isEnabled(DEBUG)) { write(DEBUG, message, null); } }
+
+    public void d(String message, String key, Object value) { if (isEnabled(DEBUG)) { write(DEBUG, message, null, key, value); } }
+
+    public void d(String message, String key, long value) { if (isEnabled(DEBUG)) { write(DEBUG, message, null, key, value); } }
+
+    public void d(String message, String key1, Object value1, String key2, Object value2) {
+        if (isEnabled(DEBUG)) { write(DEBUG, message, null, key1, value1, key2, value2); }
+    }
+
+    public void d(String message, String key1, long value1, String key2, Object value2) {
+        if (isEnabled(DEBUG)) { write(DEBUG, message, null, key1, value1, key2, value2); }
+    }
+
+    public void i(String message) { if (isEnabled(INFO)) { write(INFO, message, null); } }
+
+    public void i(String message, String key, Object value) { if (isEnabled(INFO)) { write(INFO, message, null, key, value); } }
+
+    public void i(String message, String key, long value) { if (isEnabled(INFO)) { write(INFO, message, null, key, value); } }
+
+    public void w(String message) { if (isEnabled(WARN)) { write(WARN, message, null); } }
+
+    public void w(String message, Throwable throwable) { if (isEnabled(WARN)) { write(WARN, message, throwable); } }
+
+    public void w(Supplier<String> message, Throwable throwable) { if (isEnabled(WARN)) { write(WARN, message, throwable); } }
+
+    public void e(String message) { if (isEnabled(ERROR)) { write(ERROR, message, null); } }
+
+    public void e(String message, Throwable throwable) { if (isEnabled(ERROR)) { write(ERROR, message, throwable); } }
+
+    private void write(int level, Supplier<String> message, Throwable throwable) {
+        if (skipSample()) { return; }
+        emit(level, message.get(), throwable);
+    }
+
+    private void write(int level, String message, Throwable throwable, Object... fields) {
+        if (skipSample()) { return; }
+        if (fields.length == 0) { emit(level, message, throwable); return; }
+
+        StringBuilder line = new StringBuilder(message);
+        for (int i = 0; i + 1 < fields.length; i += 2) {
+            String key = (String) fields[i];
+            line.append(' ').append(key).append('=').append(isSecret(key) ? REDACTED : String.valueOf(fields[i + 1]));
+        }
+        emit(level, line.toString(), throwable);
+    }
+
+    private void emit(int level, String message, Throwable throwable) {
+        sink.write(level, tag, sampleEvery > 1 ? message + " (1 in " + sampleEvery + ")" : message, throwable);
+    }
+
+    private boolean skipSample() { return events != null && events.getAndIncrement() % sampleEvery != 0; }
+
+    /**
+     * The key is split into words on camelCase humps and anything that isn't a letter or digit, so "backup_codes",
+     * "backupCodes" and "BACKUP-CODES" are all the words backup, codes. It's a secret when:
+     * <ul>
+     *     <li>any word is one of SECRET_WORDS, plurals included ("enteredPin", "pinHashes"), or</li>
+     *     <li>it ends in "code" and is either just that or one of SECRET_CODE_KINDS ("backupCode", not "errorCode"), or</li>
+     *     <li>it ends in "key" ("key", "privateKey", "approvalPublicKey"), a key that only starts with it ("keyAlias") is a name
+     *     rather than the key itself.</li>
+     * </ul>
+     * @param key - a field name
+     * @return true if the field has to be redacted
+     */
+    static boolean isSecret(String key) {
+        String[] words = key.replaceAll("([a-z0-9])([A-Z])", "$1 $2").toLowerCase(Locale.ROOT).split("[^a-z0-9]+");
+        int last = words.length - 1;
+        for (String word : words) {
+            if (SECRET_WORDS.contains(singular(word))) { return true; }
+        }
+        if (last < 0) { return false; }
+        String lastWord = singular(words[last]);
+        if (lastWord.equals("code")) { return last == 0 || SECRET_CODE_KINDS.contains(words[last - 1]); }
+        return lastWord.equals("key");
+    }
+
+    private static String singular(String word) {
+        if (word.endsWith("es") && SECRET_WORDS.contains(word.substring(0, word.length() - 2))) { return word.substring(0, word.length() - 2); }
+        return word.endsWith("s") && word.length() > 3 ? word.substring(0, word.length() - 1) : word;
+    }
+}
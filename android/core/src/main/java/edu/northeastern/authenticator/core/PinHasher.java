@@ -0,0 +1,23 @@
+package edu.northeastern.authenticator.core;
+
+/**
+ * Turns a PIN into the hash PinVerifier stores and compares.
+ * The plain PBKDF2 version lives here so PinVerifier can be tested on the JVM,
+ * the app wraps it with an HMAC whose key never leaves the Android Keystore (see KeystorePinHasher).
+ * @author James Bebarski
+ */
+public interface PinHasher {
+
+    /**
+     * PBKDF2-HMAC-SHA256, the same KDF the backup codes use.
+     */
+    PinHasher PBKDF2 = BackupCodeKdf::derive;
+
+    /**
+     * @param pin - the PIN
+     * @param salt - the random salt stored with the hash
+     * @param iterations - the iteration count stored with the hash
+     * @return the hash, always the same length for a given hasher
+     */
+    byte[] hash(CharSequence pin, byte[] salt, int iterations);
+}
@@ -0,0 +1,160 @@
+package edu.northeastern.authenticator.core;
+
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.function.LongSupplier;
+
+/**
+ * Checks the user's PIN against a salted, stretched hash, and rate limits wrong guesses.
+ * Before this, the PIN was kept in plaintext and compared with String.equals.
+ * <p>
+ * Only the hash, its salt and iteration count are stored, along with how many wrong guesses there have been in a row
+ * and until when the PIN is locked because of them. The first FREE_ATTEMPTS wrong guesses cost nothing, after that
+ * every wrong guess doubles the lock out, starting at BASE_LOCKOUT_MILLIS and capped at MAX_LOCKOUT_MILLIS.
+ * <p>
+ * A guess is counted as wrong, and saved, before the PIN is even hashed, and only reset once it turns out to be right.
+ * That way killing the app in the middle of a check doesn't give the guess back.
+ * <p>
+ * The lock out is based on the wall clock, so it is a speed bump against guessing on the device, not a hard guarantee.
+ * What makes offline guessing expensive is the hasher: a 6 digit PIN only has a million possibilities, so the app uses
+ * a hasher keyed by the Android Keystore, which can't be run anywhere but on this device.
+ * @author James Bebarski
+ */
+public final class PinVerifier {
+
+    public static final int FREE_ATTEMPTS = 3;
+    public static final long BASE_LOCKOUT_MILLIS = 30_000L;
+    public static final long MAX_LOCKOUT_MILLIS = 60 * 60 * 1000L;
+
+    private static final int SALT_LENGTH = 16;
+
+    /**
+     * Where the PIN record is persisted, the secure preferences in the app.
+     * save() has to be durable by the time it returns, otherwise the attempt counter can be dodged.
+     */
+    public interface Store {
+        /**
+         * @return the saved record, or null if no PIN has been set up
+         */
+        Record load() throws Exception;
+
+        void save(Record record) throws Exception;
+    }
+
+    /**
+     * Everything that is persisted about the PIN. Immutable.
+     */
+    public static final class Record {
+        public final byte[] salt;
+        public final byte[] hash;
+        public final int iterations;
+        public final int failedAttempts;
+        public final long lockedUntilMillis;
+
+        public Record(byte[] salt, byte[] hash, int iterations, int failedAttempts, long lockedUntilMillis) {
+            this.salt = salt;
+            this.hash = hash;
+            this.iterations = iterations;
+            this.failedAttempts = failedAttempts;
+            this.lockedUntilMillis = lockedUntilMillis;
+        }
+
+        Record withAttempts(int failedAttempts, long lockedUntilMillis) {
+            return new Record(salt, hash, iterations, failedAttempts, lockedUntilMillis);
+        }
+    }
+
+    public enum Status { MATCH, MISMATCH, LOCKED_OUT, NOT_ENROLLED }
+
+    /**
+     * The outcome of verify().
+     */
+    public static final class Result {
+        public final Status status;
+        // How long until the next guess is allowed, 0 if it is allowed right away
+        public final long retryAfterMillis;
+
+        Result(Status status, long retryAfterMillis) {
+            this.status = status;
+            this.retryAfterMillis = retryAfterMillis;
+        }
+
+        public boolean isMatch() { return status == Status.MATCH; }
+
+        @Override
+        public String toString() { return status + (retryAfterMillis > 0 ? " (retry after " + retryAfterMillis + " ms)" : ""); }
+    }
+
+    private final Store store;
+    private final PinHasher hasher;
+    private final LongSupplier clock;
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * @param store - where the PIN record is persisted
+     * @param hasher - how the PIN is hashed
+     * @param clock - the current time in milliseconds, System::currentTimeMillis outside of tests
+     */
+    public PinVerifier(Store store, PinHasher hasher, LongSupplier clock) {
+        this.store = store;
+        this.hasher = hasher;
+        this.clock = clock;
+    }
+
+    /**
+     * Set up a new PIN, replacing any previous one and clearing the attempt counter.
+     *
+     * @param pin - the new PIN
+     * @param iterations - the iteration count to hash it with, see BackupCodeKdf.calibrateIterations
+     */
+    public synchronized void enroll(CharSequence pin, int iterations) throws Exception {
+        byte[] salt = new byte[SALT_LENGTH];
+        random.nextBytes(salt);
+        store.save(new Record(salt, hasher.hash(pin, salt, iterations), iterations, 0, 0L));
+    }
+
+    /**
+     * @return true if a PIN has been set up
+     */
+    public boolean isEnrolled() throws Exception { return store.load() != null; }
+
+    /**
+     * Check the entered PIN. This is slow on purpose (it runs the hasher), so keep it off the main thread.
+     *
+     * @param pin - the PIN the user entered
+     * @return MATCH, MISMATCH (with how long until the next guess is allowed), LOCKED_OUT if a guess isn't allowed yet,
+     * or NOT_ENROLLED if there is no PIN to check against
+     */
+    public synchronized Result verify(CharSequence pin) throws Exception {
+        Record record = store.load();
+        if (record == null) { return new Result(Status.NOT_ENROLLED, 0L); }
+
+        long now = clock.getAsLong();
+        if (now < record.lockedUntilMillis) {
+            return new Result(Status.LOCKED_OUT, record.lockedUntilMillis - now);
+        }
+
+        // Count this as a wrong guess up front, see the class comment
+        int failedAttempts = record.failedAttempts + 1;
+        long lockedUntil = now + lockoutMillis(failedAttempts);
+        store.save(record.withAttempts(failedAttempts, lockedUntil));
+
+        if (MessageDigest.isEqual(hasher.hash(pin, record.salt, record.iterations), record.hash)) {
+            store.save(record.withAttempts(0, 0L));
+            return new Result(Status.MATCH, 0L);
+        }
+        return new Result(Status.MISMATCH, lockedUntil - now);
+    }
+
+    /**
+     * How long the PIN is locked after the given number of wrong guesses in a row.
+     *
+     * @param failedAttempts - wrong guesses in a row
+     * @return the lock out, 0 for the first FREE_ATTEMPTS
+     */
+    static long lockoutMillis(int failedAttempts) {
+        if (failedAttempts <= FREE_ATTEMPTS) { return 0L; }
+        int doublings = Math.min(failedAttempts - FREE_ATTEMPTS - 1, 30);
+        return Math.min(MAX_LOCKOUT_MILLIS, BASE_LOCKOUT_MILLIS << doublings);
+    }
+}
@@ -0,0 +1,143 @@
+package edu.northeastern.authenticator.core;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * The 12 hashed backup codes stored in users/{uid}.backupCodes, parsed once so they can be verified as many times as needed.
+ * Each entry is a BackupCodeHash, so a user can have PBKDF2 and legacy SHA-256 hashes at the same time.
+ * <p>
+ * verify() checks every entered code, and doesn't stop at the first mismatch, so the result says exactly
+ * which fields are wrong instead of just the first one.
+ * With PBKDF2 each code is deliberately slow to check, so there is also a version that spreads the codes over an Executor.
+ * @author James Bebarski
+ */
+public final class StoredBackupCodes {
+
+    /**
+     * The result of verify() when every code matched, one bit per code.
+     */
+    public static final int ALL_VERIFIED = (1 << BackupCodeHasher.BACKUP_CODE_COUNT) - 1;
+
+    private final BackupCodeHash[] hashes;
+
+    private StoredBackupCodes(BackupCodeHash[] hashes) { this.hashes = hashes; }
+
+    /**
+     * Parse the backupCodes field of a user document.
+     *
+     * @param backupCodes - the value of the backupCodes field, as Firestore returns it
+     * @return the parsed backup codes
+     * @throws IllegalArgumentException - if the field isn't a list of 12 valid BackupCodeHash entries
+     */
+    public static StoredBackupCodes parse(Object backupCodes) {
+        if (!(backupCodes instanceof List)) {
+            throw new IllegalArgumentException("Invalid format for backup codes");
+        }
+        List<?> entries = (List<?>) backupCodes;
+        if (entries.size() != BackupCodeHasher.BACKUP_CODE_COUNT) {
+            throw new IllegalArgumentException("Expected " + BackupCodeHasher.BACKUP_CODE_COUNT + " backup codes, found " + entries.size());
+        }
+
+        BackupCodeHash[] hashes = new BackupCodeHash[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            if (!(entries.get(i) instanceof Map)) {
+                throw new IllegalArgumentException("Invalid format for backup code " + (i + 1));
+            }
+            try {
+                hashes[i] = BackupCodeHash.parse((Map<?, ?>) entries.get(i));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid format for backup code " + (i + 1), e);
+            }
+        }
+        return new StoredBackupCodes(hashes);
+    }
+
+    /**
+     * Verify every entered code against the stored one in the same position, one after the other on the calling thread.
+     *
+     * @param enteredCodes - the 12 codes the user entered, in order
+     * @return a bitmap with bit i set if code i matched, ALL_VERIFIED if every code matched
+     */
+    public int verify(CharSequence[] enteredCodes) {
+        int verified = 0;
+        for (int i = 0; i < hashes.length; i++) {
+            if (verifyCode(enteredCodes, i)) { verified |= 1 << i; }
+        }
+        return verified;
+    }
+
+    /**
+     * Same as verify(enteredCodes), but every code is checked as its own task on the executor,
+     * and this blocks until all of them are done. Don't call it from one of the executor's own threads.
+     *
+     * @param enteredCodes - the 12 codes the user entered, in order
+     * @param executor - where the codes are checked
+     * @return a bitmap with bit i set if code i matched, ALL_VERIFIED if every code matched
+     */
+    public int verify(CharSequence[] enteredCodes, Executor executor) {
+        List<CompletableFuture<Boolean>> results = new ArrayList<>(hashes.length);
+        for (int i = 0; i < hashes.length; i++) {
+            int index = i;
+            results.add(CompletableFuture.supplyAsync(() -> verifyCode(enteredCodes, index), executor));
+        }
+
+        int verified = 0;
+        for (int i = 0; i < hashes.length; i++) {
+            if (results.get(i).join()) { verified |= 1 << i; }
+        }
+        return verified;
+    }
+
+    private boolean verifyCode(CharSequence[] enteredCodes, int index) {
+        CharSequence entered = index < enteredCodes.length ? enteredCodes[index] : null;
+        return entered != null && hashes[index].verify(entered);
+    }
+
+    /**
+     * @param targetIterations - the iteration count we would hash with today
+     * @return true if any of the codes is still in the legacy format or was hashed with fewer iterations
+     */
+    public boolean needsRehash(int targetIterations) {
+        for (BackupCodeHash hash : hashes) {
+            if (hash.needsRehash(targetIterations)) { return true; }
+        }
+        return false;
+    }
+
+    /**
+     * Hash the codes again with PBKDF2 and new salts, once they're known to be correct (verify() returned ALL_VERIFIED).
+     * Codes that are already good enough are kept as they are.
+     *
+     * @param verifiedCodes - the 12 codes the user entered, in order
+     * @param iterations - the iteration count, see BackupCodeKdf.calibrateIterations
+     * @param random - where the salts come from
+     * @param executor - where the codes are hashed, like verify(enteredCodes, executor)
+     * @return the new value for the backupCodes field
+     */
+    public List<Map<String, Object>> rehash(CharSequence[] verifiedCodes, int iterations, SecureRandom random, Executor executor) {
+        List<CompletableFuture<BackupCodeHash>> rehashed = new ArrayList<>(hashes.length);
+        for (int i = 0; i < hashes.length; i++) {
+            BackupCodeHash hash = hashes[i];
+            CharSequence code = verifiedCodes[i];
+            rehashed.add(hash.needsRehash(iterations)
+                    ? CompletableFuture.supplyAsync(() -> BackupCodeHash.pbkdf2(code, iterations, random), executor)
+                    : CompletableFuture.completedFuture(hash));
+        }
+
+        List<Map<String, Object>> backupCodes = new ArrayList<>(hashes.length);
+        for (CompletableFuture<BackupCodeHash> hash : rehashed) { backupCodes.add(hash.join().toMap()); }
+        return backupCodes;
+    }
+
+    /**
+     * @param verified - a bitmap returned by verify()
+     * @param index - the position of the code
+     * @return true if the code at that position matched
+     */
+    public static boolean isVerified(int verified, int index) { return (verified & (1 << index)) != 0; }
+}
@@ -0,0 +1,150 @@
+package edu.northeastern.authenticator.core;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A fixed size ring buffer of the most recent finished spans (see Tracer), so there is always a record of where the time went
+ * in the last few hundred Firestore, Keystore, hashing and prompt calls, without it growing for as long as the app runs.
+ * Once it's full, every new span overwrites the oldest one.
+ * <p>
+ * The slots are plain parallel arrays filled in place, so recording a span doesn't allocate.
+ * Spans are recorded from whichever thread ended them, so recording and reading are synchronized.
+ * The lock is only ever held for a few array writes, and the spans being recorded are all far slower than that.
+ * @author James Bebarski
+ */
+public final class TraceBuffer {
+
+    /**
+     * One finished span, as read back out of the buffer.
+     */
+    public static final class Entry {
+        public final Tracer.Category category;
+        public final String name;
+        public final String thread;
+        public final long startMillis;
+        public final long durationNanos;
+
+        Entry(Tracer.Category category, String name, String thread, long startMillis, long durationNanos) {
+            this.category = category;
+            this.name = name;
+            this.thread = thread;
+            this.startMillis = startMillis;
+            this.durationNanos = durationNanos;
+        }
+
+        @Override
+        public String toString() { return category + " " + name + " " + durationNanos / 1_000 + "us on " + thread; }
+    }
+
+    private final Tracer.Category[] categories;
+    private final String[] names;
+    private final String[] threads;
+    private final long[] startMillis;
+    private final long[] durationNanos;
+    private long recorded;
+
+    /**
+     * @param capacity - how many spans to keep
+     */
+    public TraceBuffer(int capacity) {
+        if (capacity < 1) { throw new IllegalArgumentException("capacity must be at least 1"); }
+        categories = new Tracer.Category[capacity];
+        names = new String[capacity];
+        threads = new String[capacity];
+        startMillis = new long[capacity];
+        durationNanos = new long[capacity];
+    }
+
+    /**
+     * Record a finished span, overwriting the oldest one if the buffer is full.
+     * @param category - what kind of work the span was
+     * @param name - the span's name
+     * @param thread - the name of the thread the span started on
+     * @param startMillis - when the span started, wall clock
+     * @param durationNanos - how long it took
+     */
+    public synchronized void record(Tracer.Category category, String name, String thread, long startMillis, long durationNanos) {
+        int slot = (int) (recorded++ % names.length);
+        this.categories[slot] = category;
+        this.names[slot] = name;
+        this.threads[slot] = thread;
+        this.startMillis[slot] = startMillis;
+        this.durationNanos[slot] = durationNanos;
+    }
+
+    /**
+     * @return how many spans were ever recorded, including the ones that have since been overwritten
+     */
+    public synchronized long recorded() { return recorded; }
+
+    /**
+     * @return the spans still in the buffer, oldest first
+     */
+    public synchronized List<Entry> snapshot() {
+        int size = (int) Math.min(recorded, names.length);
+        List<Entry> entries = new ArrayList<>(size);
+        for (long i = recorded - size; i < recorded; i++) {
+            int slot = (int) (i % names.length);
+            entries.add(new Entry(categories[slot], names[slot], threads[slot], startMillis[slot], durationNanos[slot]));
+        }
+        return entries;
+    }
+
+    public synchronized void clear() {
+        recorded = 0;
+        Arrays.fill(categories, null);
+        Arrays.fill(names, null);
+        Arrays.fill(threads, null);
+    }
+
+    /**
+     * Write the spans in the buffer out as text: every span oldest first, as CSV, then the total time per category,
+     * then the percentiles per span name. Durations are in micros.
+     * The totals are what tell you whether the time went to the network, to crypto or to the UI.
+     * @param writer - where to write, left open
+     * @throws IOException - if writing fails
+     */
+    public void dump(Writer writer) throws IOException {
+        List<Entry> entries = snapshot();
+        Map<Tracer.Category, LatencySummary> byCategory = new EnumMap<>(Tracer.Category.class);
+        Map<String, LatencySummary> byName = new TreeMap<>();
+
+        writer.write("# " + entries.size() + " spans, oldest first, " + recorded() + " recorded in total\n");
+        writer.write("startMillis,durationMicros,category,thread,name\n");
+        for (Entry entry : entries) {
+            long micros = entry.durationNanos / 1_000;
+            writer.write(entry.startMillis + "," + micros + "," + entry.category + "," + entry.thread + "," + entry.name + "\n");
+            summaryOf(byCategory, entry.category).add(micros);
+            summaryOf(byName, entry.name).add(micros);
+        }
+
+        writer.write("\n# Total per category\n");
+        for (Map.Entry<Tracer.Category, LatencySummary> category : byCategory.entrySet()) {
+            writer.write(category.getKey() + " n=" + category.getValue().count() + " totalMicros=" + category.getValue().sum() + "\n");
+        }
+
+        writer.write("\n# Per span, in micros\n");
+        for (Map.Entry<String, LatencySummary> name : byName.entrySet()) {
+            LatencySummary summary = name.getValue();
+            writer.write(name.getKey() + " n=" + summary.count() + " p50=" + summary.percentile(50) + " p95=" + summary.percentile(95)
+                    + " max=" + summary.percentile(100) + "\n");
+        }
+        writer.flush();
+    }
+
+    private static <K> LatencySummary summaryOf(Map<K, LatencySummary> summaries, K key) {
+        LatencySummary summary = summaries.get(key);
+        if (summary == null) {
+            summary = new LatencySummary();
+            summaries.put(key, summary);
+        }
+        return summary;
+    }
+}
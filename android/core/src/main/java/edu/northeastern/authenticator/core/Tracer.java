@@ -0,0 +1,142 @@
+package edu.northeastern.authenticator.core;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Spans around the slow calls in the setup and approval flows (every Firestore call, Keystore call, hash and prompt),
+ * so we can tell where the time goes, and whether it went to the network, to crypto or to the UI.
+ * <p>
+ * Every span does two things:
+ * <ul>
+ *     <li>It's passed to the Sections, which the app points at androidx.tracing (see AndroidTraceSections in the app),
+ *     so it shows up in a system trace, Perfetto, and in the macrobenchmarks' TraceSectionMetrics.</li>
+ *     <li>When it ends, it's timed into the TraceBuffer, a ring buffer of the most recent spans,
+ *     which the app can dump to a file, so there is something to look at even without a trace running.</li>
+ * </ul>
+ * There are two kinds of span. section() is for work that starts and ends on the same thread, used with try-with-resources,
+ * and becomes a regular trace section. begin() is for calls that finish somewhere else, like a Firestore Task or a BiometricPrompt,
+ * it can be ended from any thread and becomes an async trace section.
+ * <p>
+ * A span costs an allocation, two clock reads and a buffer write, which is nothing next to the calls being traced,
+ * but it isn't meant for tight loops.
+ * @author James Bebarski
+ */
+public final class Tracer {
+
+    /**
+     * What a span was waiting on, for the totals in the dump.
+     */
+    public enum Category { NETWORK, CRYPTO, UI }
+
+    /**
+     * Where the trace sections go, i.e. androidx.tracing.Trace in the app. Like Logger's sink, it's set once at startup.
+     */
+    public interface Sections {
+        void beginSection(String name);
+        void endSection();
+        void beginAsyncSection(String name, int cookie);
+        void endAsyncSection(String name, int cookie);
+    }
+
+    private static final Sections NONE = new Sections() {
+        @Override public void beginSection(String name) { }
+        @Override public void endSection() { }
+        @Override public void beginAsyncSection(String name, int cookie) { }
+        @Override public void endAsyncSection(String name, int cookie) { }
+    };
+
+    public static final int BUFFER_CAPACITY = 512;
+
+    private static final TraceBuffer buffer = new TraceBuffer(BUFFER_CAPACITY);
+    private static final AtomicInteger cookies = new AtomicInteger();
+
+    // Set once at startup, before anything is traced, so this is a plain field like Logger's sink
+    private static Sections sections = NONE;
+
+    private Tracer() { }
+
+    /**
+     * @param sections - where trace sections go from now on
+     */
+    public static void setSections(Sections sections) { Tracer.sections = sections; }
+
+    /**
+     * @return the ring buffer of the most recent spans
+     */
+    public static TraceBuffer buffer() { return buffer; }
+
+    /**
+     * Start a span that ends on the same thread, use it with try-with-resources.
+     * Sections on one thread have to nest, which try-with-resources takes care of.
+     * @param category - what the span is waiting on
+     * @param name - the span's name, e.g. "AuthenticationActivity.validatePin"
+     * @return the span, close it to end it
+     */
+    public static Span section(Category category, String name) {
+        sections.beginSection(name);
+        return new Span(category, name, 0);
+    }
+
+    /**
+     * Start a span that can end on any thread, e.g. in a Firestore or BiometricPrompt callback.
+     * @param category - what the span is waiting on
+     * @param name - the span's name, e.g. "Firestore.findPending"
+     * @return the span, call end() once the call has finished, or endWhenDone() with its future
+     */
+    public static Span begin(Category category, String name) {
+        int cookie = cookies.incrementAndGet();
+        if (cookie == 0) { cookie = cookies.incrementAndGet(); }
+        sections.beginAsyncSection(name, cookie);
+        return new Span(category, name, cookie);
+    }
+
+    /**
+     * One traced call. Ending it more than once only counts the first time,
+     * so a callback that can fire after an error or a cancel doesn't record the span twice.
+     */
+    public static final class Span implements AutoCloseable {
+
+        private final Category category;
+        private final String name;
+        private final String thread;
+        private final int cookie; // 0 for a section, which has to end on the thread it started on
+        private final long startMillis;
+        private final long startNanos;
+        private final AtomicBoolean ended = new AtomicBoolean();
+
+        private Span(Category category, String name, int cookie) {
+            this.category = category;
+            this.name = name;
+            this.thread = Thread.currentThread().getName();
+            this.cookie = cookie;
+            this.startMillis = System.currentTimeMillis();
+            this.startNanos = System.nanoTime();
+        }
+
+        public void end() {
+            long durationNanos = System.nanoTime() - startNanos;
+            if (!ended.compareAndSet(false, true)) { return; }
+            if (cookie == 0) {
+                sections.endSection();
+            } else {
+                sections.endAsyncSection(name, cookie);
+            }
+            buffer.record(category, name, thread, startMillis, durationNanos);
+        }
+
+        @Override
+        public void close() { end(); }
+
+        /**
+         * End the span when a future completes, however it completes.
+         * @param future - the traced call
+         * @return the same future, to keep chaining on
+         */
+        public <T> CompletableFuture<T> endWhenDone(CompletableFuture<T> future) {
+            future.whenComplete((result, e) -> end());
+            return future;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package edu.northeastern.authenticator.core;
+
+import java.util.Arrays;
+
+/**
+ * A prefix trie over the backup code wordlist, for suggesting words while the user types their codes.
+ * <p>
+ * It's built once, and kept entirely in primitive arrays indexed by node number, rather than as a node object per letter.
+ * The nodes are laid out breadth first, so the children of a node are next to each other and in alphabetical order.
+ * Since the words are sorted, the words below any node are a contiguous range of them, and every node keeps that range.
+ * So once the prefix's node is found, which is one step per typed letter, the suggestions are just the start of its range,
+ * already in alphabetical order (with the prefix itself first, if it's a word).
+ * <p>
+ * Lookups don't allocate: suggest() fills an int[] of word indexes the caller keeps around, and word() hands back
+ * the Strings built when the trie was, so a suggestion can be shown on every keystroke without creating any garbage.
+ * For the 6,640 word list that's about 16,000 nodes, around half a MB in all including the words, built in about a millisecond.
+ * <p>
+ * Immutable once built, so it can be shared between threads.
+ * @author James Bebarski
+ */
+public final class WordTrie {
+
+    public static final int ROOT = 0;
+    public static final int NO_NODE = -1;
+
+    private final String[] words;
+    // Per node: the letter leading to it, where its children start and how many there are, and the range of words below it
+    private final char[] letters;
+    private final int[] firstChild;
+    private final byte[] childCount;
+    private final int[] wordStart;
+    private final int[] wordEnd;
+
+    private WordTrie(String[] words, char[] letters, int[] firstChild, byte[] childCount, int[] wordStart, int[] wordEnd) {
+        this.words = words;
+        this.letters = letters;
+        this.firstChild = firstChild;
+        this.childCount = childCount;
+        this.wordStart = wordStart;
+        this.wordEnd = wordEnd;
+    }
+
+    /**
+     * Build the trie over every word in a wordlist.
+     * @param wordlist - the compiled wordlist
+     * @return the trie
+     */
+    public static WordTrie build(Wordlist wordlist) {
+        String[] words = new String[wordlist.size()];
+        for (int i = 0; i < words.length; i++) { words[i] = wordlist.word(i); }
+        return build(words);
+    }
+
+    /**
+     * Build the trie over a list of words.
+     * @param sortedWords - the words, sorted and without duplicates, as a Wordlist has them. The trie keeps this array
+     * @return the trie
+     */
+    static WordTrie build(String[] sortedWords) {
+        int maxNodes = 1;
+        for (String word : sortedWords) { maxNodes += word.length(); }
+        char[] letters = new char[maxNodes];
+        int[] firstChild = new int[maxNodes];
+        byte[] childCount = new byte[maxNodes];
+        int[] wordStart = new int[maxNodes];
+        int[] wordEnd = new int[maxNodes];
+        int[] depth = new int[maxNodes];
+
+        // The nodes array doubles as the breadth first queue, each node's children are appended as it's visited
+        int nodes = 1;
+        wordEnd[ROOT] = sortedWords.length;
+        for (int node = 0; node < nodes; node++) {
+            firstChild[node] = nodes;
+            int i = wordStart[node];
+            // The word that ends at this node, if there is one, sorts first and has no child
+            if (i < wordEnd[node] && sortedWords[i].length() == depth[node]) { i++; }
+            while (i < wordEnd[node]) {
+                char letter = sortedWords[i].charAt(depth[node]);
+                int end = i + 1;
+                while (end < wordEnd[node] && sortedWords[end].charAt(depth[node]) == letter) { end++; }
+                letters[nodes] = letter;
+                wordStart[nodes] = i;
+                wordEnd[nodes] = end;
+                depth[nodes] = depth[node] + 1;
+                nodes++;
+                childCount[node]++;
+                i = end;
+            }
+        }
+        return new WordTrie(sortedWords, Arrays.copyOf(letters, nodes), Arrays.copyOf(firstChild, nodes), Arrays.copyOf(childCount, nodes),
+                Arrays.copyOf(wordStart, nodes), Arrays.copyOf(wordEnd, nodes));
+    }
+
+    /**
+     * @return the number of nodes, including the root
+     */
+    public int nodeCount() { return letters.length; }
+
+    /**
+     * @return the number of words
+     */
+    public int size() { return words.length; }
+
+    /**
+     * @param index - a word index, e.g. from suggest()
+     * @return the word
+     */
+    public String word(int index) { return words[index]; }
+
+    /**
+     * Take one step down the trie.
+     * @param node - a node, ROOT to start with
+     * @param letter - the next letter typed
+     * @return the node for the prefix plus that letter, or NO_NODE if no word starts with it
+     */
+    public int child(int node, char letter) {
+        int first = firstChild[node];
+        int end = first + childCount[node];
+        for (int child = first; child < end; child++) {
+            if (letters[child] == letter) { return child; }
+            if (letters[child] > letter) { break; }
+        }
+        return NO_NODE;
+    }
+
+    /**
+     * @param prefix - what has been typed so far
+     * @return the node for the prefix, ROOT for an empty one, or NO_NODE if no word starts with it
+     */
+    public int find(CharSequence prefix) {
+        int node = ROOT;
+        for (int i = 0; i < prefix.length() && node != NO_NODE; i++) { node = child(node, prefix.charAt(i)); }
+        return node;
+    }
+
+    /**
+     * @param node - a node
+     * @return how many words start with the node's prefix
+     */
+    public int countBelow(int node) { return wordEnd[node] - wordStart[node]; }
+
+    /**
+     * Suggest completions for a prefix, in alphabetical order.
+     * @param node - the prefix's node, from find() or child()
+     * @param out - filled with the indexes of the first out.length words starting with the prefix, see word()
+     * @return how many suggestions were written to out
+     */
+    public int suggest(int node, int[] out) {
+        if (node == NO_NODE) { return 0; }
+        int count = Math.min(out.length, wordEnd[node] - wordStart[node]);
+        for (int i = 0; i < count; i++) { out[i] = wordStart[node] + i; }
+        return count;
+    }
+}
@@ -0,0 +1,210 @@
+package edu.northeastern.authenticator.core;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the compiled backup code wordlist (see WordlistCompiler), so the app can check entered codes are real words,
+ * and offer completions, without the text file and without building a HashSet of thousands of Strings.
+ * <p>
+ * Every word is at most MAX_LENGTH lowercase letters, which is what makes the format simple.
+ * A word is packed into a 40 bit key, one base 27 digit per letter (a is 1, z is 26, 0 pads the end),
+ * so comparing keys as numbers gives the same order as comparing the words, and the keys of every word with
+ * a given prefix are one contiguous range. The file is:
+ * <ul>
+ *     <li>MAGIC, VERSION and the word count, as ints</li>
+ *     <li>BUCKET_COUNT + 1 ints, the index of the first word in each bucket, where a word's bucket is its first two letters</li>
+ *     <li>the word count times 5 bytes, the keys in order</li>
+ * </ul>
+ * That's about 36 KB against 46 KB for the text, and nothing has to be parsed, so the reader works straight off
+ * a memory mapped file (the app maps its asset).
+ * <p>
+ * contains() goes to the word's bucket and binary searches it. The biggest bucket in the list has about 200 words,
+ * so a lookup is at most 8 key reads whatever the word, and doesn't allocate.
+ * A prefix of two letters or less is a range of whole buckets, so it is answered from the bucket index alone.
+ * <p>
+ * Thread safe, the buffer is only read with absolute gets.
+ * @author James Bebarski
+ */
+public final class Wordlist {
+
+    public static final int MAGIC = 0x574C5354; // "WLST"
+    public static final int VERSION = 1;
+    public static final int MAX_LENGTH = 8;
+
+    static final int KEY_BYTES = 5;
+    static final int RADIX = 27;
+    // Keys are bucketed on their first two digits, the first is 1-26 and the second 0-26 (0 for a one letter word)
+    static final int BUCKET_COUNT = RADIX * RADIX;
+    static final long BUCKET_DIVISOR = pow(RADIX, MAX_LENGTH - 2);
+    static final int HEADER_BYTES = 3 * 4 + (BUCKET_COUNT + 1) * 4;
+
+    private final ByteBuffer buffer;
+    private final int size;
+
+    private Wordlist(ByteBuffer buffer, int size) {
+        this.buffer = buffer;
+        this.size = size;
+    }
+
+    /**
+     * Read a compiled wordlist. Only the header is checked, the words are read from the buffer as they are needed,
+     * so the buffer must not change afterwards.
+     *
+     * @param buffer - the compiled wordlist, e.g. a MappedByteBuffer over the asset, from position 0
+     * @return the wordlist
+     * @throws IllegalArgumentException - if the buffer isn't a compiled wordlist this version can read
+     */
+    public static Wordlist read(ByteBuffer buffer) {
+        if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a compiled wordlist");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Unsupported wordlist version " + buffer.getInt(4));
+        }
+        int size = buffer.getInt(8);
+        if (size < 0 || buffer.limit() != HEADER_BYTES + (long) size * KEY_BYTES || buffer.getInt(12 + BUCKET_COUNT * 4) != size) {
+            throw new IllegalArgumentException("Truncated or corrupt wordlist");
+        }
+        return new Wordlist(buffer, size);
+    }
+
+    /**
+     * @return the number of words
+     */
+    public int size() { return size; }
+
+    /**
+     * @param index - between 0 and size() - 1
+     * @return the word at that index, in alphabetical order
+     */
+    public String word(int index) {
+        if (index < 0 || index >= size) { throw new IndexOutOfBoundsException("index " + index + ", size " + size); }
+        return decode(key(index));
+    }
+
+    /**
+     * Check a word is in the list, exactly as typed, so "Anchor" or "anchor " are not.
+     * @param word - the word to check
+     * @return true if it's one of the words
+     */
+    public boolean contains(CharSequence word) {
+        long key = encode(word);
+        if (key < 0) { return false; }
+        int bucket = (int) (key / BUCKET_DIVISOR);
+        int index = lowerBound(bucketStart(bucket), bucketStart(bucket + 1), key);
+        return index < bucketStart(bucket + 1) && key(index) == key;
+    }
+
+    /**
+     * Count the words starting with a prefix.
+     * @param prefix - the prefix, lowercase letters, empty for every word
+     * @return how many words start with it
+     */
+    public int countWithPrefix(CharSequence prefix) {
+        long[] range = new long[2];
+        if (!prefixRange(prefix, range)) { return 0; }
+        return (int) (range[1] - range[0]);
+    }
+
+    /**
+     * Get the words starting with a prefix, in alphabetical order.
+     * @param prefix - the prefix, lowercase letters
+     * @param limit - the most words to return
+     * @return up to limit words starting with the prefix
+     */
+    public List<String> withPrefix(CharSequence prefix, int limit) {
+        long[] range = new long[2];
+        if (!prefixRange(prefix, range)) { return new ArrayList<>(); }
+        int end = (int) Math.min(range[1], range[0] + limit);
+        List<String> words = new ArrayList<>(end - (int) range[0]);
+        for (int i = (int) range[0]; i < end; i++) { words.add(word(i)); }
+        return words;
+    }
+
+    /**
+     * Helper method to find the index range of the words starting with a prefix.
+     * @param prefix - the prefix
+     * @param range - filled with the first index and one past the last
+     * @return false if the prefix can't start any word
+     */
+    private boolean prefixRange(CharSequence prefix, long[] range) {
+        if (prefix.length() == 0) {
+            range[0] = 0;
+            range[1] = size;
+            return true;
+        }
+        long low = encode(prefix);
+        if (low < 0) { return false; }
+        // Every key starting with the prefix is between the prefix padded with 0s and the prefix padded with 26s
+        long high = low + pow(RADIX, MAX_LENGTH - prefix.length()) - 1;
+        int firstBucket = (int) (low / BUCKET_DIVISOR);
+        int lastBucket = (int) (high / BUCKET_DIVISOR);
+        if (prefix.length() <= 2) {
+            range[0] = bucketStart(firstBucket);
+            range[1] = bucketStart(lastBucket + 1);
+        } else {
+            range[0] = lowerBound(bucketStart(firstBucket), bucketStart(firstBucket + 1), low);
+            range[1] = lowerBound((int) range[0], bucketStart(firstBucket + 1), high + 1);
+        }
+        return true;
+    }
+
+    /**
+     * Helper method to binary search the keys.
+     * @return the index of the first key in [from, to) that is at least key, or to if there is none
+     */
+    private int lowerBound(int from, int to, long key) {
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+            if (key(middle) < key) { from = middle + 1; } else { to = middle; }
+        }
+        return from;
+    }
+
+    private int bucketStart(int bucket) { return buffer.getInt(12 + bucket * 4); }
+
+    private long key(int index) {
+        int offset = HEADER_BYTES + index * KEY_BYTES;
+        return (buffer.get(offset) & 0xFFL) << 32 | (buffer.getInt(offset + 1) & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Pack a word into its key.
+     * @param word - the word
+     * @return the key, or -1 if the word is empty, too long or has anything but lowercase letters in it
+     */
+    static long encode(CharSequence word) {
+        int length = word.length();
+        if (length == 0 || length > MAX_LENGTH) { return -1; }
+        long key = 0;
+        for (int i = 0; i < MAX_LENGTH; i++) {
+            int digit = 0;
+            if (i < length) {
+                char c = word.charAt(i);
+                if (c < 'a' || c > 'z') { return -1; }
+                digit = c - 'a' + 1;
+            }
+            key = key * RADIX + digit;
+        }
+        return key;
+    }
+
+    static String decode(long key) {
+        char[] letters = new char[MAX_LENGTH];
+        int length = 0;
+        for (long divisor = pow(RADIX, MAX_LENGTH - 1); divisor > 0; divisor /= RADIX) {
+            int digit = (int) (key / divisor % RADIX);
+            if (digit == 0) { break; }
+            letters[length++] = (char) ('a' + digit - 1);
+        }
+        return new String(letters, 0, length);
+    }
+
+    private static long pow(int base, int exponent) {
+        long result = 1;
+        for (int i = 0; i < exponent; i++) { result *= base; }
+        return result;
+    }
+}
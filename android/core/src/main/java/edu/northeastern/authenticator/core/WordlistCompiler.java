@@ -0,0 +1,78 @@
+package edu.northeastern.authenticator.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The build step that turns the web app's wordlist.txt into the binary wordlist the app ships as an asset (see Wordlist for the format).
+ * It's run by the :core:compileWordlist task, which the app's build depends on, so the asset can't drift from the text file.
+ * <p>
+ * Words are sorted and deduplicated here, so the text file doesn't have to be. Blank lines are skipped,
+ * anything else that isn't 1 to Wordlist.MAX_LENGTH lowercase letters fails the build, since the web app would happily
+ * hand it out as a backup code that the app could then never accept.
+ * @author James Bebarski
+ */
+public final class WordlistCompiler {
+
+    private WordlistCompiler() { }
+
+    /**
+     * Compile a list of words.
+     * @param words - the words, in any order
+     * @return the compiled wordlist
+     * @throws IllegalArgumentException - if a word can't be encoded
+     */
+    public static byte[] compile(List<String> words) {
+        long[] keys = new long[words.size()];
+        int count = 0;
+        for (int i = 0; i < words.size(); i++) {
+            String word = words.get(i).trim();
+            if (word.isEmpty()) { continue; }
+            long key = Wordlist.encode(word);
+            if (key < 0) {
+                throw new IllegalArgumentException("Line " + (i + 1) + ": \"" + word + "\" isn't 1 to " + Wordlist.MAX_LENGTH + " lowercase letters");
+            }
+            keys[count++] = key;
+        }
+        Arrays.sort(keys, 0, count);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || keys[i] != keys[unique - 1]) { keys[unique++] = keys[i]; }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(Wordlist.HEADER_BYTES + unique * Wordlist.KEY_BYTES);
+        buffer.putInt(Wordlist.MAGIC).putInt(Wordlist.VERSION).putInt(unique);
+        int index = 0;
+        for (int bucket = 0; bucket <= Wordlist.BUCKET_COUNT; bucket++) {
+            while (index < unique && keys[index] / Wordlist.BUCKET_DIVISOR < bucket) { index++; }
+            buffer.putInt(index);
+        }
+        for (int i = 0; i < unique; i++) {
+            buffer.put((byte) (keys[i] >>> 32)).putInt((int) keys[i]);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Compile a wordlist file, one word per line.
+     * @param args - the wordlist.txt to read and the file to write
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: WordlistCompiler <wordlist.txt> <wordlist.bin>");
+            System.exit(2);
+        }
+        Path input = Paths.get(args[0]);
+        Path output = Paths.get(args[1]);
+        byte[] compiled = compile(Files.readAllLines(input, StandardCharsets.UTF_8));
+        if (output.getParent() != null) { Files.createDirectories(output.getParent()); }
+        Files.write(output, compiled);
+        System.out.println("Compiled " + Wordlist.read(ByteBuffer.wrap(compiled)).size() + " words into " + compiled.length + " bytes: " + output);
+    }
+}
@@ -0,0 +1,71 @@
+package edu.northeastern.authenticator.core;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class ApprovalStatementTest {
+
+    private static KeyPair keyPair;
+
+    @BeforeClass
+    public static void generateKey() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        keyPair = generator.generateKeyPair();
+    }
+
+    private static byte[] sign(ApprovalStatement statement) throws Exception {
+        Signature signer = Signature.getInstance(ApprovalStatement.SIGNATURE_ALGORITHM);
+        signer.initSign(keyPair.getPrivate());
+        signer.update(statement.toBytes());
+        return signer.sign();
+    }
+
+    @Test
+    public void toBytes_isTheDocumentedLayout() {
+        ApprovalStatement statement = new ApprovalStatement("user", 1234L, Arrays.asList("s1", "s2"), Collections.singletonList("s3"));
+        assertEquals("authenticator-approval-v1\nuser\n1234\nA:s1\nA:s2\nD:s3\n", new String(statement.toBytes(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void signature_verifiesWithTheRegisteredKey() throws Exception {
+        ApprovalStatement statement = new ApprovalStatement("user", 1234L, Collections.singletonList("s1"), Collections.emptyList());
+        PublicKey registered = ApprovalStatement.decodePublicKey(ApprovalStatement.encodePublicKey(keyPair.getPublic()));
+
+        assertTrue(statement.verify(registered, sign(statement)));
+    }
+
+    @Test
+    public void signature_doesNotCarryOverToAnotherStatement() throws Exception {
+        ApprovalStatement signed = new ApprovalStatement("user", 1234L, Collections.singletonList("s1"), Collections.singletonList("s2"));
+        byte[] signature = sign(signed);
+
+        // The same attempts the other way around, a different attempt, a different time, a different user
+        assertFalse(new ApprovalStatement("user", 1234L, Collections.singletonList("s2"), Collections.singletonList("s1")).verify(keyPair.getPublic(), signature));
+        assertFalse(new ApprovalStatement("user", 1234L, Collections.singletonList("s3"), Collections.singletonList("s2")).verify(keyPair.getPublic(), signature));
+        assertFalse(new ApprovalStatement("user", 1235L, Collections.singletonList("s1"), Collections.singletonList("s2")).verify(keyPair.getPublic(), signature));
+        assertFalse(new ApprovalStatement("other", 1234L, Collections.singletonList("s1"), Collections.singletonList("s2")).verify(keyPair.getPublic(), signature));
+    }
+
+    @Test
+    public void malformedSignature_isRejectedNotThrown() {
+        ApprovalStatement statement = new ApprovalStatement("user", 1234L, Collections.singletonList("s1"), Collections.emptyList());
+        assertFalse(statement.verify(keyPair.getPublic(), new byte[] {1, 2, 3}));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sessionIdWithNewline_isRejected() {
+        new ApprovalStatement("user", 1234L, Collections.singletonList("s1\nA:s2"), Collections.emptyList());
+    }
+}
@@ -0,0 +1,70 @@
+package edu.northeastern.authenticator.core;
+
+import org.junit.Test;
+
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class BackupCodeHashTest {
+
+    private static final int ITERATIONS = BackupCodeKdf.MIN_ITERATIONS;
+
+    @Test
+    public void legacyEntry_withoutAlg_isVerifiedAsSha256() {
+        Map<String, Object> entry = new HashMap<>();
+        entry.put("salt", "1712000000000");
+        entry.put("hash", BackupCodeHasher.hashWordWithSalt("anchor", "1712000000000"));
+
+        BackupCodeHash hash = BackupCodeHash.parse(entry);
+
+        assertEquals(BackupCodeHash.ALG_SHA256, hash.getAlgorithm());
+        assertTrue(hash.verify("anchor"));
+        assertFalse(hash.verify("anchors"));
+        assertTrue(hash.needsRehash(ITERATIONS));
+    }
+
+    @Test
+    public void pbkdf2_roundTripsThroughTheStoredFormat() {
+        BackupCodeHash hash = BackupCodeHash.parse(BackupCodeHash.pbkdf2("bramble", ITERATIONS, new SecureRandom()).toMap());
+
+        assertEquals(BackupCodeHash.ALG_PBKDF2_SHA256, hash.getAlgorithm());
+        assertEquals(ITERATIONS, hash.getIterations());
+        assertTrue(hash.verify("bramble"));
+        assertFalse(hash.verify("Bramble"));
+        assertFalse(hash.needsRehash(ITERATIONS));
+        assertTrue(hash.needsRehash(ITERATIONS + 1));
+    }
+
+    @Test
+    public void pbkdf2_acceptsTheLongFirestoreReturnsForIterations() {
+        Map<String, Object> entry = new HashMap<>(BackupCodeHash.pbkdf2("cobalt", ITERATIONS, new SecureRandom()).toMap());
+        entry.put("iterations", (long) ITERATIONS);
+        assertTrue(BackupCodeHash.parse(entry).verify("cobalt"));
+    }
+
+    @Test
+    public void pbkdf2_withMalformedHash_doesNotVerify() {
+        Map<String, Object> entry = new HashMap<>(BackupCodeHash.pbkdf2("drizzle", ITERATIONS, new SecureRandom()).toMap());
+        entry.put("hash", "not hex");
+        assertFalse(BackupCodeHash.parse(entry).verify("drizzle"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parse_rejectsUnknownAlgorithms() {
+        Map<String, Object> entry = new HashMap<>();
+        entry.put("alg", "md5");
+        entry.put("salt", "00");
+        entry.put("hash", "00");
+        BackupCodeHash.parse(entry);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parse_rejectsIterationCountsAboveTheMaximum() {
+        Map<String, Object> entry = new HashMap<>(BackupCodeHash.pbkdf2("ember", ITERATIONS, new SecureRandom()).toMap());
+        entry.put("iterations", BackupCodeKdf.MAX_ITERATIONS + 1L);
+        BackupCodeHash.parse(entry);
+    }
+}
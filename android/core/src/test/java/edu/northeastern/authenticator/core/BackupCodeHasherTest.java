@@ -0,0 +1,24 @@
+package edu.northeastern.authenticator.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * The hashes have to match what RegistrationForm.hashWord produces in the browser with crypto.subtle.digest,
+ * so these check against known SHA-256 values.
+ */
+public class BackupCodeHasherTest {
+
+    @Test
+    public void hashWordWithSalt_matchesSha256OfWordPlusSalt() {
+        // SHA-256("abc")
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+                BackupCodeHasher.hashWordWithSalt("a", "bc"));
+    }
+
+    @Test
+    public void bytesToHex_padsSingleDigitBytes() {
+        assertEquals("000fa0ff", BackupCodeHasher.bytesToHex(new byte[]{0x00, 0x0f, (byte) 0xa0, (byte) 0xff}));
+    }
+}
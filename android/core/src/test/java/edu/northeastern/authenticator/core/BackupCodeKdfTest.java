@@ -0,0 +1,47 @@
+package edu.northeastern.authenticator.core;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class BackupCodeKdfTest {
+
+    @Test
+    public void derive_matchesTheRfc7914TestVector() {
+        // PBKDF2-HMAC-SHA256, P = "passwd", S = "salt", c = 1, first 32 bytes of the 64 byte output
+        byte[] hash = BackupCodeKdf.derive("passwd", "salt".getBytes(StandardCharsets.US_ASCII), 1);
+        assertEquals("55ac046e56e3089fec1691c22544b605f94185216dde0465e68b9d57c20dacbc", BackupCodeHasher.bytesToHex(hash));
+    }
+
+    @Test
+    public void derive_matchesWebCrypto() {
+        // crypto.subtle.deriveBits({name: 'PBKDF2', hash: 'SHA-256', salt: [0..15], iterations: 10000}, 'lantern', 256),
+        // which is what RegistrationForm.hashWord does
+        byte[] salt = new byte[16];
+        for (int i = 0; i < salt.length; i++) { salt[i] = (byte) i; }
+        byte[] hash = BackupCodeKdf.derive("lantern", salt, 10_000);
+        assertEquals("829ef41517ee0ce5379a4d67cfc037954c41910503b6a7fe0579cfc581653fdb", BackupCodeHasher.bytesToHex(hash));
+    }
+
+    @Test
+    public void iterationsFor_scalesTheProbeToTheTarget() {
+        // 5,000 iterations in 2 ms, so 40 ms needs 100,000
+        assertEquals(100_000, BackupCodeKdf.iterationsFor(40_000_000L, 5_000, 2_000_000L));
+    }
+
+    @Test
+    public void iterationsFor_staysWithinBounds() {
+        assertEquals(BackupCodeKdf.MIN_ITERATIONS, BackupCodeKdf.iterationsFor(1_000L, 5_000, 2_000_000L));
+        assertEquals(BackupCodeKdf.MAX_ITERATIONS, BackupCodeKdf.iterationsFor(Long.MAX_VALUE / 2, 5_000, 1L));
+    }
+
+    @Test
+    public void targetNanosPerCode_splitsTheBudgetOverTheThreads() {
+        // 12 codes in 600 ms: 50 ms each on one thread, 200 ms each when 4 run at a time
+        assertEquals(50_000_000L, BackupCodeKdf.targetNanosPerCode(600_000_000L, 12, 1));
+        assertEquals(200_000_000L, BackupCodeKdf.targetNanosPerCode(600_000_000L, 12, 4));
+        assertEquals(600_000_000L, BackupCodeKdf.targetNanosPerCode(600_000_000L, 12, 64));
+    }
+}
@@ -0,0 +1,50 @@
+package edu.northeastern.authenticator.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * The verifier has to agree with BackupCodeHasher on every input, since that's what the web side's hashes match.
+ */
+public class BackupCodeVerifierTest {
+
+    @Test
+    public void verify_acceptsTheMatchingHash() {
+        String hash = BackupCodeHasher.hashWordWithSalt("lantern", "1712000000000");
+        assertTrue(BackupCodeVerifier.verify("lantern", "1712000000000", hash));
+        assertTrue(BackupCodeVerifier.verify("lantern", "1712000000000", hash.toUpperCase()));
+    }
+
+    @Test
+    public void verify_rejectsWrongWordOrSalt() {
+        String hash = BackupCodeHasher.hashWordWithSalt("lantern", "1712000000000");
+        assertFalse(BackupCodeVerifier.verify("lanterns", "1712000000000", hash));
+        assertFalse(BackupCodeVerifier.verify("lantern", "1712000000001", hash));
+        assertFalse(BackupCodeVerifier.verify("", "", hash));
+    }
+
+    @Test
+    public void verify_rejectsMalformedStoredHashes() {
+        String hash = BackupCodeHasher.hashWordWithSalt("lantern", "1712000000000");
+        assertFalse(BackupCodeVerifier.verify("lantern", "1712000000000", null));
+        assertFalse(BackupCodeVerifier.verify("lantern", "1712000000000", hash.substring(2)));
+        assertFalse(BackupCodeVerifier.verify("lantern", "1712000000000", "zz" + hash.substring(2)));
+    }
+
+    @Test
+    public void verify_encodesNonAsciiTheSameWayAsStringGetBytes() {
+        String[] words = {"caf\u00e9", "\u65e5\u672c", "\ud83d\udd11key", "broken\ud800surrogate"};
+        for (String word : words) {
+            assertTrue(word, BackupCodeVerifier.verify(word, "42", BackupCodeHasher.hashWordWithSalt(word, "42")));
+        }
+    }
+
+    @Test
+    public void verify_handlesCodesLongerThanTheScratchBuffer() {
+        StringBuilder longWord = new StringBuilder();
+        for (int i = 0; i < 200; i++) { longWord.append("abc"); }
+        String word = longWord.toString();
+        assertTrue(BackupCodeVerifier.verify(word, "1", BackupCodeHasher.hashWordWithSalt(word, "1")));
+    }
+}
@@ -0,0 +1,67 @@
+package edu.northeastern.authenticator.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencySummaryTest {
+
+    @Test
+    public void percentiles_useTheNearestRank() {
+        LatencySummary summary = new LatencySummary();
+        // Added out of order, 1..100
+        for (int i = 100; i >= 1; i--) { summary.add(i); }
+
+        assertEquals(100, summary.count());
+        assertEquals(1, summary.percentile(1));
+        assertEquals(50, summary.percentile(50));
+        assertEquals(95, summary.percentile(95));
+        assertEquals(99, summary.percentile(99));
+        assertEquals(100, summary.percentile(100));
+        assertEquals(5050, summary.sum());
+    }
+
+    @Test
+    public void fewSamples_percentileIsAlwaysARecordedSample() {
+        LatencySummary summary = new LatencySummary();
+        summary.add(10);
+        summary.add(1_000);
+
+        assertEquals(10, summary.percentile(50));
+        assertEquals(1_000, summary.percentile(51));
+        assertEquals(1_000, summary.percentile(99));
+    }
+
+    @Test
+    public void growsPastTheInitialCapacity_andSortsAgainAfterMoreSamples() {
+        LatencySummary summary = new LatencySummary();
+        for (int i = 0; i < 1_000; i++) { summary.add(5); }
+        assertEquals(5, summary.percentile(99));
+
+        for (int i = 0; i < 100; i++) { summary.add(7_000); }
+        assertEquals(1_100, summary.count());
+        assertEquals(5, summary.percentile(50));
+        assertEquals(7_000, summary.percentile(95));
+    }
+
+    @Test
+    public void negativeSamples_areCountedButNotRecorded() {
+        LatencySummary summary = new LatencySummary();
+        summary.add(-20);
+        summary.add(30);
+
+        assertEquals(1, summary.count());
+        assertEquals(1, summary.negativeCount());
+        assertEquals(30, summary.percentile(50));
+    }
+
+    @Test
+    public void empty_hasNoPercentiles() {
+        assertEquals(-1, new LatencySummary().percentile(50));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void percentileOutOfRange_isRejected() {
+        new LatencySummary().percentile(0);
+    }
+}
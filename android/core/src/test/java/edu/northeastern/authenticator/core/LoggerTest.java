@@ -0,0 +1,112 @@
+package edu.northeastern.authenticator.core;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LoggerTest {
+
+    private final List<String> lines = new ArrayList<>();
+    private final Logger log = Logger.get("LoggerTest");
+
+    @Before
+    public void setUp() {
+        Logger.setSink((level, tag, message, throwable) -> lines.add(level + " " + tag + " " + message + (throwable != null ? " !" : "")));
+        Logger.setMinLevel(Logger.DEBUG);
+    }
+
+    @After
+    public void tearDown() {
+        Logger.setSink((level, tag, message, throwable) -> { });
+        Logger.setMinLevel(Logger.DEBUG);
+    }
+
+    @Test
+    public void enabledLevels_areWrittenWithTheirTag() {
+        log.d("debug");
+        log.i("info");
+        log.e("error", new IllegalStateException());
+
+        assertEquals(3, lines.size());
+        assertEquals(Logger.DEBUG + " LoggerTest debug", lines.get(0));
+        assertEquals(Logger.INFO + " LoggerTest info", lines.get(1));
+        assertEquals(Logger.ERROR + " LoggerTest error !", lines.get(2));
+    }
+
+    @Test
+    public void disabledLevels_neverBuildTheMessage() {
+        Logger.setMinLevel(Logger.INFO);
+        log.v(() -> { throw new AssertionError("built a verbose message"); });
+        log.d(() -> { throw new AssertionError("built a debug message"); });
+        log.d("message", "key", new Object() {
+            @Override
+            public String toString() { throw new AssertionError("formatted a field"); }
+        });
+
+        assertTrue(lines.isEmpty());
+        assertFalse(log.isEnabled(Logger.DEBUG));
+        assertTrue(log.isEnabled(Logger.WARN));
+    }
+
+    @Test
+    public void fields_areAppendedAndSecretsRedacted() {
+        log.d("Checked backup codes", "matched", 11, "backupCode", "anchor");
+        log.d("PIN entered", "pin", "123456");
+        log.i("Signed", "signatureBytes", 70);
+
+        assertEquals(Logger.DEBUG + " LoggerTest Checked backup codes matched=11 backupCode=" + Logger.REDACTED, lines.get(0));
+        assertEquals(Logger.DEBUG + " LoggerTest PIN entered pin=" + Logger.REDACTED, lines.get(1));
+        assertEquals(Logger.INFO + " LoggerTest Signed signatureBytes=" + Logger.REDACTED, lines.get(2));
+    }
+
+    @Test
+    public void secretKeys_matchWholeWordsIgnoringCase() {
+        assertTrue(Logger.isSecret("PIN"));
+        assertTrue(Logger.isSecret("enteredPin"));
+        assertTrue(Logger.isSecret("pinHashes"));
+        assertTrue(Logger.isSecret("backup_codes"));
+        assertTrue(Logger.isSecret("backupCode"));
+        assertTrue(Logger.isSecret("code"));
+        assertTrue(Logger.isSecret("key"));
+        assertTrue(Logger.isSecret("approvalPublicKey"));
+        assertFalse(Logger.isSecret("sessionId"));
+        assertFalse(Logger.isSecret("depth"));
+        // "code" and "key" are only secrets in the right place, these are worth having in the logs
+        assertFalse(Logger.isSecret("errorCode"));
+        assertFalse(Logger.isSecret("statusCode"));
+        assertFalse(Logger.isSecret("keyAlias"));
+        // Nor does a secret word inside another word count
+        assertFalse(Logger.isSecret("spinner"));
+        assertFalse(Logger.isSecret("keyboard"));
+    }
+
+    @Test
+    public void sampled_writesEveryNthEventStartingWithTheFirst() {
+        Logger sampled = log.sampled(3);
+        for (int i = 0; i < 7; i++) {
+            int event = i;
+            sampled.d(() -> "event " + event);
+        }
+
+        assertEquals(3, lines.size());
+        assertEquals(Logger.DEBUG + " LoggerTest event 0 (1 in 3)", lines.get(0));
+        assertEquals(Logger.DEBUG + " LoggerTest event 3 (1 in 3)", lines.get(1));
+        assertEquals(Logger.DEBUG + " LoggerTest event 6 (1 in 3)", lines.get(2));
+    }
+
+    @Test
+    public void sampled_disabledEventsDontCount() {
+        Logger sampled = log.sampled(2);
+        sampled.v("dropped by level");
+        sampled.d("first");
+        sampled.d("second");
+
+        assertEquals(1, lines.size());
+        assertEquals(Logger.DEBUG + " LoggerTest first (1 in 2)", lines.get(0));
+    }
+}
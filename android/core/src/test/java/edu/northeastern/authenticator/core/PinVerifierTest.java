@@ -0,0 +1,100 @@
+package edu.northeastern.authenticator.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PinVerifierTest {
+
+    // Low, so the tests stay fast, the real count comes from calibration
+    private static final int ITERATIONS = 1_000;
+
+    private MemoryStore store;
+    private long now;
+
+    @Before
+    public void setUp() {
+        store = new MemoryStore();
+        now = 1_700_000_000_000L;
+    }
+
+    private PinVerifier newVerifier() { return new PinVerifier(store, PinHasher.PBKDF2, () -> now); }
+
+    @Test
+    public void verify_beforeEnrolling_isNotEnrolled() throws Exception {
+        assertEquals(PinVerifier.Status.NOT_ENROLLED, newVerifier().verify("123456").status);
+    }
+
+    @Test
+    public void verify_theEnrolledPin_matches() throws Exception {
+        PinVerifier verifier = newVerifier();
+        verifier.enroll("123456", ITERATIONS);
+
+        assertTrue(verifier.verify("123456").isMatch());
+        assertEquals(PinVerifier.Status.MISMATCH, verifier.verify("654321").status);
+        assertEquals(16, store.record.salt.length);
+    }
+
+    @Test
+    public void wrongGuesses_lockThePinWithExponentialBackoff() throws Exception {
+        PinVerifier verifier = newVerifier();
+        verifier.enroll("123456", ITERATIONS);
+
+        for (int i = 0; i < PinVerifier.FREE_ATTEMPTS; i++) {
+            assertEquals(0L, verifier.verify("000000").retryAfterMillis);
+        }
+        assertEquals(PinVerifier.BASE_LOCKOUT_MILLIS, verifier.verify("000000").retryAfterMillis);
+
+        // Even the right PIN is refused while locked out, without being checked
+        PinVerifier.Result lockedOut = verifier.verify("123456");
+        assertEquals(PinVerifier.Status.LOCKED_OUT, lockedOut.status);
+        assertEquals(PinVerifier.BASE_LOCKOUT_MILLIS, lockedOut.retryAfterMillis);
+
+        now += PinVerifier.BASE_LOCKOUT_MILLIS;
+        assertEquals(2 * PinVerifier.BASE_LOCKOUT_MILLIS, verifier.verify("000000").retryAfterMillis);
+
+        now += 2 * PinVerifier.BASE_LOCKOUT_MILLIS;
+        assertTrue(verifier.verify("123456").isMatch());
+        assertEquals(0, store.record.failedAttempts);
+    }
+
+    @Test
+    public void attemptCounter_survivesARestart() throws Exception {
+        newVerifier().enroll("123456", ITERATIONS);
+        for (int i = 0; i <= PinVerifier.FREE_ATTEMPTS; i++) { newVerifier().verify("000000"); }
+
+        assertEquals(PinVerifier.Status.LOCKED_OUT, newVerifier().verify("123456").status);
+    }
+
+    @Test
+    public void guess_isCountedBeforeThePinIsChecked() throws Exception {
+        newVerifier().enroll("123456", ITERATIONS);
+        PinVerifier crashing = new PinVerifier(store, (pin, salt, iterations) -> { throw new IllegalStateException("killed"); }, () -> now);
+
+        try {
+            crashing.verify("000000");
+            fail();
+        } catch (IllegalStateException expected) {
+            assertEquals(1, store.record.failedAttempts);
+        }
+    }
+
+    @Test
+    public void lockout_doublesUpToTheCap() {
+        assertEquals(0L, PinVerifier.lockoutMillis(PinVerifier.FREE_ATTEMPTS));
+        assertEquals(PinVerifier.BASE_LOCKOUT_MILLIS, PinVerifier.lockoutMillis(PinVerifier.FREE_ATTEMPTS + 1));
+        assertEquals(4 * PinVerifier.BASE_LOCKOUT_MILLIS, PinVerifier.lockoutMillis(PinVerifier.FREE_ATTEMPTS + 3));
+        assertEquals(PinVerifier.MAX_LOCKOUT_MILLIS, PinVerifier.lockoutMillis(1_000));
+    }
+
+    private static final class MemoryStore implements PinVerifier.Store {
+        PinVerifier.Record record;
+
+        @Override
+        public PinVerifier.Record load() { return record; }
+
+        @Override
+        public void save(PinVerifier.Record record) { this.record = record; }
+    }
+}
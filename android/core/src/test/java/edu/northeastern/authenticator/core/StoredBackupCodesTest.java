@@ -0,0 +1,96 @@
+package edu.northeastern.authenticator.core;
+
+import org.junit.Test;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+public class StoredBackupCodesTest {
+
+    private static final String[] WORDS = {"anchor", "bramble", "cobalt", "drizzle", "ember", "fathom",
+            "granite", "harbor", "inkwell", "juniper", "kestrel", "lantern"};
+
+    private static List<Map<String, Object>> firestoreBackupCodes() {
+        List<Map<String, Object>> codes = new ArrayList<>();
+        for (int i = 0; i < WORDS.length; i++) {
+            Map<String, Object> code = new HashMap<>();
+            code.put("salt", Long.toString(1712000000000L + i));
+            code.put("hash", BackupCodeHasher.hashWordWithSalt(WORDS[i], (String) code.get("salt")));
+            codes.add(code);
+        }
+        return codes;
+    }
+
+    @Test
+    public void verify_allCorrect() {
+        assertEquals(StoredBackupCodes.ALL_VERIFIED, StoredBackupCodes.parse(firestoreBackupCodes()).verify(WORDS));
+    }
+
+    @Test
+    public void verify_reportsEveryWrongField() {
+        String[] entered = WORDS.clone();
+        entered[1] = "brambel";
+        entered[10] = "";
+
+        int verified = StoredBackupCodes.parse(firestoreBackupCodes()).verify(entered);
+
+        for (int i = 0; i < entered.length; i++) {
+            assertEquals("field " + i, i != 1 && i != 10, StoredBackupCodes.isVerified(verified, i));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parse_rejectsTheWrongNumberOfCodes() {
+        List<Map<String, Object>> codes = firestoreBackupCodes();
+        codes.remove(0);
+        StoredBackupCodes.parse(codes);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parse_rejectsEntriesWithoutASalt() {
+        List<Map<String, Object>> codes = firestoreBackupCodes();
+        codes.get(3).remove("salt");
+        StoredBackupCodes.parse(codes);
+    }
+
+    @Test
+    public void verify_onAnExecutor_givesTheSameBitmap() {
+        String[] entered = WORDS.clone();
+        entered[0] = "anchors";
+        entered[7] = "harbour";
+        StoredBackupCodes backupCodes = StoredBackupCodes.parse(firestoreBackupCodes());
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            assertEquals(backupCodes.verify(entered), backupCodes.verify(entered, executor));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void rehash_upgradesLegacyCodesToPbkdf2() {
+        StoredBackupCodes legacy = StoredBackupCodes.parse(firestoreBackupCodes());
+        int iterations = BackupCodeKdf.MIN_ITERATIONS;
+        assertTrue(legacy.needsRehash(iterations));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Map<String, Object>> rehashed = legacy.rehash(WORDS, iterations, new SecureRandom(), executor);
+            StoredBackupCodes upgraded = StoredBackupCodes.parse(rehashed);
+
+            assertEquals(BackupCodeHash.ALG_PBKDF2_SHA256, rehashed.get(0).get("alg"));
+            assertFalse(upgraded.needsRehash(iterations));
+            assertEquals(StoredBackupCodes.ALL_VERIFIED, upgraded.verify(WORDS, executor));
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
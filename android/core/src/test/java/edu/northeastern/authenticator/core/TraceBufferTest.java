@@ -0,0 +1,72 @@
+package edu.northeastern.authenticator.core;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TraceBufferTest {
+
+    @Test
+    public void snapshot_isOldestFirst() {
+        TraceBuffer buffer = new TraceBuffer(4);
+        buffer.record(Tracer.Category.NETWORK, "first", "main", 1_000, 1_000_000);
+        buffer.record(Tracer.Category.CRYPTO, "second", "worker", 1_001, 2_000_000);
+
+        List<TraceBuffer.Entry> entries = buffer.snapshot();
+        assertEquals(2, entries.size());
+        assertEquals("first", entries.get(0).name);
+        assertEquals(Tracer.Category.NETWORK, entries.get(0).category);
+        assertEquals("second", entries.get(1).name);
+        assertEquals("worker", entries.get(1).thread);
+        assertEquals(2_000_000, entries.get(1).durationNanos);
+    }
+
+    @Test
+    public void full_overwritesTheOldest() {
+        TraceBuffer buffer = new TraceBuffer(3);
+        for (int i = 0; i < 7; i++) {
+            buffer.record(Tracer.Category.UI, "span" + i, "main", i, i);
+        }
+
+        List<TraceBuffer.Entry> entries = buffer.snapshot();
+        assertEquals(7, buffer.recorded());
+        assertEquals(3, entries.size());
+        assertEquals("span4", entries.get(0).name);
+        assertEquals("span5", entries.get(1).name);
+        assertEquals("span6", entries.get(2).name);
+    }
+
+    @Test
+    public void clear_emptiesTheBuffer() {
+        TraceBuffer buffer = new TraceBuffer(3);
+        buffer.record(Tracer.Category.UI, "span", "main", 0, 0);
+        buffer.clear();
+
+        assertEquals(0, buffer.recorded());
+        assertTrue(buffer.snapshot().isEmpty());
+    }
+
+    @Test
+    public void dump_hasEverySpanAndTheTotals() throws IOException {
+        TraceBuffer buffer = new TraceBuffer(8);
+        buffer.record(Tracer.Category.NETWORK, "Firestore.findPending", "main", 1_000, 40_000_000);
+        buffer.record(Tracer.Category.NETWORK, "Firestore.findPending", "main", 2_000, 60_000_000);
+        buffer.record(Tracer.Category.CRYPTO, "KeystorePinHasher.hmac", "pool-1", 3_000, 5_000_000);
+
+        StringWriter writer = new StringWriter();
+        buffer.dump(writer);
+        String text = writer.toString();
+
+        assertTrue(text.startsWith("# 3 spans, oldest first, 3 recorded in total\n"));
+        assertTrue(text.contains("1000,40000,NETWORK,main,Firestore.findPending\n"));
+        assertTrue(text.contains("3000,5000,CRYPTO,pool-1,KeystorePinHasher.hmac\n"));
+        assertTrue(text.contains("NETWORK n=2 totalMicros=100000\n"));
+        assertTrue(text.contains("CRYPTO n=1 totalMicros=5000\n"));
+        assertFalse(text.contains("UI n="));
+        assertTrue(text.contains("Firestore.findPending n=2 p50=40000 p95=60000 max=60000\n"));
+    }
+}
@@ -0,0 +1,98 @@
+package edu.northeastern.authenticator.core;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.*;
+
+public class TracerTest {
+
+    private final List<String> sections = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        Tracer.buffer().clear();
+        Tracer.setSections(new Tracer.Sections() {
+            @Override public void beginSection(String name) { sections.add("begin " + name); }
+            @Override public void endSection() { sections.add("end"); }
+            @Override public void beginAsyncSection(String name, int cookie) { sections.add("beginAsync " + name); }
+            @Override public void endAsyncSection(String name, int cookie) { sections.add("endAsync " + name); }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        Tracer.setSections(new Tracer.Sections() {
+            @Override public void beginSection(String name) { }
+            @Override public void endSection() { }
+            @Override public void beginAsyncSection(String name, int cookie) { }
+            @Override public void endAsyncSection(String name, int cookie) { }
+        });
+        Tracer.buffer().clear();
+    }
+
+    @Test
+    @SuppressWarnings("try")
+    public void section_isATraceSectionAndEndsUpInTheBuffer() {
+        try (Tracer.Span ignored = Tracer.section(Tracer.Category.CRYPTO, "outer")) {
+            try (Tracer.Span ignored2 = Tracer.section(Tracer.Category.CRYPTO, "inner")) {
+                sections.add("work");
+            }
+        }
+
+        assertEquals(5, sections.size());
+        assertEquals("begin outer", sections.get(0));
+        assertEquals("begin inner", sections.get(1));
+        assertEquals("end", sections.get(3));
+        assertEquals("end", sections.get(4));
+
+        List<TraceBuffer.Entry> entries = Tracer.buffer().snapshot();
+        assertEquals(2, entries.size());
+        assertEquals("inner", entries.get(0).name);
+        assertEquals("outer", entries.get(1).name);
+        assertEquals(Thread.currentThread().getName(), entries.get(1).thread);
+        assertTrue(entries.get(1).durationNanos >= entries.get(0).durationNanos);
+    }
+
+    @Test
+    public void begin_endsOnAnotherThreadAsAnAsyncSection() throws Exception {
+        Tracer.Span span = Tracer.begin(Tracer.Category.NETWORK, "Firestore.findPending");
+        Thread callback = new Thread(span::end);
+        callback.start();
+        callback.join();
+
+        assertEquals("beginAsync Firestore.findPending", sections.get(0));
+        assertEquals("endAsync Firestore.findPending", sections.get(1));
+        assertEquals(Tracer.Category.NETWORK, Tracer.buffer().snapshot().get(0).category);
+        // Recorded against the thread that started the call
+        assertEquals(Thread.currentThread().getName(), Tracer.buffer().snapshot().get(0).thread);
+    }
+
+    @Test
+    public void endWhenDone_endsOnceHoweverTheFutureCompletes() {
+        CompletableFuture<String> succeeded = new CompletableFuture<>();
+        CompletableFuture<String> failed = new CompletableFuture<>();
+        Tracer.begin(Tracer.Category.NETWORK, "succeeded").endWhenDone(succeeded);
+        Tracer.begin(Tracer.Category.NETWORK, "failed").endWhenDone(failed);
+        assertEquals(0, Tracer.buffer().recorded());
+
+        succeeded.complete("done");
+        failed.completeExceptionally(new IllegalStateException());
+        assertEquals(2, Tracer.buffer().recorded());
+    }
+
+    @Test
+    public void end_onlyCountsTheFirstTime() {
+        Tracer.Span span = Tracer.begin(Tracer.Category.UI, "BiometricPrompt.approve");
+        span.end();
+        span.end();
+
+        assertEquals(1, Tracer.buffer().recorded());
+        assertEquals(2, sections.size());
+    }
+}
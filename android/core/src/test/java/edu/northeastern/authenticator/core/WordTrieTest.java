@@ -0,0 +1,62 @@
+package edu.northeastern.authenticator.core;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class WordTrieTest {
+
+    private static final WordTrie trie = WordTrie.build(Wordlist.read(ByteBuffer.wrap(WordlistCompiler.compile(Arrays.asList(
+            "cobalt", "cob", "anchor", "anchors", "ability", "able", "abortion", "bramble", "zoom")))));
+
+    private static String[] suggestions(String prefix, int limit) {
+        int[] out = new int[limit];
+        int count = trie.suggest(trie.find(prefix), out);
+        String[] words = new String[count];
+        for (int i = 0; i < count; i++) { words[i] = trie.word(out[i]); }
+        return words;
+    }
+
+    @Test
+    public void suggest_isAlphabeticalWithAnExactMatchFirst() {
+        assertArrayEquals(new String[] {"ability", "able", "abortion"}, suggestions("ab", 5));
+        assertArrayEquals(new String[] {"anchor", "anchors"}, suggestions("anchor", 5));
+        assertArrayEquals(new String[] {"cob", "cobalt"}, suggestions("co", 5));
+        assertArrayEquals(new String[] {"zoom"}, suggestions("zoom", 5));
+    }
+
+    @Test
+    public void suggest_stopsAtTheLimit() {
+        assertArrayEquals(new String[] {"ability", "able", "abortion", "anchor"}, suggestions("", 4));
+        assertArrayEquals(new String[] {"ability"}, suggestions("a", 1));
+    }
+
+    @Test
+    public void unknownPrefixes_haveNoNodeAndNoSuggestions() {
+        assertEquals(WordTrie.NO_NODE, trie.find("abx"));
+        assertEquals(WordTrie.NO_NODE, trie.find("zooms"));
+        assertEquals(WordTrie.NO_NODE, trie.find("Ab"));
+        assertEquals(0, suggestions("q", 3).length);
+    }
+
+    @Test
+    public void child_stepsOneLetterAtATime() {
+        int node = WordTrie.ROOT;
+        for (char letter : "anch".toCharArray()) {
+            node = trie.child(node, letter);
+            assertNotEquals(WordTrie.NO_NODE, node);
+        }
+        assertEquals(trie.find("anch"), node);
+        assertEquals(2, trie.countBelow(node));
+        assertEquals(9, trie.countBelow(WordTrie.ROOT));
+    }
+
+    @Test
+    public void nodes_areOnePerDistinctPrefix() {
+        // root, a, ab, abi..ability (5), abl, able, abo..abortion (6), an..anchors (6), b..bramble (7), c, co, cob, coba..cobalt (3), z..zoom (4)
+        assertEquals(1 + 1 + 1 + 5 + 2 + 6 + 6 + 7 + 3 + 3 + 4, trie.nodeCount());
+    }
+}
@@ -0,0 +1,96 @@
+package edu.northeastern.authenticator.core;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class WordlistTest {
+
+    private static final List<String> WORDS = Arrays.asList(
+            "zshops", "anchor", "a", "able", "ability", "ab", "abortion", "bramble", "cobalt", "cob", "zoom", "zope", "anchors");
+
+    private static Wordlist compiled(List<String> words) { return Wordlist.read(ByteBuffer.wrap(WordlistCompiler.compile(words))); }
+
+    @Test
+    public void words_areSortedLikeStrings() {
+        Wordlist wordlist = compiled(WORDS);
+        List<String> sorted = new ArrayList<>(WORDS);
+        Collections.sort(sorted);
+
+        assertEquals(sorted.size(), wordlist.size());
+        for (int i = 0; i < sorted.size(); i++) {
+            assertEquals(sorted.get(i), wordlist.word(i));
+        }
+    }
+
+    @Test
+    public void contains_onlyMatchesExactWords() {
+        Wordlist wordlist = compiled(WORDS);
+        for (String word : WORDS) {
+            assertTrue(word, wordlist.contains(word));
+        }
+        assertFalse(wordlist.contains("anch"));
+        assertFalse(wordlist.contains("anchorss"));
+        assertFalse(wordlist.contains("b"));
+        assertFalse(wordlist.contains("Anchor"));
+        assertFalse(wordlist.contains("anchor "));
+        assertFalse(wordlist.contains("toolongword"));
+        assertFalse(wordlist.contains(""));
+    }
+
+    @Test
+    public void prefixes_findEveryWordStartingWithThem() {
+        Wordlist wordlist = compiled(WORDS);
+
+        assertEquals(WORDS.size(), wordlist.countWithPrefix(""));
+        assertEquals(7, wordlist.countWithPrefix("a"));
+        assertEquals(4, wordlist.countWithPrefix("ab"));
+        assertEquals(Arrays.asList("ab", "ability"), wordlist.withPrefix("ab", 2));
+        assertEquals(Arrays.asList("able"), wordlist.withPrefix("abl", 10));
+        assertEquals(Arrays.asList("anchor", "anchors"), wordlist.withPrefix("anchor", 10));
+        assertEquals(Arrays.asList("cob", "cobalt"), wordlist.withPrefix("cob", 10));
+        assertEquals(Arrays.asList("zoom"), wordlist.withPrefix("zo", 1));
+        assertEquals(0, wordlist.countWithPrefix("q"));
+        assertEquals(0, wordlist.countWithPrefix("abx"));
+        assertEquals(0, wordlist.countWithPrefix("A"));
+    }
+
+    @Test
+    public void compile_skipsBlankLinesAndDuplicates() {
+        Wordlist wordlist = compiled(Arrays.asList("zoom", "", "anchor", "zoom", " "));
+
+        assertEquals(2, wordlist.size());
+        assertEquals("anchor", wordlist.word(0));
+        assertEquals("zoom", wordlist.word(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compile_rejectsWordsThatCantBeBackupCodes() {
+        WordlistCompiler.compile(Arrays.asList("anchor", "Bramble"));
+    }
+
+    @Test
+    public void read_rejectsAnythingElse() {
+        byte[] compiled = WordlistCompiler.compile(WORDS);
+        assertRejected(ByteBuffer.wrap(new byte[16]));
+        assertRejected(ByteBuffer.wrap(Arrays.copyOf(compiled, compiled.length - 1)));
+        byte[] newerVersion = compiled.clone();
+        newerVersion[7] = 2;
+        assertRejected(ByteBuffer.wrap(newerVersion));
+    }
+
+    private static void assertRejected(ByteBuffer buffer) {
+        try {
+            Wordlist.read(buffer);
+            fail("Read a buffer that isn't a compiled wordlist");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+    }
+}
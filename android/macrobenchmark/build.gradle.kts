@@ -0,0 +1,39 @@
+plugins {
+    alias(libs.plugins.androidTest)
+    alias(libs.plugins.baselineprofile)
+}
+
+// Macrobenchmarks and the baseline profile generator for :app. They run against a real device or emulator,
+// with the app already signed in and set up, since most of what we care about is behind the PIN screen.
+// ./gradlew :macrobenchmark:connectedBenchmarkReleaseAndroidTest to benchmark,
+// ./gradlew :app:generateBaselineProfile to regenerate the baseline profile.
+android {
+    namespace = "edu.northeastern.authenticator.macrobenchmark"
+    compileSdk = 34
+
+    defaultConfig {
+        minSdk = 34
+        targetSdk = 34
+
+        testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+        testInstrumentationRunnerArguments["androidx.benchmark.suppressErrors"] = "EMULATOR"
+    }
+
+    targetProjectPath = ":app"
+
+    compileOptions {
+        sourceCompatibility = JavaVersion.VERSION_1_8
+        targetCompatibility = JavaVersion.VERSION_1_8
+    }
+}
+
+baselineProfile {
+    useConnectedDevices = true
+}
+
+dependencies {
+    implementation(libs.ext.junit)
+    implementation(libs.espresso.core)
+    implementation(libs.uiautomator)
+    implementation(libs.benchmark.macro.junit4)
+}
@@ -0,0 +1,153 @@
+package edu.northeastern.authenticator.macrobenchmark;
+
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.FrameTimingMetric;
+import androidx.benchmark.macro.MacrobenchmarkScope;
+import androidx.benchmark.macro.MemoryUsageMetric;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.StartupTimingMetric;
+import androidx.benchmark.macro.TraceSectionMetric;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.UiDevice;
+import androidx.test.uiautomator.UiObject2;
+import androidx.test.uiautomator.Until;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import kotlin.Unit;
+
+/**
+ * The approval journey: a login attempt is waiting (seeded straight into the Firestore emulator), the user opens the app,
+ * enters their PIN, and gets the biometric prompt. The trace sections come from AuthenticationActivity,
+ * validatePin is the PinVerifier check and showBiometricPrompt is building and showing the prompt.
+ * <p>
+ * A fingerprint can't be supplied from inside the test, so the journey stops at the prompt and cancels it.
+ * AuthenticationCompleteActivity, the last step, is measured on its own in authenticationComplete() and authenticationCompleteDone().
+ * <p>
+ * Every iteration's PIN counts against the user's PIN limit (20 every 10 minutes, see AuthenticatorApplication.getUserPinLimiter),
+ * which lives in the emulator's rate_limits collection. One run stays under it, clear the emulator before running it again straight away.
+ * @author James Bebarski
+ */
+@RunWith(AndroidJUnit4.class)
+public class ApprovalJourneyBenchmark {
+
+    @Rule
+    public MacrobenchmarkRule benchmarkRule = new MacrobenchmarkRule();
+
+    private final BenchmarkConfig config = BenchmarkConfig.fromInstrumentationArguments();
+
+    @Test
+    public void pinToBiometricPrompt() {
+        FirestoreEmulator firestore = new FirestoreEmulator(config);
+        benchmarkRule.measureRepeated(
+                StartupBenchmark.TARGET_PACKAGE,
+                Arrays.asList(
+                        new TraceSectionMetric("AuthenticationActivity.validatePin"),
+                        new TraceSectionMetric("AuthenticationActivity.showBiometricPrompt"),
+                        new FrameTimingMetric()),
+                new CompilationMode.Partial(),
+                StartupMode.COLD,
+                10,
+                scope -> {
+                    try {
+                        firestore.createPendingLoginAttempt();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Couldn't seed a login attempt, is the Firestore emulator running?", e);
+                    }
+                    scope.pressHome();
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    scope.startActivityAndWait();
+                    UiDevice device = scope.getDevice();
+                    StartupBenchmark.waitForPinScreen(device);
+
+                    UiObject2 pinField = device.findObject(By.res(StartupBenchmark.TARGET_PACKAGE, "editTextEnterPin"));
+                    pinField.setText(config.pin);
+                    device.findObject(By.res(StartupBenchmark.TARGET_PACKAGE, "submitPinButton")).click();
+
+                    if (!device.wait(Until.hasObject(By.text("Biometric Authentication")), 10_000L)) {
+                        throw new AssertionError("Biometric prompt not shown, check the pin argument and the seeded login attempt");
+                    }
+                    device.pressBack();
+                    return Unit.INSTANCE;
+                });
+    }
+
+    /**
+     * The completion screen for its whole dwell, until it has handed back to the PIN screen. Without the preload
+     * AuthenticationActivity normally does, this is the worst case, the gif is decoded (downscaled) while the screen is up.
+     * Frames, peak memory, and how long the first frame of the gif took (the loadAnimation span) are what changed
+     * when the full size srcCompat decode and the 6 second CountDownTimer went.
+     */
+    @Test
+    public void authenticationComplete() {
+        benchmarkRule.measureRepeated(
+                StartupBenchmark.TARGET_PACKAGE,
+                Arrays.asList(
+                        new StartupTimingMetric(),
+                        new FrameTimingMetric(),
+                        new TraceSectionMetric("AuthenticationCompleteActivity.loadAnimation"),
+                        new MemoryUsageMetric(MemoryUsageMetric.Mode.Max, Arrays.asList(
+                                MemoryUsageMetric.SubMetric.HeapSize, MemoryUsageMetric.SubMetric.RssAnon, MemoryUsageMetric.SubMetric.Gpu))),
+                new CompilationMode.Partial(),
+                StartupMode.COLD,
+                10,
+                scope -> {
+                    scope.pressHome();
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    startAuthenticationComplete(scope);
+                    StartupBenchmark.waitForPinScreen(scope.getDevice());
+                    return Unit.INSTANCE;
+                });
+    }
+
+    /**
+     * Tapping Done as soon as the completion screen is up, which is the quickest way back to being ready for the next approval.
+     */
+    @Test
+    public void authenticationCompleteDone() {
+        benchmarkRule.measureRepeated(
+                StartupBenchmark.TARGET_PACKAGE,
+                Collections.singletonList(new FrameTimingMetric()),
+                new CompilationMode.Partial(),
+                StartupMode.COLD,
+                10,
+                scope -> {
+                    scope.pressHome();
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    startAuthenticationComplete(scope);
+                    UiDevice device = scope.getDevice();
+                    UiObject2 done = device.wait(Until.findObject(By.res(StartupBenchmark.TARGET_PACKAGE, "doneButton")), 5_000L);
+                    if (done == null) { throw new AssertionError("Done button not shown"); }
+                    done.click();
+                    StartupBenchmark.waitForPinScreen(device);
+                    return Unit.INSTANCE;
+                });
+    }
+
+    /**
+     * Start AuthenticationCompleteActivity on its own, with its default dwell. Started like this it's the root of its task,
+     * so it goes back to the PIN screen through MainActivity, which is why the app has to be signed in and set up.
+     * @param scope - the benchmark scope
+     */
+    private static void startAuthenticationComplete(MacrobenchmarkScope scope) {
+        scope.startActivityAndWait(intent -> {
+            intent.setClassName(StartupBenchmark.TARGET_PACKAGE, StartupBenchmark.TARGET_PACKAGE + ".AuthenticationCompleteActivity");
+            return Unit.INSTANCE;
+        });
+    }
+}
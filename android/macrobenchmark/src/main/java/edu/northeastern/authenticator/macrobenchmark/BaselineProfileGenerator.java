@@ -0,0 +1,35 @@
+package edu.northeastern.authenticator.macrobenchmark;
+
+import androidx.benchmark.macro.junit4.BaselineProfileRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import kotlin.Unit;
+
+/**
+ * Generates the baseline profile for the cold start path, launcher to PIN screen, the same journey StartupBenchmark measures.
+ * Run with ./gradlew :app:generateBaselineProfile, the baselineprofile plugin copies the result into the app's
+ * src/release/generated/baselineProfiles, where it is merged with the hand written src/main/baseline-prof.txt.
+ * @author James Bebarski
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class BaselineProfileGenerator {
+
+    @Rule
+    public BaselineProfileRule baselineProfileRule = new BaselineProfileRule();
+
+    @Test
+    public void generate() {
+        baselineProfileRule.collect(StartupBenchmark.TARGET_PACKAGE, scope -> {
+            scope.pressHome();
+            scope.startActivityAndWait();
+            StartupBenchmark.waitForPinScreen(scope.getDevice());
+            return Unit.INSTANCE;
+        });
+    }
+}
@@ -0,0 +1,31 @@
+package edu.northeastern.authenticator.macrobenchmark;
+
+import android.os.Bundle;
+
+import androidx.test.platform.app.InstrumentationRegistry;
+
+/**
+ * Settings for the macrobenchmarks, passed as instrumentation arguments so nothing account specific is checked in, e.g.
+ * ./gradlew -PfirebaseEmulatorHost=10.0.2.2 :macrobenchmark:connectedBenchmarkReleaseAndroidTest
+ *     -Pandroid.testInstrumentationRunnerArguments.userId=... -Pandroid.testInstrumentationRunnerArguments.pin=...
+ * <p>
+ * The app is expected to be built against the Firebase emulator (the firebaseEmulatorHost property), and to already be
+ * signed in to the emulator account with userId and set up with pin, since the benchmarks can't get through biometric setup.
+ * @author James Bebarski
+ */
+final class BenchmarkConfig {
+
+    final String emulatorHost;
+    final String projectId;
+    final String userId;
+    final String pin;
+
+    private BenchmarkConfig(Bundle arguments) {
+        emulatorHost = arguments.getString("firebaseEmulatorHost", "10.0.2.2");
+        projectId = arguments.getString("firebaseProjectId", "demo-authenticator");
+        userId = arguments.getString("userId", "");
+        pin = arguments.getString("pin", "123456");
+    }
+
+    static BenchmarkConfig fromInstrumentationArguments() { return new BenchmarkConfig(InstrumentationRegistry.getArguments()); }
+}
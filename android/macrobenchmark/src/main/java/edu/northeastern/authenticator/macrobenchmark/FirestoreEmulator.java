@@ -0,0 +1,64 @@
+package edu.northeastern.authenticator.macrobenchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.UUID;
+
+/**
+ * Just enough of the Firestore emulator's REST API to seed data for the benchmarks, from the benchmark process itself.
+ * The "Bearer owner" token makes the emulator skip the security rules.
+ * @author James Bebarski
+ */
+final class FirestoreEmulator {
+
+    private final BenchmarkConfig config;
+
+    FirestoreEmulator(BenchmarkConfig config) { this.config = config; }
+
+    /**
+     * Create a pending login attempt for the configured user, the same document LoginForm writes on the web.
+     * @return the session ID of the new login attempt
+     */
+    String createPendingLoginAttempt() throws IOException {
+        String sessionId = UUID.randomUUID().toString();
+        long now = System.currentTimeMillis();
+        String body = "{\"fields\": {"
+                + "\"userId\": {\"stringValue\": \"" + config.userId + "\"},"
+                + "\"status\": {\"stringValue\": \"pending\"},"
+                + "\"timestamp\": {\"timestampValue\": \"" + rfc3339(now) + "\"},"
+                + "\"expiresAt\": {\"timestampValue\": \"" + rfc3339(now + 2 * 60 * 1000L) + "\"}"
+                + "}}";
+
+        URL url = new URL("http://" + config.emulatorHost + ":8080/v1/projects/" + config.projectId
+                + "/databases/(default)/documents/login_attempts?documentId=" + sessionId);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Authorization", "Bearer owner");
+            connection.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Firestore emulator returned " + connection.getResponseCode() + " creating a login attempt");
+            }
+        } finally {
+            connection.disconnect();
+        }
+        return sessionId;
+    }
+
+    private static String rfc3339(long millis) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(new Date(millis));
+    }
+}
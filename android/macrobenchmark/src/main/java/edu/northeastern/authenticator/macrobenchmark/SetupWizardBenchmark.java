@@ -0,0 +1,68 @@
+package edu.northeastern.authenticator.macrobenchmark;
+
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.FrameTimingMetric;
+import androidx.benchmark.macro.MemoryUsageMetric;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.StartupTimingMetric;
+import androidx.benchmark.macro.TraceSectionMetric;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.Until;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+
+import kotlin.Unit;
+
+/**
+ * The setup wizard's cost per step: SetupActivity starting, and swapping in a step (the SetupActivity.showStep span),
+ * for a signed in user, who starts straight at the backup codes step. Peak memory is measured along with it.
+ * <p>
+ * Each step used to be its own activity, so to compare against that, run this on the commit before SetupActivity
+ * with VerifyBackupCodesActivity as the target: startup time there is what every step used to cost, and its memory
+ * is one of the four activities the chain could keep alive at once. Here a step is showStep, plus one activity for the lot.
+ * <p>
+ * The later steps aren't driven from here, getting past the backup codes would replace the approval signing key on the device,
+ * which the approval benchmarks rely on.
+ * @author James Bebarski
+ */
+@RunWith(AndroidJUnit4.class)
+public class SetupWizardBenchmark {
+
+    @Rule
+    public MacrobenchmarkRule benchmarkRule = new MacrobenchmarkRule();
+
+    @Test
+    public void startToBackupCodes() {
+        benchmarkRule.measureRepeated(
+                StartupBenchmark.TARGET_PACKAGE,
+                Arrays.asList(
+                        new StartupTimingMetric(),
+                        new FrameTimingMetric(),
+                        new TraceSectionMetric("SetupActivity.showStep"),
+                        new MemoryUsageMetric(MemoryUsageMetric.Mode.Max, Arrays.asList(
+                                MemoryUsageMetric.SubMetric.HeapSize, MemoryUsageMetric.SubMetric.RssAnon))),
+                new CompilationMode.Partial(),
+                StartupMode.COLD,
+                10,
+                scope -> {
+                    scope.pressHome();
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    scope.startActivityAndWait(intent -> {
+                        intent.setClassName(StartupBenchmark.TARGET_PACKAGE, StartupBenchmark.TARGET_PACKAGE + ".SetupActivity");
+                        return Unit.INSTANCE;
+                    });
+                    if (!scope.getDevice().wait(Until.hasObject(By.res(StartupBenchmark.TARGET_PACKAGE, "backupCode1")), 5_000L)) {
+                        throw new AssertionError("Backup codes step not shown, is the app signed in?");
+                    }
+                    return Unit.INSTANCE;
+                });
+    }
+}
@@ -0,0 +1,75 @@
+package edu.northeastern.authenticator.macrobenchmark;
+
+import androidx.benchmark.macro.BaselineProfileMode;
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.StartupTimingMetric;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.UiDevice;
+import androidx.test.uiautomator.Until;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+
+import kotlin.Unit;
+
+/**
+ * Measures time to the PIN screen from a cold or warm start: the launcher opens MainActivity, which runs its startup checks
+ * and routes straight to AuthenticationActivity. The app has to be signed in and set up on the device beforehand,
+ * otherwise this measures the way to the SetupActivity instead.
+ * <p>
+ * Comparing the two cold start tests shows what the baseline profile buys us. The warm start keeps the process,
+ * so it is mostly MainActivity's own work (the cached setup flag should make the route immediate).
+ * @author James Bebarski
+ */
+@RunWith(AndroidJUnit4.class)
+public class StartupBenchmark {
+
+    static final String TARGET_PACKAGE = "edu.northeastern.authenticator";
+    static final long PIN_SCREEN_TIMEOUT_MILLIS = 10_000L;
+
+    @Rule
+    public MacrobenchmarkRule benchmarkRule = new MacrobenchmarkRule();
+
+    @Test
+    public void coldStartToPinScreen_noCompilation() { startToPinScreen(new CompilationMode.None(), StartupMode.COLD); }
+
+    @Test
+    public void coldStartToPinScreen_baselineProfile() { startToPinScreen(new CompilationMode.Partial(BaselineProfileMode.Require), StartupMode.COLD); }
+
+    @Test
+    public void warmStartToPinScreen_baselineProfile() { startToPinScreen(new CompilationMode.Partial(BaselineProfileMode.Require), StartupMode.WARM); }
+
+    private void startToPinScreen(CompilationMode compilationMode, StartupMode startupMode) {
+        benchmarkRule.measureRepeated(
+                TARGET_PACKAGE,
+                Collections.singletonList(new StartupTimingMetric()),
+                compilationMode,
+                startupMode,
+                10,
+                scope -> {
+                    scope.pressHome();
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    scope.startActivityAndWait();
+                    waitForPinScreen(scope.getDevice());
+                    return Unit.INSTANCE;
+                });
+    }
+
+    /**
+     * Wait until the PIN screen's submit button is on screen.
+     * @param device - the UiDevice from the benchmark scope
+     */
+    static void waitForPinScreen(UiDevice device) {
+        if (!device.wait(Until.hasObject(By.res(TARGET_PACKAGE, "submitPinButton")), PIN_SCREEN_TIMEOUT_MILLIS)) {
+            throw new AssertionError("PIN screen not shown, is the app signed in and set up on this device?");
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package edu.northeastern.authenticator.macrobenchmark;
+
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.FrameTimingMetric;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.UiObject2;
+import androidx.test.uiautomator.Until;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+
+import kotlin.Unit;
+
+/**
+ * Frame timing for the backup codes step of the setup while the user fills in all 12 backup codes.
+ * Only the typing is measured, nothing is submitted, so this doesn't need any backup codes in the emulator,
+ * just a signed in user, for whom SetupActivity starts straight at the backup codes.
+ * @author James Bebarski
+ */
+@RunWith(AndroidJUnit4.class)
+public class VerifyBackupCodesBenchmark {
+
+    private static final String[] WORDS = {"anchor", "bramble", "cobalt", "drizzle", "ember", "fathom",
+            "granite", "harbor", "inkwell", "juniper", "kestrel", "lantern"};
+
+    @Rule
+    public MacrobenchmarkRule benchmarkRule = new MacrobenchmarkRule();
+
+    @Test
+    public void fillInTwelveBackupCodes() {
+        benchmarkRule.measureRepeated(
+                StartupBenchmark.TARGET_PACKAGE,
+                Collections.singletonList(new FrameTimingMetric()),
+                new CompilationMode.Partial(),
+                StartupMode.COLD,
+                10,
+                scope -> {
+                    scope.pressHome();
+                    scope.startActivityAndWait(intent -> {
+                        intent.setClassName(StartupBenchmark.TARGET_PACKAGE, StartupBenchmark.TARGET_PACKAGE + ".SetupActivity");
+                        return Unit.INSTANCE;
+                    });
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    for (int i = 0; i < WORDS.length; i++) {
+                        UiObject2 field = scope.getDevice().wait(
+                                Until.findObject(By.res(StartupBenchmark.TARGET_PACKAGE, "backupCode" + (i + 1))), 5_000L);
+                        if (field == null) { throw new AssertionError("backupCode" + (i + 1) + " not found, is the app signed in?"); }
+                        field.click();
+                        field.setText(WORDS[i]);
+                    }
+                    scope.getDevice().waitForIdle();
+                    return Unit.INSTANCE;
+                });
+    }
+}
@@ -0,0 +1,39 @@
+plugins {
+    alias(libs.plugins.androidLibrary)
+    alias(libs.plugins.benchmark)
+}
+
+// On-device microbenchmarks for the crypto and hashing helpers in :core, the same code the JMH suite measures
+// on the desktop, but on the ART runtime and hardware the app actually runs on. Nothing here touches Firebase.
+// ./gradlew :microbenchmark:connectedReleaseAndroidTest, results are written as JSON (see collectBenchmarkResults)
+android {
+    namespace = "edu.northeastern.authenticator.microbenchmark"
+    compileSdk = 34
+
+    defaultConfig {
+        minSdk = 34
+        targetSdk = 34
+
+        testInstrumentationRunner = "androidx.benchmark.junit4.AndroidBenchmarkRunner"
+        testInstrumentationRunnerArguments["androidx.benchmark.suppressErrors"] = "EMULATOR"
+    }
+
+    // Benchmarks have to run against a non-debuggable build
+    testBuildType = "release"
+    buildTypes {
+        release {
+            isDefault = true
+        }
+    }
+
+    compileOptions {
+        sourceCompatibility = JavaVersion.VERSION_1_8
+        targetCompatibility = JavaVersion.VERSION_1_8
+    }
+}
+
+dependencies {
+    androidTestImplementation(project(":core"))
+    androidTestImplementation(libs.ext.junit)
+    androidTestImplementation(libs.benchmark.junit4)
+}
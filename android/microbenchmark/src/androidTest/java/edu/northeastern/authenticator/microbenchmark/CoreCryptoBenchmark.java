@@ -0,0 +1,128 @@
+package edu.northeastern.authenticator.microbenchmark;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import edu.northeastern.authenticator.core.BackupCodeHash;
+import edu.northeastern.authenticator.core.BackupCodeHasher;
+import edu.northeastern.authenticator.core.BackupCodeKdf;
+import edu.northeastern.authenticator.core.BackupCodeVerifier;
+import edu.northeastern.authenticator.core.PinHasher;
+import edu.northeastern.authenticator.core.PinVerifier;
+import edu.northeastern.authenticator.core.StoredBackupCodes;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * On-device numbers for the :core crypto helpers, to compare with the JMH results from the desktop.
+ * The PBKDF2 ones use the same 100,000 iterations RegistrationForm hashes the backup codes with,
+ * the twelveCodes ones are what the SetupViewModel's backup code latency budget (500 ms) is about,
+ * and pinVerifier_verify is the PIN check without the Keystore HMAC (see the app's SecureStoreBenchmark for that).
+ * @author James Bebarski
+ */
+@RunWith(AndroidJUnit4.class)
+public class CoreCryptoBenchmark {
+
+    private static final int ITERATIONS = 100_000;
+    private static final String[] WORDS = {"anchor", "bramble", "cobalt", "drizzle", "ember", "fathom",
+            "granite", "harbor", "inkwell", "juniper", "kestrel", "lantern"};
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() { executor = Executors.newFixedThreadPool(Math.min(4, Runtime.getRuntime().availableProcessors())); }
+
+    @After
+    public void tearDown() { executor.shutdown(); }
+
+    @Test
+    public void sha256_twelveCodes_verifier() {
+        String[] salts = new String[WORDS.length];
+        String[] hashes = new String[WORDS.length];
+        for (int i = 0; i < WORDS.length; i++) {
+            salts[i] = Long.toString(1712000000000L + i);
+            hashes[i] = BackupCodeHasher.hashWordWithSalt(WORDS[i], salts[i]);
+        }
+
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            for (int i = 0; i < WORDS.length; i++) { BackupCodeVerifier.verify(WORDS[i], salts[i], hashes[i]); }
+        }
+    }
+
+    @Test
+    public void pbkdf2_singleCode() {
+        byte[] salt = new byte[BackupCodeKdf.SALT_LENGTH];
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            BackupCodeKdf.derive(WORDS[0], salt, ITERATIONS);
+        }
+    }
+
+    @Test
+    public void pbkdf2_twelveCodes_sequential() {
+        StoredBackupCodes backupCodes = pbkdf2BackupCodes();
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            backupCodes.verify(WORDS);
+        }
+    }
+
+    @Test
+    public void pbkdf2_twelveCodes_parallel() {
+        StoredBackupCodes backupCodes = pbkdf2BackupCodes();
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            backupCodes.verify(WORDS, executor);
+        }
+    }
+
+    @Test
+    public void pbkdf2_calibrateIterations() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            BackupCodeKdf.calibrateIterations(50_000_000L);
+        }
+    }
+
+    @Test
+    public void pinVerifier_verify() throws Exception {
+        PinVerifier.Record[] saved = new PinVerifier.Record[1];
+        PinVerifier.Store memoryStore = new PinVerifier.Store() {
+            @Override
+            public PinVerifier.Record load() { return saved[0]; }
+
+            @Override
+            public void save(PinVerifier.Record record) { saved[0] = record; }
+        };
+        PinVerifier verifier = new PinVerifier(memoryStore, PinHasher.PBKDF2, System::currentTimeMillis);
+        verifier.enroll("123456", ITERATIONS);
+
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            verifier.verify("123456");
+        }
+    }
+
+    private static StoredBackupCodes pbkdf2BackupCodes() {
+        SecureRandom random = new SecureRandom();
+        List<Map<String, Object>> entries = new ArrayList<>();
+        for (String word : WORDS) { entries.add(BackupCodeHash.pbkdf2(word, ITERATIONS, random).toMap()); }
+        return StoredBackupCodes.parse(entries);
+    }
+}
@@ -21,4 +21,8 @@ dependencyResolutionManagement {
 
 rootProject.name = "authenticatorapp"
 include(":app")
- 
\ No newline at end of file
+include(":core")
+include(":macrobenchmark")
+include(":microbenchmark")
+include(":verifier")
+ 
@@ -0,0 +1,32 @@
+plugins {
+    application
+}
+
+// The approval verifier service: checks the signature on every approved or denied login attempt against the
+// public key the user registered from the app, and marks the attempt "valid" or "rejected". Plain JVM, using the
+// server Firestore client rather than Firebase on Android. Run it against the Firestore emulator with
+// FIRESTORE_EMULATOR_HOST=localhost:8080 ./gradlew :verifier:run --args="demo-authenticator"
+// Without FIRESTORE_EMULATOR_HOST it uses the application default credentials against the real project.
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+application {
+    mainClass.set("edu.northeastern.authenticator.verifier.ApprovalVerifierService")
+}
+
+dependencies {
+    implementation(project(":core"))
+    implementation(libs.google.cloud.firestore)
+    testImplementation(libs.junit)
+}
+
+// Approval latency percentiles over the last window, in the Prometheus text format:
+// FIRESTORE_EMULATOR_HOST=localhost:8080 ./gradlew :verifier:exportApprovalLatency --args="demo-authenticator 60"
+tasks.register<JavaExec>("exportApprovalLatency") {
+    group = "application"
+    description = "Exports p50/p95/p99 approval latencies from the login attempt timings"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("edu.northeastern.authenticator.verifier.ApprovalLatencyExporter")
+}
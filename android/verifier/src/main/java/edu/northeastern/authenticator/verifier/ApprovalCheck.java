@@ -0,0 +1,66 @@
+package edu.northeastern.authenticator.verifier;
+
+import edu.northeastern.authenticator.core.ApprovalStatement;
+
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The checks the verifier makes on one decided login attempt, kept apart from Firestore so they can be unit tested.
+ * A valid signature alone isn't enough, the signed statement also has to be about this attempt:
+ * <ul>
+ *     <li>the attempt's status has to be what the statement says (approved for "authenticated", denied for "denied")</li>
+ *     <li>the statement has to be from the attempt's own user, and signed with their registered key</li>
+ *     <li>it has to be signed before the attempt expired, an old signature can't be replayed onto a new attempt anyway,
+ *     since the attempt's session ID is part of what's signed</li>
+ * </ul>
+ * @author James Bebarski
+ */
+final class ApprovalCheck {
+
+    // How far the phone's clock may be ahead of the attempt's expiry, phones and browsers are rarely perfectly in sync
+    static final long CLOCK_SKEW_MILLIS = 60_000L;
+
+    private ApprovalCheck() { }
+
+    /**
+     * Check one decided login attempt.
+     *
+     * @param sessionId - the attempt's document ID
+     * @param userId - the attempt's userId field
+     * @param status - the attempt's status field, "authenticated" or "denied"
+     * @param expiresAtMillis - the attempt's expiresAt, or 0 if it doesn't have one
+     * @param approval - the attempt's approval map, as written by FirestoreLoginAttemptRepository, or null
+     * @param publicKey - the user's registered public key, or null if they never registered one
+     * @return null if the approval is valid, otherwise why it isn't
+     */
+    static String check(String sessionId, String userId, String status, long expiresAtMillis, Map<String, Object> approval, PublicKey publicKey) {
+        if (approval == null) { return "not signed"; }
+        if (publicKey == null) { return "no registered key"; }
+
+        ApprovalStatement statement;
+        byte[] signature;
+        try {
+            statement = new ApprovalStatement(userId, ((Number) approval.get("signedAt")).longValue(),
+                    toStringList(approval.get("approved")), toStringList(approval.get("denied")));
+            signature = Base64.getDecoder().decode((String) approval.get("signature"));
+        } catch (RuntimeException e) {
+            return "malformed approval";
+        }
+
+        List<String> expected = "authenticated".equals(status) ? statement.getApprovedSessionIds() : statement.getDeniedSessionIds();
+        if (!expected.contains(sessionId)) { return "statement does not cover this attempt"; }
+        if (expiresAtMillis > 0 && statement.getSignedAtMillis() > expiresAtMillis + CLOCK_SKEW_MILLIS) { return "signed after the attempt expired"; }
+        if (!statement.verify(publicKey, signature)) { return "bad signature"; }
+        return null;
+    }
+
+    private static List<String> toStringList(Object value) {
+        List<String> strings = new ArrayList<>();
+        for (Object item : (List<?>) value) { strings.add((String) item); }
+        return strings;
+    }
+}
@@ -0,0 +1,92 @@
+package edu.northeastern.authenticator.verifier;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.FirestoreOptions;
+import com.google.cloud.firestore.QuerySnapshot;
+
+import edu.northeastern.authenticator.core.ApprovalTimings;
+import edu.northeastern.authenticator.core.Logger;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Reads the approved login attempts from the last window, and exports their approval latency percentiles
+ * (see ApprovalLatencyReport) in the Prometheus text format.
+ * The metrics go to stdout, or to a file for the node exporter's textfile collector, written to a temporary file
+ * and moved into place so the collector never reads half of it. stdout only ever has the metrics on it, so it can be piped
+ * straight into a scrape file, the readable version of the report is logged through the core Logger (stderr).
+ * <p>
+ * Usage: ApprovalLatencyExporter [projectId] [windowMinutes] [outputFile], the window defaults to 60 minutes.
+ * Like the verifier, it uses the emulator when FIRESTORE_EMULATOR_HOST is set.
+ * The query is on timings.writeAcked only, which the automatic single field index covers.
+ * @author James Bebarski
+ */
+public final class ApprovalLatencyExporter {
+
+    private static final Logger log = Logger.get("ApprovalLatencyExporter");
+    private static final long DEFAULT_WINDOW_MINUTES = 60;
+
+    private ApprovalLatencyExporter() { }
+
+    public static void main(String[] args) throws Exception {
+        FirestoreOptions.Builder options = FirestoreOptions.getDefaultInstance().toBuilder();
+        if (args.length > 0) { options.setProjectId(args[0]); }
+        long windowMinutes = args.length > 1 ? Long.parseLong(args[1]) : DEFAULT_WINDOW_MINUTES;
+
+        ApprovalLatencyReport report;
+        try (Firestore firestore = options.build().getService()) {
+            report = collect(firestore, System.currentTimeMillis() - windowMinutes * 60_000L);
+        }
+
+        log.i("Last " + windowMinutes + " minutes: " + report.toString().trim());
+        if (args.length > 2) {
+            Path output = Paths.get(args[2]);
+            Path temporary = output.resolveSibling(output.getFileName() + ".tmp");
+            Files.write(temporary, report.toPrometheus().getBytes(StandardCharsets.UTF_8));
+            Files.move(temporary, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } else {
+            System.out.print(report.toPrometheus());
+        }
+    }
+
+    /**
+     * Build the report from every approved attempt whose status write was committed since the given time.
+     *
+     * @param firestore - the Firestore instance
+     * @param sinceMillis - the start of the window
+     * @return the report
+     */
+    static ApprovalLatencyReport collect(Firestore firestore, long sinceMillis) throws ExecutionException, InterruptedException {
+        QuerySnapshot snapshot = firestore.collection("login_attempts")
+                .whereGreaterThanOrEqualTo(ApprovalTimings.FIELD + "." + ApprovalTimings.WRITE_ACKED, Timestamp.of(new Date(sinceMillis)))
+                .get().get();
+
+        ApprovalLatencyReport report = new ApprovalLatencyReport();
+        for (DocumentSnapshot attempt : snapshot.getDocuments()) {
+            // Only approvals that went through, denied and rejected attempts never log anyone in
+            if (!"authenticated".equals(attempt.getString("status"))) { continue; }
+            Map<String, Long> points = new HashMap<>();
+            putMillis(points, ApprovalLatencyReport.WEB_LOGIN, attempt.getTimestamp("timestamp"));
+            for (String point : new String[] {ApprovalTimings.RECEIVED, ApprovalTimings.PIN_VERIFIED, ApprovalTimings.BIOMETRIC_DONE,
+                    ApprovalTimings.WRITE_ACKED, ApprovalTimings.VERIFIED}) {
+                putMillis(points, point, attempt.getTimestamp(ApprovalTimings.FIELD + "." + point));
+            }
+            report.add(points);
+        }
+        return report;
+    }
+
+    private static void putMillis(Map<String, Long> points, String point, Timestamp timestamp) {
+        if (timestamp != null) { points.put(point, timestamp.toDate().getTime()); }
+    }
+}
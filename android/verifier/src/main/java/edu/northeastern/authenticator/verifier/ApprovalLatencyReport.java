@@ -0,0 +1,108 @@
+package edu.northeastern.authenticator.verifier;
+
+import edu.northeastern.authenticator.core.ApprovalTimings;
+import edu.northeastern.authenticator.core.LatencySummary;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Turns the timings on approved login attempts into per stage latency percentiles, kept apart from Firestore so it can be
+ * unit tested. Each stage is the time between two points, and is only recorded for attempts that have both:
+ * <ul>
+ *     <li>web_to_phone - the web "Login" click (the attempt's timestamp) until the attempt showed up on the phone</li>
+ *     <li>phone_to_pin - until the user entered a correct PIN</li>
+ *     <li>pin_to_biometric - until the biometric prompt succeeded</li>
+ *     <li>biometric_to_ack - until the server committed the status write, including any time spent in the outbox</li>
+ *     <li>ack_to_verified - until the verifier committed its verdict</li>
+ *     <li>end_to_end - the web click until the verdict, which is when the web page logs in</li>
+ * </ul>
+ * See ApprovalTimings for which clock each point comes from.
+ * @author James Bebarski
+ */
+final class ApprovalLatencyReport {
+
+    // The attempt's own timestamp field, written by LoginForm
+    static final String WEB_LOGIN = "timestamp";
+    static final String METRIC = "authenticator_approval_latency_ms";
+    private static final double[] QUANTILES = {0.5, 0.95, 0.99};
+
+    enum Stage {
+        WEB_TO_PHONE("web_to_phone", WEB_LOGIN, ApprovalTimings.RECEIVED),
+        PHONE_TO_PIN("phone_to_pin", ApprovalTimings.RECEIVED, ApprovalTimings.PIN_VERIFIED),
+        PIN_TO_BIOMETRIC("pin_to_biometric", ApprovalTimings.PIN_VERIFIED, ApprovalTimings.BIOMETRIC_DONE),
+        BIOMETRIC_TO_ACK("biometric_to_ack", ApprovalTimings.BIOMETRIC_DONE, ApprovalTimings.WRITE_ACKED),
+        ACK_TO_VERIFIED("ack_to_verified", ApprovalTimings.WRITE_ACKED, ApprovalTimings.VERIFIED),
+        END_TO_END("end_to_end", WEB_LOGIN, ApprovalTimings.VERIFIED);
+
+        final String label;
+        final String from;
+        final String to;
+
+        Stage(String label, String from, String to) {
+            this.label = label;
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    private final Map<Stage, LatencySummary> summaries = new EnumMap<>(Stage.class);
+    private int attempts;
+
+    ApprovalLatencyReport() {
+        for (Stage stage : Stage.values()) { summaries.put(stage, new LatencySummary()); }
+    }
+
+    /**
+     * Add one approved attempt.
+     * @param points - when each point happened, in millis, by name (WEB_LOGIN or one of the ApprovalTimings names)
+     */
+    void add(Map<String, Long> points) {
+        attempts++;
+        for (Stage stage : Stage.values()) {
+            Long from = points.get(stage.from);
+            Long to = points.get(stage.to);
+            if (from != null && to != null) { summaries.get(stage).add(to - from); }
+        }
+    }
+
+    int attempts() { return attempts; }
+
+    LatencySummary summary(Stage stage) { return summaries.get(stage); }
+
+    /**
+     * @return the report in the Prometheus text exposition format, as a summary with the p50, p95 and p99 of every stage
+     */
+    String toPrometheus() {
+        StringBuilder out = new StringBuilder();
+        out.append("# HELP ").append(METRIC).append(" Time between the stages of approving a web login, in milliseconds\n");
+        out.append("# TYPE ").append(METRIC).append(" summary\n");
+        for (Stage stage : Stage.values()) {
+            LatencySummary summary = summaries.get(stage);
+            if (summary.count() == 0) { continue; }
+            for (double quantile : QUANTILES) {
+                out.append(String.format(Locale.ROOT, "%s{stage=\"%s\",quantile=\"%s\"} %d%n",
+                        METRIC, stage.label, quantile, summary.percentile(quantile * 100)));
+            }
+            out.append(String.format(Locale.ROOT, "%s_sum{stage=\"%s\"} %d%n", METRIC, stage.label, summary.sum()));
+            out.append(String.format(Locale.ROOT, "%s_count{stage=\"%s\"} %d%n", METRIC, stage.label, summary.count()));
+        }
+        return out.toString();
+    }
+
+    /**
+     * @return one line per stage, for reading in a terminal
+     */
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder(attempts + " approved attempt(s)\n");
+        for (Stage stage : Stage.values()) {
+            LatencySummary summary = summaries.get(stage);
+            out.append(String.format(Locale.ROOT, "%-18s %s", stage.label, summary));
+            if (summary.negativeCount() > 0) { out.append(" (").append(summary.negativeCount()).append(" negative, clock skew)"); }
+            out.append('\n');
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,139 @@
+package edu.northeastern.authenticator.verifier;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentChange;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.FirestoreOptions;
+import com.google.cloud.firestore.ListenerRegistration;
+import com.google.cloud.firestore.Precondition;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+
+import edu.northeastern.authenticator.core.ApprovalStatement;
+import edu.northeastern.authenticator.core.ApprovalTimings;
+import edu.northeastern.authenticator.core.Logger;
+
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Listens for login attempts the app has decided on ("authenticated" or "denied") and checks their signatures
+ * (see ApprovalCheck). A valid one gets verification "valid", which is what the web app waits for before logging in.
+ * An invalid one has its status set to "rejected", with the reason in verification, so the login never goes through.
+ * Either way the verdict's server time goes into timings.verified, the last stage ApprovalLatencyExporter reports on.
+ * <p>
+ * Public keys are fetched from the user documents once and cached, verifying is then a few milliseconds per attempt.
+ * Verdicts and errors go through the core Logger, which writes to stderr with stack traces.
+ * Usage: ApprovalVerifierService [projectId], the project ID defaults to GOOGLE_CLOUD_PROJECT.
+ * @author James Bebarski
+ */
+public final class ApprovalVerifierService {
+
+    private static final Logger log = Logger.get("ApprovalVerifierService");
+    private static final String VERIFIED_AT = ApprovalTimings.FIELD + "." + ApprovalTimings.VERIFIED;
+
+    private final Firestore firestore;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Map<String, PublicKey> publicKeys = new ConcurrentHashMap<>();
+
+    ApprovalVerifierService(Firestore firestore) { this.firestore = firestore; }
+
+    public static void main(String[] args) throws InterruptedException {
+        FirestoreOptions.Builder options = FirestoreOptions.getDefaultInstance().toBuilder();
+        if (args.length > 0) { options.setProjectId(args[0]); }
+        Firestore firestore = options.build().getService();
+
+        ListenerRegistration registration = new ApprovalVerifierService(firestore).start();
+        log.i("Verifying approvals for " + firestore.getOptions().getProjectId()
+                + (System.getenv("FIRESTORE_EMULATOR_HOST") != null ? " on the emulator at " + System.getenv("FIRESTORE_EMULATOR_HOST") : ""));
+        Runtime.getRuntime().addShutdownHook(new Thread(registration::remove));
+        new CountDownLatch(1).await();
+    }
+
+    /**
+     * Start listening for decided login attempts. The snapshot callback only hands them off to the executor,
+     * where fetching keys and writing the verdict is allowed to block.
+     * @return the registration, to stop listening
+     */
+    ListenerRegistration start() {
+        return firestore.collection("login_attempts")
+                .whereIn("status", Arrays.asList("authenticated", "denied"))
+                .addSnapshotListener((snapshots, e) -> {
+                    if (e != null) { log.e("Login attempts listener failed", e); return; }
+                    if (snapshots == null) { return; }
+                    for (DocumentChange change : snapshots.getDocumentChanges()) {
+                        if (change.getType() == DocumentChange.Type.REMOVED) { continue; }
+                        QueryDocumentSnapshot attempt = change.getDocument();
+                        if (attempt.contains("verification")) { continue; }
+                        executor.execute(() -> verify(attempt));
+                    }
+                });
+    }
+
+    /**
+     * Check one attempt and write the verdict, only if the attempt hasn't changed since we read it.
+     * If the signature doesn't match a cached key, the key is fetched again once, in case the user went through setup again.
+     * @param attempt - the decided login attempt
+     */
+    private void verify(DocumentSnapshot attempt) {
+        long start = System.nanoTime();
+        String userId = attempt.getString("userId");
+        boolean cached = userId != null && publicKeys.containsKey(userId);
+        String problem = check(attempt, publicKeyOf(userId, false));
+        if (problem != null && cached) { problem = check(attempt, publicKeyOf(userId, true)); }
+        long micros = (System.nanoTime() - start) / 1_000;
+
+        Precondition unchanged = Precondition.updatedAt(attempt.getUpdateTime());
+        try {
+            if (problem == null) {
+                attempt.getReference().update(unchanged, "verification", "valid", VERIFIED_AT, FieldValue.serverTimestamp()).get();
+                log.i(attempt.getId() + " " + attempt.getString("status") + ", signature valid", "micros", micros);
+            } else {
+                attempt.getReference().update(unchanged, "status", "rejected", "verification", "invalid: " + problem,
+                        VERIFIED_AT, FieldValue.serverTimestamp()).get();
+                log.w(attempt.getId() + " rejected, " + problem + " (" + micros + " us)");
+            }
+        } catch (Exception e) {
+            log.e("Error writing the verdict for " + attempt.getId(), e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String check(DocumentSnapshot attempt, PublicKey publicKey) {
+        Timestamp expiresAt = attempt.getTimestamp("expiresAt");
+        return ApprovalCheck.check(attempt.getId(), attempt.getString("userId"), attempt.getString("status"),
+                expiresAt != null ? expiresAt.toDate().getTime() : 0L, (Map<String, Object>) attempt.get("approval"), publicKey);
+    }
+
+    /**
+     * Get a user's registered public key, from the cache or their user document.
+     * @param userId - the user's ID
+     * @param refresh - skip the cache
+     * @return the public key, or null if there isn't a valid one
+     */
+    private PublicKey publicKeyOf(String userId, boolean refresh) {
+        if (userId == null) { return null; }
+        PublicKey cached = refresh ? null : publicKeys.get(userId);
+        if (cached != null) { return cached; }
+        try {
+            String encoded = firestore.collection("users").document(userId).get().get().getString("approvalPublicKey");
+            if (encoded == null) { return null; }
+            PublicKey publicKey = ApprovalStatement.decodePublicKey(encoded);
+            publicKeys.put(userId, publicKey);
+            return publicKey;
+        } catch (GeneralSecurityException e) {
+            log.w("Invalid public key for " + userId, e);
+            return null;
+        } catch (Exception e) {
+            log.e("Error fetching the public key for " + userId, e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package edu.northeastern.authenticator.verifier;
+
+import edu.northeastern.authenticator.core.ApprovalStatement;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for ApprovalCheck, with the approval maps built the way FirestoreLoginAttemptRepository writes them.
+ */
+public class ApprovalCheckTest {
+
+    private static final long SIGNED_AT = 1_712_000_000_000L;
+    private static final long EXPIRES_AT = SIGNED_AT + 60_000L;
+
+    private static KeyPair keyPair;
+    private static KeyPair otherKeyPair;
+
+    @BeforeClass
+    public static void generateKeys() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        keyPair = generator.generateKeyPair();
+        otherKeyPair = generator.generateKeyPair();
+    }
+
+    private static Map<String, Object> approval(ApprovalStatement statement, KeyPair signer) throws Exception {
+        Signature signature = Signature.getInstance(ApprovalStatement.SIGNATURE_ALGORITHM);
+        signature.initSign(signer.getPrivate());
+        signature.update(statement.toBytes());
+
+        Map<String, Object> approval = new HashMap<>();
+        approval.put("signature", Base64.getEncoder().encodeToString(signature.sign()));
+        approval.put("signedAt", statement.getSignedAtMillis());
+        approval.put("approved", statement.getApprovedSessionIds());
+        approval.put("denied", statement.getDeniedSessionIds());
+        return approval;
+    }
+
+    private static ApprovalStatement statement(long signedAt) {
+        return new ApprovalStatement("user", signedAt, Arrays.asList("a", "b"), Collections.singletonList("c"));
+    }
+
+    @Test
+    public void signedDecision_isValidForEveryAttemptItCovers() throws Exception {
+        Map<String, Object> approval = approval(statement(SIGNED_AT), keyPair);
+
+        assertNull(ApprovalCheck.check("a", "user", "authenticated", EXPIRES_AT, approval, keyPair.getPublic()));
+        assertNull(ApprovalCheck.check("b", "user", "authenticated", EXPIRES_AT, approval, keyPair.getPublic()));
+        assertNull(ApprovalCheck.check("c", "user", "denied", EXPIRES_AT, approval, keyPair.getPublic()));
+    }
+
+    @Test
+    public void attemptNotInTheStatement_isRejected() throws Exception {
+        Map<String, Object> approval = approval(statement(SIGNED_AT), keyPair);
+
+        assertEquals("statement does not cover this attempt", ApprovalCheck.check("d", "user", "authenticated", EXPIRES_AT, approval, keyPair.getPublic()));
+        // A denial can't be turned into an approval by changing the status
+        assertEquals("statement does not cover this attempt", ApprovalCheck.check("c", "user", "authenticated", EXPIRES_AT, approval, keyPair.getPublic()));
+    }
+
+    @Test
+    public void signedAfterExpiry_isRejected() throws Exception {
+        Map<String, Object> withinSkew = approval(statement(EXPIRES_AT + ApprovalCheck.CLOCK_SKEW_MILLIS), keyPair);
+        Map<String, Object> late = approval(statement(EXPIRES_AT + ApprovalCheck.CLOCK_SKEW_MILLIS + 1), keyPair);
+
+        assertNull(ApprovalCheck.check("a", "user", "authenticated", EXPIRES_AT, withinSkew, keyPair.getPublic()));
+        assertEquals("signed after the attempt expired", ApprovalCheck.check("a", "user", "authenticated", EXPIRES_AT, late, keyPair.getPublic()));
+    }
+
+    @Test
+    public void wrongKeyOrOtherUser_isABadSignature() throws Exception {
+        Map<String, Object> approval = approval(statement(SIGNED_AT), otherKeyPair);
+        assertEquals("bad signature", ApprovalCheck.check("a", "user", "authenticated", EXPIRES_AT, approval, keyPair.getPublic()));
+
+        // The user ID comes from the attempt, not the approval, so copying an approval to another user's attempt fails
+        Map<String, Object> someoneElses = approval(statement(SIGNED_AT), keyPair);
+        assertEquals("bad signature", ApprovalCheck.check("a", "mallory", "authenticated", EXPIRES_AT, someoneElses, keyPair.getPublic()));
+    }
+
+    @Test
+    public void missingOrMalformedApproval_isRejected() throws Exception {
+        assertEquals("not signed", ApprovalCheck.check("a", "user", "authenticated", EXPIRES_AT, null, keyPair.getPublic()));
+
+        Map<String, Object> approval = approval(statement(SIGNED_AT), keyPair);
+        assertEquals("no registered key", ApprovalCheck.check("a", "user", "authenticated", EXPIRES_AT, approval, null));
+
+        approval.put("signature", "not base64!");
+        assertEquals("malformed approval", ApprovalCheck.check("a", "user", "authenticated", EXPIRES_AT, approval, keyPair.getPublic()));
+        approval.remove("signedAt");
+        assertEquals("malformed approval", ApprovalCheck.check("a", "user", "authenticated", EXPIRES_AT, approval, keyPair.getPublic()));
+    }
+}
@@ -0,0 +1,77 @@
+package edu.northeastern.authenticator.verifier;
+
+import edu.northeastern.authenticator.core.ApprovalTimings;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for ApprovalLatencyReport, with the points named the way ApprovalLatencyExporter reads them.
+ */
+public class ApprovalLatencyReportTest {
+
+    private static Map<String, Long> points(long webLogin, long received, long pinVerified, long biometricDone, long writeAcked, long verified) {
+        Map<String, Long> points = new HashMap<>();
+        points.put(ApprovalLatencyReport.WEB_LOGIN, webLogin);
+        points.put(ApprovalTimings.RECEIVED, received);
+        points.put(ApprovalTimings.PIN_VERIFIED, pinVerified);
+        points.put(ApprovalTimings.BIOMETRIC_DONE, biometricDone);
+        points.put(ApprovalTimings.WRITE_ACKED, writeAcked);
+        points.put(ApprovalTimings.VERIFIED, verified);
+        return points;
+    }
+
+    @Test
+    public void everyStage_isTheDifferenceBetweenItsPoints() {
+        ApprovalLatencyReport report = new ApprovalLatencyReport();
+        report.add(points(0, 300, 4_300, 6_300, 6_500, 6_520));
+
+        assertEquals(1, report.attempts());
+        assertEquals(300, report.summary(ApprovalLatencyReport.Stage.WEB_TO_PHONE).percentile(50));
+        assertEquals(4_000, report.summary(ApprovalLatencyReport.Stage.PHONE_TO_PIN).percentile(50));
+        assertEquals(2_000, report.summary(ApprovalLatencyReport.Stage.PIN_TO_BIOMETRIC).percentile(50));
+        assertEquals(200, report.summary(ApprovalLatencyReport.Stage.BIOMETRIC_TO_ACK).percentile(50));
+        assertEquals(20, report.summary(ApprovalLatencyReport.Stage.ACK_TO_VERIFIED).percentile(50));
+        assertEquals(6_520, report.summary(ApprovalLatencyReport.Stage.END_TO_END).percentile(50));
+    }
+
+    @Test
+    public void missingPoints_onlySkipTheStagesThatNeedThem() {
+        ApprovalLatencyReport report = new ApprovalLatencyReport();
+        Map<String, Long> points = points(0, 300, 4_300, 6_300, 6_500, 6_520);
+        // Written by an older app version, before the phone side timings existed
+        points.remove(ApprovalTimings.RECEIVED);
+        points.remove(ApprovalTimings.PIN_VERIFIED);
+        report.add(points);
+
+        assertEquals(0, report.summary(ApprovalLatencyReport.Stage.WEB_TO_PHONE).count());
+        assertEquals(0, report.summary(ApprovalLatencyReport.Stage.PHONE_TO_PIN).count());
+        assertEquals(0, report.summary(ApprovalLatencyReport.Stage.PIN_TO_BIOMETRIC).count());
+        assertEquals(1, report.summary(ApprovalLatencyReport.Stage.BIOMETRIC_TO_ACK).count());
+        assertEquals(1, report.summary(ApprovalLatencyReport.Stage.END_TO_END).count());
+    }
+
+    @Test
+    public void prometheus_hasTheQuantilesSumAndCountOfEveryStageWithSamples() {
+        ApprovalLatencyReport report = new ApprovalLatencyReport();
+        for (int i = 1; i <= 100; i++) {
+            Map<String, Long> points = new HashMap<>();
+            points.put(ApprovalLatencyReport.WEB_LOGIN, 0L);
+            points.put(ApprovalTimings.VERIFIED, i * 100L);
+            report.add(points);
+        }
+
+        String text = report.toPrometheus();
+        assertTrue(text.contains("# TYPE authenticator_approval_latency_ms summary\n"));
+        assertTrue(text.contains("authenticator_approval_latency_ms{stage=\"end_to_end\",quantile=\"0.5\"} 5000\n"));
+        assertTrue(text.contains("authenticator_approval_latency_ms{stage=\"end_to_end\",quantile=\"0.95\"} 9500\n"));
+        assertTrue(text.contains("authenticator_approval_latency_ms{stage=\"end_to_end\",quantile=\"0.99\"} 9900\n"));
+        assertTrue(text.contains("authenticator_approval_latency_ms_sum{stage=\"end_to_end\"} 505000\n"));
+        assertTrue(text.contains("authenticator_approval_latency_ms_count{stage=\"end_to_end\"} 100\n"));
+        assertFalse(text.contains("web_to_phone"));
+    }
+}
@@ -4,11 +4,29 @@ import { doc, onSnapshot, getFirestore } from 'firebase/firestore';
 import Lottie from 'react-lottie';
 import bioconfirmed from '../animations/bioconfirmed.json';
 
+// Off unless the build sets REACT_APP_REQUIRE_VERIFIED_APPROVALS=true, i.e. the deployment runs the verifier
+const REQUIRE_VERIFIED_APPROVALS = process.env.REACT_APP_REQUIRE_VERIFIED_APPROVALS === 'true';
+// The verifier usually takes well under a second, this long means it isn't running
+const VERIFICATION_TIMEOUT_MS = 30000;
+
 /**
  * This component is responsible for displaying the authentication request page.
  * It listens for changes to the login attempt document in the Firestore database.
- * When the status of the document changes to 'authenticated', the component plays an animation.
+ * When the status of the document changes to 'authenticated', and, if required (see below), the verifier has checked
+ * the phone's signature on the approval (verification 'valid'), the component plays an animation.
  * After the animation finishes, the user is redirected to the welcome page.
+ *
+ * A deployment that runs the verifier, ApprovalVerifierService in android/verifier (see the README), should build with
+ * REACT_APP_REQUIRE_VERIFIED_APPROVALS=true. Then the page also waits for the verifier to check the phone's signature,
+ * an approval the verifier rejects never logs the user in, whatever the status said before, and if an approval isn't
+ * verified within VERIFICATION_TIMEOUT_MS, the page says so rather than sitting on "Verifying approval..." forever,
+ * and keeps listening in case the verifier catches up.
+ * Without it, the phone's "authenticated" is accepted as is, like before the verifier existed.
+ *
+ * The listener is removed once the request is decided, or once it expires (expiresAt, passed in by LoginForm),
+ * rather than staying open for as long as the page does. How long the approval took, from the login click to the
+ * verified approval, is logged to the console, both ends are this browser's clock so the number is exact.
+ * The breakdown by stage is on the login attempt's timings, see the verifier's ApprovalLatencyExporter.
  * 
  * In order to successfully authenticate, the user must provide their PIN then their fingerprint,
  * this is all done through the android app, for handling the fingerprint authentication. 
@@ -18,7 +36,7 @@ import bioconfirmed from '../animations/bioconfirmed.json';
 function AuthRequest() {
     const location = useLocation();
     const navigate = useNavigate();
-    const { sessionId } = location.state;
+    const { sessionId, expiresAt } = location.state;
     const [status, setStatus] = useState('Pending...');
     const [playAnimation, setPlayAnimation] = useState(false);
 
@@ -31,17 +49,54 @@ function AuthRequest() {
 
         // Listen for changes to the login attempt document,
         // thankfully firebase will only trigger the callback when the document changes
+        let timeout = null;
+        let verificationTimeout = null;
+        let pending = true;
         const authenticationListener = onSnapshot(loginAttemptRef, (docSnapshot) => {
             const docData = docSnapshot.data();
             if (docData && docData.status) {
-                setStatus(`Status: ${docData.status}`);
-                if (docData.status === 'authenticated') {
+                pending = docData.status === 'pending';
+                if (docData.status === 'authenticated' && (docData.verification === 'valid' || !REQUIRE_VERIFIED_APPROVALS)) {
+                    setStatus('Status: authenticated');
                     setPlayAnimation(true);
+                    if (docData.timestamp) {
+                        console.info(`Login approved in ${Date.now() - docData.timestamp.toMillis()} ms`);
+                    }
+                    stopListening();
+                } else if (docData.status === 'authenticated') {
+                    setStatus('Verifying approval...');
+                    if (!verificationTimeout) {
+                        verificationTimeout = setTimeout(() => {
+                            setStatus('Your approval could not be verified, the approval verifier may not be running. Please try again later.');
+                        }, VERIFICATION_TIMEOUT_MS);
+                    }
+                } else if (docData.status === 'rejected') {
+                    setStatus('Status: rejected, the approval could not be verified');
+                    stopListening();
+                } else {
+                    setStatus(`Status: ${docData.status}`);
+                    if (docData.status !== 'pending') { stopListening(); }
                 }
             }
         });
-        return () => authenticationListener();
-    }, [sessionId, navigate]);
+
+        // Give up once the request can no longer be approved, the phone won't offer it anymore either.
+        // An approval that is only waiting on the verifier is left alone, it was given in time.
+        if (expiresAt) {
+            timeout = setTimeout(() => {
+                if (!pending) { return; }
+                setStatus('This login request expired, please log in again');
+                stopListening();
+            }, Math.max(expiresAt - Date.now(), 0));
+        }
+
+        function stopListening() {
+            authenticationListener();
+            if (timeout) { clearTimeout(timeout); }
+            if (verificationTimeout) { clearTimeout(verificationTimeout); }
+        }
+        return () => stopListening();
+    }, [sessionId, expiresAt, navigate]);
 
     // Redirect to the welcome page after the animation finishes
     const handleAnimationFinish = () => { navigate('/welcome'); };
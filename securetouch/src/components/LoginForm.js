@@ -2,12 +2,22 @@ import React, { useState } from 'react';
 import { useNavigate } from 'react-router-dom';
 import { getAuth, signInWithEmailAndPassword } from 'firebase/auth';
 import { getFirestore, setDoc, doc } from 'firebase/firestore';
+import { tryAcquire } from '../rateLimit';
+
+// How long a login attempt can be approved from the authenticator app before it expires (2 minutes).
+// The app sweeps pending attempts past expiresAt to 'expired', and deletes them a day later.
+const LOGIN_ATTEMPT_TTL_MS = 2 * 60 * 1000;
+// How many login attempts a user can create, across every browser, in any 10 minutes
+const LOGIN_ATTEMPT_LIMIT = 10;
+const LOGIN_ATTEMPT_WINDOW_MS = 10 * 60 * 1000;
 
 /**
  * Component to display the login form to the user.
  * The user can enter their email and password to authenticate with the application.
  * If the login is successful, the user is redirected to the authentication request page.
  * If the login fails, an error message is displayed to the user.
+ * Each user can only create LOGIN_ATTEMPT_LIMIT login attempts every LOGIN_ATTEMPT_WINDOW_MS (see rateLimit.js),
+ * so logging in over and over can't flood login_attempts, and the phone's pending attempts query, with requests.
  * 
  * @returns {JSX.Element}
  */
@@ -30,12 +40,20 @@ function LoginForm() {
                 const sessionId = `${userId}_${new Date().getTime()}`;
                 const firestore = getFirestore();
 
-                // create a new login_attempt document in the apps firestore database (with associated userId, status (starts as pending), timestamp)
-                await setDoc(doc(firestore, 'login_attempts', sessionId), { userId: userId, status: 'pending', timestamp: new Date()});
+                const retryAfterMs = await tryAcquire(firestore, `login_attempts:${userId}`, LOGIN_ATTEMPT_LIMIT, LOGIN_ATTEMPT_WINDOW_MS);
+                if (retryAfterMs > 0) {
+                    setErrorMessage(`Too many login attempts. Try again in ${Math.ceil(retryAfterMs / 1000)} seconds.`);
+                    return;
+                }
+
+                // create a new login_attempt document in the apps firestore database (with associated userId, status (starts as pending), timestamp, expiresAt)
+                const timestamp = new Date();
+                const expiresAt = new Date(timestamp.getTime() + LOGIN_ATTEMPT_TTL_MS);
+                await setDoc(doc(firestore, 'login_attempts', sessionId), { userId: userId, status: 'pending', timestamp: timestamp, expiresAt: expiresAt});
                 
                 // navigate to the AuthRequest component with the sessionId
                 // AuthenticationRequest needs the sessionId to listen for changes to the login_attempt document ('authenticated' status).
-                navigate('/authrequest', { state: { sessionId: sessionId } });
+                navigate('/authrequest', { state: { sessionId: sessionId, expiresAt: expiresAt.getTime() } });
             })
             .catch((error) => {
                 var errorCode = error.code;
@@ -5,6 +5,27 @@ import { doc, setDoc, serverTimestamp } from 'firebase/firestore';
 import { db } from '../firebase';
 import wordlist from '../wordlist.txt';
 
+// PBKDF2 iterations for the backup codes. The app verifies all 12 in parallel and stays well within its latency budget
+// at this count, and it rehashes the codes with a count calibrated for the phone once the user has verified them.
+const BACKUP_CODE_ITERATIONS = 100000;
+
+// The wordlist is only fetched and split once per page load, every registration after the first reuses it.
+// Blank lines are dropped, so a trailing newline can never turn into an empty backup code.
+// The app ships the same list, compiled at build time (see WordlistCompiler in the android core module).
+let wordsPromise = null;
+const loadWords = () => {
+    if (!wordsPromise) {
+        wordsPromise = fetch(wordlist)
+            .then(response => response.text())
+            .then(text => text.split('\n').map(word => word.trim()).filter(word => word.length > 0))
+            .catch(error => {
+                wordsPromise = null;
+                throw error;
+            });
+    }
+    return wordsPromise;
+};
+
 /**
  * This component is a form for user registration.
  * It collects the user's email and password, and then creates a new user account.
@@ -21,27 +42,34 @@ function RegistrationForm() {
     const navigate = useNavigate();
 
     /**
-     * Function to hash a word with a salt, and then return the hashed word and the salt used.
-     * First the salt is generated using the current timestamp.
-     * Then the word is concatenated with the salt.
-     * Next we encode the word into a Uint8Array and hash it using SHA-256.
-     * Finally we convert the hash to hexadecimal format and return it along with the salt.
+     * Function to hash a word with a salt, and then return the stored form of the hash.
+     * This used to be a single SHA-256 over the word + a timestamp salt, which can be brute forced against the whole wordlist
+     * in no time, so now we use PBKDF2 with a random salt instead.
+     * First a random 16 byte salt is generated.
+     * Then the word is imported as PBKDF2 key material, and we derive 256 bits from it with SHA-256 and BACKUP_CODE_ITERATIONS.
+     * Finally the salt and the hash are converted to hexadecimal format, and returned along with the algorithm and iterations,
+     * so the app knows how to verify it (see BackupCodeHash in the android core module).
      * @param {*} word 
-     * @returns - { hash: string, salt: string }
+     * @returns - { alg: string, iterations: number, salt: string, hash: string }
      */
     const hashWord = async (word) => {
-        const salt = new Date().getTime().toString();
-        const saltedWord = word + salt;
-        const messageUint8 = new TextEncoder().encode(saltedWord);
-        const hashBuffer = await crypto.subtle.digest('SHA-256', messageUint8);
-        const hashArray = Array.from(new Uint8Array(hashBuffer));
-        const hashHex = hashArray.map(b => b.toString(16).padStart(2, '0')).join('');
-        return { hash: hashHex, salt };
+        const salt = crypto.getRandomValues(new Uint8Array(16));
+        const keyMaterial = await crypto.subtle.importKey('raw', new TextEncoder().encode(word), 'PBKDF2', false, ['deriveBits']);
+        const hashBuffer = await crypto.subtle.deriveBits(
+            { name: 'PBKDF2', hash: 'SHA-256', salt, iterations: BACKUP_CODE_ITERATIONS }, keyMaterial, 256);
+        return { alg: 'pbkdf2-sha256', iterations: BACKUP_CODE_ITERATIONS, salt: toHex(salt), hash: toHex(new Uint8Array(hashBuffer)) };
     };
 
+    /**
+     * Helper function to convert bytes to a hexadecimal string.
+     * @param {Uint8Array} bytes 
+     * @returns - {string}
+     */
+    const toHex = (bytes) => Array.from(bytes).map(b => b.toString(16).padStart(2, '0')).join('');
+
     /**
      * This function generates 12 backup codes for the user.
-     * It fetches a list of words from a text file and randomly selects 12 words.
+     * It gets the list of words from the text file (fetched once, see loadWords) and randomly selects 12 words.
      * For the wordlist I used a online dictionary and filtered out words that were too long or too short using a python script.
      * Unfortunately, there are some seedy words in the list, but I didn't want to spend too much time filtering those out for the demo.
      * 
@@ -50,9 +78,7 @@ function RegistrationForm() {
      * @returns - {Array<string>} (12 backup codes in an array)
      */
     const generateBackupCodes = async () => {
-        const response = await fetch(wordlist);
-        const text = await response.text();
-        const words = text.split('\n');
+        const words = await loadWords();
         let codes = [];
         for (let i = 0; i < 12; i++) {
             // helps me randomly select words from the list, until I have 12 words
@@ -0,0 +1,59 @@
+import { collection, doc, getDocs, increment, query, setDoc, where } from 'firebase/firestore';
+
+// Each key's count is split over this many shard documents, the same as the app's FirestoreRateLimiter
+const SHARDS = 8;
+
+/**
+ * The web app's side of the authenticator app's FirestoreRateLimiter, counting in the same documents.
+ * Each key's count for a fixed window is split over SHARDS documents, rate_limits/{key}/shards/{window}_{shard},
+ * an event increments one of them at random, and the count is the sum of the current and the previous window's shards,
+ * put through the same sliding window estimate as the app's SlidingWindowRateLimiter.
+ * Checking and then counting isn't atomic, so two tabs racing each other can go an event or two over the limit.
+ *
+ * Unlike the app's PIN limit, this one fails closed: if the count can't be read, the promise rejects and the caller
+ * shouldn't go ahead, since the write it was about to make would most likely fail the same way.
+ *
+ * @param {Firestore} firestore - the Firestore instance
+ * @param {string} key - what is being limited, e.g. 'login_attempts:' + userId
+ * @param {number} limit - how many events the key can have in any window
+ * @param {number} windowMs - how long the window is
+ * @returns {Promise<number>} 0 if the event was allowed (and counted), otherwise how many ms until one would be
+ */
+export async function tryAcquire(firestore, key, limit, windowMs) {
+    const now = Date.now();
+    const index = Math.floor(now / windowMs);
+    const shards = collection(firestore, 'rate_limits', key, 'shards');
+
+    let previous = 0;
+    let current = 0;
+    const snapshot = await getDocs(query(shards, where('window', '>=', index - 1)));
+    snapshot.forEach((shard) => {
+        const { window, count } = shard.data();
+        if (window === index) { current += count; }
+        else if (window === index - 1) { previous += count; }
+    });
+
+    const retryAfter = retryAfterMs(previous, current, now - index * windowMs, windowMs, limit);
+    if (retryAfter > 0) { return retryAfter; }
+
+    await setDoc(doc(shards, `${index}_${Math.floor(Math.random() * SHARDS)}`),
+        { window: index, count: increment(1), expiresAt: new Date((index + 2) * windowMs) }, { merge: true });
+    return 0;
+}
+
+/**
+ * The same estimate as SlidingWindowRateLimiter.retryAfterMillis in the app: one more event fits if
+ * previous * (window - elapsed) / window + current + 1 <= limit.
+ * @returns {number} 0 if one more event fits, otherwise how long until it would
+ */
+function retryAfterMs(previous, current, elapsedMs, windowMs, limit) {
+    if (previous * (windowMs - elapsedMs) + (current + 1) * windowMs <= limit * windowMs) { return 0; }
+    if (current < limit) {
+        // The current window has room, wait for enough of the previous window to slide out
+        const fitsAtMs = windowMs - Math.floor((limit - current - 1) * windowMs / previous);
+        return Math.max(1, fitsAtMs - elapsedMs);
+    }
+    // The current window is full on its own, wait for the next one, where it becomes the previous window
+    const fitsAtMs = windowMs - Math.floor((limit - 1) * windowMs / current);
+    return (windowMs - elapsedMs) + fitsAtMs;
+}